@@ -1,6 +1,8 @@
 package com.example.ledgerly.controller;
 
+import com.example.ledgerly.dto.KeysetPage;
 import com.example.ledgerly.entity.AuditLog;
+import com.example.ledgerly.exception.BusinessRuleException;
 import com.example.ledgerly.service.AuditService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -34,7 +36,7 @@ public class AuditController {
     }
 
     /**
-     * Search audit logs with filters
+     * Search audit logs with filters; action and entityType match codes exactly unless match is PREFIX or CONTAINS
      */
     @GetMapping("/logs")
     @PreAuthorize("hasRole('ADMIN') or hasRole('OWNER')")
@@ -46,6 +48,7 @@ public class AuditController {
             @RequestParam(required = false) Boolean success,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "EXACT") AuditService.MatchMode match,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
@@ -57,7 +60,7 @@ public class AuditController {
             Pageable pageable = PageRequest.of(page, size, sort);
             
             Page<AuditLog> auditLogs = auditService.searchAuditLogs(
-                    userId, action, entityType, entityId, success, startDate, endDate, pageable);
+                    userId, action, entityType, entityId, success, startDate, endDate, match, pageable);
             
             List<Map<String, Object>> logs = auditLogs.getContent().stream()
                     .map(this::convertAuditLogToMap)
@@ -82,16 +85,71 @@ public class AuditController {
     }
 
     /**
-     * Get audit logs for a specific entity
+     * Search audit logs by keyset, newest first; pass the previous page's nextCursor as "after"
+     */
+    @GetMapping("/logs/seek")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('OWNER')")
+    public ResponseEntity<Map<String, Object>> searchAuditLogsAfter(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) String entityType,
+            @RequestParam(required = false) Long entityId,
+            @RequestParam(required = false) Boolean success,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "EXACT") AuditService.MatchMode match,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        
+        try {
+            KeysetPage<AuditLog> auditLogs = auditService.searchAuditLogsAfter(
+                    userId, action, entityType, entityId, success, startDate, endDate, match, after, size,
+                    includeTotal);
+            
+            List<Map<String, Object>> logs = auditLogs.getContent().stream()
+                    .map(this::convertAuditLogToMap)
+                    .collect(Collectors.toList());
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("logs", logs);
+            response.put("nextCursor", auditLogs.getNextCursor());
+            response.put("hasMore", auditLogs.isHasMore());
+            response.put("size", auditLogs.getSize());
+            if (auditLogs.getTotalElements() != null) {
+                response.put("totalElements", auditLogs.getTotalElements());
+            }
+            
+            return ResponseEntity.ok(response);
+        } catch (BusinessRuleException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("ruleCode", e.getRuleCode());
+            errorResponse.put("message", e.getMessage());
+            
+            return ResponseEntity.badRequest().body(errorResponse);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to search audit logs: " + e.getMessage());
+            
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
+    /**
+     * Get audit logs for a specific entity; includeArchived also reads its rows from archive segments
      */
     @GetMapping("/entity/{entityType}/{entityId}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('OWNER')")
     public ResponseEntity<Map<String, Object>> getAuditLogsForEntity(
             @PathVariable String entityType,
-            @PathVariable Long entityId) {
+            @PathVariable Long entityId,
+            @RequestParam(defaultValue = "false") boolean includeArchived) {
         
         try {
-            List<AuditLog> auditLogs = auditService.getAuditLogsForEntity(entityType, entityId);
+            List<AuditLog> auditLogs = auditService.getAuditLogsForEntity(entityType, entityId, includeArchived);
             
             List<Map<String, Object>> logs = auditLogs.stream()
                     .map(this::convertAuditLogToMap)
@@ -103,6 +161,7 @@ public class AuditController {
             response.put("entityType", entityType);
             response.put("entityId", entityId);
             response.put("count", logs.size());
+            response.put("includeArchived", includeArchived);
             
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -182,13 +241,15 @@ public class AuditController {
     }
 
     /**
-     * Get audit statistics
+     * Get audit statistics, optionally for rows created in [from, to) (rounded down to the hour)
      */
     @GetMapping("/statistics")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Map<String, Object>> getAuditStatistics() {
+    public ResponseEntity<Map<String, Object>> getAuditStatistics(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
         try {
-            AuditService.AuditStatistics stats = auditService.getAuditStatistics();
+            AuditService.AuditStatistics stats = auditService.getAuditStatistics(from, to);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -201,6 +262,8 @@ public class AuditController {
                     "actionStatistics", convertActionStatistics(stats.getActionStatistics()),
                     "userStatistics", convertUserStatistics(stats.getUserStatistics())
             ));
+            response.put("from", from);
+            response.put("to", to);
             
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -212,6 +275,19 @@ public class AuditController {
         }
     }
 
+    /**
+     * Queue depth, throughput and drop counters of the asynchronous audit writer
+     */
+    @GetMapping("/writer")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getAuditWriterStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("writer", auditService.getWriterStats());
+
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Get audit logs by user
      */
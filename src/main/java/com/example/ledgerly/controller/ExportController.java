@@ -1,5 +1,6 @@
 package com.example.ledgerly.controller;
 
+import com.example.ledgerly.entity.Customer;
 import com.example.ledgerly.service.ExportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -15,8 +16,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/v1/export")
@@ -25,6 +29,8 @@ public class ExportController {
 
     private static final Logger logger = LoggerFactory.getLogger(ExportController.class);
 
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv; charset=UTF-8");
+
     private final ExportService exportService;
 
     @Autowired
@@ -192,6 +198,146 @@ public class ExportController {
         }
     }
 
+    /**
+     * Stream customer statement as PDF for a specific date range
+     */
+    @GetMapping("/customers/{customerId}/statement/pdf/stream")
+    @PreAuthorize("hasAnyRole('ADMIN', 'OWNER')")
+    @Operation(
+        summary = "Stream Customer Statement as PDF",
+        description = "Stream a PDF statement for a customer within a specified date range as its pages are " +
+                    "rendered. Suited to long statements. " +
+                    "Staff can only export statements for customers in their assigned shop."
+    )
+    public ResponseEntity<StreamingResponseBody> streamCustomerStatementPDF(
+            @Parameter(description = "Customer ID", required = true)
+            @PathVariable Long customerId,
+            
+            @Parameter(description = "Start date (YYYY-MM-DD)", required = true)
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            
+            @Parameter(description = "End date (YYYY-MM-DD)", required = true)
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            
+            Authentication authentication) {
+        
+        try {
+            logger.info("Streaming PDF statement for customer {} from {} to {}", customerId, startDate, endDate);
+            
+            Customer customer = exportService.getExportableCustomer(customerId, authentication.getName());
+            
+            return streamPDF(String.format("customer_statement_%d_%s_to_%s.pdf", customerId, startDate, endDate),
+                    out -> exportService.writeCustomerStatementPDF(customer, startDate, endDate, out));
+            
+        } catch (Exception e) {
+            logger.error("Error streaming PDF statement for customer {}: {}", customerId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Stream complete transaction history as PDF for a customer
+     */
+    @GetMapping("/customers/{customerId}/history/pdf/stream")
+    @PreAuthorize("hasAnyRole('ADMIN', 'OWNER')")
+    @Operation(
+        summary = "Stream Complete Transaction History as PDF",
+        description = "Stream the complete transaction history for a customer as a PDF whose pages are sent as " +
+                    "they are rendered, with memory use independent of history length. Suited to long histories. " +
+                    "Staff can only export history for customers in their assigned shop."
+    )
+    public ResponseEntity<StreamingResponseBody> streamTransactionHistoryPDF(
+            @Parameter(description = "Customer ID", required = true)
+            @PathVariable Long customerId,
+            
+            Authentication authentication) {
+        
+        try {
+            logger.info("Streaming PDF transaction history for customer {}", customerId);
+            
+            Customer customer = exportService.getExportableCustomer(customerId, authentication.getName());
+            
+            return streamPDF(String.format("customer_transaction_history_%d.pdf", customerId),
+                    out -> exportService.writeTransactionHistoryPDF(customer, out));
+            
+        } catch (Exception e) {
+            logger.error("Error streaming PDF transaction history for customer {}: {}", customerId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Stream customer statement as CSV for a specific date range
+     */
+    @GetMapping("/customers/{customerId}/statement/csv/stream")
+    @PreAuthorize("hasAnyRole('ADMIN', 'OWNER')")
+    @Operation(
+        summary = "Stream Customer Statement as CSV",
+        description = "Stream a CSV statement for a customer within a specified date range as it is generated, " +
+                    "gzip-encoded when the client accepts it. Suited to long statements. " +
+                    "Staff can only export statements for customers in their assigned shop."
+    )
+    public ResponseEntity<StreamingResponseBody> streamCustomerStatementCSV(
+            @Parameter(description = "Customer ID", required = true)
+            @PathVariable Long customerId,
+            
+            @Parameter(description = "Start date (YYYY-MM-DD)", required = true)
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            
+            @Parameter(description = "End date (YYYY-MM-DD)", required = true)
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            
+            Authentication authentication) {
+        
+        try {
+            logger.info("Streaming CSV statement for customer {} from {} to {}", customerId, startDate, endDate);
+            
+            Customer customer = exportService.getExportableCustomer(customerId, authentication.getName());
+            
+            return streamCSV(String.format("customer_statement_%d_%s_to_%s.csv", customerId, startDate, endDate),
+                    acceptEncoding, out -> exportService.writeCustomerStatementCSV(customer, startDate, endDate, out));
+            
+        } catch (Exception e) {
+            logger.error("Error streaming CSV statement for customer {}: {}", customerId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Stream complete transaction history as CSV for a customer
+     */
+    @GetMapping("/customers/{customerId}/history/csv/stream")
+    @PreAuthorize("hasAnyRole('ADMIN', 'OWNER')")
+    @Operation(
+        summary = "Stream Complete Transaction History as CSV",
+        description = "Stream the complete transaction history for a customer as CSV while it is read from the " +
+                    "database, gzip-encoded when the client accepts it. Suited to long histories. " +
+                    "Staff can only export history for customers in their assigned shop."
+    )
+    public ResponseEntity<StreamingResponseBody> streamTransactionHistoryCSV(
+            @Parameter(description = "Customer ID", required = true)
+            @PathVariable Long customerId,
+            
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            
+            Authentication authentication) {
+        
+        try {
+            logger.info("Streaming CSV transaction history for customer {}", customerId);
+            
+            Customer customer = exportService.getExportableCustomer(customerId, authentication.getName());
+            
+            return streamCSV(String.format("customer_transaction_history_%d.csv", customerId),
+                    acceptEncoding, out -> exportService.writeTransactionHistoryCSV(customer, out));
+            
+        } catch (Exception e) {
+            logger.error("Error streaming CSV transaction history for customer {}: {}", customerId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     /**
      * Export customer statement as PDF for current month
      */
@@ -273,4 +419,36 @@ public class ExportController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
+
+    /**
+     * Streamed PDF response without a content length. PDF content streams are already compressed, so no gzip.
+     */
+    private ResponseEntity<StreamingResponseBody> streamPDF(String filename, StreamingResponseBody body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("attachment", filename);
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Streamed CSV response without a content length; the body is gzip-encoded when the client accepts gzip.
+     * The gzip stream sync-flushes, so each flush of the export reaches the client.
+     */
+    private ResponseEntity<StreamingResponseBody> streamCSV(String filename, String acceptEncoding,
+                                                            StreamingResponseBody body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(TEXT_CSV);
+        headers.setContentDispositionFormData("attachment", filename);
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (acceptEncoding == null || !acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip")) {
+            return new ResponseEntity<>(body, headers, HttpStatus.OK);
+        }
+        headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return new ResponseEntity<>(out -> {
+            GZIPOutputStream gzip = new GZIPOutputStream(out, 8192, true);
+            body.writeTo(gzip);
+            gzip.finish();
+        }, headers, HttpStatus.OK);
+    }
 }
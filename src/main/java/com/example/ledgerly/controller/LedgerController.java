@@ -1 +1,203 @@
- 
\ No newline at end of file
+package com.example.ledgerly.controller;
+
+import com.example.ledgerly.dto.KeysetPage;
+import com.example.ledgerly.dto.LedgerEntryResponse;
+import com.example.ledgerly.dto.LedgerImportResponse;
+import com.example.ledgerly.entity.RollupSource;
+import com.example.ledgerly.exception.BusinessRuleException;
+import com.example.ledgerly.service.LedgerAggregateService;
+import com.example.ledgerly.service.LedgerImportService;
+import com.example.ledgerly.service.LedgerService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST Controller for Ledger entry operations
+ */
+@RestController
+@RequestMapping("/api/v1/ledger")
+@PreAuthorize("hasRole('ADMIN') or hasRole('OWNER') or hasRole('STAFF')")
+public class LedgerController {
+
+    private final LedgerImportService ledgerImportService;
+    private final LedgerAggregateService ledgerAggregateService;
+    private final LedgerService ledgerService;
+
+    @Autowired
+    public LedgerController(LedgerImportService ledgerImportService,
+                            LedgerAggregateService ledgerAggregateService,
+                            LedgerService ledgerService) {
+        this.ledgerImportService = ledgerImportService;
+        this.ledgerAggregateService = ledgerAggregateService;
+        this.ledgerService = ledgerService;
+    }
+
+    /**
+     * Bulk import ledger entries from an uploaded CSV or JSON file
+     */
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('OWNER')")
+    public ResponseEntity<Map<String, Object>> importLedgerEntries(@RequestParam("file") MultipartFile file) {
+        try (InputStream inputStream = file.getInputStream()) {
+            String fileName = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase() : "";
+            boolean json = fileName.endsWith(".json") ||
+                    (file.getContentType() != null && file.getContentType().contains("json"));
+
+            LedgerImportResponse result = json
+                    ? ledgerImportService.importJson(inputStream)
+                    : ledgerImportService.importCsv(inputStream);
+
+            return ResponseEntity.ok(buildImportResponse(result));
+        } catch (Exception e) {
+            return importFailed(e);
+        }
+    }
+
+    /**
+     * Bulk import ledger entries from a JSON array request body (streamed, not bound in memory)
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('OWNER')")
+    public ResponseEntity<Map<String, Object>> importLedgerEntriesJson(HttpServletRequest request) {
+        try (InputStream inputStream = request.getInputStream()) {
+            LedgerImportResponse result = ledgerImportService.importJson(inputStream);
+            return ResponseEntity.ok(buildImportResponse(result));
+        } catch (Exception e) {
+            return importFailed(e);
+        }
+    }
+
+    /**
+     * Entry count and amount by transaction type for a customer over a year, or one month of it
+     */
+    @GetMapping("/customers/{customerId}/summary")
+    public ResponseEntity<Map<String, Object>> getCustomerLedgerSummary(
+            @PathVariable Long customerId,
+            @RequestParam int year,
+            @RequestParam(required = false) Integer month) {
+        try {
+            List<LedgerAggregateService.RollupTotal> byType =
+                    ledgerAggregateService.getCustomerRollup(RollupSource.LEDGER_ENTRY, customerId, year, month);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("customerId", customerId);
+            response.put("year", year);
+            response.put("month", month);
+            response.put("byType", byType);
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to fetch ledger summary: " + e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
+    /**
+     * Get a customer's ledger entries with offset pagination
+     */
+    @GetMapping("/customers/{customerId}/entries")
+    public ResponseEntity<Map<String, Object>> getLedgerEntriesForCustomer(
+            @PathVariable Long customerId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "transactionDate") String sortBy,
+            @RequestParam(defaultValue = "desc") String sortDir) {
+        try {
+            Page<LedgerEntryResponse> entries = ledgerService.getLedgerEntriesForCustomer(
+                    customerId, page, size, sortBy, sortDir);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("entries", entries.getContent());
+            response.put("totalElements", entries.getTotalElements());
+            response.put("totalPages", entries.getTotalPages());
+            response.put("currentPage", entries.getNumber());
+            response.put("size", entries.getSize());
+            response.put("customerId", customerId);
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to fetch ledger entries: " + e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
+    /**
+     * Get a customer's ledger entries by keyset, newest first; pass the previous page's nextCursor as "after"
+     */
+    @GetMapping("/customers/{customerId}/entries/seek")
+    public ResponseEntity<Map<String, Object>> getLedgerEntriesForCustomerAfter(
+            @PathVariable Long customerId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        try {
+            KeysetPage<LedgerEntryResponse> entries =
+                    ledgerService.getLedgerEntriesForCustomerAfter(customerId, after, size, includeTotal);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("entries", entries.getContent());
+            response.put("nextCursor", entries.getNextCursor());
+            response.put("hasMore", entries.isHasMore());
+            response.put("size", entries.getSize());
+            if (entries.getTotalElements() != null) {
+                response.put("totalElements", entries.getTotalElements());
+            }
+            response.put("customerId", customerId);
+
+            return ResponseEntity.ok(response);
+        } catch (BusinessRuleException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("ruleCode", e.getRuleCode());
+            errorResponse.put("message", e.getMessage());
+
+            return ResponseEntity.badRequest().body(errorResponse);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to fetch ledger entries: " + e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
+    private Map<String, Object> buildImportResponse(LedgerImportResponse result) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", result.hasErrors()
+                ? String.format("Imported %d of %d entries, %d rows rejected",
+                        result.getImportedRows(), result.getTotalRows(), result.getFailedRows())
+                : String.format("Imported %d entries", result.getImportedRows()));
+        response.put("result", result);
+        return response;
+    }
+
+    private ResponseEntity<Map<String, Object>> importFailed(Exception e) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("message", "Failed to import ledger entries: " + e.getMessage());
+
+        return ResponseEntity.badRequest().body(errorResponse);
+    }
+}
@@ -0,0 +1,401 @@
+package com.example.ledgerly.controller;
+
+import com.example.ledgerly.exception.BusinessRuleException;
+import com.example.ledgerly.entity.AuditArchiveSegment;
+import com.example.ledgerly.service.AllocationStrategy;
+import com.example.ledgerly.service.AuditArchiveService;
+import com.example.ledgerly.service.AuditStatsService;
+import com.example.ledgerly.service.CustomerBalanceService;
+import com.example.ledgerly.service.LedgerAggregateService;
+import com.example.ledgerly.service.LedgerRebalanceService;
+import com.example.ledgerly.service.OverdueDetectionService;
+import com.example.ledgerly.service.OverdueScheduler;
+import com.example.ledgerly.service.PaymentLedgerSyncService;
+import com.example.ledgerly.service.SettlementRunService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST Controller for administrative maintenance jobs (verification, repair and rebuilds)
+ */
+@RestController
+@RequestMapping("/api/v1/admin/maintenance")
+@PreAuthorize("hasRole('ADMIN')")
+public class MaintenanceController {
+
+    private final CustomerBalanceService customerBalanceService;
+    private final LedgerRebalanceService ledgerRebalanceService;
+    private final LedgerAggregateService ledgerAggregateService;
+    private final SettlementRunService settlementRunService;
+    private final PaymentLedgerSyncService paymentLedgerSyncService;
+    private final OverdueDetectionService overdueDetectionService;
+    private final OverdueScheduler overdueScheduler;
+    private final AuditArchiveService auditArchiveService;
+    private final AuditStatsService auditStatsService;
+
+    @Autowired
+    public MaintenanceController(CustomerBalanceService customerBalanceService,
+                                 LedgerRebalanceService ledgerRebalanceService,
+                                 LedgerAggregateService ledgerAggregateService,
+                                 SettlementRunService settlementRunService,
+                                 PaymentLedgerSyncService paymentLedgerSyncService,
+                                 OverdueDetectionService overdueDetectionService,
+                                 OverdueScheduler overdueScheduler,
+                                 AuditArchiveService auditArchiveService,
+                                 AuditStatsService auditStatsService) {
+        this.customerBalanceService = customerBalanceService;
+        this.ledgerRebalanceService = ledgerRebalanceService;
+        this.ledgerAggregateService = ledgerAggregateService;
+        this.settlementRunService = settlementRunService;
+        this.paymentLedgerSyncService = paymentLedgerSyncService;
+        this.overdueDetectionService = overdueDetectionService;
+        this.overdueScheduler = overdueScheduler;
+        this.auditArchiveService = auditArchiveService;
+        this.auditStatsService = auditStatsService;
+    }
+
+    /**
+     * Verify maintained customer balances against the ledger, optionally repairing drift
+     */
+    @PostMapping("/balances/verify")
+    public ResponseEntity<Map<String, Object>> verifyCustomerBalances(
+            @RequestParam(defaultValue = "false") boolean repair) {
+        try {
+            CustomerBalanceService.BalanceVerificationResult result = customerBalanceService.verifyBalances(repair);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("customersChecked", result.getCustomersChecked());
+            response.put("driftCount", result.getDriftCount());
+            response.put("repairedCount", result.getRepairedCount());
+            response.put("durationMs", result.getDurationMs());
+            response.put("drifts", result.getDrifts());
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to verify customer balances: " + e.getMessage());
+
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
+    /**
+     * Recompute running balances (balanceAfterTransaction); dry run by default, returning the entries that would change
+     */
+    @PostMapping("/running-balances/rebalance")
+    public ResponseEntity<Map<String, Object>> rebalanceRunningBalances(
+            @RequestParam(required = false) Long customerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam(defaultValue = "true") boolean dryRun) {
+        try {
+            LedgerRebalanceService.RebalanceResult result = ledgerRebalanceService.rebalance(customerId, fromDate, dryRun);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("dryRun", result.isDryRun());
+            response.put("customersChecked", result.getCustomersChecked());
+            response.put("staleEntries", result.getStaleEntries());
+            response.put("updatedEntries", result.getUpdatedEntries());
+            response.put("durationMs", result.getDurationMs());
+            response.put("diffs", result.getDiffs());
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to rebalance running balances: " + e.getMessage());
+
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
+    /**
+     * Rebuild per-customer daily totals from the ledger
+     */
+    @PostMapping("/daily-totals/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildDailyTotals() {
+        try {
+            return ResponseEntity.ok(toResponse(ledgerAggregateService.rebuildDailyTotals()));
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to rebuild daily totals: " + e.getMessage());
+
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
+    /**
+     * Rebuild monthly balance checkpoints from the ledger
+     */
+    @PostMapping("/monthly-balances/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildMonthlyBalances() {
+        try {
+            return ResponseEntity.ok(toResponse(ledgerAggregateService.rebuildMonthlyBalances()));
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to rebuild monthly balances: " + e.getMessage());
+
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
+    /**
+     * Recompute ledger entry outstanding amounts and settled flags from payment applications
+     */
+    @PostMapping("/outstanding-amounts/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildOutstandingAmounts() {
+        try {
+            return ResponseEntity.ok(toResponse(ledgerAggregateService.rebuildOutstandingAmounts()));
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to rebuild outstanding amounts: " + e.getMessage());
+
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
+    /**
+     * Auto-apply unapplied payments of every customer with open debit entries (same job as the nightly run)
+     */
+    @PostMapping("/settlements/run")
+    public ResponseEntity<Map<String, Object>> runSettlement(
+            @RequestParam(defaultValue = "FIFO") AllocationStrategy strategy) {
+        try {
+            SettlementRunService.SettlementRunResult result = settlementRunService.runSettlement(strategy);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("strategy", result.getStrategy());
+            response.put("customersProcessed", result.getCustomersProcessed());
+            response.put("customersSettled", result.getCustomersSettled());
+            response.put("paymentsUpdated", result.getPaymentsUpdated());
+            response.put("applicationCount", result.getApplicationCount());
+            response.put("totalApplied", result.getTotalApplied());
+            response.put("failureCount", result.getFailureCount());
+            response.put("failures", result.getFailures());
+            response.put("durationMs", result.getDurationMs());
+            response.put("customersPerSecond", result.getCustomersPerSecond());
+
+            return ResponseEntity.ok(response);
+        } catch (BusinessRuleException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("ruleCode", e.getRuleCode());
+            errorResponse.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to run settlement: " + e.getMessage());
+
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
+    /**
+     * Post the missing ledger entry of every active payment that has none
+     */
+    @PostMapping("/payments/ledger-sync")
+    public ResponseEntity<Map<String, Object>> syncPaymentLedgerEntries() {
+        try {
+            PaymentLedgerSyncService.SyncResult result = paymentLedgerSyncService.syncPaymentsWithoutLedgerEntries();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("createdEntries", result.getCreatedEntries());
+            response.put("durationMs", result.getDurationMs());
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to sync payment ledger entries: " + e.getMessage());
+
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
+    /**
+     * Mark past-due PENDING and PARTIAL payments as OVERDUE now (same job as the daily check)
+     */
+    @PostMapping("/overdue/run")
+    public ResponseEntity<Map<String, Object>> runOverdueCheck() {
+        try {
+            OverdueDetectionService.OverdueRunResult result = overdueDetectionService.detectOverduePayments();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("scanned", result.getScanned());
+            response.put("marked", result.getMarked());
+            response.put("chunks", result.getChunks());
+            response.put("durationMs", result.getDurationMs());
+
+            return ResponseEntity.ok(response);
+        } catch (BusinessRuleException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("ruleCode", e.getRuleCode());
+            errorResponse.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to run overdue check: " + e.getMessage());
+
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
+    /**
+     * Progress of the running overdue check, or the totals of the last one
+     */
+    @GetMapping("/overdue/progress")
+    public ResponseEntity<OverdueDetectionService.OverdueRunProgress> getOverdueCheckProgress() {
+        return ResponseEntity.ok(overdueDetectionService.getProgress());
+    }
+
+    /**
+     * Queue of payments waiting to be marked overdue at their due time
+     */
+    @GetMapping("/overdue/scheduler")
+    public ResponseEntity<OverdueScheduler.SchedulerStatus> getOverdueSchedulerStatus() {
+        return ResponseEntity.ok(overdueScheduler.getStatus());
+    }
+
+    /**
+     * Create upcoming audit_logs partitions and archive the months past the retention window now
+     */
+    @PostMapping("/audit/archive")
+    public ResponseEntity<Map<String, Object>> runAuditArchive() {
+        try {
+            AuditArchiveService.ArchiveRunResult result = auditArchiveService.runLifecycle();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("partitioned", result.isPartitioned());
+            response.put("partitionsCreated", result.getPartitionsCreated());
+            response.put("archivedPartitions", result.getArchivedPartitions());
+            response.put("rowsArchived", result.getRowsArchived());
+            response.put("durationMs", result.getDurationMs());
+
+            return ResponseEntity.ok(response);
+        } catch (BusinessRuleException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("ruleCode", e.getRuleCode());
+            errorResponse.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to archive audit logs: " + e.getMessage());
+
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
+    /**
+     * Archived audit segments, newest first
+     */
+    @GetMapping("/audit/archive")
+    public ResponseEntity<List<AuditArchiveSegment>> getAuditArchiveSegments() {
+        return ResponseEntity.ok(auditArchiveService.getSegments());
+    }
+
+    /**
+     * Recompute the hourly audit statistics buckets from the live audit_logs rows
+     */
+    @PostMapping("/audit/statistics/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildAuditStatistics() {
+        try {
+            AuditStatsService.StatsRebuildResult result = auditStatsService.rebuildBuckets();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("rebuiltFrom", result.getRebuiltFrom());
+            response.put("windows", result.getWindows());
+            response.put("bucketsWritten", result.getBucketsWritten());
+            response.put("durationMs", result.getDurationMs());
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to rebuild audit statistics: " + e.getMessage());
+
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
+    /**
+     * Rebuild summary rollups from the ledger, payment and payment application tables
+     */
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildRollups() {
+        try {
+            return ResponseEntity.ok(toResponse(ledgerAggregateService.rebuildRollups()));
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to rebuild summary rollups: " + e.getMessage());
+
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
+    /**
+     * Reconcile summary rollups against the raw tables, optionally rebuilding them when they differ
+     */
+    @PostMapping("/rollups/reconcile")
+    public ResponseEntity<Map<String, Object>> reconcileRollups(
+            @RequestParam(defaultValue = "false") boolean repair) {
+        try {
+            LedgerAggregateService.RollupReconciliationResult result = ledgerAggregateService.reconcileRollups();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("rowsChecked", result.getRowsChecked());
+            response.put("mismatchCount", result.getMismatchCount());
+            response.put("durationMs", result.getDurationMs());
+            response.put("mismatches", result.getMismatches());
+            if (repair && result.getMismatchCount() > 0) {
+                response.put("rebuild", toResponse(ledgerAggregateService.rebuildRollups()));
+            }
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to reconcile summary rollups: " + e.getMessage());
+
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
+    private Map<String, Object> toResponse(LedgerAggregateService.RebuildResult result) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("aggregate", result.getAggregate());
+        response.put("customersProcessed", result.getCustomersProcessed());
+        response.put("rowsWritten", result.getRowsWritten());
+        response.put("durationMs", result.getDurationMs());
+        return response;
+    }
+}
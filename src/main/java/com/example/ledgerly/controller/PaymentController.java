@@ -3,8 +3,10 @@ package com.example.ledgerly.controller;
 import com.example.ledgerly.dto.*;
 import com.example.ledgerly.entity.PaymentStatus;
 import com.example.ledgerly.exception.BusinessRuleException;
+import com.example.ledgerly.service.AllocationStrategy;
 import com.example.ledgerly.service.PaymentService;
 import com.example.ledgerly.service.PaymentStatusService;
+import com.example.ledgerly.service.SettlementSuggestionService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -13,7 +15,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,11 +29,14 @@ public class PaymentController {
 
     private final PaymentService paymentService;
     private final PaymentStatusService paymentStatusService;
+    private final SettlementSuggestionService settlementSuggestionService;
 
     @Autowired
-    public PaymentController(PaymentService paymentService, PaymentStatusService paymentStatusService) {
+    public PaymentController(PaymentService paymentService, PaymentStatusService paymentStatusService,
+                             SettlementSuggestionService settlementSuggestionService) {
         this.paymentService = paymentService;
         this.paymentStatusService = paymentStatusService;
+        this.settlementSuggestionService = settlementSuggestionService;
     }
 
     /**
@@ -103,9 +107,11 @@ public class PaymentController {
      */
     @PostMapping("/{paymentId}/auto-apply")
     @PreAuthorize("hasRole('ADMIN') or hasRole('OWNER') or hasRole('STAFF')")
-    public ResponseEntity<Map<String, Object>> autoApplyPayment(@PathVariable Long paymentId) {
+    public ResponseEntity<Map<String, Object>> autoApplyPayment(
+            @PathVariable Long paymentId,
+            @RequestParam(defaultValue = "FIFO") AllocationStrategy strategy) {
         try {
-            PaymentResponse payment = paymentService.autoApplyPayment(paymentId);
+            PaymentResponse payment = paymentService.autoApplyPayment(paymentId, strategy);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -129,6 +135,41 @@ public class PaymentController {
         }
     }
 
+    /**
+     * Auto-apply all unapplied payments of a customer in one pass
+     */
+    @PostMapping("/customer/{customerId}/auto-apply")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('OWNER') or hasRole('STAFF')")
+    public ResponseEntity<Map<String, Object>> autoApplyPaymentsForCustomer(
+            @PathVariable Long customerId,
+            @RequestParam(defaultValue = "FIFO") AllocationStrategy strategy) {
+        try {
+            List<PaymentResponse> payments = paymentService.autoApplyPaymentsForCustomer(customerId, strategy);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", payments.isEmpty()
+                    ? "No unapplied payments or outstanding entries to match"
+                    : "Payments auto-applied successfully");
+            response.put("payments", payments);
+
+            return ResponseEntity.ok(response);
+        } catch (BusinessRuleException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("ruleCode", e.getRuleCode());
+            errorResponse.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to auto-apply payments: " + e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+        }
+    }
+
     /**
      * Reverse payment application
      */
@@ -215,6 +256,47 @@ public class PaymentController {
         }
     }
 
+    /**
+     * Get payments for a customer by keyset; pass the previous page's nextCursor as "after"
+     */
+    @GetMapping("/customer/{customerId}/seek")
+    public ResponseEntity<Map<String, Object>> getPaymentsForCustomerAfter(
+            @PathVariable Long customerId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        try {
+            KeysetPage<PaymentResponse> payments =
+                    paymentService.getPaymentsForCustomerAfter(customerId, after, size, includeTotal);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("payments", payments.getContent());
+            response.put("nextCursor", payments.getNextCursor());
+            response.put("hasMore", payments.isHasMore());
+            response.put("size", payments.getSize());
+            if (payments.getTotalElements() != null) {
+                response.put("totalElements", payments.getTotalElements());
+            }
+            response.put("customerId", customerId);
+
+            return ResponseEntity.ok(response);
+        } catch (BusinessRuleException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("ruleCode", e.getRuleCode());
+            errorResponse.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to fetch payments: " + e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
     /**
      * Get unapplied payments for a customer
      */
@@ -243,9 +325,12 @@ public class PaymentController {
      * Get outstanding balance for a customer
      */
     @GetMapping("/customer/{customerId}/outstanding-balance")
-    public ResponseEntity<Map<String, Object>> getOutstandingBalance(@PathVariable Long customerId) {
+    public ResponseEntity<Map<String, Object>> getOutstandingBalance(
+            @PathVariable Long customerId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size) {
         try {
-            OutstandingBalanceResponse outstandingBalance = paymentService.getOutstandingBalance(customerId);
+            OutstandingBalanceResponse outstandingBalance = paymentService.getOutstandingBalance(customerId, page, size);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -289,8 +374,8 @@ public class PaymentController {
     @GetMapping("/customer/{customerId}/summary")
     public ResponseEntity<Map<String, Object>> getPaymentSummary(@PathVariable Long customerId) {
         try {
+            // One outstanding computation serves the whole summary, unapplied payments included
             OutstandingBalanceResponse outstandingBalance = paymentService.getOutstandingBalance(customerId);
-            List<PaymentResponse> unappliedPayments = paymentService.getUnappliedPayments(customerId);
             
             Map<String, Object> summary = new HashMap<>();
             summary.put("customerId", customerId);
@@ -299,7 +384,7 @@ public class PaymentController {
             summary.put("totalUnappliedPayments", outstandingBalance.getTotalUnappliedPayments());
             summary.put("netOutstandingBalance", outstandingBalance.getNetOutstandingBalance());
             summary.put("outstandingEntriesCount", outstandingBalance.getTotalOutstandingEntries());
-            summary.put("unappliedPaymentsCount", unappliedPayments.size());
+            summary.put("unappliedPaymentsCount", outstandingBalance.getTotalUnappliedPaymentCount());
             summary.put("oldestOutstandingDate", outstandingBalance.getOldestOutstandingDate());
             summary.put("averageDaysOutstanding", outstandingBalance.getAverageDaysOutstanding());
             summary.put("hasOutstandingBalance", outstandingBalance.hasOutstandingBalance());
@@ -325,49 +410,9 @@ public class PaymentController {
     @GetMapping("/customer/{customerId}/settlement-suggestions")
     public ResponseEntity<Map<String, Object>> getSettlementSuggestions(@PathVariable Long customerId) {
         try {
-            OutstandingBalanceResponse outstandingBalance = paymentService.getOutstandingBalance(customerId);
-            List<PaymentResponse> unappliedPayments = paymentService.getUnappliedPayments(customerId);
-            
-            List<Map<String, Object>> suggestions = new ArrayList<>();
-            
-            // Create settlement suggestions by matching payments to outstanding entries
-            for (PaymentResponse payment : unappliedPayments) {
-                if (payment.getUnappliedAmount().compareTo(java.math.BigDecimal.ZERO) > 0) {
-                    List<Map<String, Object>> applicableEntries = new ArrayList<>();
-                    java.math.BigDecimal remainingAmount = payment.getUnappliedAmount();
-                    
-                    for (OutstandingBalanceResponse.OutstandingEntry entry : outstandingBalance.getOutstandingEntries()) {
-                        if (remainingAmount.compareTo(java.math.BigDecimal.ZERO) <= 0) {
-                            break;
-                        }
-                        
-                        java.math.BigDecimal applicationAmount = remainingAmount.min(entry.getOutstandingAmount());
-                        
-                        Map<String, Object> application = new HashMap<>();
-                        application.put("ledgerEntryId", entry.getLedgerEntryId());
-                        application.put("description", entry.getDescription());
-                        application.put("outstandingAmount", entry.getOutstandingAmount());
-                        application.put("suggestedAmount", applicationAmount);
-                        application.put("daysOutstanding", entry.getDaysOutstanding());
-                        
-                        applicableEntries.add(application);
-                        remainingAmount = remainingAmount.subtract(applicationAmount);
-                    }
-                    
-                    if (!applicableEntries.isEmpty()) {
-                        Map<String, Object> suggestion = new HashMap<>();
-                        suggestion.put("paymentId", payment.getId());
-                        suggestion.put("paymentDescription", payment.getDescription());
-                        suggestion.put("paymentAmount", payment.getAmount());
-                        suggestion.put("unappliedAmount", payment.getUnappliedAmount());
-                        suggestion.put("suggestedApplications", applicableEntries);
-                        suggestion.put("totalSuggestedAmount", payment.getUnappliedAmount().subtract(remainingAmount));
-                        
-                        suggestions.add(suggestion);
-                    }
-                }
-            }
-            
+            List<SettlementSuggestionService.SettlementSuggestion> suggestions =
+                    settlementSuggestionService.getSettlementSuggestions(customerId);
+
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("customerId", customerId);
@@ -592,6 +637,57 @@ public class PaymentController {
         }
     }
 
+    /**
+     * Get payment totals by status for a customer over a year, or one month of it
+     */
+    @GetMapping("/customer/{customerId}/summary/period")
+    public ResponseEntity<Map<String, Object>> getCustomerPaymentPeriodSummary(
+            @PathVariable Long customerId,
+            @RequestParam int year,
+            @RequestParam(required = false) Integer month) {
+        try {
+            Map<String, Object> summary = paymentStatusService.getCustomerPaymentSummary(customerId, year, month);
+            summary.put("customerId", customerId);
+            summary.put("year", year);
+            summary.put("month", month);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("summary", summary);
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to fetch payment period summary: " + e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
+    /**
+     * Get monthly payment application totals, optionally for one shop
+     */
+    @GetMapping("/applications/summary")
+    public ResponseEntity<Map<String, Object>> getApplicationMonthlySummary(
+            @RequestParam(required = false) Long shopId) {
+        try {
+            List<Map<String, Object>> months = paymentStatusService.getApplicationMonthlySummary(shopId);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("months", months);
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to fetch application summary: " + e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
     /**
      * Get payments for shops owned by the current user (OWNER role)
      */
@@ -623,4 +719,43 @@ public class PaymentController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
         }
     }
+
+    /**
+     * Get payments for shops owned by the current user by keyset; pass the previous page's nextCursor as "after"
+     */
+    @GetMapping("/owner/shops/seek")
+    @PreAuthorize("hasRole('OWNER')")
+    public ResponseEntity<Map<String, Object>> getPaymentsForOwnerShopsAfter(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        try {
+            KeysetPage<PaymentResponse> payments = paymentService.getPaymentsForOwnerShopsAfter(after, size, includeTotal);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("payments", payments.getContent());
+            response.put("nextCursor", payments.getNextCursor());
+            response.put("hasMore", payments.isHasMore());
+            response.put("size", payments.getSize());
+            if (payments.getTotalElements() != null) {
+                response.put("totalElements", payments.getTotalElements());
+            }
+
+            return ResponseEntity.ok(response);
+        } catch (BusinessRuleException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("ruleCode", e.getRuleCode());
+            errorResponse.put("message", e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Failed to fetch payments for owner shops: " + e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
 }
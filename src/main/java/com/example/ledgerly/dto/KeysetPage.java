@@ -0,0 +1,102 @@
+package com.example.ledgerly.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * DTO for one page of a keyset (seek) listing.
+ * The next page is requested with nextCursor; totalElements is only filled in when asked for,
+ * since counting is the expensive half of an offset page.
+ */
+public class KeysetPage<T> {
+
+    private List<T> content = new ArrayList<>();
+    private String nextCursor;
+    private boolean hasMore;
+    private int size;
+    private Long totalElements;
+
+    // Constructors
+    public KeysetPage() {
+    }
+
+    /**
+     * Build a page from rows fetched with a limit of size + 1; the extra row only signals that more follow
+     */
+    public static <E> KeysetPage<E> of(List<E> rows, int size, Function<E, String> cursorOf) {
+        KeysetPage<E> page = new KeysetPage<>();
+        page.size = size;
+        page.hasMore = rows.size() > size;
+        page.content = page.hasMore ? new ArrayList<>(rows.subList(0, size)) : rows;
+        if (page.hasMore) {
+            page.nextCursor = cursorOf.apply(page.content.get(page.content.size() - 1));
+        }
+        return page;
+    }
+
+    // Helper methods
+    public <R> KeysetPage<R> map(Function<T, R> mapper) {
+        return mapContent(items -> {
+            List<R> mappedContent = new ArrayList<>(items.size());
+            for (T item : items) {
+                mappedContent.add(mapper.apply(item));
+            }
+            return mappedContent;
+        });
+    }
+
+    /**
+     * Map the whole content in one call, for converters that batch their lookups across the page
+     */
+    public <R> KeysetPage<R> mapContent(Function<List<T>, List<R>> mapper) {
+        KeysetPage<R> mapped = new KeysetPage<>();
+        mapped.content = mapper.apply(content);
+        mapped.nextCursor = nextCursor;
+        mapped.hasMore = hasMore;
+        mapped.size = size;
+        mapped.totalElements = totalElements;
+        return mapped;
+    }
+
+    // Getters and Setters
+    public List<T> getContent() {
+        return content;
+    }
+
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public Long getTotalElements() {
+        return totalElements;
+    }
+
+    public void setTotalElements(Long totalElements) {
+        this.totalElements = totalElements;
+    }
+}
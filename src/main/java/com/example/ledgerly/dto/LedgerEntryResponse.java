@@ -61,6 +61,34 @@ public class LedgerEntryResponse {
         this.customerName = customerName;
     }
 
+    /**
+     * Full-row constructor used by the JPQL projections in LedgerEntryRepository; attachments are filled in separately
+     */
+    public LedgerEntryResponse(Long id, LocalDate transactionDate, TransactionType transactionType,
+                             BigDecimal amount, String description, String notes, String referenceNumber,
+                             String invoiceNumber, LocalDate invoiceDate, String paymentMethod,
+                             BigDecimal balanceAfterTransaction, boolean isReconciled, LocalDate reconciledDate,
+                             boolean isActive, Long customerId, String customerName, Long shopId, String shopName,
+                             String createdByUsername, String updatedByUsername,
+                             LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(id, transactionDate, transactionType, amount, description, customerId, customerName);
+        this.notes = notes;
+        this.referenceNumber = referenceNumber;
+        this.invoiceNumber = invoiceNumber;
+        this.invoiceDate = invoiceDate;
+        this.paymentMethod = paymentMethod;
+        this.balanceAfterTransaction = balanceAfterTransaction;
+        this.isReconciled = isReconciled;
+        this.reconciledDate = reconciledDate;
+        this.isActive = isActive;
+        this.shopId = shopId;
+        this.shopName = shopName;
+        this.createdByUsername = createdByUsername;
+        this.updatedByUsername = updatedByUsername;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
     // Helper methods
     public boolean isCredit() {
         return TransactionType.CREDIT.equals(this.transactionType) || 
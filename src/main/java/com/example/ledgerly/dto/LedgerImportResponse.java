@@ -0,0 +1,127 @@
+package com.example.ledgerly.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO for the outcome of a bulk ledger entry import
+ */
+public class LedgerImportResponse {
+
+    private long totalRows;
+    private long importedRows;
+    private long failedRows;
+    private long durationMs;
+    private boolean errorsTruncated;
+    private List<RowError> errors = new ArrayList<>();
+
+    // Constructors
+    public LedgerImportResponse() {
+    }
+
+    // Helper methods
+    public boolean hasErrors() {
+        return failedRows > 0;
+    }
+
+    // Getters and Setters
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    public void setTotalRows(long totalRows) {
+        this.totalRows = totalRows;
+    }
+
+    public long getImportedRows() {
+        return importedRows;
+    }
+
+    public void setImportedRows(long importedRows) {
+        this.importedRows = importedRows;
+    }
+
+    public long getFailedRows() {
+        return failedRows;
+    }
+
+    public void setFailedRows(long failedRows) {
+        this.failedRows = failedRows;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public boolean isErrorsTruncated() {
+        return errorsTruncated;
+    }
+
+    public void setErrorsTruncated(boolean errorsTruncated) {
+        this.errorsTruncated = errorsTruncated;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<RowError> errors) {
+        this.errors = errors;
+    }
+
+    /**
+     * A row that was rejected, identified by its 1-based position in the upload
+     */
+    public static class RowError {
+        private long rowNumber;
+        private Long customerId;
+        private String ruleCode;
+        private String message;
+
+        public RowError() {
+        }
+
+        public RowError(long rowNumber, Long customerId, String ruleCode, String message) {
+            this.rowNumber = rowNumber;
+            this.customerId = customerId;
+            this.ruleCode = ruleCode;
+            this.message = message;
+        }
+
+        public long getRowNumber() {
+            return rowNumber;
+        }
+
+        public void setRowNumber(long rowNumber) {
+            this.rowNumber = rowNumber;
+        }
+
+        public Long getCustomerId() {
+            return customerId;
+        }
+
+        public void setCustomerId(Long customerId) {
+            this.customerId = customerId;
+        }
+
+        public String getRuleCode() {
+            return ruleCode;
+        }
+
+        public void setRuleCode(String ruleCode) {
+            this.ruleCode = ruleCode;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
+}
@@ -20,6 +20,10 @@ public class OutstandingBalanceResponse {
     private LocalDate oldestOutstandingDate;
     private int averageDaysOutstanding;
     
+    // Paging of outstandingEntries, oldest first; the totals above cover every outstanding entry
+    private int page;
+    private int size;
+    
     private List<OutstandingEntry> outstandingEntries;
     private List<UnappliedPayment> unappliedPayments;
 
@@ -126,6 +130,22 @@ public class OutstandingBalanceResponse {
         this.averageDaysOutstanding = averageDaysOutstanding;
     }
 
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
     public List<OutstandingEntry> getOutstandingEntries() {
         return outstandingEntries;
     }
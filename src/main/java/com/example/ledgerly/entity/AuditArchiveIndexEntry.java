@@ -0,0 +1,63 @@
+package com.example.ledgerly.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Marks that an archive segment holds audit rows for an entity, so entity history can be read back
+ * without opening every segment. One row per (segment, entity type, entity id).
+ */
+@Entity
+@Table(name = "audit_archive_index", indexes = {
+    @Index(name = "idx_audit_archive_index_entity", columnList = "entity_type, entity_id, segment_id")
+})
+public class AuditArchiveIndexEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "segment_id", nullable = false)
+    private Long segmentId;
+
+    @Column(name = "entity_type", length = 100, nullable = false)
+    private String entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    public AuditArchiveIndexEntry() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getSegmentId() {
+        return segmentId;
+    }
+
+    public void setSegmentId(Long segmentId) {
+        this.segmentId = segmentId;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(String entityType) {
+        this.entityType = entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(Long entityId) {
+        this.entityId = entityId;
+    }
+}
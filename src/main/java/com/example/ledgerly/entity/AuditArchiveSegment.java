@@ -0,0 +1,120 @@
+package com.example.ledgerly.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One gzip-compressed JSON lines file holding the audit_logs rows of an archived month (partition).
+ * Rows with created_at in [periodStart, periodEnd) were moved to the file and removed from audit_logs.
+ */
+@Entity
+@Table(name = "audit_archive_segments", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_audit_archive_segments_partition", columnNames = {"partition_name"})
+})
+public class AuditArchiveSegment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "partition_name", length = 64, nullable = false)
+    private String partitionName;
+
+    @Column(name = "period_start", nullable = false)
+    private LocalDateTime periodStart;
+
+    @Column(name = "period_end", nullable = false)
+    private LocalDateTime periodEnd;
+
+    @Column(name = "file_path", length = 500, nullable = false)
+    private String filePath;
+
+    @Column(name = "row_count", nullable = false)
+    private long rowCount;
+
+    @Column(name = "compressed_bytes", nullable = false)
+    private long compressedBytes;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+
+    public AuditArchiveSegment() {
+    }
+
+    public AuditArchiveSegment(String partitionName, LocalDateTime periodStart, LocalDateTime periodEnd,
+                               String filePath, long rowCount, long compressedBytes) {
+        this.partitionName = partitionName;
+        this.periodStart = periodStart;
+        this.periodEnd = periodEnd;
+        this.filePath = filePath;
+        this.rowCount = rowCount;
+        this.compressedBytes = compressedBytes;
+        this.archivedAt = LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getPartitionName() {
+        return partitionName;
+    }
+
+    public void setPartitionName(String partitionName) {
+        this.partitionName = partitionName;
+    }
+
+    public LocalDateTime getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(LocalDateTime periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    public LocalDateTime getPeriodEnd() {
+        return periodEnd;
+    }
+
+    public void setPeriodEnd(LocalDateTime periodEnd) {
+        this.periodEnd = periodEnd;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    public void setCompressedBytes(long compressedBytes) {
+        this.compressedBytes = compressedBytes;
+    }
+
+    public LocalDateTime getArchivedAt() {
+        return archivedAt;
+    }
+
+    public void setArchivedAt(LocalDateTime archivedAt) {
+        this.archivedAt = archivedAt;
+    }
+}
@@ -7,8 +7,19 @@ import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
 
+/**
+ * One audited operation. action and entity_type hold upper-case codes (see AuditService.codeOf).
+ * The table is partitioned by created_at month and rows past the retention window are moved to compressed
+ * archive segments by AuditArchiveService. Partitioned MySQL tables cannot carry foreign keys, so user_id has
+ * no constraint.
+ */
 @Entity
-@Table(name = "audit_logs")
+@Table(name = "audit_logs", indexes = {
+    @Index(name = "idx_audit_logs_created", columnList = "created_at, id"),
+    @Index(name = "idx_audit_logs_user_created", columnList = "user_id, created_at, id"),
+    @Index(name = "idx_audit_logs_entity_created", columnList = "entity_type, entity_id, created_at"),
+    @Index(name = "idx_audit_logs_action_created", columnList = "action, created_at, id")
+})
 public class AuditLog {
 
     @Id
@@ -58,7 +69,7 @@ public class AuditLog {
     private LocalDateTime createdAt;
 
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "user_id")
+    @JoinColumn(name = "user_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private User user;
 
     public AuditLog() {
@@ -0,0 +1,91 @@
+package com.example.ledgerly.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Number of audit_logs rows per hour, action, user and outcome.
+ * Maintained by AuditLogWriter with every batch of audit rows, so statistics never group audit_logs.
+ * Rows without a user are counted under user id 0.
+ */
+@Entity
+@Table(name = "audit_stat_buckets", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_audit_stat_buckets_key", columnNames = {"bucket_start", "action", "user_id", "success"})
+})
+public class AuditStatBucket {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    /**
+     * Start of the hour
+     */
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "action", length = 100, nullable = false)
+    private String action;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "success", nullable = false)
+    private boolean success;
+
+    @Column(name = "log_count", nullable = false)
+    private long logCount;
+
+    public AuditStatBucket() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public long getLogCount() {
+        return logCount;
+    }
+
+    public void setLogCount(long logCount) {
+        this.logCount = logCount;
+    }
+}
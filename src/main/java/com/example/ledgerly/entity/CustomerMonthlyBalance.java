@@ -0,0 +1,103 @@
+package com.example.ledgerly.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Monthly balance checkpoint for a customer: the month's credits and debits and the balance at month end.
+ * Credits are CREDIT and OPENING_BALANCE entries; every other entry type reduces the balance and counts as a debit.
+ * Maintained by LedgerAggregateService on every ledger write.
+ */
+@Entity
+@Table(name = "customer_monthly_balances", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_customer_monthly_balances_customer_period", columnNames = {"customer_id", "period_start"})
+})
+public class CustomerMonthlyBalance {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "customer_id", nullable = false)
+    private Long customerId;
+
+    /**
+     * First day of the month
+     */
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    @Column(name = "total_credit", precision = 15, scale = 2, nullable = false)
+    private BigDecimal totalCredit = BigDecimal.ZERO;
+
+    @Column(name = "total_debit", precision = 15, scale = 2, nullable = false)
+    private BigDecimal totalDebit = BigDecimal.ZERO;
+
+    @Column(name = "entry_count", nullable = false)
+    private long entryCount;
+
+    @Column(name = "closing_balance", precision = 15, scale = 2, nullable = false)
+    private BigDecimal closingBalance = BigDecimal.ZERO;
+
+    public CustomerMonthlyBalance() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(Long customerId) {
+        this.customerId = customerId;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(LocalDate periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    public BigDecimal getTotalCredit() {
+        return totalCredit;
+    }
+
+    public void setTotalCredit(BigDecimal totalCredit) {
+        this.totalCredit = totalCredit;
+    }
+
+    public BigDecimal getTotalDebit() {
+        return totalDebit;
+    }
+
+    public void setTotalDebit(BigDecimal totalDebit) {
+        this.totalDebit = totalDebit;
+    }
+
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    public void setEntryCount(long entryCount) {
+        this.entryCount = entryCount;
+    }
+
+    public BigDecimal getClosingBalance() {
+        return closingBalance;
+    }
+
+    public void setClosingBalance(BigDecimal closingBalance) {
+        this.closingBalance = closingBalance;
+    }
+}
@@ -15,7 +15,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "ledger_entries")
+@Table(name = "ledger_entries", indexes = {
+    @Index(name = "idx_ledger_entries_customer_date", columnList = "customer_id, transaction_date, id"),
+    @Index(name = "idx_ledger_entries_customer_open", columnList = "customer_id, is_settled, transaction_date, id"),
+    @Index(name = "idx_ledger_entries_payment", columnList = "payment_id")
+})
 public class LedgerEntry {
 
     @Id
@@ -64,6 +68,13 @@ public class LedgerEntry {
     @Column(name = "balance_after_transaction", precision = 15, scale = 2)
     private BigDecimal balanceAfterTransaction;
 
+    // Unpaid part of an active DEBIT entry, maintained as payments are applied and reversed; zero for other entries
+    @Column(name = "outstanding_amount", precision = 15, scale = 2, nullable = false)
+    private BigDecimal outstandingAmount = BigDecimal.ZERO;
+
+    @Column(name = "is_settled", nullable = false)
+    private boolean isSettled = true;
+
     @Column(name = "is_reconciled", nullable = false)
     private boolean isReconciled = false;
 
@@ -81,6 +92,11 @@ public class LedgerEntry {
     @JoinColumn(name = "shop_id", nullable = false)
     private Shop shop;
 
+    // Payment this entry records (the CREDIT posted when a payment is recorded); null for other entries
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "payment_id")
+    private Payment payment;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "created_by_user_id", nullable = false)
     private User createdBy;
@@ -131,6 +147,32 @@ public class LedgerEntry {
         return TransactionType.DEBIT.equals(this.transactionType);
     }
 
+    /**
+     * Recompute the outstanding amount from the total of non-reversed applications against this entry
+     */
+    public void refreshOutstanding(BigDecimal appliedAmount) {
+        BigDecimal outstanding = isActive && isDebit() ? amount.subtract(appliedAmount) : BigDecimal.ZERO;
+        setOutstanding(outstanding.max(BigDecimal.ZERO));
+    }
+
+    public void applyPayment(BigDecimal applicationAmount) {
+        if (applicationAmount.compareTo(outstandingAmount) > 0) {
+            throw new IllegalArgumentException("Cannot apply amount greater than outstanding amount");
+        }
+        setOutstanding(outstandingAmount.subtract(applicationAmount));
+    }
+
+    public void reversePayment(BigDecimal reversalAmount) {
+        if (isActive && isDebit()) {
+            setOutstanding(outstandingAmount.add(reversalAmount).min(amount));
+        }
+    }
+
+    private void setOutstanding(BigDecimal outstanding) {
+        this.outstandingAmount = outstanding;
+        this.isSettled = outstanding.compareTo(BigDecimal.ZERO) == 0;
+    }
+
     public Long getId() {
         return id;
     }
@@ -219,6 +261,22 @@ public class LedgerEntry {
         this.balanceAfterTransaction = balanceAfterTransaction;
     }
 
+    public BigDecimal getOutstandingAmount() {
+        return outstandingAmount;
+    }
+
+    public void setOutstandingAmount(BigDecimal outstandingAmount) {
+        this.outstandingAmount = outstandingAmount;
+    }
+
+    public boolean isSettled() {
+        return isSettled;
+    }
+
+    public void setSettled(boolean settled) {
+        isSettled = settled;
+    }
+
     public boolean isReconciled() {
         return isReconciled;
     }
@@ -259,6 +317,14 @@ public class LedgerEntry {
         this.shop = shop;
     }
 
+    public Payment getPayment() {
+        return payment;
+    }
+
+    public void setPayment(Payment payment) {
+        this.payment = payment;
+    }
+
     public User getCreatedBy() {
         return createdBy;
     }
@@ -13,7 +13,11 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "payments")
+@Table(name = "payments", indexes = {
+    @Index(name = "idx_payments_customer_date", columnList = "customer_id, payment_date, id"),
+    @Index(name = "idx_payments_shop_date", columnList = "shop_id, payment_date, id"),
+    @Index(name = "idx_payments_status_due", columnList = "status, due_date, id")
+})
 public class Payment {
 
     @Id
@@ -0,0 +1,31 @@
+package com.example.ledgerly.entity;
+
+/**
+ * Raw table a summary rollup row aggregates
+ */
+public enum RollupSource {
+    LEDGER_ENTRY("Ledger Entry", "Active ledger entries by transaction type"),
+    PAYMENT("Payment", "Active payments by status"),
+    PAYMENT_APPLICATION("Payment Application", "Non-reversed payment applications");
+
+    private final String displayName;
+    private final String description;
+
+    RollupSource(String displayName, String description) {
+        this.displayName = displayName;
+        this.description = description;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
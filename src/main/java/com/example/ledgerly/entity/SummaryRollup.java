@@ -0,0 +1,118 @@
+package com.example.ledgerly.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Count and amount of one source table's rows per shop, customer, month and category
+ * (transaction type for ledger entries, status for payments, APPLIED for payment applications).
+ * Maintained by LedgerAggregateService on every write, so summaries never group the raw tables.
+ */
+@Entity
+@Table(name = "summary_rollups", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_summary_rollups_key",
+                      columnNames = {"source", "customer_id", "period_start", "category", "shop_id"})
+}, indexes = {
+    @Index(name = "idx_summary_rollups_shop", columnList = "shop_id, source, period_start")
+})
+public class SummaryRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "source", length = 32, nullable = false)
+    private RollupSource source;
+
+    @Column(name = "shop_id", nullable = false)
+    private Long shopId;
+
+    @Column(name = "customer_id", nullable = false)
+    private Long customerId;
+
+    /**
+     * First day of the month
+     */
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    @Column(name = "category", length = 32, nullable = false)
+    private String category;
+
+    @Column(name = "item_count", nullable = false)
+    private long itemCount;
+
+    @Column(name = "total_amount", precision = 15, scale = 2, nullable = false)
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    public SummaryRollup() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public RollupSource getSource() {
+        return source;
+    }
+
+    public void setSource(RollupSource source) {
+        this.source = source;
+    }
+
+    public Long getShopId() {
+        return shopId;
+    }
+
+    public void setShopId(Long shopId) {
+        this.shopId = shopId;
+    }
+
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(Long customerId) {
+        this.customerId = customerId;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(LocalDate periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public long getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(long itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.ledgerly.repository;
+
+import com.example.ledgerly.entity.AuditArchiveSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository interface for AuditArchiveSegment entity operations
+ */
+@Repository
+public interface AuditArchiveSegmentRepository extends JpaRepository<AuditArchiveSegment, Long> {
+
+    /**
+     * Segment already written for a partition (or month, when audit_logs is not partitioned)
+     */
+    Optional<AuditArchiveSegment> findByPartitionName(String partitionName);
+
+    /**
+     * All segments, newest period first
+     */
+    List<AuditArchiveSegment> findAllByOrderByPeriodStartDesc();
+
+    /**
+     * Segments holding rows for an entity, newest period first
+     */
+    @Query("SELECT s FROM AuditArchiveSegment s WHERE s.id IN " +
+           "(SELECT e.segmentId FROM AuditArchiveIndexEntry e WHERE e.entityType = :entityType AND e.entityId = :entityId) " +
+           "ORDER BY s.periodStart DESC")
+    List<AuditArchiveSegment> findSegmentsForEntity(@Param("entityType") String entityType,
+                                                    @Param("entityId") Long entityId);
+}
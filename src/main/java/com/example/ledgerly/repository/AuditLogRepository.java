@@ -65,12 +65,13 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
     Page<AuditLog> findByDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate, Pageable pageable);
 
     /**
-     * Search audit logs by multiple criteria
+     * Search audit logs by multiple criteria. action and entityType are LIKE patterns with '!' as the escape
+     * character (see AuditService.likePattern).
      */
     @Query("SELECT al FROM AuditLog al WHERE " +
            "(:userId IS NULL OR al.user.id = :userId) AND " +
-           "(:action IS NULL OR LOWER(al.action) LIKE LOWER(CONCAT('%', :action, '%'))) AND " +
-           "(:entityType IS NULL OR LOWER(al.entityType) LIKE LOWER(CONCAT('%', :entityType, '%'))) AND " +
+           "(:action IS NULL OR al.action LIKE :action ESCAPE '!') AND " +
+           "(:entityType IS NULL OR al.entityType LIKE :entityType ESCAPE '!') AND " +
            "(:entityId IS NULL OR al.entityId = :entityId) AND " +
            "(:success IS NULL OR al.success = :success) AND " +
            "(:startDate IS NULL OR al.createdAt >= :startDate) AND " +
@@ -85,6 +86,50 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
                                   @Param("endDate") LocalDateTime endDate,
                                   Pageable pageable);
 
+    /**
+     * Keyset page of searchAuditLogs, newest first: rows strictly after (afterCreatedAt, afterId)
+     */
+    @Query("SELECT al FROM AuditLog al WHERE " +
+           "(:userId IS NULL OR al.user.id = :userId) AND " +
+           "(:action IS NULL OR al.action LIKE :action ESCAPE '!') AND " +
+           "(:entityType IS NULL OR al.entityType LIKE :entityType ESCAPE '!') AND " +
+           "(:entityId IS NULL OR al.entityId = :entityId) AND " +
+           "(:success IS NULL OR al.success = :success) AND " +
+           "(:startDate IS NULL OR al.createdAt >= :startDate) AND " +
+           "(:endDate IS NULL OR al.createdAt <= :endDate) AND " +
+           "(:afterCreatedAt IS NULL OR al.createdAt < :afterCreatedAt OR " +
+           "(al.createdAt = :afterCreatedAt AND al.id < :afterId)) " +
+           "ORDER BY al.createdAt DESC, al.id DESC")
+    List<AuditLog> searchAuditLogsPage(@Param("userId") Long userId,
+                                  @Param("action") String action,
+                                  @Param("entityType") String entityType,
+                                  @Param("entityId") Long entityId,
+                                  @Param("success") Boolean success,
+                                  @Param("startDate") LocalDateTime startDate,
+                                  @Param("endDate") LocalDateTime endDate,
+                                  @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                  @Param("afterId") Long afterId,
+                                  Pageable limit);
+
+    /**
+     * Count audit logs matching the searchAuditLogs filters
+     */
+    @Query("SELECT COUNT(al) FROM AuditLog al WHERE " +
+           "(:userId IS NULL OR al.user.id = :userId) AND " +
+           "(:action IS NULL OR al.action LIKE :action ESCAPE '!') AND " +
+           "(:entityType IS NULL OR al.entityType LIKE :entityType ESCAPE '!') AND " +
+           "(:entityId IS NULL OR al.entityId = :entityId) AND " +
+           "(:success IS NULL OR al.success = :success) AND " +
+           "(:startDate IS NULL OR al.createdAt >= :startDate) AND " +
+           "(:endDate IS NULL OR al.createdAt <= :endDate)")
+    long countAuditLogs(@Param("userId") Long userId,
+                                  @Param("action") String action,
+                                  @Param("entityType") String entityType,
+                                  @Param("entityId") Long entityId,
+                                  @Param("success") Boolean success,
+                                  @Param("startDate") LocalDateTime startDate,
+                                  @Param("endDate") LocalDateTime endDate);
+
     /**
      * Count total audit logs
      */
@@ -110,16 +155,4 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
      */
     @Query("SELECT al FROM AuditLog al WHERE al.createdAt >= :since ORDER BY al.createdAt DESC")
     List<AuditLog> findRecentLogs(@Param("since") LocalDateTime since);
-
-    /**
-     * Get audit statistics by action
-     */
-    @Query("SELECT al.action, COUNT(al), SUM(CASE WHEN al.success = true THEN 1 ELSE 0 END), SUM(CASE WHEN al.success = false THEN 1 ELSE 0 END) FROM AuditLog al GROUP BY al.action ORDER BY COUNT(al) DESC")
-    List<Object[]> getAuditStatsByAction();
-
-    /**
-     * Get audit statistics by user
-     */
-    @Query("SELECT al.user.username, COUNT(al), SUM(CASE WHEN al.success = true THEN 1 ELSE 0 END), SUM(CASE WHEN al.success = false THEN 1 ELSE 0 END) FROM AuditLog al GROUP BY al.user.username ORDER BY COUNT(al) DESC")
-    List<Object[]> getAuditStatsByUser();
 }
@@ -0,0 +1,46 @@
+package com.example.ledgerly.repository;
+
+import com.example.ledgerly.entity.AuditStatBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository interface for AuditStatBucket entity operations.
+ * Windows are [from, to) on bucket start; a null bound is open.
+ */
+@Repository
+public interface AuditStatBucketRepository extends JpaRepository<AuditStatBucket, Long> {
+
+    /**
+     * Total, successful and failed counts over a window
+     */
+    @Query("SELECT COALESCE(SUM(b.logCount), 0), " +
+           "COALESCE(SUM(CASE WHEN b.success = true THEN b.logCount ELSE 0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN b.success = false THEN b.logCount ELSE 0 END), 0) FROM AuditStatBucket b " +
+           "WHERE (:from IS NULL OR b.bucketStart >= :from) AND (:to IS NULL OR b.bucketStart < :to)")
+    List<Object[]> sumTotals(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Action, total, successful and failed counts per action over a window, busiest first
+     */
+    @Query("SELECT b.action, SUM(b.logCount), SUM(CASE WHEN b.success = true THEN b.logCount ELSE 0 END), " +
+           "SUM(CASE WHEN b.success = false THEN b.logCount ELSE 0 END) FROM AuditStatBucket b " +
+           "WHERE (:from IS NULL OR b.bucketStart >= :from) AND (:to IS NULL OR b.bucketStart < :to) " +
+           "GROUP BY b.action ORDER BY SUM(b.logCount) DESC")
+    List<Object[]> sumByAction(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * User id, total, successful and failed counts per user over a window, busiest first; rows without a user
+     * are left out
+     */
+    @Query("SELECT b.userId, SUM(b.logCount), SUM(CASE WHEN b.success = true THEN b.logCount ELSE 0 END), " +
+           "SUM(CASE WHEN b.success = false THEN b.logCount ELSE 0 END) FROM AuditStatBucket b " +
+           "WHERE b.userId <> 0 AND (:from IS NULL OR b.bucketStart >= :from) AND (:to IS NULL OR b.bucketStart < :to) " +
+           "GROUP BY b.userId ORDER BY SUM(b.logCount) DESC")
+    List<Object[]> sumByUser(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
@@ -0,0 +1,53 @@
+package com.example.ledgerly.repository;
+
+import com.example.ledgerly.entity.CustomerDailyTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository interface for CustomerDailyTotal entity operations
+ */
+@Repository
+public interface CustomerDailyTotalRepository extends JpaRepository<CustomerDailyTotal, Long> {
+
+    /**
+     * Total amount posted for a customer on a day (single-row read on the unique key)
+     */
+    @Query("SELECT d.totalAmount FROM CustomerDailyTotal d WHERE d.customerId = :customerId AND d.transactionDate = :transactionDate")
+    Optional<BigDecimal> findTotalAmount(@Param("customerId") Long customerId,
+                                         @Param("transactionDate") LocalDate transactionDate);
+
+    /**
+     * Daily totals for a set of customers over a date range
+     */
+    @Query("SELECT d FROM CustomerDailyTotal d WHERE d.customerId IN :customerIds AND d.transactionDate BETWEEN :startDate AND :endDate")
+    List<CustomerDailyTotal> findByCustomersAndDateRange(@Param("customerIds") Collection<Long> customerIds,
+                                                         @Param("startDate") LocalDate startDate,
+                                                         @Param("endDate") LocalDate endDate);
+
+    /**
+     * Delete daily totals for a range of customer ids (rebuild)
+     */
+    @Modifying
+    @Query(value = "DELETE FROM customer_daily_totals WHERE customer_id BETWEEN :fromCustomerId AND :toCustomerId", nativeQuery = true)
+    int deleteForCustomerRange(@Param("fromCustomerId") Long fromCustomerId, @Param("toCustomerId") Long toCustomerId);
+
+    /**
+     * Recompute daily totals from active ledger entries for a range of customer ids (rebuild)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO customer_daily_totals (customer_id, transaction_date, total_amount, entry_count) " +
+                   "SELECT customer_id, transaction_date, SUM(amount), COUNT(*) FROM ledger_entries " +
+                   "WHERE is_active = true AND customer_id BETWEEN :fromCustomerId AND :toCustomerId " +
+                   "GROUP BY customer_id, transaction_date", nativeQuery = true)
+    int rebuildForCustomerRange(@Param("fromCustomerId") Long fromCustomerId, @Param("toCustomerId") Long toCustomerId);
+}
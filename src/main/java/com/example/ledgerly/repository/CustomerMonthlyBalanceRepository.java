@@ -0,0 +1,68 @@
+package com.example.ledgerly.repository;
+
+import com.example.ledgerly.entity.CustomerMonthlyBalance;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository interface for CustomerMonthlyBalance entity operations
+ */
+@Repository
+public interface CustomerMonthlyBalanceRepository extends JpaRepository<CustomerMonthlyBalance, Long> {
+
+    /**
+     * Latest checkpoint strictly before a month, i.e. the balance the month opens with
+     */
+    @Query("SELECT m FROM CustomerMonthlyBalance m WHERE m.customerId = :customerId AND m.periodStart < :periodStart ORDER BY m.periodStart DESC")
+    List<CustomerMonthlyBalance> findLatestBefore(@Param("customerId") Long customerId,
+                                                  @Param("periodStart") LocalDate periodStart,
+                                                  Pageable pageable);
+
+    /**
+     * Sum credits, debits and entry counts over a range of months (inclusive)
+     */
+    @Query("SELECT COALESCE(SUM(m.totalCredit), 0), COALESCE(SUM(m.totalDebit), 0), COALESCE(SUM(m.entryCount), 0) " +
+           "FROM CustomerMonthlyBalance m WHERE m.customerId = :customerId AND m.periodStart BETWEEN :fromPeriod AND :toPeriod")
+    List<Object[]> sumForPeriods(@Param("customerId") Long customerId,
+                                 @Param("fromPeriod") LocalDate fromPeriod,
+                                 @Param("toPeriod") LocalDate toPeriod);
+
+    /**
+     * Sum credits, debits and entry counts over a customer's whole history
+     */
+    @Query("SELECT COALESCE(SUM(m.totalCredit), 0), COALESCE(SUM(m.totalDebit), 0), COALESCE(SUM(m.entryCount), 0) " +
+           "FROM CustomerMonthlyBalance m WHERE m.customerId = :customerId")
+    List<Object[]> sumForCustomer(@Param("customerId") Long customerId);
+
+    /**
+     * Delete checkpoints for a range of customer ids (rebuild)
+     */
+    @Modifying
+    @Query(value = "DELETE FROM customer_monthly_balances WHERE customer_id BETWEEN :fromCustomerId AND :toCustomerId", nativeQuery = true)
+    int deleteForCustomerRange(@Param("fromCustomerId") Long fromCustomerId, @Param("toCustomerId") Long toCustomerId);
+
+    /**
+     * Recompute checkpoints from active ledger entries for a range of customer ids (rebuild);
+     * closing balances are the running sum of each month's net change
+     */
+    @Modifying
+    @Query(value = "INSERT INTO customer_monthly_balances " +
+                   "(customer_id, period_start, total_credit, total_debit, entry_count, closing_balance) " +
+                   "SELECT customer_id, period_start, total_credit, total_debit, entry_count, " +
+                   "SUM(total_credit - total_debit) OVER (PARTITION BY customer_id ORDER BY period_start) " +
+                   "FROM (SELECT customer_id, " +
+                   "DATE_SUB(transaction_date, INTERVAL DAYOFMONTH(transaction_date) - 1 DAY) AS period_start, " +
+                   "SUM(CASE WHEN transaction_type IN ('CREDIT', 'OPENING_BALANCE') THEN amount ELSE 0 END) AS total_credit, " +
+                   "SUM(CASE WHEN transaction_type IN ('CREDIT', 'OPENING_BALANCE') THEN 0 ELSE amount END) AS total_debit, " +
+                   "COUNT(*) AS entry_count " +
+                   "FROM ledger_entries WHERE is_active = true AND customer_id BETWEEN :fromCustomerId AND :toCustomerId " +
+                   "GROUP BY customer_id, period_start) monthly", nativeQuery = true)
+    int rebuildForCustomerRange(@Param("fromCustomerId") Long fromCustomerId, @Param("toCustomerId") Long toCustomerId);
+}
@@ -3,9 +3,12 @@ package com.example.ledgerly.repository;
 import com.example.ledgerly.entity.Customer;
 import com.example.ledgerly.entity.RelationshipType;
 import com.example.ledgerly.entity.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -20,6 +23,13 @@ import java.util.Optional;
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
 
+    /**
+     * Load a customer and take a row lock (SELECT ... FOR UPDATE) until the transaction ends
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Customer c WHERE c.id = :id")
+    Optional<Customer> findByIdForUpdate(@Param("id") Long id);
+
     /**
      * Find customers by name containing (case-insensitive search)
      */
@@ -142,4 +152,17 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     
     @Query("SELECT COALESCE(SUM(c.currentBalance), 0) FROM Customer c WHERE c.isActive = true")
     BigDecimal sumCurrentBalanceByIsActiveTrue();
+
+    /**
+     * Fetch id and maintained balance for the next batch of customers (keyset on id)
+     */
+    @Query("SELECT c.id, c.currentBalance FROM Customer c WHERE c.id > :afterId ORDER BY c.id ASC")
+    List<Object[]> findBalanceSnapshotAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Overwrite the maintained balance, bumping the version so in-flight writers are rejected
+     */
+    @Modifying
+    @Query("UPDATE Customer c SET c.currentBalance = :balance, c.version = c.version + 1 WHERE c.id = :customerId")
+    int overwriteCurrentBalance(@Param("customerId") Long customerId, @Param("balance") BigDecimal balance);
 }
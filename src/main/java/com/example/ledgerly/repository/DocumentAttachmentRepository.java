@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,6 +22,15 @@ public interface DocumentAttachmentRepository extends JpaRepository<DocumentAtta
     @Query("SELECT da FROM DocumentAttachment da WHERE da.id IN (SELECT att.id FROM LedgerEntry le JOIN le.attachments att WHERE le.id = :ledgerEntryId) AND da.isActive = true")
     List<DocumentAttachment> findByLedgerEntryId(@Param("ledgerEntryId") Long ledgerEntryId);
 
+    /**
+     * Find the active attachments of a batch of ledger entries in one query, with their uploader's username.
+     * Each row is [ledger entry ID, DocumentAttachment, uploader username]. The uploader is projected rather
+     * than fetched: loading a User also loads its staff shop mapping, one query per row.
+     */
+    @Query("SELECT le.id, da, u.username FROM LedgerEntry le JOIN le.attachments da JOIN da.uploadedBy u " +
+           "WHERE le.id IN :ledgerEntryIds AND da.isActive = true ORDER BY da.uploadedAt, da.id")
+    List<Object[]> findActiveByLedgerEntryIds(@Param("ledgerEntryIds") Collection<Long> ledgerEntryIds);
+
     /**
      * Find attachment by file name
      */
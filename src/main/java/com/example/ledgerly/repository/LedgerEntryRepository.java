@@ -1,18 +1,22 @@
 package com.example.ledgerly.repository;
 
+import com.example.ledgerly.dto.LedgerEntryResponse;
 import com.example.ledgerly.entity.Customer;
 import com.example.ledgerly.entity.LedgerEntry;
 import com.example.ledgerly.entity.TransactionType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for LedgerEntry entity operations
@@ -20,6 +24,39 @@ import java.util.List;
 @Repository
 public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
 
+    /**
+     * Select clause of the read-model projections: every scalar of LedgerEntryResponse in one row,
+     * with customer, shop and user names joined in rather than lazily loaded per entry
+     */
+    String RESPONSE_PROJECTION = "SELECT new com.example.ledgerly.dto.LedgerEntryResponse(" +
+           "le.id, le.transactionDate, le.transactionType, le.amount, le.description, le.notes, " +
+           "le.referenceNumber, le.invoiceNumber, le.invoiceDate, le.paymentMethod, le.balanceAfterTransaction, " +
+           "le.isReconciled, le.reconciledDate, le.isActive, c.id, c.name, s.id, s.name, " +
+           "cb.username, ub.username, le.createdAt, le.updatedAt) " +
+           "FROM LedgerEntry le JOIN le.customer c LEFT JOIN le.shop s " +
+           "LEFT JOIN le.createdBy cb LEFT JOIN le.updatedBy ub ";
+
+    /**
+     * Filter shared by searchLedgerEntries and its projection
+     */
+    String SEARCH_FILTER = "(:customerId IS NULL OR le.customer.id = :customerId) AND " +
+           "(:transactionType IS NULL OR le.transactionType = :transactionType) AND " +
+           "(:startDate IS NULL OR le.transactionDate >= :startDate) AND " +
+           "(:endDate IS NULL OR le.transactionDate <= :endDate) AND " +
+           "(:minAmount IS NULL OR le.amount >= :minAmount) AND " +
+           "(:maxAmount IS NULL OR le.amount <= :maxAmount) AND " +
+           "(:description IS NULL OR LOWER(le.description) LIKE LOWER(CONCAT('%', :description, '%'))) AND " +
+           "(:referenceNumber IS NULL OR LOWER(le.referenceNumber) LIKE LOWER(CONCAT('%', :referenceNumber, '%'))) AND " +
+           "(:invoiceNumber IS NULL OR LOWER(le.invoiceNumber) LIKE LOWER(CONCAT('%', :invoiceNumber, '%'))) AND " +
+           "(:isReconciled IS NULL OR le.isReconciled = :isReconciled) AND " +
+           "le.isActive = true ";
+
+    /**
+     * Find the customer an entry belongs to, without loading the entry
+     */
+    @Query("SELECT le.customer.id FROM LedgerEntry le WHERE le.id = :id")
+    Optional<Long> findCustomerIdById(@Param("id") Long id);
+
     /**
      * Find ledger entries by customer
      */
@@ -76,19 +113,7 @@ public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long>
     /**
      * Search ledger entries by multiple criteria
      */
-    @Query("SELECT le FROM LedgerEntry le WHERE " +
-           "(:customerId IS NULL OR le.customer.id = :customerId) AND " +
-           "(:transactionType IS NULL OR le.transactionType = :transactionType) AND " +
-           "(:startDate IS NULL OR le.transactionDate >= :startDate) AND " +
-           "(:endDate IS NULL OR le.transactionDate <= :endDate) AND " +
-           "(:minAmount IS NULL OR le.amount >= :minAmount) AND " +
-           "(:maxAmount IS NULL OR le.amount <= :maxAmount) AND " +
-           "(:description IS NULL OR LOWER(le.description) LIKE LOWER(CONCAT('%', :description, '%'))) AND " +
-           "(:referenceNumber IS NULL OR LOWER(le.referenceNumber) LIKE LOWER(CONCAT('%', :referenceNumber, '%'))) AND " +
-           "(:invoiceNumber IS NULL OR LOWER(le.invoiceNumber) LIKE LOWER(CONCAT('%', :invoiceNumber, '%'))) AND " +
-           "(:isReconciled IS NULL OR le.isReconciled = :isReconciled) AND " +
-           "le.isActive = true " +
-           "ORDER BY le.transactionDate DESC")
+    @Query("SELECT le FROM LedgerEntry le WHERE " + SEARCH_FILTER + "ORDER BY le.transactionDate DESC")
     Page<LedgerEntry> searchLedgerEntries(@Param("customerId") Long customerId,
                                         @Param("transactionType") TransactionType transactionType,
                                         @Param("startDate") LocalDate startDate,
@@ -102,22 +127,115 @@ public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long>
                                         Pageable pageable);
 
     /**
-     * Calculate total credit amount for a customer
+     * Search ledger entries by multiple criteria, projected straight into responses
+     */
+    @Query(value = RESPONSE_PROJECTION + "WHERE " + SEARCH_FILTER + "ORDER BY le.transactionDate DESC",
+           countQuery = "SELECT COUNT(le) FROM LedgerEntry le WHERE " + SEARCH_FILTER)
+    Page<LedgerEntryResponse> searchLedgerEntryResponses(@Param("customerId") Long customerId,
+                                                       @Param("transactionType") TransactionType transactionType,
+                                                       @Param("startDate") LocalDate startDate,
+                                                       @Param("endDate") LocalDate endDate,
+                                                       @Param("minAmount") BigDecimal minAmount,
+                                                       @Param("maxAmount") BigDecimal maxAmount,
+                                                       @Param("description") String description,
+                                                       @Param("referenceNumber") String referenceNumber,
+                                                       @Param("invoiceNumber") String invoiceNumber,
+                                                       @Param("isReconciled") Boolean isReconciled,
+                                                       Pageable pageable);
+
+    /**
+     * Page of a customer's active entries, projected straight into responses
      */
-    @Query("SELECT COALESCE(SUM(le.amount), 0) FROM LedgerEntry le WHERE le.customer.id = :customerId AND le.transactionType IN ('CREDIT', 'OPENING_BALANCE') AND le.isActive = true")
-    BigDecimal calculateTotalCreditForCustomer(@Param("customerId") Long customerId);
+    @Query(value = RESPONSE_PROJECTION + "WHERE le.customer.id = :customerId AND le.isActive = true " +
+           "ORDER BY le.transactionDate DESC",
+           countQuery = "SELECT COUNT(le) FROM LedgerEntry le WHERE le.customer.id = :customerId AND le.isActive = true")
+    Page<LedgerEntryResponse> findResponsesForCustomer(@Param("customerId") Long customerId, Pageable pageable);
 
     /**
-     * Calculate total debit amount for a customer
+     * Keyset page of a customer's entries projected into responses, newest first: rows strictly after (afterDate, afterId).
+     * Pass null cursor values for the first page and a Pageable of size + 1 as the limit.
      */
-    @Query("SELECT COALESCE(SUM(le.amount), 0) FROM LedgerEntry le WHERE le.customer.id = :customerId AND le.transactionType = 'DEBIT' AND le.isActive = true")
-    BigDecimal calculateTotalDebitForCustomer(@Param("customerId") Long customerId);
+    @Query(RESPONSE_PROJECTION + "WHERE le.customer.id = :customerId AND le.isActive = true AND " +
+           "(:afterDate IS NULL OR le.transactionDate < :afterDate OR " +
+           "(le.transactionDate = :afterDate AND le.id < :afterId)) " +
+           "ORDER BY le.transactionDate DESC, le.id DESC")
+    List<LedgerEntryResponse> findResponsePageForCustomer(@Param("customerId") Long customerId,
+                                                          @Param("afterDate") LocalDate afterDate,
+                                                          @Param("afterId") Long afterId,
+                                                          Pageable limit);
 
     /**
-     * Calculate current balance for a customer
+     * All of a customer's active entries projected into responses, newest first (exports)
      */
-    @Query("SELECT COALESCE(SUM(CASE WHEN le.transactionType IN ('CREDIT', 'OPENING_BALANCE') THEN le.amount ELSE -le.amount END), 0) FROM LedgerEntry le WHERE le.customer.id = :customerId AND le.isActive = true")
-    BigDecimal calculateCurrentBalanceForCustomer(@Param("customerId") Long customerId);
+    @Query(RESPONSE_PROJECTION + "WHERE le.customer.id = :customerId AND le.isActive = true " +
+           "ORDER BY le.transactionDate DESC, le.id DESC")
+    List<LedgerEntryResponse> findAllResponsesForCustomer(@Param("customerId") Long customerId);
+
+    /**
+     * A customer's active entries in a date range projected into responses, newest first (statements)
+     */
+    @Query(RESPONSE_PROJECTION + "WHERE le.customer.id = :customerId AND le.transactionDate BETWEEN :startDate AND :endDate " +
+           "AND le.isActive = true ORDER BY le.transactionDate DESC, le.id DESC")
+    List<LedgerEntryResponse> findResponsesForCustomerAndDateRange(@Param("customerId") Long customerId,
+                                                                   @Param("startDate") LocalDate startDate,
+                                                                   @Param("endDate") LocalDate endDate);
+
+    /**
+     * A customer's unreconciled active entries projected into responses, newest first
+     */
+    @Query(RESPONSE_PROJECTION + "WHERE le.customer.id = :customerId AND le.isReconciled = false AND le.isActive = true " +
+           "ORDER BY le.transactionDate DESC")
+    List<LedgerEntryResponse> findUnreconciledResponsesForCustomer(@Param("customerId") Long customerId);
+
+    /**
+     * Sum credits, debits and entry count for a customer over a date range (partial months of a period summary)
+     */
+    @Query("SELECT COALESCE(SUM(CASE WHEN le.transactionType IN ('CREDIT', 'OPENING_BALANCE') THEN le.amount ELSE 0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN le.transactionType IN ('CREDIT', 'OPENING_BALANCE') THEN 0 ELSE le.amount END), 0), COUNT(le) " +
+           "FROM LedgerEntry le WHERE le.customer.id = :customerId AND le.transactionDate BETWEEN :startDate AND :endDate AND le.isActive = true")
+    List<Object[]> sumCreditsAndDebitsForCustomer(@Param("customerId") Long customerId,
+                                                  @Param("startDate") LocalDate startDate,
+                                                  @Param("endDate") LocalDate endDate);
+
+    /**
+     * Page of a customer's open debit entries, oldest first, read from the maintained outstanding amount
+     * (a range scan on idx_ledger_entries_customer_open).
+     * Each row is [ledger entry ID, transaction date, description, amount, outstanding amount].
+     */
+    @Query("SELECT le.id, le.transactionDate, le.description, le.amount, le.outstandingAmount FROM LedgerEntry le " +
+           "WHERE le.customer.id = :customerId AND le.isSettled = false ORDER BY le.transactionDate ASC, le.id ASC")
+    List<Object[]> findOutstandingEntriesForCustomer(@Param("customerId") Long customerId, Pageable pageable);
+
+    /**
+     * Totals over all of a customer's open debit entries: [entry count, outstanding sum, oldest date, summed days outstanding]
+     */
+    @Query(value = "SELECT COUNT(*), COALESCE(SUM(outstanding_amount), 0), MIN(transaction_date), " +
+                   "COALESCE(SUM(DATEDIFF(CURRENT_DATE, transaction_date)), 0) " +
+                   "FROM ledger_entries WHERE customer_id = :customerId AND is_settled = false", nativeQuery = true)
+    List<Object[]> summarizeOutstandingForCustomer(@Param("customerId") Long customerId);
+
+    /**
+     * Recompute outstanding_amount and is_settled from non-reversed payment applications for a range of customers
+     */
+    @Modifying
+    @Query(value = "UPDATE ledger_entries le LEFT JOIN (" +
+                   "SELECT pa.ledger_entry_id, SUM(pa.applied_amount) AS applied FROM payment_applications pa " +
+                   "JOIN ledger_entries e ON e.id = pa.ledger_entry_id " +
+                   "WHERE pa.is_reversed = false AND e.customer_id BETWEEN :fromCustomerId AND :toCustomerId " +
+                   "GROUP BY pa.ledger_entry_id) a ON a.ledger_entry_id = le.id " +
+                   "SET le.outstanding_amount = CASE WHEN le.is_active = true AND le.transaction_type = 'DEBIT' " +
+                   "THEN GREATEST(le.amount - COALESCE(a.applied, 0), 0) ELSE 0 END, " +
+                   "le.is_settled = NOT (le.is_active = true AND le.transaction_type = 'DEBIT' " +
+                   "AND le.amount - COALESCE(a.applied, 0) > 0) " +
+                   "WHERE le.customer_id BETWEEN :fromCustomerId AND :toCustomerId", nativeQuery = true)
+    int recomputeOutstandingForCustomerRange(@Param("fromCustomerId") Long fromCustomerId,
+                                             @Param("toCustomerId") Long toCustomerId);
+
+    /**
+     * Calculate current balances for a batch of customers in one grouped scan
+     */
+    @Query("SELECT le.customer.id, COALESCE(SUM(CASE WHEN le.transactionType IN ('CREDIT', 'OPENING_BALANCE') THEN le.amount ELSE -le.amount END), 0) FROM LedgerEntry le WHERE le.customer.id IN :customerIds AND le.isActive = true GROUP BY le.customer.id")
+    List<Object[]> calculateCurrentBalancesForCustomers(@Param("customerIds") Collection<Long> customerIds);
 
     /**
      * Find latest ledger entry for a customer
@@ -140,6 +258,11 @@ public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long>
      */
     long countByIsActiveTrue();
 
+    /**
+     * Count active entries for a customer
+     */
+    long countByCustomerIdAndIsActiveTrue(Long customerId);
+
     /**
      * Count entries by transaction type
      */
@@ -165,16 +288,4 @@ public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long>
      */
     @Query("SELECT le FROM LedgerEntry le WHERE le.transactionDate >= :startDate AND le.isActive = true ORDER BY le.transactionDate DESC")
     List<LedgerEntry> findRecentEntries(@Param("startDate") LocalDate startDate);
-
-    /**
-     * Get monthly summary for a customer
-     */
-    @Query("SELECT le.transactionType, SUM(le.amount), COUNT(le) FROM LedgerEntry le WHERE le.customer.id = :customerId AND YEAR(le.transactionDate) = :year AND MONTH(le.transactionDate) = :month AND le.isActive = true GROUP BY le.transactionType")
-    List<Object[]> getMonthlySummaryForCustomer(@Param("customerId") Long customerId, @Param("year") int year, @Param("month") int month);
-
-    /**
-     * Get yearly summary for a customer
-     */
-    @Query("SELECT le.transactionType, SUM(le.amount), COUNT(le) FROM LedgerEntry le WHERE le.customer.id = :customerId AND YEAR(le.transactionDate) = :year AND le.isActive = true GROUP BY le.transactionType")
-    List<Object[]> getYearlySummaryForCustomer(@Param("customerId") Long customerId, @Param("year") int year);
 }
@@ -10,7 +10,9 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for PaymentApplication entity operations
@@ -18,11 +20,25 @@ import java.util.List;
 @Repository
 public interface PaymentApplicationRepository extends JpaRepository<PaymentApplication, Long> {
 
+    /**
+     * Find the customer an application's payment belongs to, without loading the application
+     */
+    @Query("SELECT pa.payment.customer.id FROM PaymentApplication pa WHERE pa.id = :id")
+    Optional<Long> findCustomerIdById(@Param("id") Long id);
+
     /**
      * Find applications by payment ID
      */
     List<PaymentApplication> findByPaymentIdAndIsReversedFalseOrderByAppliedAtDesc(Long paymentId);
 
+    /**
+     * Find the active applications of a batch of payments in one query, with their ledger entry and the
+     * applying user's username. Each row is [PaymentApplication, applied by username].
+     */
+    @Query("SELECT pa, u.username FROM PaymentApplication pa JOIN FETCH pa.ledgerEntry JOIN pa.appliedBy u " +
+           "WHERE pa.payment.id IN :paymentIds AND pa.isReversed = false ORDER BY pa.appliedAt DESC")
+    List<Object[]> findActiveByPaymentIds(@Param("paymentIds") Collection<Long> paymentIds);
+
     /**
      * Find applications by ledger entry ID
      */
@@ -126,12 +142,6 @@ public interface PaymentApplicationRepository extends JpaRepository<PaymentAppli
     @Query("SELECT pa.appliedBy.username, COUNT(pa), SUM(pa.appliedAmount) FROM PaymentApplication pa WHERE pa.isReversed = false GROUP BY pa.appliedBy.username ORDER BY COUNT(pa) DESC")
     List<Object[]> getApplicationStatsByUser();
 
-    /**
-     * Get monthly application summary
-     */
-    @Query("SELECT YEAR(pa.appliedAt), MONTH(pa.appliedAt), COUNT(pa), SUM(pa.appliedAmount) FROM PaymentApplication pa WHERE pa.isReversed = false GROUP BY YEAR(pa.appliedAt), MONTH(pa.appliedAt) ORDER BY YEAR(pa.appliedAt) DESC, MONTH(pa.appliedAt) DESC")
-    List<Object[]> getMonthlySummary();
-
     /**
      * Find applications for specific payment and ledger entry combination
      */
@@ -6,13 +6,17 @@ import com.example.ledgerly.entity.PaymentStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for Payment entity operations
@@ -20,6 +24,12 @@ import java.util.List;
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
 
+    /**
+     * Find the customer a payment belongs to, without loading the payment
+     */
+    @Query("SELECT p.customer.id FROM Payment p WHERE p.id = :id")
+    Optional<Long> findCustomerIdById(@Param("id") Long id);
+
     /**
      * Find payments by customer
      */
@@ -167,18 +177,6 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     @Query("SELECT p FROM Payment p WHERE p.paymentDate >= :startDate AND p.isActive = true ORDER BY p.paymentDate DESC")
     List<Payment> findRecentPayments(@Param("startDate") LocalDate startDate);
 
-    /**
-     * Get monthly payment summary for a customer
-     */
-    @Query("SELECT p.status, SUM(p.amount), COUNT(p) FROM Payment p WHERE p.customer.id = :customerId AND YEAR(p.paymentDate) = :year AND MONTH(p.paymentDate) = :month AND p.isActive = true GROUP BY p.status")
-    List<Object[]> getMonthlySummaryForCustomer(@Param("customerId") Long customerId, @Param("year") int year, @Param("month") int month);
-
-    /**
-     * Get yearly payment summary for a customer
-     */
-    @Query("SELECT p.status, SUM(p.amount), COUNT(p) FROM Payment p WHERE p.customer.id = :customerId AND YEAR(p.paymentDate) = :year AND p.isActive = true GROUP BY p.status")
-    List<Object[]> getYearlySummaryForCustomer(@Param("customerId") Long customerId, @Param("year") int year);
-
     /**
      * Find payments with remaining balance
      */
@@ -191,6 +189,72 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     @Query("SELECT p FROM Payment p WHERE p.amount > p.appliedAmount AND p.status IN ('PENDING', 'PARTIAL') AND p.isActive = true ORDER BY p.paymentDate ASC")
     List<Payment> findApplicablePayments();
 
+    /**
+     * Ids of customers, after the given id, that have both an applicable payment and an open debit entry
+     */
+    @Query("SELECT DISTINCT p.customer.id FROM Payment p WHERE p.customer.id > :afterId " +
+           "AND p.amount > p.appliedAmount AND p.status IN ('PENDING', 'PARTIAL') AND p.isActive = true " +
+           "AND EXISTS (SELECT 1 FROM LedgerEntry le WHERE le.customer.id = p.customer.id AND le.isSettled = false) " +
+           "ORDER BY p.customer.id")
+    List<Long> findSettlementCandidateIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Active payments, after the given id, that no active ledger entry records (anti-join on
+     * ledger_entries.payment_id). As with the old reference lookup, a deactivated entry does not count as posted.
+     */
+    @Query("SELECT p FROM Payment p JOIN FETCH p.customer WHERE p.id > :afterId AND p.isActive = true " +
+           "AND NOT EXISTS (SELECT 1 FROM LedgerEntry le WHERE le.payment = p AND le.isActive = true) ORDER BY p.id")
+    List<Payment> findPaymentsWithoutLedgerEntryAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Keyset page of active payments in the given status that fell due before today, oldest due date first:
+     * [id, customerId, dueDate] rows strictly after (afterDate, afterId), served by idx_payments_status_due.
+     * Pass null cursor values for the first page.
+     */
+    @Query("SELECT p.id, p.customer.id, p.dueDate FROM Payment p WHERE p.status = :status AND p.isActive = true " +
+           "AND p.dueDate < :today AND (:afterDate IS NULL OR p.dueDate > :afterDate OR " +
+           "(p.dueDate = :afterDate AND p.id > :afterId)) ORDER BY p.dueDate, p.id")
+    List<Object[]> findOverdueCandidatesAfter(@Param("status") PaymentStatus status,
+                                              @Param("today") LocalDate today,
+                                              @Param("afterDate") LocalDate afterDate,
+                                              @Param("afterId") Long afterId,
+                                              Pageable limit);
+
+    /**
+     * Keyset page of active PENDING and PARTIAL payments falling due in [from, to): [id, customerId, dueDate] rows
+     * strictly after (afterDate, afterId). Pass null cursor values for the first page.
+     */
+    @Query("SELECT p.id, p.customer.id, p.dueDate FROM Payment p WHERE p.status IN ('PENDING', 'PARTIAL') " +
+           "AND p.isActive = true AND p.dueDate >= :from AND p.dueDate < :to AND (:afterDate IS NULL OR " +
+           "p.dueDate > :afterDate OR (p.dueDate = :afterDate AND p.id > :afterId)) ORDER BY p.dueDate, p.id")
+    List<Object[]> findDueBetweenAfter(@Param("from") LocalDate from,
+                                       @Param("to") LocalDate to,
+                                       @Param("afterDate") LocalDate afterDate,
+                                       @Param("afterId") Long afterId,
+                                       Pageable limit);
+
+    /**
+     * State [id, shopId, customerId, paymentDate, status, amount, dueDate] of the given payments that are still
+     * PENDING or PARTIAL and past due; read under the customer locks, just before markOverdue
+     */
+    @Query("SELECT p.id, s.id, p.customer.id, p.paymentDate, p.status, p.amount, p.dueDate " +
+           "FROM Payment p LEFT JOIN p.shop s " +
+           "WHERE p.id IN :ids AND p.status IN ('PENDING', 'PARTIAL') AND p.isActive = true AND p.dueDate < :today")
+    List<Object[]> findOverdueStateByIds(@Param("ids") Collection<Long> ids, @Param("today") LocalDate today);
+
+    /**
+     * Flip the given past-due payments to OVERDUE in one statement, stamping days overdue and status notes.
+     * The statement bypasses Hibernate, so updated_at is set here rather than by the entity.
+     */
+    @Modifying
+    @Query(value = "UPDATE payments SET status = 'OVERDUE', overdue_days = DATEDIFF(:today, due_date), " +
+                   "status_notes = CONCAT('Payment is ', DATEDIFF(:today, due_date), ' days overdue'), " +
+                   "status_updated_at = :now, status_updated_by_user_id = :userId, updated_at = :now " +
+                   "WHERE id IN (:ids) AND status IN ('PENDING', 'PARTIAL') AND is_active = true AND due_date < :today",
+           nativeQuery = true)
+    int markOverdue(@Param("ids") Collection<Long> ids, @Param("today") LocalDate today,
+                    @Param("now") LocalDateTime now, @Param("userId") Long userId);
+
     /**
      * Find applicable payments for a customer
      */
@@ -201,4 +265,43 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
      * Find payments by shop IDs with pagination
      */
     Page<Payment> findByShopIdInAndIsActiveTrueOrderByPaymentDateDesc(List<Long> shopIds, Pageable pageable);
+
+    /**
+     * Keyset page of a customer's payments, newest first: rows strictly after (afterDate, afterId)
+     */
+    @Query("SELECT p FROM Payment p WHERE p.customer.id = :customerId AND p.isActive = true AND " +
+           "(:afterDate IS NULL OR p.paymentDate < :afterDate OR " +
+           "(p.paymentDate = :afterDate AND p.id < :afterId)) " +
+           "ORDER BY p.paymentDate DESC, p.id DESC")
+    List<Payment> findPageForCustomer(@Param("customerId") Long customerId,
+                                      @Param("afterDate") LocalDate afterDate,
+                                      @Param("afterId") Long afterId,
+                                      Pageable limit);
+
+    /**
+     * Keyset page of payments for a set of shops, newest first: rows strictly after (afterDate, afterId)
+     */
+    @Query("SELECT p FROM Payment p WHERE p.shop.id IN :shopIds AND p.isActive = true AND " +
+           "(:afterDate IS NULL OR p.paymentDate < :afterDate OR " +
+           "(p.paymentDate = :afterDate AND p.id < :afterId)) " +
+           "ORDER BY p.paymentDate DESC, p.id DESC")
+    List<Payment> findPageForShops(@Param("shopIds") List<Long> shopIds,
+                                   @Param("afterDate") LocalDate afterDate,
+                                   @Param("afterId") Long afterId,
+                                   Pageable limit);
+
+    /**
+     * Count active payments for a set of shops
+     */
+    long countByShopIdInAndIsActiveTrue(List<Long> shopIds);
+
+    /**
+     * Customer and user names of a batch of payments in one query, so responses can be built without loading
+     * the lazy customer and user associations row by row.
+     * Each row is [payment ID, customer ID, customer name, created by, updated by, status updated by, disputed by].
+     */
+    @Query("SELECT p.id, c.id, c.name, cb.username, ub.username, sb.username, db.username FROM Payment p " +
+           "JOIN p.customer c JOIN p.createdBy cb LEFT JOIN p.updatedBy ub LEFT JOIN p.statusUpdatedBy sb " +
+           "LEFT JOIN p.disputedBy db WHERE p.id IN :paymentIds")
+    List<Object[]> findResponseNamesByIds(@Param("paymentIds") Collection<Long> paymentIds);
 }
@@ -0,0 +1,52 @@
+package com.example.ledgerly.repository;
+
+import com.example.ledgerly.entity.RollupSource;
+import com.example.ledgerly.entity.SummaryRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository interface for SummaryRollup entity operations
+ */
+@Repository
+public interface SummaryRollupRepository extends JpaRepository<SummaryRollup, Long> {
+
+    /**
+     * Count and amount per category for a customer over a range of months (inclusive)
+     */
+    @Query("SELECT r.category, SUM(r.itemCount), SUM(r.totalAmount) FROM SummaryRollup r " +
+           "WHERE r.source = :source AND r.customerId = :customerId AND r.periodStart BETWEEN :fromPeriod AND :toPeriod " +
+           "GROUP BY r.category")
+    List<Object[]> sumByCategoryForCustomer(@Param("source") RollupSource source,
+                                            @Param("customerId") Long customerId,
+                                            @Param("fromPeriod") LocalDate fromPeriod,
+                                            @Param("toPeriod") LocalDate toPeriod);
+
+    /**
+     * Count and amount per category across all customers, optionally for one shop
+     */
+    @Query("SELECT r.category, SUM(r.itemCount), SUM(r.totalAmount) FROM SummaryRollup r " +
+           "WHERE r.source = :source AND (:shopId IS NULL OR r.shopId = :shopId) GROUP BY r.category")
+    List<Object[]> sumByCategory(@Param("source") RollupSource source, @Param("shopId") Long shopId);
+
+    /**
+     * Count and amount per month across all customers, optionally for one shop, newest first
+     */
+    @Query("SELECT r.periodStart, SUM(r.itemCount), SUM(r.totalAmount) FROM SummaryRollup r " +
+           "WHERE r.source = :source AND (:shopId IS NULL OR r.shopId = :shopId) " +
+           "GROUP BY r.periodStart ORDER BY r.periodStart DESC")
+    List<Object[]> sumByPeriod(@Param("source") RollupSource source, @Param("shopId") Long shopId);
+
+    /**
+     * Delete rollups for a range of customer ids (rebuild)
+     */
+    @Modifying
+    @Query(value = "DELETE FROM summary_rollups WHERE customer_id BETWEEN :fromCustomerId AND :toCustomerId", nativeQuery = true)
+    int deleteForCustomerRange(@Param("fromCustomerId") Long fromCustomerId, @Param("toCustomerId") Long toCustomerId);
+}
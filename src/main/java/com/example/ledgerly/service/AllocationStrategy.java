@@ -0,0 +1,37 @@
+package com.example.ledgerly.service;
+
+/**
+ * Order in which PaymentAllocationService spends unapplied payments on a customer's open debit entries
+ */
+public enum AllocationStrategy {
+
+    /**
+     * Oldest transaction first; served by idx_ledger_entries_customer_open
+     */
+    FIFO("transaction_date, id"),
+
+    /**
+     * Earliest due first. Ledger entries carry no due date of their own, so the invoice date is used and
+     * entries without one fall back to their transaction date.
+     */
+    DUE_DATE("COALESCE(invoice_date, transaction_date), transaction_date, id"),
+
+    /**
+     * Every open entry receives the same fraction of its outstanding amount; when the payments cover the
+     * whole outstanding balance this settles everything, like FIFO
+     */
+    PROPORTIONAL("transaction_date, id");
+
+    private final String orderBy;
+
+    AllocationStrategy(String orderBy) {
+        this.orderBy = orderBy;
+    }
+
+    /**
+     * ORDER BY clause of the open-entry cursor
+     */
+    public String getOrderBy() {
+        return orderBy;
+    }
+}
@@ -0,0 +1,519 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.AuditArchiveSegment;
+import com.example.ledgerly.entity.AuditLog;
+import com.example.ledgerly.entity.User;
+import com.example.ledgerly.exception.BusinessRuleException;
+import com.example.ledgerly.repository.AuditArchiveSegmentRepository;
+import com.example.ledgerly.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Lifecycle of audit_logs: monthly partitions, retention and compressed archival.
+ *
+ * audit_logs is RANGE partitioned on TO_DAYS(created_at) with one partition per month, named pYYYYMM, and a
+ * MAXVALUE catch-all, p_future (db/migration-partition-audit-logs.sql). The daily run splits the catch-all so
+ * that partitions exist months-ahead months in advance. It then archives every partition that ended on or
+ * before the retention cutoff. The partition's rows are streamed in created_at order into a gzip JSON lines
+ * segment under archive-dir, the segment and the entities it mentions are recorded in audit_archive_segments
+ * and audit_archive_index, and the partition is dropped. Dropping frees the month without a large DELETE. If
+ * the table is not partitioned, whole months are archived the same way and then deleted in chunks.
+ *
+ * The segment row is committed before any rows leave audit_logs. A run interrupted after that point only
+ * finishes the drop or delete next time. getArchivedLogsForEntity reads an entity's history back from the
+ * segments the index points to.
+ */
+@Service
+public class AuditArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditArchiveService.class);
+
+    // MySQL TO_DAYS('1970-01-01'); partition bounds are stored as TO_DAYS values
+    static final long TO_DAYS_EPOCH = 719528;
+    private static final LocalDate EARLIEST = LocalDate.of(1970, 1, 1);
+    private static final DateTimeFormatter MONTH_PARTITION = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    static final String LIST_PARTITIONS_SQL =
+        "SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS " +
+        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'audit_logs' AND PARTITION_NAME IS NOT NULL " +
+        "ORDER BY PARTITION_ORDINAL_POSITION";
+
+    static final String MIN_CREATED_AT_SQL = "SELECT MIN(created_at) FROM audit_logs";
+
+    private static final String SELECT_RANGE_SQL =
+        "SELECT id, action, entity_type, entity_id, old_values, new_values, description, ip_address, user_agent, " +
+        "success, error_message, user_id, created_at FROM audit_logs " +
+        "WHERE created_at >= ? AND created_at < ? ORDER BY created_at, id";
+
+    private static final String DELETE_RANGE_SQL =
+        "DELETE FROM audit_logs WHERE created_at >= ? AND created_at < ? LIMIT ?";
+
+    private static final String INSERT_INDEX_SQL =
+        "INSERT INTO audit_archive_index (segment_id, entity_type, entity_id) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final AuditArchiveSegmentRepository segmentRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Value("${app.audit.lifecycle.retention-months:12}")
+    private int retentionMonths;
+
+    @Value("${app.audit.lifecycle.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${app.audit.lifecycle.archive-dir:audit-archive}")
+    private String archiveDir;
+
+    @Value("${app.audit.lifecycle.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${app.audit.lifecycle.delete-chunk-size:5000}")
+    private int deleteChunkSize;
+
+    @Autowired
+    public AuditArchiveService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                               AuditArchiveSegmentRepository segmentRepository, UserRepository userRepository,
+                               PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.segmentRepository = segmentRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Create upcoming monthly partitions and archive the months past the retention window
+     */
+    public ArchiveRunResult runLifecycle() {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessRuleException("AUDIT_ARCHIVE_IN_PROGRESS", "An audit archive run is already in progress");
+        }
+
+        try {
+            return runLifecycle(LocalDate.now());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Nightly partition maintenance and archival (scheduled task)
+     */
+    @Scheduled(cron = "${app.audit.lifecycle.cron:0 15 4 * * ?}")
+    public void scheduledLifecycle() {
+        try {
+            runLifecycle();
+        } catch (Exception e) {
+            logger.error("Scheduled audit archive run failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Archived segments, newest first
+     */
+    public List<AuditArchiveSegment> getSegments() {
+        return segmentRepository.findAllByOrderByPeriodStartDesc();
+    }
+
+    /**
+     * Audit rows of an entity that have been moved to archive segments, newest first
+     */
+    public List<AuditLog> getArchivedLogsForEntity(String entityType, Long entityId) {
+        List<ArchivedAuditRow> rows = new ArrayList<>();
+        // Cheap text test before parsing; Jackson writes "entityId":<n> with no whitespace
+        String marker = "\"entityId\":" + entityId;
+        for (AuditArchiveSegment segment : segmentRepository.findSegmentsForEntity(entityType, entityId)) {
+            try (BufferedReader reader = openSegment(Paths.get(segment.getFilePath()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.contains(marker)) {
+                        continue;
+                    }
+                    ArchivedAuditRow row = objectMapper.readValue(line, ArchivedAuditRow.class);
+                    if (entityId.equals(row.getEntityId()) && entityType.equalsIgnoreCase(row.getEntityType())) {
+                        rows.add(row);
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Audit archive segment " + segment.getFilePath() +
+                        " could not be read: " + e.getMessage(), e);
+            }
+        }
+
+        Set<Long> userIds = rows.stream().map(ArchivedAuditRow::getUserId)
+                .filter(id -> id != null).collect(Collectors.toSet());
+        Map<Long, User> users = userIds.isEmpty() ? Map.of() : userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        List<AuditLog> logs = new ArrayList<>(rows.size());
+        for (ArchivedAuditRow row : rows) {
+            logs.add(row.toAuditLog(row.getUserId() != null ? users.get(row.getUserId()) : null));
+        }
+        logs.sort(Comparator.comparing(AuditLog::getCreatedAt, Comparator.nullsLast(Comparator.naturalOrder()))
+                .reversed());
+        return logs;
+    }
+
+    ArchiveRunResult runLifecycle(LocalDate today) {
+        long startTime = System.currentTimeMillis();
+        LocalDate cutoff = today.withDayOfMonth(1).minusMonths(retentionMonths);
+
+        List<AuditPartition> partitions = partitionsOf(
+                jdbcTemplate.query(LIST_PARTITIONS_SQL, (rs, rowNum) -> new String[]{rs.getString(1), rs.getString(2)}));
+        boolean partitioned = !partitions.isEmpty();
+
+        int partitionsCreated = 0;
+        List<AuditPartition> expired;
+        if (partitioned) {
+            partitionsCreated = addFuturePartitions(partitions, today);
+            expired = expiredPartitions(partitions, cutoff);
+        } else {
+            expired = expiredMonths(cutoff);
+        }
+
+        List<String> archived = new ArrayList<>();
+        long rowsArchived = 0;
+        for (AuditPartition partition : expired) {
+            rowsArchived += archive(partition, partitioned);
+            archived.add(partition.name);
+        }
+
+        long durationMs = System.currentTimeMillis() - startTime;
+        logger.info("Audit archive run: {} partitions created, {} archived ({} rows) before {} in {} ms",
+                partitionsCreated, archived.size(), rowsArchived, cutoff, durationMs);
+        return new ArchiveRunResult(partitioned, partitionsCreated, archived, rowsArchived, durationMs);
+    }
+
+    /**
+     * Partitions from information_schema rows of (name, TO_DAYS upper bound or MAXVALUE), in partition order
+     */
+    static List<AuditPartition> partitionsOf(List<String[]> rows) {
+        List<AuditPartition> partitions = new ArrayList<>(rows.size());
+        LocalDate start = EARLIEST;
+        for (String[] row : rows) {
+            String bound = row[1] != null ? row[1].trim() : "MAXVALUE";
+            LocalDate end = "MAXVALUE".equalsIgnoreCase(bound)
+                    ? null : LocalDate.ofEpochDay(Long.parseLong(bound) - TO_DAYS_EPOCH);
+            partitions.add(new AuditPartition(row[0], start, end));
+            start = end;
+        }
+        return partitions;
+    }
+
+    /**
+     * Partitions whose rows all fall before the cutoff
+     */
+    static List<AuditPartition> expiredPartitions(List<AuditPartition> partitions, LocalDate cutoff) {
+        List<AuditPartition> expired = new ArrayList<>();
+        for (AuditPartition partition : partitions) {
+            if (partition.end != null && !partition.end.isAfter(cutoff)) {
+                expired.add(partition);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Split the MAXVALUE partition until there is a partition for every month up to today + months-ahead
+     */
+    private int addFuturePartitions(List<AuditPartition> partitions, LocalDate today) {
+        AuditPartition catchAll = partitions.get(partitions.size() - 1);
+        if (catchAll.end != null) {
+            logger.warn("audit_logs has no MAXVALUE partition; not adding monthly partitions");
+            return 0;
+        }
+
+        LocalDate next = catchAll.start != null && !catchAll.start.equals(EARLIEST)
+                ? catchAll.start : today.withDayOfMonth(1);
+        LocalDate until = today.withDayOfMonth(1).plusMonths(monthsAhead + 1L);
+        int created = 0;
+        while (next.isBefore(until)) {
+            LocalDate bound = next.withDayOfMonth(1).plusMonths(1);
+            // Normally p_future is empty, so reorganizing it moves no rows
+            jdbcTemplate.execute("ALTER TABLE audit_logs REORGANIZE PARTITION `" + catchAll.name + "` INTO (" +
+                    "PARTITION " + MONTH_PARTITION.format(next) + " VALUES LESS THAN (TO_DAYS('" + bound + "')), " +
+                    "PARTITION `" + catchAll.name + "` VALUES LESS THAN MAXVALUE)");
+            next = bound;
+            created++;
+        }
+        return created;
+    }
+
+    /**
+     * Whole months before the cutoff that still hold rows, for an unpartitioned audit_logs
+     */
+    private List<AuditPartition> expiredMonths(LocalDate cutoff) {
+        LocalDateTime oldest = jdbcTemplate.queryForObject(MIN_CREATED_AT_SQL, LocalDateTime.class);
+        List<AuditPartition> months = new ArrayList<>();
+        if (oldest == null) {
+            return months;
+        }
+        for (LocalDate month = oldest.toLocalDate().withDayOfMonth(1); month.isBefore(cutoff);
+             month = month.plusMonths(1)) {
+            months.add(new AuditPartition(MONTH_PARTITION.format(month), month, month.plusMonths(1)));
+        }
+        return months;
+    }
+
+    /**
+     * Write the partition's segment (unless an earlier run already did), then remove its rows from audit_logs
+     */
+    private long archive(AuditPartition partition, boolean dropPartition) {
+        AuditArchiveSegment segment = segmentRepository.findByPartitionName(partition.name).orElse(null);
+        if (segment != null) {
+            logger.info("Audit partition {} already archived to {}; removing its rows", partition.name,
+                    segment.getFilePath());
+        } else {
+            segment = writeSegment(partition);
+        }
+
+        if (dropPartition) {
+            jdbcTemplate.execute("ALTER TABLE audit_logs DROP PARTITION `" + partition.name + "`");
+        } else {
+            Timestamp from = Timestamp.valueOf(partition.start.atStartOfDay());
+            Timestamp to = Timestamp.valueOf(partition.end.atStartOfDay());
+            int deleted;
+            do {
+                deleted = jdbcTemplate.update(DELETE_RANGE_SQL, from, to, deleteChunkSize);
+            } while (deleted >= deleteChunkSize);
+        }
+        return segment.getRowCount();
+    }
+
+    private AuditArchiveSegment writeSegment(AuditPartition partition) {
+        Path dir = Paths.get(archiveDir);
+        Path file = dir.resolve("audit_logs-" + partition.name + ".jsonl.gz");
+        Path tmp = dir.resolve(file.getFileName() + ".tmp");
+        Map<String, Set<Long>> entities = new HashMap<>();
+        long[] rowCount = {0};
+
+        try {
+            Files.createDirectories(dir);
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(tmp), 64 * 1024), StandardCharsets.UTF_8))) {
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement ps = connection.prepareStatement(SELECT_RANGE_SQL);
+                    ps.setFetchSize(fetchSize);
+                    ps.setTimestamp(1, Timestamp.valueOf(partition.start.atStartOfDay()));
+                    ps.setTimestamp(2, Timestamp.valueOf(partition.end.atStartOfDay()));
+                    return ps;
+                }, (RowCallbackHandler) rs -> {
+                    ArchivedAuditRow row = ArchivedAuditRow.of(rs);
+                    try {
+                        writer.write(objectMapper.writeValueAsString(row));
+                        writer.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    if (row.getEntityType() != null && row.getEntityId() != null) {
+                        entities.computeIfAbsent(row.getEntityType(), type -> new HashSet<>()).add(row.getEntityId());
+                    }
+                    rowCount[0]++;
+                });
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // On disk before the rows leave the database
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            throw new IllegalStateException("Failed to write audit archive segment " + file + ": " + e.getMessage(), e);
+        }
+
+        AuditArchiveSegment segment = new AuditArchiveSegment(partition.name,
+                partition.start.atStartOfDay(), partition.end.atStartOfDay(), file.toAbsolutePath().toString(),
+                rowCount[0], file.toFile().length());
+        return transactionTemplate.execute(status -> {
+            AuditArchiveSegment saved = segmentRepository.save(segment);
+            List<Object[]> indexRows = new ArrayList<>();
+            for (Map.Entry<String, Set<Long>> type : entities.entrySet()) {
+                for (Long entityId : type.getValue()) {
+                    indexRows.add(new Object[]{saved.getId(), type.getKey(), entityId});
+                }
+            }
+            if (!indexRows.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_INDEX_SQL, indexRows);
+            }
+            return saved;
+        });
+    }
+
+    private BufferedReader openSegment(Path file) throws IOException {
+        return new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file), 64 * 1024), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A month of audit_logs: rows with created_at in [start, end). end is null for the MAXVALUE partition.
+     */
+    static class AuditPartition {
+        final String name;
+        final LocalDate start;
+        final LocalDate end;
+
+        AuditPartition(String name, LocalDate start, LocalDate end) {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * One audit_logs row as stored in an archive segment
+     */
+    public static class ArchivedAuditRow {
+        private Long id;
+        private String action;
+        private String entityType;
+        private Long entityId;
+        private String oldValues;
+        private String newValues;
+        private String description;
+        private String ipAddress;
+        private String userAgent;
+        private boolean success;
+        private String errorMessage;
+        private Long userId;
+        private LocalDateTime createdAt;
+
+        static ArchivedAuditRow of(ResultSet rs) throws SQLException {
+            ArchivedAuditRow row = new ArchivedAuditRow();
+            row.id = rs.getLong("id");
+            row.action = rs.getString("action");
+            row.entityType = rs.getString("entity_type");
+            long entityId = rs.getLong("entity_id");
+            row.entityId = rs.wasNull() ? null : entityId;
+            row.oldValues = rs.getString("old_values");
+            row.newValues = rs.getString("new_values");
+            row.description = rs.getString("description");
+            row.ipAddress = rs.getString("ip_address");
+            row.userAgent = rs.getString("user_agent");
+            row.success = rs.getBoolean("success");
+            row.errorMessage = rs.getString("error_message");
+            long userId = rs.getLong("user_id");
+            row.userId = rs.wasNull() ? null : userId;
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            row.createdAt = createdAt != null ? createdAt.toLocalDateTime() : null;
+            return row;
+        }
+
+        AuditLog toAuditLog(User user) {
+            AuditLog log = new AuditLog();
+            log.setId(id);
+            log.setAction(action);
+            log.setEntityType(entityType);
+            log.setEntityId(entityId);
+            log.setOldValues(oldValues);
+            log.setNewValues(newValues);
+            log.setDescription(description);
+            log.setIpAddress(ipAddress);
+            log.setUserAgent(userAgent);
+            log.setSuccess(success);
+            log.setErrorMessage(errorMessage);
+            log.setCreatedAt(createdAt);
+            log.setUser(user);
+            return log;
+        }
+
+        public Long getId() { return id; }
+        public void setId(Long id) { this.id = id; }
+        public String getAction() { return action; }
+        public void setAction(String action) { this.action = action; }
+        public String getEntityType() { return entityType; }
+        public void setEntityType(String entityType) { this.entityType = entityType; }
+        public Long getEntityId() { return entityId; }
+        public void setEntityId(Long entityId) { this.entityId = entityId; }
+        public String getOldValues() { return oldValues; }
+        public void setOldValues(String oldValues) { this.oldValues = oldValues; }
+        public String getNewValues() { return newValues; }
+        public void setNewValues(String newValues) { this.newValues = newValues; }
+        public String getDescription() { return description; }
+        public void setDescription(String description) { this.description = description; }
+        public String getIpAddress() { return ipAddress; }
+        public void setIpAddress(String ipAddress) { this.ipAddress = ipAddress; }
+        public String getUserAgent() { return userAgent; }
+        public void setUserAgent(String userAgent) { this.userAgent = userAgent; }
+        public boolean isSuccess() { return success; }
+        public void setSuccess(boolean success) { this.success = success; }
+        public String getErrorMessage() { return errorMessage; }
+        public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+        public Long getUserId() { return userId; }
+        public void setUserId(Long userId) { this.userId = userId; }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+        public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    }
+
+    /**
+     * Outcome of one lifecycle run
+     */
+    public static class ArchiveRunResult {
+        private final boolean partitioned;
+        private final int partitionsCreated;
+        private final List<String> archivedPartitions;
+        private final long rowsArchived;
+        private final long durationMs;
+
+        public ArchiveRunResult(boolean partitioned, int partitionsCreated, List<String> archivedPartitions,
+                                long rowsArchived, long durationMs) {
+            this.partitioned = partitioned;
+            this.partitionsCreated = partitionsCreated;
+            this.archivedPartitions = archivedPartitions;
+            this.rowsArchived = rowsArchived;
+            this.durationMs = durationMs;
+        }
+
+        public boolean isPartitioned() { return partitioned; }
+        public int getPartitionsCreated() { return partitionsCreated; }
+        public List<String> getArchivedPartitions() { return archivedPartitions; }
+        public long getRowsArchived() { return rowsArchived; }
+        public long getDurationMs() { return durationMs; }
+    }
+}
@@ -0,0 +1,507 @@
+package com.example.ledgerly.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes audit rows for AuditService.
+ *
+ * In ASYNC mode (the default) rows go into a bounded in-memory queue. A single writer thread drains the queue
+ * and inserts the rows with JDBC batches on autocommit connections, so callers no longer open a
+ * REQUIRES_NEW transaction (and a second pooled connection) per audit call. A batch is written once it reaches
+ * batch-size rows or flush-interval-ms after its first row. When the queue is full the overflow policy decides:
+ * BLOCK waits up to offer-timeout-ms and then has the caller write the row itself, SPILL appends it to a JSON
+ * lines file that the writer replays once the queue has drained, and DROP discards it. Rows still queued at
+ * shutdown are flushed; rows queued when the process dies are lost, which is what DURABLE mode is for.
+ *
+ * In DURABLE mode every call writes its rows synchronously in a REQUIRES_NEW transaction, as AuditService
+ * always did.
+ *
+ * Every written batch also adds its rows to the hourly audit_stat_buckets counters read by AuditStatsService.
+ */
+@Service
+public class AuditLogWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditLogWriter.class);
+    private static final int MAX_FLUSH_ATTEMPTS = 3;
+
+    private static final String INSERT_AUDIT_LOG_SQL =
+        "INSERT INTO audit_logs (action, entity_type, entity_id, old_values, new_values, description, success, " +
+        "error_message, user_id, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPSERT_STAT_BUCKET_SQL =
+        "INSERT INTO audit_stat_buckets (bucket_start, action, user_id, success, log_count) VALUES (?, ?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE log_count = log_count + VALUES(log_count)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate requiresNewTemplate;
+
+    private final Object spillLock = new Object();
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong writtenByCaller = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    private BlockingQueue<AuditRecord> queue;
+    private Thread writerThread;
+    private volatile boolean stopping;
+
+    @Value("${app.audit.writer.mode:ASYNC}")
+    private Mode mode;
+
+    @Value("${app.audit.writer.overflow:BLOCK}")
+    private OverflowPolicy overflow;
+
+    @Value("${app.audit.writer.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.audit.writer.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.audit.writer.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${app.audit.writer.offer-timeout-ms:50}")
+    private long offerTimeoutMs;
+
+    @Value("${app.audit.writer.spill-file:audit-spill.jsonl}")
+    private String spillFile;
+
+    @Autowired
+    public AuditLogWriter(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                          PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.requiresNewTemplate = new TransactionTemplate(transactionManager);
+        this.requiresNewTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (mode != Mode.ASYNC) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        writerThread = new Thread(this::drainLoop, "audit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Flush whatever is still queued before the connection pool goes away
+     */
+    @PreDestroy
+    public void stop() {
+        stopping = true;
+        if (writerThread == null) {
+            return;
+        }
+        // The writer notices the flag within one flush interval; no interrupt, so an in-flight batch completes
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            logger.warn("Audit writer stopped with {} rows still queued", queue.size());
+        }
+    }
+
+    /**
+     * Write one audit row (queued in ASYNC mode). Never throws.
+     */
+    public void write(AuditRecord record) {
+        writeAll(List.of(record));
+    }
+
+    /**
+     * Write several audit rows (queued in ASYNC mode). Never throws.
+     */
+    public void writeAll(List<AuditRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        if (queue == null || stopping) {
+            insertNow(records);
+            return;
+        }
+        for (AuditRecord record : records) {
+            enqueue(record);
+        }
+    }
+
+    /**
+     * Queue depth and counters since startup
+     */
+    public WriterStats getStats() {
+        return new WriterStats(mode, overflow, queue != null ? queue.size() : 0, queueCapacity,
+                enqueued.get(), written.get(), writtenByCaller.get(), spilled.get(), dropped.get(),
+                failedBatches.get());
+    }
+
+    private void enqueue(AuditRecord record) {
+        if (queue.offer(record)) {
+            enqueued.incrementAndGet();
+            return;
+        }
+
+        switch (overflow) {
+            case BLOCK:
+                try {
+                    if (queue.offer(record, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                        enqueued.incrementAndGet();
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                // Still full: the caller pays for its own row rather than losing it
+                insertNow(List.of(record));
+                writtenByCaller.incrementAndGet();
+                break;
+            case SPILL:
+                spill(List.of(record));
+                break;
+            case DROP:
+            default:
+                dropped.incrementAndGet();
+                break;
+        }
+    }
+
+    private void drainLoop() {
+        List<AuditRecord> batch = new ArrayList<>(batchSize);
+        while (!stopping || !queue.isEmpty()) {
+            try {
+                AuditRecord first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                    while (batch.size() < batchSize && !stopping) {
+                        AuditRecord next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Write what we have, then drain the rest without waiting
+                stopping = true;
+            }
+            queue.drainTo(batch, batchSize - batch.size());
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            } else if (!stopping) {
+                replaySpill();
+            }
+        }
+    }
+
+    private void flush(List<AuditRecord> batch) {
+        for (int attempt = 1; attempt <= MAX_FLUSH_ATTEMPTS; attempt++) {
+            try {
+                insert(batch);
+                written.addAndGet(batch.size());
+                return;
+            } catch (RuntimeException e) {
+                failedBatches.incrementAndGet();
+                logger.warn("Failed to write {} audit rows (attempt {}): {}", batch.size(), attempt, e.getMessage());
+                if (attempt < MAX_FLUSH_ATTEMPTS && !stopping) {
+                    try {
+                        Thread.sleep(flushIntervalMs * attempt);
+                    } catch (InterruptedException ie) {
+                        stopping = true;
+                    }
+                }
+            }
+        }
+
+        if (overflow == OverflowPolicy.SPILL) {
+            spill(batch);
+        } else {
+            dropped.addAndGet(batch.size());
+            logger.error("Dropped {} audit rows after {} failed attempts", batch.size(), MAX_FLUSH_ATTEMPTS);
+        }
+    }
+
+    /**
+     * Synchronous write in its own transaction, independent of the caller's
+     */
+    private void insertNow(List<AuditRecord> records) {
+        try {
+            requiresNewTemplate.executeWithoutResult(status -> insert(records));
+            written.addAndGet(records.size());
+        } catch (Exception e) {
+            // Don't fail the main operation if audit logging fails
+            dropped.addAndGet(records.size());
+            logger.error("Failed to log audit: {}", e.getMessage());
+        }
+    }
+
+    private void insert(List<AuditRecord> records) {
+        jdbcTemplate.batchUpdate(INSERT_AUDIT_LOG_SQL, records, records.size(), (ps, record) -> {
+            ps.setString(1, record.getAction());
+            ps.setString(2, record.getEntityType());
+            if (record.getEntityId() != null) {
+                ps.setLong(3, record.getEntityId());
+            } else {
+                ps.setNull(3, Types.BIGINT);
+            }
+            ps.setString(4, record.getOldValues());
+            ps.setString(5, record.getNewValues());
+            ps.setString(6, record.getDescription());
+            ps.setBoolean(7, record.isSuccess());
+            ps.setString(8, record.getErrorMessage());
+            if (record.getUserId() != null) {
+                ps.setLong(9, record.getUserId());
+            } else {
+                ps.setNull(9, Types.BIGINT);
+            }
+            ps.setTimestamp(10, Timestamp.valueOf(record.getCreatedAt()));
+        });
+        countInBuckets(records);
+    }
+
+    /**
+     * Add the rows to their hourly statistics buckets, one upsert per bucket. A failure leaves the counters short
+     * until AuditStatsService rebuilds them; it is not rethrown, since retrying the batch would duplicate the rows.
+     */
+    private void countInBuckets(List<AuditRecord> records) {
+        Map<List<Object>, Long> counts = new LinkedHashMap<>();
+        for (AuditRecord record : records) {
+            List<Object> bucket = Arrays.asList(record.getCreatedAt().truncatedTo(ChronoUnit.HOURS),
+                    record.getAction(), record.getUserId() != null ? record.getUserId() : 0L, record.isSuccess());
+            counts.merge(bucket, 1L, Long::sum);
+        }
+
+        List<Object[]> rows = new ArrayList<>(counts.size());
+        for (Map.Entry<List<Object>, Long> count : counts.entrySet()) {
+            List<Object> bucket = count.getKey();
+            rows.add(new Object[]{Timestamp.valueOf((LocalDateTime) bucket.get(0)), bucket.get(1), bucket.get(2),
+                    bucket.get(3), count.getValue()});
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_STAT_BUCKET_SQL, rows);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to count {} audit rows in statistics buckets: {}", records.size(), e.getMessage());
+        }
+    }
+
+    private void spill(List<AuditRecord> records) {
+        synchronized (spillLock) {
+            try (Writer writer = Files.newBufferedWriter(Paths.get(spillFile), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (AuditRecord record : records) {
+                    writer.write(objectMapper.writeValueAsString(record));
+                    writer.write('\n');
+                }
+                spilled.addAndGet(records.size());
+            } catch (IOException e) {
+                dropped.addAndGet(records.size());
+                logger.error("Failed to spill {} audit rows to {}: {}", records.size(), spillFile, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Write spilled rows back once the queue is idle. The file is renamed first so new spills go to a fresh one.
+     */
+    private void replaySpill() {
+        Path replay = Paths.get(spillFile + ".replay");
+        synchronized (spillLock) {
+            Path spill = Paths.get(spillFile);
+            if (!Files.exists(replay) && Files.exists(spill)) {
+                try {
+                    Files.move(spill, replay, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    logger.warn("Failed to rotate audit spill file {}: {}", spillFile, e.getMessage());
+                    return;
+                }
+            }
+        }
+        if (!Files.exists(replay)) {
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(replay, StandardCharsets.UTF_8)) {
+            List<AuditRecord> batch = new ArrayList<>(batchSize);
+            long replayed = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                batch.add(objectMapper.readValue(line, AuditRecord.class));
+                if (batch.size() == batchSize) {
+                    insert(batch);
+                    replayed += batch.size();
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                insert(batch);
+                replayed += batch.size();
+            }
+            written.addAndGet(replayed);
+            reader.close();
+            Files.delete(replay);
+            logger.info("Replayed {} spilled audit rows", replayed);
+        } catch (IOException | RuntimeException e) {
+            // Rows already inserted will be inserted again on the next attempt; duplicates beat gaps in an audit trail
+            failedBatches.incrementAndGet();
+            logger.warn("Failed to replay audit spill file {}: {}", replay, e.getMessage());
+        }
+    }
+
+    /**
+     * How audit rows reach the database
+     */
+    public enum Mode {
+        ASYNC,
+        DURABLE
+    }
+
+    /**
+     * What happens to a row when the queue is full
+     */
+    public enum OverflowPolicy {
+        BLOCK,
+        SPILL,
+        DROP
+    }
+
+    /**
+     * One audit_logs row, captured when the audited operation happened
+     */
+    public static class AuditRecord {
+        private String action;
+        private String entityType;
+        private Long entityId;
+        private String oldValues;
+        private String newValues;
+        private String description;
+        private boolean success;
+        private String errorMessage;
+        private Long userId;
+        private LocalDateTime createdAt;
+
+        public AuditRecord() {
+        }
+
+        public AuditRecord(String action, String entityType, Long entityId, String oldValues, String newValues,
+                           String description, boolean success, String errorMessage, Long userId) {
+            this.action = action;
+            this.entityType = entityType;
+            this.entityId = entityId;
+            this.oldValues = oldValues;
+            this.newValues = newValues;
+            this.description = description;
+            this.success = success;
+            this.errorMessage = errorMessage;
+            this.userId = userId;
+            this.createdAt = LocalDateTime.now();
+        }
+
+        public String getAction() { return action; }
+        public void setAction(String action) { this.action = action; }
+        public String getEntityType() { return entityType; }
+        public void setEntityType(String entityType) { this.entityType = entityType; }
+        public Long getEntityId() { return entityId; }
+        public void setEntityId(Long entityId) { this.entityId = entityId; }
+        public String getOldValues() { return oldValues; }
+        public void setOldValues(String oldValues) { this.oldValues = oldValues; }
+        public String getNewValues() { return newValues; }
+        public void setNewValues(String newValues) { this.newValues = newValues; }
+        public String getDescription() { return description; }
+        public void setDescription(String description) { this.description = description; }
+        public boolean isSuccess() { return success; }
+        public void setSuccess(boolean success) { this.success = success; }
+        public String getErrorMessage() { return errorMessage; }
+        public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+        public Long getUserId() { return userId; }
+        public void setUserId(Long userId) { this.userId = userId; }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+        public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    }
+
+    /**
+     * Snapshot of the writer's queue and counters
+     */
+    public static class WriterStats {
+        private final Mode mode;
+        private final OverflowPolicy overflowPolicy;
+        private final int queueDepth;
+        private final int queueCapacity;
+        private final long enqueued;
+        private final long written;
+        private final long writtenByCaller;
+        private final long spilled;
+        private final long dropped;
+        private final long failedBatches;
+
+        public WriterStats(Mode mode, OverflowPolicy overflowPolicy, int queueDepth, int queueCapacity,
+                           long enqueued, long written, long writtenByCaller, long spilled, long dropped,
+                           long failedBatches) {
+            this.mode = mode;
+            this.overflowPolicy = overflowPolicy;
+            this.queueDepth = queueDepth;
+            this.queueCapacity = queueCapacity;
+            this.enqueued = enqueued;
+            this.written = written;
+            this.writtenByCaller = writtenByCaller;
+            this.spilled = spilled;
+            this.dropped = dropped;
+            this.failedBatches = failedBatches;
+        }
+
+        public Mode getMode() { return mode; }
+        public OverflowPolicy getOverflowPolicy() { return overflowPolicy; }
+        public int getQueueDepth() { return queueDepth; }
+        public int getQueueCapacity() { return queueCapacity; }
+        public long getEnqueued() { return enqueued; }
+        public long getWritten() { return written; }
+        public long getWrittenByCaller() { return writtenByCaller; }
+        public long getSpilled() { return spilled; }
+        public long getDropped() { return dropped; }
+        public long getFailedBatches() { return failedBatches; }
+    }
+}
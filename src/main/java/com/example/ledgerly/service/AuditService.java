@@ -1,20 +1,24 @@
 package com.example.ledgerly.service;
 
+import com.example.ledgerly.dto.KeysetPage;
 import com.example.ledgerly.entity.AuditLog;
 import com.example.ledgerly.entity.User;
 import com.example.ledgerly.repository.AuditLogRepository;
+import com.example.ledgerly.service.AuditLogWriter.AuditRecord;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -28,59 +32,78 @@ public class AuditService {
 
     private final AuditLogRepository auditLogRepository;
     private final ObjectMapper objectMapper;
+    private final AuditLogWriter auditLogWriter;
+    private final EntitySnapshotter entitySnapshotter;
+    private final AuditArchiveService auditArchiveService;
+    private final AuditStatsService auditStatsService;
 
     @Autowired
-    public AuditService(AuditLogRepository auditLogRepository, ObjectMapper objectMapper) {
+    public AuditService(AuditLogRepository auditLogRepository, ObjectMapper objectMapper,
+                        AuditLogWriter auditLogWriter, EntitySnapshotter entitySnapshotter,
+                        AuditArchiveService auditArchiveService, AuditStatsService auditStatsService) {
         this.auditLogRepository = auditLogRepository;
         this.objectMapper = objectMapper;
+        this.auditLogWriter = auditLogWriter;
+        this.entitySnapshotter = entitySnapshotter;
+        this.auditArchiveService = auditArchiveService;
+        this.auditStatsService = auditStatsService;
     }
 
     /**
-     * Log a successful operation
+     * Log a successful operation. When both old and new values are snapshot maps, only the changed fields are stored.
      */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void logSuccess(String action, String entityType, Long entityId, 
                           Object oldValues, Object newValues, String description, User user) {
         try {
-            AuditLog auditLog = new AuditLog();
-            auditLog.setAction(action);
-            auditLog.setEntityType(entityType);
-            auditLog.setEntityId(entityId);
-            auditLog.setDescription(truncate(description, MAX_DESC_LEN));
-            auditLog.setUser(user);
-            auditLog.setSuccess(true);
-
-            if (oldValues != null) {
-                auditLog.setOldValues(convertToJson(oldValues));
+            if (oldValues instanceof Map && newValues instanceof Map) {
+                @SuppressWarnings("unchecked")
+                EntitySnapshotter.SnapshotDiff diff = EntitySnapshotter.diff(
+                        (Map<String, ?>) oldValues, (Map<String, ?>) newValues);
+                oldValues = diff.getBefore();
+                newValues = diff.getAfter();
             }
-            if (newValues != null) {
-                auditLog.setNewValues(convertToJson(newValues));
-            }
-
-            auditLogRepository.save(auditLog);
+            auditLogWriter.write(new AuditRecord(codeOf(action), codeOf(entityType), entityId,
+                    oldValues != null ? convertToJson(oldValues) : null,
+                    newValues != null ? convertToJson(newValues) : null,
+                    truncate(description, MAX_DESC_LEN), true, null, userIdOf(user)));
         } catch (Exception e) {
             // Don't fail the main operation if audit logging fails
             System.err.println("Failed to log audit: " + e.getMessage());
         }
     }
 
+    /**
+     * Log one successful operation per entity, for jobs that change many rows at once.
+     * The rows carry no old/new value snapshots.
+     *
+     * @param descriptions description of each entity's row, keyed by entity id
+     */
+    public void logSuccessBatch(String action, String entityType, Map<Long, String> descriptions, User user) {
+        try {
+            Long userId = userIdOf(user);
+            String actionCode = codeOf(action);
+            String entityTypeCode = codeOf(entityType);
+            List<AuditRecord> records = new ArrayList<>(descriptions.size());
+            for (Map.Entry<Long, String> description : descriptions.entrySet()) {
+                records.add(new AuditRecord(actionCode, entityTypeCode, description.getKey(), null, null,
+                        truncate(description.getValue(), MAX_DESC_LEN), true, null, userId));
+            }
+            auditLogWriter.writeAll(records);
+        } catch (Exception e) {
+            // Don't fail the main operation if audit logging fails
+            System.err.println("Failed to log audit batch: " + e.getMessage());
+        }
+    }
+
     /**
      * Log a failed operation
      */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void logFailure(String action, String entityType, Long entityId, 
                           String errorMessage, String description, User user) {
         try {
-            AuditLog auditLog = new AuditLog();
-            auditLog.setAction(action);
-            auditLog.setEntityType(entityType);
-            auditLog.setEntityId(entityId);
-            auditLog.setDescription(truncate(description, MAX_DESC_LEN));
-            auditLog.setErrorMessage(truncate(errorMessage, MAX_ERROR_LEN));
-            auditLog.setUser(user);
-            auditLog.setSuccess(false);
-
-            auditLogRepository.save(auditLog);
+            auditLogWriter.write(new AuditRecord(codeOf(action), codeOf(entityType), entityId, null, null,
+                    truncate(description, MAX_DESC_LEN), false, truncate(errorMessage, MAX_ERROR_LEN),
+                    userIdOf(user)));
         } catch (Exception e) {
             // Don't fail the main operation if audit logging fails
             System.err.println("Failed to log audit failure: " + e.getMessage());
@@ -90,21 +113,13 @@ public class AuditService {
     /**
      * Log business rule violation
      */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void logBusinessRuleViolation(String action, String ruleCode, String ruleDescription, 
                                        String entityType, Long entityId, User user) {
         try {
-            AuditLog auditLog = new AuditLog();
-            auditLog.setAction("BUSINESS_RULE_VIOLATION");
-            auditLog.setEntityType(entityType);
-            auditLog.setEntityId(entityId);
             String desc = String.format("Rule: %s - %s. Original Action: %s", ruleCode, ruleDescription, action);
-            auditLog.setDescription(truncate(desc, MAX_DESC_LEN));
-            auditLog.setErrorMessage(truncate(ruleDescription, MAX_ERROR_LEN));
-            auditLog.setUser(user);
-            auditLog.setSuccess(false);
-
-            auditLogRepository.save(auditLog);
+            auditLogWriter.write(new AuditRecord("BUSINESS_RULE_VIOLATION", codeOf(entityType), entityId, null, null,
+                    truncate(desc, MAX_DESC_LEN), false, truncate(ruleDescription, MAX_ERROR_LEN),
+                    userIdOf(user)));
         } catch (Exception e) {
             System.err.println("Failed to log business rule violation: " + e.getMessage());
         }
@@ -113,11 +128,17 @@ public class AuditService {
     /**
      * Log simple action
      */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void logAction(String action, String description, User user) {
         logSuccess(action, null, null, null, null, description, user);
     }
 
+    /**
+     * Queue depth and counters of the audit writer
+     */
+    public AuditLogWriter.WriterStats getWriterStats() {
+        return auditLogWriter.getStats();
+    }
+
     /**
      * Get audit logs by user with pagination
      */
@@ -129,18 +150,57 @@ public class AuditService {
      * Get audit logs for entity
      */
     public List<AuditLog> getAuditLogsForEntity(String entityType, Long entityId) {
-        return auditLogRepository.findByEntityTypeAndEntityIdOrderByCreatedAtDesc(entityType, entityId);
+        return auditLogRepository.findByEntityTypeAndEntityIdOrderByCreatedAtDesc(codeOf(entityType), entityId);
+    }
+
+    /**
+     * Get audit logs for entity, optionally followed by its history from archive segments
+     */
+    public List<AuditLog> getAuditLogsForEntity(String entityType, Long entityId, boolean includeArchived) {
+        List<AuditLog> logs = getAuditLogsForEntity(entityType, entityId);
+        if (!includeArchived) {
+            return logs;
+        }
+        // Archived months are all older than the live table
+        List<AuditLog> all = new ArrayList<>(logs);
+        all.addAll(auditArchiveService.getArchivedLogsForEntity(codeOf(entityType), entityId));
+        return all;
     }
 
     /**
-     * Search audit logs
+     * Search audit logs; action and entityType are matched as codes according to the match mode
      */
     public Page<AuditLog> searchAuditLogs(Long userId, String action, String entityType, 
                                         Long entityId, Boolean success, 
                                         LocalDateTime startDate, LocalDateTime endDate, 
-                                        Pageable pageable) {
-        return auditLogRepository.searchAuditLogs(userId, action, entityType, entityId, 
-                                                success, startDate, endDate, pageable);
+                                        MatchMode match, Pageable pageable) {
+        return auditLogRepository.searchAuditLogs(userId, likePattern(action, match), likePattern(entityType, match),
+                                                entityId, success, startDate, endDate, pageable);
+    }
+
+    /**
+     * Search audit logs by keyset, newest first, continuing after the given cursor
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<AuditLog> searchAuditLogsAfter(Long userId, String action, String entityType,
+                                                   Long entityId, Boolean success,
+                                                   LocalDateTime startDate, LocalDateTime endDate,
+                                                   MatchMode match, String after, int size, boolean includeTotal) {
+        KeysetCursor cursor = KeysetCursor.decode(after);
+        int pageSize = KeysetCursor.pageSize(size);
+        String actionPattern = likePattern(action, match);
+        String entityTypePattern = likePattern(entityType, match);
+
+        List<AuditLog> rows = auditLogRepository.searchAuditLogsPage(userId, actionPattern, entityTypePattern,
+                entityId, success, startDate, endDate, KeysetCursor.dateTimeOf(cursor), KeysetCursor.idOf(cursor),
+                PageRequest.of(0, pageSize + 1));
+        KeysetPage<AuditLog> page = KeysetPage.of(rows, pageSize,
+                log -> KeysetCursor.encode(log.getCreatedAt(), log.getId()));
+        if (includeTotal) {
+            page.setTotalElements(auditLogRepository.countAuditLogs(userId, actionPattern, entityTypePattern,
+                    entityId, success, startDate, endDate));
+        }
+        return page;
     }
 
     /**
@@ -159,17 +219,17 @@ public class AuditService {
     }
 
     /**
-     * Get audit statistics
+     * Get audit statistics over all time
      */
     public AuditStatistics getAuditStatistics() {
-        long totalLogs = auditLogRepository.count();
-        long successfulLogs = auditLogRepository.countBySuccess(true);
-        long failedLogs = auditLogRepository.countBySuccess(false);
-        
-        List<Object[]> actionStats = auditLogRepository.getAuditStatsByAction();
-        List<Object[]> userStats = auditLogRepository.getAuditStatsByUser();
-        
-        return new AuditStatistics(totalLogs, successfulLogs, failedLogs, actionStats, userStats);
+        return getAuditStatistics(null, null);
+    }
+
+    /**
+     * Get audit statistics for rows created in [from, to), from the hourly statistics buckets
+     */
+    public AuditStatistics getAuditStatistics(LocalDateTime from, LocalDateTime to) {
+        return auditStatsService.getStatistics(from, to);
     }
 
     /**
@@ -184,15 +244,12 @@ public class AuditService {
     }
 
     /**
-     * Create audit snapshot of an object
+     * Create audit snapshot of an entity: its scalar fields and the ids of its to-one associations
      */
     public Map<String, Object> createAuditSnapshot(Object entity) {
         Map<String, Object> snapshot = new HashMap<>();
         try {
-            String json = objectMapper.writeValueAsString(entity);
-            @SuppressWarnings("unchecked")
-            Map<String, Object> map = objectMapper.readValue(json, Map.class);
-            return map;
+            return entitySnapshotter.snapshot(entity);
         } catch (Exception e) {
             snapshot.put("error", truncate("Failed to create snapshot: " + e.getMessage(), MAX_ERROR_LEN));
             snapshot.put("entity", truncate(String.valueOf(entity), MAX_DESC_LEN));
@@ -200,11 +257,56 @@ public class AuditService {
         }
     }
 
+    /**
+     * Canonical form of an action or entity type code: trimmed and upper case
+     */
+    static String codeOf(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * LIKE pattern (escape character '!') for a code filter. EXACT and PREFIX patterns start with a literal,
+     * so they are range scans on the action and entity_type indexes; CONTAINS scans every row in range.
+     */
+    static String likePattern(String value, MatchMode match) {
+        String code = codeOf(value);
+        if (code == null) {
+            return null;
+        }
+        String literal = code.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+        switch (match != null ? match : MatchMode.EXACT) {
+            case PREFIX:
+                return literal + "%";
+            case CONTAINS:
+                return "%" + literal + "%";
+            case EXACT:
+            default:
+                return literal;
+        }
+    }
+
+    private Long userIdOf(User user) {
+        return user != null ? user.getId() : null;
+    }
+
     private String truncate(String value, int max) {
         if (value == null) return null;
         return value.length() > max ? value.substring(0, max) : value;
     }
 
+    /**
+     * How the action and entity type filters of a search match stored codes
+     */
+    public enum MatchMode {
+        EXACT,
+        PREFIX,
+        /** Substring match; cannot use an index */
+        CONTAINS
+    }
+
     /**
      * Inner class for audit statistics
      */
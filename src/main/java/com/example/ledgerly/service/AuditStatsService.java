@@ -0,0 +1,163 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.User;
+import com.example.ledgerly.repository.AuditStatBucketRepository;
+import com.example.ledgerly.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Audit statistics read from the hourly audit_stat_buckets counters that AuditLogWriter maintains, so a
+ * statistics request sums a few rows per hour instead of grouping audit_logs.
+ *
+ * The rebuild recomputes buckets from audit_logs one window of days per transaction, from the oldest live row
+ * to the current hour. Buckets older than the oldest live row are kept: they count months that
+ * AuditArchiveService has already moved out of the table.
+ */
+@Service
+@Transactional(readOnly = true)
+public class AuditStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditStatsService.class);
+
+    private static final String MIN_CREATED_AT_SQL = "SELECT MIN(created_at) FROM audit_logs";
+
+    private static final String DELETE_BUCKETS_SQL =
+        "DELETE FROM audit_stat_buckets WHERE bucket_start >= ? AND bucket_start < ?";
+
+    // Sets rather than adds, so a bucket the writer touched between the delete and this insert ends up exact
+    private static final String REBUILD_BUCKETS_SQL =
+        "INSERT INTO audit_stat_buckets (bucket_start, action, user_id, success, log_count) " +
+        "SELECT DATE_FORMAT(created_at, '%Y-%m-%d %H:00:00') AS hour_start, action, " +
+        "COALESCE(user_id, 0) AS bucket_user_id, success, COUNT(*) FROM audit_logs " +
+        "WHERE created_at >= ? AND created_at < ? GROUP BY hour_start, action, bucket_user_id, success " +
+        "ON DUPLICATE KEY UPDATE log_count = VALUES(log_count)";
+
+    private final AuditStatBucketRepository auditStatBucketRepository;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.audit.stats.rebuild-window-days:7}")
+    private int rebuildWindowDays;
+
+    @Autowired
+    public AuditStatsService(AuditStatBucketRepository auditStatBucketRepository, UserRepository userRepository,
+                             JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.auditStatBucketRepository = auditStatBucketRepository;
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Totals, per-action and per-user counts for rows created in [from, to); null bounds are open.
+     * Bounds are rounded down to the hour.
+     */
+    public AuditService.AuditStatistics getStatistics(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime fromHour = from != null ? from.truncatedTo(ChronoUnit.HOURS) : null;
+        LocalDateTime toHour = to != null ? to.truncatedTo(ChronoUnit.HOURS) : null;
+
+        List<Object[]> totals = auditStatBucketRepository.sumTotals(fromHour, toHour);
+        Object[] total = totals.isEmpty() ? new Object[]{0L, 0L, 0L} : totals.get(0);
+        List<Object[]> actionStats = auditStatBucketRepository.sumByAction(fromHour, toHour);
+
+        return new AuditService.AuditStatistics(countOf(total[0]), countOf(total[1]), countOf(total[2]),
+                actionStats, withUsernames(auditStatBucketRepository.sumByUser(fromHour, toHour)));
+    }
+
+    /**
+     * Recompute the buckets covering the live audit_logs rows, one window of days per transaction
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public StatsRebuildResult rebuildBuckets() {
+        long startTime = System.currentTimeMillis();
+        LocalDateTime oldest = jdbcTemplate.queryForObject(MIN_CREATED_AT_SQL, LocalDateTime.class);
+        LocalDateTime end = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusHours(1);
+
+        int windows = 0;
+        long bucketsWritten = 0;
+        if (oldest != null) {
+            for (LocalDateTime from = oldest.truncatedTo(ChronoUnit.DAYS); from.isBefore(end);
+                 from = from.plusDays(rebuildWindowDays)) {
+                Timestamp windowStart = Timestamp.valueOf(from);
+                LocalDateTime to = from.plusDays(rebuildWindowDays);
+                Timestamp windowEnd = Timestamp.valueOf(to.isBefore(end) ? to : end);
+                Integer written = transactionTemplate.execute(status -> {
+                    jdbcTemplate.update(DELETE_BUCKETS_SQL, windowStart, windowEnd);
+                    return jdbcTemplate.update(REBUILD_BUCKETS_SQL, windowStart, windowEnd);
+                });
+                bucketsWritten += written != null ? written : 0;
+                windows++;
+            }
+        }
+
+        long durationMs = System.currentTimeMillis() - startTime;
+        logger.info("Rebuilt audit statistics buckets from {} in {} windows ({} rows) in {} ms",
+                oldest, windows, bucketsWritten, durationMs);
+        return new StatsRebuildResult(oldest, windows, bucketsWritten, durationMs);
+    }
+
+    /**
+     * Replace the user id in each per-user row with the username, as the old grouped query returned
+     */
+    private List<Object[]> withUsernames(List<Object[]> userStats) {
+        Set<Long> userIds = new HashSet<>();
+        for (Object[] row : userStats) {
+            userIds.add(((Number) row[0]).longValue());
+        }
+        Map<Long, String> usernames = userIds.isEmpty() ? Map.of() : userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, User::getUsername));
+
+        List<Object[]> named = new ArrayList<>(userStats.size());
+        for (Object[] row : userStats) {
+            long userId = ((Number) row[0]).longValue();
+            named.add(new Object[]{usernames.getOrDefault(userId, "user#" + userId), row[1], row[2], row[3]});
+        }
+        return named;
+    }
+
+    private static long countOf(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    /**
+     * Outcome of a bucket rebuild
+     */
+    public static class StatsRebuildResult {
+        private final LocalDateTime rebuiltFrom;
+        private final int windows;
+        private final long bucketsWritten;
+        private final long durationMs;
+
+        public StatsRebuildResult(LocalDateTime rebuiltFrom, int windows, long bucketsWritten, long durationMs) {
+            this.rebuiltFrom = rebuiltFrom;
+            this.windows = windows;
+            this.bucketsWritten = bucketsWritten;
+            this.durationMs = durationMs;
+        }
+
+        public LocalDateTime getRebuiltFrom() { return rebuiltFrom; }
+        public int getWindows() { return windows; }
+        public long getBucketsWritten() { return bucketsWritten; }
+        public long getDurationMs() { return durationMs; }
+    }
+}
@@ -8,7 +8,6 @@ import com.example.ledgerly.exception.BusinessRuleException;
 import com.example.ledgerly.exception.InsufficientBalanceException;
 import com.example.ledgerly.exception.InvalidTransactionAmountException;
 import com.example.ledgerly.repository.CustomerRepository;
-import com.example.ledgerly.repository.LedgerEntryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -23,9 +22,10 @@ import java.time.LocalDateTime;
 @Service
 public class BusinessRuleService {
 
-    private final LedgerEntryRepository ledgerEntryRepository;
     private final CustomerRepository customerRepository;
     private final AuditService auditService;
+    private final CustomerBalanceService customerBalanceService;
+    private final LedgerAggregateService ledgerAggregateService;
 
     // Configuration properties
     @Value("${app.business-rules.allow-negative-balance:false}")
@@ -44,12 +44,14 @@ public class BusinessRuleService {
     private boolean requireFutureDateValidation;
 
     @Autowired
-    public BusinessRuleService(LedgerEntryRepository ledgerEntryRepository,
-                             CustomerRepository customerRepository,
-                             AuditService auditService) {
-        this.ledgerEntryRepository = ledgerEntryRepository;
+    public BusinessRuleService(CustomerRepository customerRepository,
+                             AuditService auditService,
+                             CustomerBalanceService customerBalanceService,
+                             LedgerAggregateService ledgerAggregateService) {
         this.customerRepository = customerRepository;
         this.auditService = auditService;
+        this.customerBalanceService = customerBalanceService;
+        this.ledgerAggregateService = ledgerAggregateService;
     }
 
     /**
@@ -79,6 +81,28 @@ public class BusinessRuleService {
         validateDailyTransactionLimit(entry.getCustomer(), entry.getAmount(), entry.getTransactionDate(), currentUser);
     }
 
+    /**
+     * Validate a row of a bulk import.
+     *
+     * Applies the same validators as {@link #validateLedgerEntryCreation} but against the running balance and
+     * daily total tracked by the import, and without writing an audit row per violation (the import
+     * reports rejected rows in its response and logs a single summary).
+     */
+    public void validateImportedEntry(LedgerEntry entry, BigDecimal runningBalance, BigDecimal dailyTotal) {
+        validateTransactionAmount(entry.getAmount(), null, false);
+        validateTransactionDate(entry.getTransactionDate(), null, false);
+        validateCustomerStatus(entry.getCustomer(), null, false);
+
+        if (entry.isDebit()) {
+            validateSufficientBalance(entry.getCustomer(), runningBalance, entry.getAmount(), null, false);
+        }
+        if (entry.isCredit()) {
+            validateCreditLimit(entry.getCustomer(), runningBalance, entry.getAmount(), null, false);
+        }
+
+        validateDailyTransactionLimit(entry.getCustomer(), dailyTotal, entry.getAmount(), null, false);
+    }
+
     /**
      * Validate a ledger entry update
      */
@@ -111,27 +135,37 @@ public class BusinessRuleService {
      * Validate transaction amount
      */
     public void validateTransactionAmount(BigDecimal amount, User currentUser) {
+        validateTransactionAmount(amount, currentUser, true);
+    }
+
+    private void validateTransactionAmount(BigDecimal amount, User currentUser, boolean auditViolations) {
         if (amount == null) {
             throw new InvalidTransactionAmountException(null, "NULL_AMOUNT", "Transaction amount cannot be null");
         }
         
         if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-            auditService.logBusinessRuleViolation("AMOUNT_VALIDATION", "NEGATIVE_OR_ZERO_AMOUNT", 
-                "Amount must be positive: " + amount, "TRANSACTION", null, currentUser);
+            if (auditViolations) {
+                auditService.logBusinessRuleViolation("AMOUNT_VALIDATION", "NEGATIVE_OR_ZERO_AMOUNT", 
+                    "Amount must be positive: " + amount, "TRANSACTION", null, currentUser);
+            }
             throw new InvalidTransactionAmountException(amount, "NEGATIVE_OR_ZERO_AMOUNT", 
                 "Transaction amount must be greater than zero");
         }
         
         if (amount.compareTo(minTransactionAmount) < 0) {
-            auditService.logBusinessRuleViolation("AMOUNT_VALIDATION", "BELOW_MIN_AMOUNT", 
-                "Amount below minimum: " + amount, "TRANSACTION", null, currentUser);
+            if (auditViolations) {
+                auditService.logBusinessRuleViolation("AMOUNT_VALIDATION", "BELOW_MIN_AMOUNT", 
+                    "Amount below minimum: " + amount, "TRANSACTION", null, currentUser);
+            }
             throw new InvalidTransactionAmountException(amount, "BELOW_MIN_AMOUNT", 
                 String.format("Transaction amount must be at least %s", minTransactionAmount));
         }
         
         if (amount.compareTo(maxTransactionAmount) > 0) {
-            auditService.logBusinessRuleViolation("AMOUNT_VALIDATION", "ABOVE_MAX_AMOUNT", 
-                "Amount above maximum: " + amount, "TRANSACTION", null, currentUser);
+            if (auditViolations) {
+                auditService.logBusinessRuleViolation("AMOUNT_VALIDATION", "ABOVE_MAX_AMOUNT", 
+                    "Amount above maximum: " + amount, "TRANSACTION", null, currentUser);
+            }
             throw new InvalidTransactionAmountException(amount, "ABOVE_MAX_AMOUNT", 
                 String.format("Transaction amount cannot exceed %s", maxTransactionAmount));
         }
@@ -147,14 +181,21 @@ public class BusinessRuleService {
      * Validate sufficient balance for debit transactions
      */
     public void validateSufficientBalance(Customer customer, BigDecimal debitAmount, User currentUser) {
+        validateSufficientBalance(customer, customerBalanceService.getCurrentBalance(customer), debitAmount,
+            currentUser, true);
+    }
+
+    private void validateSufficientBalance(Customer customer, BigDecimal currentBalance, BigDecimal debitAmount,
+                                           User currentUser, boolean auditViolations) {
         if (!allowNegativeBalance) {
-            BigDecimal currentBalance = ledgerEntryRepository.calculateCurrentBalanceForCustomer(customer.getId());
             BigDecimal resultingBalance = currentBalance.subtract(debitAmount);
             
             if (resultingBalance.compareTo(BigDecimal.ZERO) < 0) {
-                auditService.logBusinessRuleViolation("BALANCE_VALIDATION", "INSUFFICIENT_BALANCE", 
-                    String.format("Insufficient balance. Current: %s, Requested: %s", currentBalance, debitAmount), 
-                    "CUSTOMER", customer.getId(), currentUser);
+                if (auditViolations) {
+                    auditService.logBusinessRuleViolation("BALANCE_VALIDATION", "INSUFFICIENT_BALANCE", 
+                        String.format("Insufficient balance. Current: %s, Requested: %s", currentBalance, debitAmount), 
+                        "CUSTOMER", customer.getId(), currentUser);
+                }
                 
                 throw new InsufficientBalanceException(currentBalance, debitAmount, resultingBalance);
             }
@@ -165,14 +206,21 @@ public class BusinessRuleService {
      * Validate credit limit
      */
     public void validateCreditLimit(Customer customer, BigDecimal creditAmount, User currentUser) {
+        validateCreditLimit(customer, customerBalanceService.getCurrentBalance(customer), creditAmount,
+            currentUser, true);
+    }
+
+    private void validateCreditLimit(Customer customer, BigDecimal currentBalance, BigDecimal creditAmount,
+                                     User currentUser, boolean auditViolations) {
         if (customer.getCreditLimit() != null && customer.getCreditLimit().compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal currentBalance = ledgerEntryRepository.calculateCurrentBalanceForCustomer(customer.getId());
             BigDecimal newBalance = currentBalance.add(creditAmount);
             
             if (newBalance.compareTo(customer.getCreditLimit()) > 0) {
-                auditService.logBusinessRuleViolation("CREDIT_LIMIT_VALIDATION", "CREDIT_LIMIT_EXCEEDED", 
-                    String.format("Credit limit exceeded. Limit: %s, New Balance: %s", customer.getCreditLimit(), newBalance), 
-                    "CUSTOMER", customer.getId(), currentUser);
+                if (auditViolations) {
+                    auditService.logBusinessRuleViolation("CREDIT_LIMIT_VALIDATION", "CREDIT_LIMIT_EXCEEDED", 
+                        String.format("Credit limit exceeded. Limit: %s, New Balance: %s", customer.getCreditLimit(), newBalance), 
+                        "CUSTOMER", customer.getId(), currentUser);
+                }
                 
                 throw new BusinessRuleException("CREDIT_LIMIT_EXCEEDED", 
                     String.format("Credit limit of %s would be exceeded. New balance would be %s", 
@@ -185,23 +233,22 @@ public class BusinessRuleService {
      * Validate daily transaction limit
      */
     public void validateDailyTransactionLimit(Customer customer, BigDecimal amount, LocalDate transactionDate, User currentUser) {
-        // Calculate total transactions for the customer on the given date
-        BigDecimal dailyTotal = ledgerEntryRepository.searchLedgerEntries(
-            customer.getId(), null, transactionDate, transactionDate, 
-            null, null, null, null, null, null, 
-            org.springframework.data.domain.PageRequest.of(0, Integer.MAX_VALUE))
-            .getContent()
-            .stream()
-            .map(LedgerEntry::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
+        // Total already posted on the date, read from the maintained daily totals
+        BigDecimal dailyTotal = ledgerAggregateService.getDailyTotal(customer.getId(), transactionDate);
+        validateDailyTransactionLimit(customer, dailyTotal, amount, currentUser, true);
+    }
+
+    private void validateDailyTransactionLimit(Customer customer, BigDecimal dailyTotal, BigDecimal amount,
+                                               User currentUser, boolean auditViolations) {
         BigDecimal newDailyTotal = dailyTotal.add(amount);
         
         if (newDailyTotal.compareTo(maxDailyTransactionLimit) > 0) {
-            auditService.logBusinessRuleViolation("DAILY_LIMIT_VALIDATION", "DAILY_LIMIT_EXCEEDED", 
-                String.format("Daily transaction limit exceeded. Limit: %s, Today's Total: %s", 
-                            maxDailyTransactionLimit, newDailyTotal), 
-                "CUSTOMER", customer.getId(), currentUser);
+            if (auditViolations) {
+                auditService.logBusinessRuleViolation("DAILY_LIMIT_VALIDATION", "DAILY_LIMIT_EXCEEDED", 
+                    String.format("Daily transaction limit exceeded. Limit: %s, Today's Total: %s", 
+                                maxDailyTransactionLimit, newDailyTotal), 
+                    "CUSTOMER", customer.getId(), currentUser);
+            }
             
             throw new BusinessRuleException("DAILY_LIMIT_EXCEEDED", 
                 String.format("Daily transaction limit of %s would be exceeded. Today's total would be %s", 
@@ -213,14 +260,20 @@ public class BusinessRuleService {
      * Validate transaction date
      */
     public void validateTransactionDate(LocalDate transactionDate, User currentUser) {
+        validateTransactionDate(transactionDate, currentUser, true);
+    }
+
+    private void validateTransactionDate(LocalDate transactionDate, User currentUser, boolean auditViolations) {
         if (transactionDate == null) {
             throw new BusinessRuleException("INVALID_DATE", "Transaction date cannot be null");
         }
         
         // Prevent future dates if configured
         if (requireFutureDateValidation && transactionDate.isAfter(LocalDate.now())) {
-            auditService.logBusinessRuleViolation("DATE_VALIDATION", "FUTURE_DATE_NOT_ALLOWED", 
-                "Future transaction date not allowed: " + transactionDate, "TRANSACTION", null, currentUser);
+            if (auditViolations) {
+                auditService.logBusinessRuleViolation("DATE_VALIDATION", "FUTURE_DATE_NOT_ALLOWED", 
+                    "Future transaction date not allowed: " + transactionDate, "TRANSACTION", null, currentUser);
+            }
             
             throw new BusinessRuleException("FUTURE_DATE_NOT_ALLOWED", 
                 "Transaction date cannot be in the future");
@@ -229,8 +282,10 @@ public class BusinessRuleService {
         // Prevent dates too far in the past (e.g., more than 1 year)
         LocalDate oneYearAgo = LocalDate.now().minusYears(1);
         if (transactionDate.isBefore(oneYearAgo)) {
-            auditService.logBusinessRuleViolation("DATE_VALIDATION", "DATE_TOO_OLD", 
-                "Transaction date too old: " + transactionDate, "TRANSACTION", null, currentUser);
+            if (auditViolations) {
+                auditService.logBusinessRuleViolation("DATE_VALIDATION", "DATE_TOO_OLD", 
+                    "Transaction date too old: " + transactionDate, "TRANSACTION", null, currentUser);
+            }
             
             throw new BusinessRuleException("DATE_TOO_OLD", 
                 "Transaction date cannot be more than 1 year in the past");
@@ -241,13 +296,19 @@ public class BusinessRuleService {
      * Validate customer status
      */
     public void validateCustomerStatus(Customer customer, User currentUser) {
+        validateCustomerStatus(customer, currentUser, true);
+    }
+
+    private void validateCustomerStatus(Customer customer, User currentUser, boolean auditViolations) {
         if (customer == null) {
             throw new BusinessRuleException("INVALID_CUSTOMER", "Customer cannot be null");
         }
         
         if (!customer.isActive()) {
-            auditService.logBusinessRuleViolation("CUSTOMER_VALIDATION", "INACTIVE_CUSTOMER", 
-                "Cannot create transaction for inactive customer", "CUSTOMER", customer.getId(), currentUser);
+            if (auditViolations) {
+                auditService.logBusinessRuleViolation("CUSTOMER_VALIDATION", "INACTIVE_CUSTOMER", 
+                    "Cannot create transaction for inactive customer", "CUSTOMER", customer.getId(), currentUser);
+            }
             
             throw new BusinessRuleException("INACTIVE_CUSTOMER", 
                 "Cannot create transactions for inactive customers");
@@ -287,7 +348,7 @@ public class BusinessRuleService {
             return true; // No limit set
         }
         
-        BigDecimal currentBalance = ledgerEntryRepository.calculateCurrentBalanceForCustomer(customer.getId());
+        BigDecimal currentBalance = customerBalanceService.getCurrentBalance(customer);
         BigDecimal newBalance = currentBalance.add(amount);
         
         return newBalance.compareTo(customer.getCreditLimit()) <= 0;
@@ -301,7 +362,7 @@ public class BusinessRuleService {
             return true;
         }
         
-        BigDecimal currentBalance = ledgerEntryRepository.calculateCurrentBalanceForCustomer(customer.getId());
+        BigDecimal currentBalance = customerBalanceService.getCurrentBalance(customer);
         return currentBalance.compareTo(amount) >= 0;
     }
 
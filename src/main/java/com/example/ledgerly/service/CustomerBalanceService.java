@@ -0,0 +1,257 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.Customer;
+import com.example.ledgerly.entity.LedgerEntry;
+import com.example.ledgerly.exception.BusinessRuleException;
+import com.example.ledgerly.repository.CustomerRepository;
+import com.example.ledgerly.repository.LedgerEntryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains Customer.currentBalance incrementally.
+ *
+ * Every ledger write applies its signed delta to the customer row instead of re-summing the
+ * customer's whole history. The customer row is versioned, so two writers that started from the
+ * same balance cannot both commit. A background verifier compares the maintained balance against
+ * the SUM over active ledger entries and reports (or repairs) any drift, one keyset batch of
+ * customers per transaction.
+ */
+@Service
+@Transactional
+public class CustomerBalanceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerBalanceService.class);
+    private static final int VERIFY_BATCH_SIZE = 500;
+    private static final int MAX_REPORTED_DRIFTS = 100;
+
+    private final CustomerRepository customerRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final AuditService auditService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.balance.verifier.auto-repair:false}")
+    private boolean autoRepair;
+
+    @Autowired
+    public CustomerBalanceService(CustomerRepository customerRepository,
+                                  LedgerEntryRepository ledgerEntryRepository,
+                                  AuditService auditService,
+                                  PlatformTransactionManager transactionManager) {
+        this.customerRepository = customerRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.auditService = auditService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Get the maintained balance for a customer
+     */
+    public BigDecimal getCurrentBalance(Customer customer) {
+        return customer.getCurrentBalance() != null ? customer.getCurrentBalance() : BigDecimal.ZERO;
+    }
+
+    /**
+     * Balance the customer would have after the given entry is posted
+     */
+    public BigDecimal projectBalance(Customer customer, LedgerEntry entry) {
+        return getCurrentBalance(customer).add(LedgerEntryState.of(entry).getBalanceEffect());
+    }
+
+    /**
+     * Apply the balance change caused by creating, updating or soft-deleting an entry.
+     *
+     * @param before state of the entry before the change, or null for a newly created entry
+     * @param after  the entry as it is now persisted
+     * @return the customer's new balance
+     */
+    public BigDecimal applyEntryChange(Customer customer, LedgerEntryState before, LedgerEntry after) {
+        BigDecimal delta = LedgerEntryState.of(after).getBalanceEffect();
+        if (before != null) {
+            delta = delta.subtract(before.getBalanceEffect());
+        }
+        return applyDelta(customer, delta);
+    }
+
+    /**
+     * Apply a signed delta to the customer's balance (O(1), version-checked)
+     */
+    public BigDecimal applyDelta(Customer customer, BigDecimal delta) {
+        BigDecimal currentBalance = getCurrentBalance(customer);
+        if (delta == null || delta.signum() == 0) {
+            return currentBalance;
+        }
+
+        BigDecimal newBalance = currentBalance.add(delta);
+        customer.setCurrentBalance(newBalance);
+        try {
+            // Flush now so a stale version surfaces here rather than at commit
+            customerRepository.saveAndFlush(customer);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new BusinessRuleException("CONCURRENT_BALANCE_UPDATE",
+                    String.format("Balance of customer %d was changed by another transaction, please retry",
+                            customer.getId()), e);
+        }
+        return newBalance;
+    }
+
+    /**
+     * Compare every maintained balance with the SUM over active ledger entries, one batch of
+     * customers per transaction
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BalanceVerificationResult verifyBalances(boolean repair) {
+        long startTime = System.currentTimeMillis();
+        long customersChecked = 0;
+        long driftCount = 0;
+        long repairedCount = 0;
+        List<BalanceDrift> drifts = new ArrayList<>();
+
+        Long afterId = 0L;
+        while (true) {
+            Long cursorId = afterId;
+            BatchOutcome outcome = transactionTemplate.execute(status -> verifyBatch(cursorId, repair, drifts));
+            if (outcome == null || outcome.checked == 0) {
+                break;
+            }
+            customersChecked += outcome.checked;
+            driftCount += outcome.drifted;
+            repairedCount += outcome.repaired;
+            afterId = outcome.lastId;
+        }
+
+        long durationMs = System.currentTimeMillis() - startTime;
+        if (driftCount > 0) {
+            logger.warn("Balance verification found {} drifted customers out of {} ({} repaired)",
+                    driftCount, customersChecked, repairedCount);
+            auditService.logSuccess("VERIFY_CUSTOMER_BALANCES", "SYSTEM", null,
+                    null, null,
+                    String.format("Balance verification checked %d customers, found %d drifted, repaired %d",
+                            customersChecked, driftCount, repairedCount),
+                    null);
+        } else {
+            logger.info("Balance verification checked {} customers in {} ms, no drift", customersChecked, durationMs);
+        }
+
+        return new BalanceVerificationResult(customersChecked, driftCount, repairedCount, durationMs, drifts);
+    }
+
+    private BatchOutcome verifyBatch(Long afterId, boolean repair, List<BalanceDrift> drifts) {
+        BatchOutcome outcome = new BatchOutcome();
+        List<Object[]> batch = customerRepository.findBalanceSnapshotAfter(afterId, PageRequest.of(0, VERIFY_BATCH_SIZE));
+        if (batch.isEmpty()) {
+            return outcome;
+        }
+
+        Map<Long, BigDecimal> storedBalances = new LinkedHashMap<>();
+        for (Object[] row : batch) {
+            storedBalances.put((Long) row[0], row[1] != null ? (BigDecimal) row[1] : BigDecimal.ZERO);
+        }
+
+        Map<Long, BigDecimal> ledgerBalances = new HashMap<>();
+        for (Object[] row : ledgerEntryRepository.calculateCurrentBalancesForCustomers(storedBalances.keySet())) {
+            ledgerBalances.put((Long) row[0], (BigDecimal) row[1]);
+        }
+
+        for (Map.Entry<Long, BigDecimal> stored : storedBalances.entrySet()) {
+            BigDecimal expected = ledgerBalances.getOrDefault(stored.getKey(), BigDecimal.ZERO);
+            if (stored.getValue().compareTo(expected) != 0) {
+                outcome.drifted++;
+                if (drifts.size() < MAX_REPORTED_DRIFTS) {
+                    drifts.add(new BalanceDrift(stored.getKey(), stored.getValue(), expected));
+                }
+                if (repair) {
+                    customerRepository.overwriteCurrentBalance(stored.getKey(), expected);
+                    outcome.repaired++;
+                }
+            }
+        }
+
+        outcome.checked = batch.size();
+        outcome.lastId = (Long) batch.get(batch.size() - 1)[0];
+        return outcome;
+    }
+
+    /**
+     * Nightly balance verification (scheduled task)
+     */
+    @Scheduled(cron = "${app.balance.verifier.cron:0 30 2 * * ?}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void scheduledBalanceVerification() {
+        try {
+            verifyBalances(autoRepair);
+        } catch (Exception e) {
+            logger.error("Scheduled balance verification failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private static class BatchOutcome {
+        private int checked;
+        private int drifted;
+        private int repaired;
+        private Long lastId;
+    }
+
+    /**
+     * A customer whose maintained balance differs from its ledger
+     */
+    public static class BalanceDrift {
+        private final Long customerId;
+        private final BigDecimal storedBalance;
+        private final BigDecimal ledgerBalance;
+
+        public BalanceDrift(Long customerId, BigDecimal storedBalance, BigDecimal ledgerBalance) {
+            this.customerId = customerId;
+            this.storedBalance = storedBalance;
+            this.ledgerBalance = ledgerBalance;
+        }
+
+        public Long getCustomerId() { return customerId; }
+        public BigDecimal getStoredBalance() { return storedBalance; }
+        public BigDecimal getLedgerBalance() { return ledgerBalance; }
+        public BigDecimal getDifference() { return storedBalance.subtract(ledgerBalance); }
+    }
+
+    /**
+     * Outcome of a verification pass
+     */
+    public static class BalanceVerificationResult {
+        private final long customersChecked;
+        private final long driftCount;
+        private final long repairedCount;
+        private final long durationMs;
+        private final List<BalanceDrift> drifts;
+
+        public BalanceVerificationResult(long customersChecked, long driftCount, long repairedCount,
+                                         long durationMs, List<BalanceDrift> drifts) {
+            this.customersChecked = customersChecked;
+            this.driftCount = driftCount;
+            this.repairedCount = repairedCount;
+            this.durationMs = durationMs;
+            this.drifts = drifts;
+        }
+
+        public long getCustomersChecked() { return customersChecked; }
+        public long getDriftCount() { return driftCount; }
+        public long getRepairedCount() { return repairedCount; }
+        public long getDurationMs() { return durationMs; }
+        public List<BalanceDrift> getDrifts() { return drifts; }
+    }
+}
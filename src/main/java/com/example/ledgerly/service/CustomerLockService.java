@@ -0,0 +1,105 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.Customer;
+import com.example.ledgerly.exception.BusinessRuleException;
+import com.example.ledgerly.repository.CustomerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes ledger and payment writes per customer.
+ *
+ * A writer first takes an in-process lock from a fixed pool of stripes chosen by customer id, so
+ * concurrent writers for one customer queue in memory instead of on the database, then loads the
+ * customer with SELECT ... FOR UPDATE so writers on other application instances are serialized too.
+ * Both are held until the surrounding transaction completes. Writers for different customers only
+ * contend when their ids share a stripe.
+ */
+@Service
+public class CustomerLockService {
+
+    private final CustomerRepository customerRepository;
+    private final ReentrantLock[] stripes;
+    private final long lockTimeoutMs;
+
+    @Autowired
+    public CustomerLockService(CustomerRepository customerRepository,
+                               @Value("${app.ledger.customer-lock.stripes:1024}") int stripeCount,
+                               @Value("${app.ledger.customer-lock.timeout-ms:5000}") long lockTimeoutMs) {
+        this.customerRepository = customerRepository;
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.lockTimeoutMs = lockTimeoutMs;
+    }
+
+    /**
+     * Lock a customer for the rest of the current transaction and return it
+     */
+    public Customer lockCustomer(Long customerId) {
+        acquireStripe(stripeIndex(customerId));
+        return customerRepository.findByIdForUpdate(customerId)
+                .orElseThrow(() -> new RuntimeException("Customer not found with id: " + customerId));
+    }
+
+    /**
+     * Lock several customers for the rest of the current transaction.
+     * Stripes and rows are always taken in ascending order so two multi-customer writers cannot deadlock.
+     * Ids that do not exist are skipped.
+     */
+    public List<Customer> lockCustomers(Collection<Long> customerIds) {
+        TreeSet<Integer> stripeIndexes = new TreeSet<>();
+        for (Long customerId : customerIds) {
+            stripeIndexes.add(stripeIndex(customerId));
+        }
+        for (Integer index : stripeIndexes) {
+            acquireStripe(index);
+        }
+
+        List<Customer> customers = new ArrayList<>(customerIds.size());
+        for (Long customerId : new TreeSet<>(customerIds)) {
+            customerRepository.findByIdForUpdate(customerId).ifPresent(customers::add);
+        }
+        return customers;
+    }
+
+    int stripeIndex(Long customerId) {
+        return Math.floorMod(Long.hashCode(customerId) * 0x9E3779B9, stripes.length);
+    }
+
+    private void acquireStripe(int index) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Customer locks can only be taken inside a transaction");
+        }
+
+        ReentrantLock lock = stripes[index];
+        try {
+            if (!lock.tryLock(lockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new BusinessRuleException("CUSTOMER_LOCK_TIMEOUT",
+                        "Another transaction for this customer is still in progress, please retry");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessRuleException("CUSTOMER_LOCK_TIMEOUT", "Interrupted while waiting for customer lock", e);
+        }
+
+        // Release on the same thread once the transaction commits or rolls back
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+    }
+}
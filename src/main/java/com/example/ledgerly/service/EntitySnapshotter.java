@@ -0,0 +1,249 @@
+package com.example.ledgerly.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Id;
+import jakarta.persistence.ManyToMany;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.Transient;
+import jakarta.persistence.metamodel.EntityType;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds audit snapshots of entities from their scalar fields and the ids of their to-one associations.
+ *
+ * Each entity class gets an extractor of cached field getters, built for every JPA entity at startup. Snapshots
+ * never serialize the entity and never touch associated entities beyond their id: an uninitialized Hibernate
+ * proxy yields its identifier without a SELECT, and collections are skipped. A Payment snapshot therefore holds
+ * customerId, shopId and createdById rather than the customer, shop and user objects.
+ */
+@Component
+public class EntitySnapshotter {
+
+    private final Map<Class<?>, Extractor> extractors = new ConcurrentHashMap<>();
+
+    @Autowired
+    public EntitySnapshotter(EntityManagerFactory entityManagerFactory) {
+        for (EntityType<?> entity : entityManagerFactory.getMetamodel().getEntities()) {
+            extractorFor(entity.getJavaType());
+        }
+    }
+
+    /**
+     * Extractors are built on first use
+     */
+    EntitySnapshotter() {
+    }
+
+    /**
+     * Scalar fields and association ids of the entity, in field declaration order
+     */
+    public Map<String, Object> snapshot(Object entity) {
+        Object target = unproxy(entity);
+        return extractorFor(target.getClass()).snapshot(target);
+    }
+
+    /**
+     * Keep only the keys whose value differs between two snapshots
+     */
+    public static SnapshotDiff diff(Map<String, ?> before, Map<String, ?> after) {
+        Map<String, Object> changedBefore = new LinkedHashMap<>();
+        Map<String, Object> changedAfter = new LinkedHashMap<>();
+        for (Map.Entry<String, ?> field : after.entrySet()) {
+            Object oldValue = before.get(field.getKey());
+            if (!sameValue(oldValue, field.getValue())) {
+                changedBefore.put(field.getKey(), oldValue);
+                changedAfter.put(field.getKey(), field.getValue());
+            }
+        }
+        for (Map.Entry<String, ?> field : before.entrySet()) {
+            if (!after.containsKey(field.getKey())) {
+                changedBefore.put(field.getKey(), field.getValue());
+            }
+        }
+        return new SnapshotDiff(changedBefore, changedAfter);
+    }
+
+    private static boolean sameValue(Object a, Object b) {
+        if (a instanceof BigDecimal && b instanceof BigDecimal) {
+            return ((BigDecimal) a).compareTo((BigDecimal) b) == 0;
+        }
+        return Objects.equals(a, b);
+    }
+
+    private Extractor extractorFor(Class<?> type) {
+        return extractors.computeIfAbsent(type, this::buildExtractor);
+    }
+
+    private Extractor buildExtractor(Class<?> type) {
+        List<String> names = new ArrayList<>();
+        List<MethodHandle> getters = new ArrayList<>();
+        List<Boolean> references = new ArrayList<>();
+        MethodHandle idGetter = null;
+
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            hierarchy.add(0, current);
+        }
+        for (Class<?> declaring : hierarchy) {
+            for (Field field : declaring.getDeclaredFields()) {
+                boolean reference = isReference(field);
+                if (!reference && !isScalar(field)) {
+                    continue;
+                }
+                MethodHandle getter = getterOf(field);
+                if (field.isAnnotationPresent(Id.class)) {
+                    idGetter = getter;
+                }
+                names.add(reference ? field.getName() + "Id" : field.getName());
+                getters.add(getter);
+                references.add(reference);
+            }
+        }
+
+        boolean[] referenceFlags = new boolean[references.size()];
+        for (int i = 0; i < referenceFlags.length; i++) {
+            referenceFlags[i] = references.get(i);
+        }
+        return new Extractor(names.toArray(new String[0]), getters.toArray(new MethodHandle[0]), referenceFlags,
+                idGetter);
+    }
+
+    private static boolean isSkipped(Field field) {
+        int modifiers = field.getModifiers();
+        return Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)
+                || field.isAnnotationPresent(Transient.class) || field.isAnnotationPresent(JsonIgnore.class);
+    }
+
+    /**
+     * Owning to-one association, recorded by id
+     */
+    private static boolean isReference(Field field) {
+        if (isSkipped(field)) {
+            return false;
+        }
+        OneToOne oneToOne = field.getAnnotation(OneToOne.class);
+        if (oneToOne != null) {
+            return oneToOne.mappedBy().isEmpty();
+        }
+        return field.isAnnotationPresent(ManyToOne.class) || field.getType().isAnnotationPresent(Entity.class);
+    }
+
+    private static boolean isScalar(Field field) {
+        if (isSkipped(field) || field.isAnnotationPresent(OneToMany.class) || field.isAnnotationPresent(ManyToMany.class)) {
+            return false;
+        }
+        Class<?> type = field.getType();
+        if (Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)) {
+            return false;
+        }
+        return type.isPrimitive() || type.isEnum() || Number.class.isAssignableFrom(type)
+                || CharSequence.class.isAssignableFrom(type) || Boolean.class == type || Character.class == type
+                || TemporalAccessor.class.isAssignableFrom(type) || Date.class.isAssignableFrom(type)
+                || UUID.class == type;
+    }
+
+    private static MethodHandle getterOf(Field field) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(field.getDeclaringClass(),
+                    MethodHandles.lookup());
+            return lookup.unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot read " + field, e);
+        }
+    }
+
+    private static Object unproxy(Object entity) {
+        if (entity instanceof HibernateProxy) {
+            return ((HibernateProxy) entity).getHibernateLazyInitializer().getImplementation();
+        }
+        return entity;
+    }
+
+    private Object idOf(Object associated) {
+        if (associated == null) {
+            return null;
+        }
+        if (associated instanceof HibernateProxy) {
+            // Available without initializing the proxy
+            return ((HibernateProxy) associated).getHibernateLazyInitializer().getIdentifier();
+        }
+        MethodHandle idGetter = extractorFor(associated.getClass()).idGetter;
+        return idGetter != null ? read(idGetter, associated) : null;
+    }
+
+    private static Object read(MethodHandle getter, Object target) {
+        try {
+            return (Object) getter.invokeExact(target);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to read snapshot field", e);
+        }
+    }
+
+    private final class Extractor {
+        private final String[] names;
+        private final MethodHandle[] getters;
+        private final boolean[] references;
+        private final MethodHandle idGetter;
+
+        private Extractor(String[] names, MethodHandle[] getters, boolean[] references, MethodHandle idGetter) {
+            this.names = names;
+            this.getters = getters;
+            this.references = references;
+            this.idGetter = idGetter;
+        }
+
+        private Map<String, Object> snapshot(Object entity) {
+            Map<String, Object> snapshot = new LinkedHashMap<>(names.length * 2);
+            for (int i = 0; i < names.length; i++) {
+                Object value = read(getters[i], entity);
+                if (references[i]) {
+                    value = idOf(value);
+                } else if (value instanceof Enum) {
+                    value = ((Enum<?>) value).name();
+                }
+                snapshot.put(names[i], value);
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Changed fields of an update: old values and new values, keyed by field
+     */
+    public static class SnapshotDiff {
+        private final Map<String, Object> before;
+        private final Map<String, Object> after;
+
+        public SnapshotDiff(Map<String, Object> before, Map<String, Object> after) {
+            this.before = before;
+            this.after = after;
+        }
+
+        public Map<String, Object> getBefore() { return before; }
+        public Map<String, Object> getAfter() { return after; }
+        public boolean isEmpty() { return before.isEmpty() && after.isEmpty(); }
+    }
+}
@@ -1,29 +1,45 @@
 package com.example.ledgerly.service;
 
+import com.example.ledgerly.service.LedgerAggregateService.PeriodSummary;
 import com.example.ledgerly.service.LedgerService.CustomerBalanceSummary;
 import com.example.ledgerly.dto.LedgerEntryResponse;
 import com.example.ledgerly.entity.Customer;
 import com.example.ledgerly.entity.Shop;
+import com.example.ledgerly.entity.TransactionType;
 import com.example.ledgerly.entity.User;
 import com.example.ledgerly.repository.CustomerRepository;
-import com.example.ledgerly.repository.LedgerEntryRepository;
 import com.example.ledgerly.repository.UserRepository;
 import com.opencsv.CSVWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.io.StringWriter;
-import java.math.BigDecimal;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
 import java.util.Optional;
 
+/**
+ * Customer statements and transaction histories as PDF or CSV.
+ *
+ * Exports read entries through a forward-only JDBC cursor and write them straight to the target stream, so a
+ * history is never held in memory: CSV rows are flushed every flush-rows rows, and the PDF transaction table is
+ * an iText large table flushed every pdf-chunk-rows rows. The byte[] variants write the same output into a buffer.
+ */
 @Service
 public class ExportService {
 
@@ -31,20 +47,53 @@ public class ExportService {
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
 
-    private final LedgerEntryRepository ledgerEntryRepository;
+    private static final int CSV_BUFFER_SIZE = 64 * 1024;
+
+    // Only the exported columns; the response projection would also join users for every row
+    private static final String EXPORT_ENTRIES_SQL =
+        "SELECT le.transaction_date, le.transaction_type, s.name AS shop_name, le.description, " +
+        "le.reference_number, le.invoice_number, le.amount, le.balance_after_transaction, le.is_reconciled " +
+        "FROM ledger_entries le LEFT JOIN shops s ON s.id = le.shop_id " +
+        "WHERE le.customer_id = ? AND le.is_active = true ";
+
+    private static final String EXPORT_ORDER = "ORDER BY le.transaction_date DESC, le.id DESC";
+
     private final CustomerRepository customerRepository;
     private final UserRepository userRepository;
     private final LedgerService ledgerService;
+    private final LedgerAggregateService ledgerAggregateService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.export.fetch-size:500}")
+    private int fetchSize;
+
+    @Value("${app.export.flush-rows:1000}")
+    private int flushRows;
+
+    @Value("${app.export.pdf-chunk-rows:500}")
+    private int pdfChunkRows;
 
     @Autowired
-    public ExportService(LedgerEntryRepository ledgerEntryRepository,
-                        CustomerRepository customerRepository,
+    public ExportService(CustomerRepository customerRepository,
                         UserRepository userRepository,
-                        LedgerService ledgerService) {
-        this.ledgerEntryRepository = ledgerEntryRepository;
+                        LedgerService ledgerService,
+                        LedgerAggregateService ledgerAggregateService,
+                        JdbcTemplate jdbcTemplate) {
         this.customerRepository = customerRepository;
         this.userRepository = userRepository;
         this.ledgerService = ledgerService;
+        this.ledgerAggregateService = ledgerAggregateService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Load a customer the user may export; streamed exports call this before the response is committed
+     */
+    public Customer getExportableCustomer(Long customerId, String username) {
+        Customer customer = customerRepository.findById(customerId)
+                .orElseThrow(() -> new RuntimeException("Customer not found"));
+        validateCustomerAccess(customer, username);
+        return customer;
     }
 
     /**
@@ -52,20 +101,11 @@ public class ExportService {
      */
     public byte[] generateCustomerStatementPDF(Long customerId, LocalDate startDate, LocalDate endDate, String username) {
         try {
-            Customer customer = customerRepository.findById(customerId)
-                    .orElseThrow(() -> new RuntimeException("Customer not found"));
-
-            validateCustomerAccess(customer, username);
+            Customer customer = getExportableCustomer(customerId, username);
 
-            List<LedgerEntryResponse> entries = ledgerEntryRepository
-                    .findByCustomerAndDateRange(customerId, startDate, endDate)
-                    .stream()
-                    .map(entry -> mapToLedgerEntryResponse(entry))
-                    .toList();
-
-            CustomerBalanceSummary balanceSummary = ledgerService.getCustomerBalanceSummary(customerId);
-
-            return generatePDFStatement(customer, entries, balanceSummary, startDate, endDate);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeCustomerStatementPDF(customer, startDate, endDate, out);
+            return out.toByteArray();
         } catch (Exception e) {
             logger.error("Error generating PDF statement for customer {}: {}", customerId, e.getMessage());
             throw new RuntimeException("Failed to generate PDF statement: " + e.getMessage());
@@ -77,18 +117,11 @@ public class ExportService {
      */
     public byte[] generateCustomerStatementCSV(Long customerId, LocalDate startDate, LocalDate endDate, String username) {
         try {
-            Customer customer = customerRepository.findById(customerId)
-                    .orElseThrow(() -> new RuntimeException("Customer not found"));
-
-            validateCustomerAccess(customer, username);
+            Customer customer = getExportableCustomer(customerId, username);
 
-            List<LedgerEntryResponse> entries = ledgerEntryRepository
-                    .findByCustomerAndDateRange(customerId, startDate, endDate)
-                    .stream()
-                    .map(entry -> mapToLedgerEntryResponse(entry))
-                    .toList();
-
-            return generateCSVStatement(customer, entries, startDate, endDate);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeCustomerStatementCSV(customer, startDate, endDate, out);
+            return out.toByteArray();
         } catch (Exception e) {
             logger.error("Error generating CSV statement for customer {}: {}", customerId, e.getMessage());
             throw new RuntimeException("Failed to generate CSV statement: " + e.getMessage());
@@ -100,20 +133,11 @@ public class ExportService {
      */
     public byte[] generateTransactionHistoryPDF(Long customerId, String username) {
         try {
-            Customer customer = customerRepository.findById(customerId)
-                    .orElseThrow(() -> new RuntimeException("Customer not found"));
-
-            validateCustomerAccess(customer, username);
+            Customer customer = getExportableCustomer(customerId, username);
 
-            List<LedgerEntryResponse> entries = ledgerEntryRepository
-                    .findByCustomerIdAndIsActiveTrueOrderByTransactionDateDesc(customerId)
-                    .stream()
-                    .map(entry -> mapToLedgerEntryResponse(entry))
-                    .toList();
-
-            CustomerBalanceSummary balanceSummary = ledgerService.getCustomerBalanceSummary(customerId);
-
-            return generatePDFTransactionHistory(customer, entries, balanceSummary);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeTransactionHistoryPDF(customer, out);
+            return out.toByteArray();
         } catch (Exception e) {
             logger.error("Error generating PDF transaction history for customer {}: {}", customerId, e.getMessage());
             throw new RuntimeException("Failed to generate PDF transaction history: " + e.getMessage());
@@ -125,18 +149,11 @@ public class ExportService {
      */
     public byte[] generateTransactionHistoryCSV(Long customerId, String username) {
         try {
-            Customer customer = customerRepository.findById(customerId)
-                    .orElseThrow(() -> new RuntimeException("Customer not found"));
-
-            validateCustomerAccess(customer, username);
+            Customer customer = getExportableCustomer(customerId, username);
 
-            List<LedgerEntryResponse> entries = ledgerEntryRepository
-                    .findByCustomerIdAndIsActiveTrueOrderByTransactionDateDesc(customerId)
-                    .stream()
-                    .map(entry -> mapToLedgerEntryResponse(entry))
-                    .toList();
-
-            return generateCSVTransactionHistory(customer, entries);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeTransactionHistoryCSV(customer, out);
+            return out.toByteArray();
         } catch (Exception e) {
             logger.error("Error generating CSV transaction history for customer {}: {}", customerId, e.getMessage());
             throw new RuntimeException("Failed to generate CSV transaction history: " + e.getMessage());
@@ -163,192 +180,232 @@ public class ExportService {
     }
 
     /**
-     * Generate PDF statement
+     * Write a PDF statement to out. The transaction table is rendered in chunks of pdf-chunk-rows rows as the
+     * cursor reads entries, and completed pages go to out as they are laid out. out is not closed.
      */
-    private byte[] generatePDFStatement(Customer customer, List<LedgerEntryResponse> entries, 
-                                      CustomerBalanceSummary balanceSummary, LocalDate startDate, LocalDate endDate) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            com.itextpdf.kernel.pdf.PdfDocument pdf = new com.itextpdf.kernel.pdf.PdfDocument(
-                    new com.itextpdf.kernel.pdf.PdfWriter(baos));
-            com.itextpdf.layout.Document document = new com.itextpdf.layout.Document(pdf);
-
-            // Add header
-            addPDFHeader(document, customer, startDate, endDate);
-            
-            // Add customer info
-            addPDFCustomerInfo(document, customer, balanceSummary);
-            
-            // Add transaction summary
-            addPDFTransactionSummary(document, entries, startDate, endDate);
-            
-            // Add detailed transactions
-            addPDFTransactionDetails(document, entries);
-            
-            // Add footer
-            addPDFFooter(document);
+    public void writeCustomerStatementPDF(Customer customer, LocalDate startDate, LocalDate endDate,
+                                          OutputStream out) throws IOException {
+        CustomerBalanceSummary balanceSummary = ledgerService.getCustomerBalanceSummary(customer.getId());
+        PeriodSummary periodSummary = ledgerAggregateService.getPeriodSummary(customer.getId(), startDate, endDate);
+        com.itextpdf.layout.Document document = pdfDocumentFor(out);
+
+        // Add header
+        addPDFHeader(document, customer, periodSummary.getStartDate(), periodSummary.getEndDate());
+        
+        // Add customer info
+        addPDFCustomerInfo(document, customer, balanceSummary);
+        
+        // Add transaction summary
+        addPDFTransactionSummary(document, periodSummary);
+        
+        // Add detailed transactions
+        long rows = addPDFTransactionDetails(document, EXPORT_ENTRIES_SQL +
+                "AND le.transaction_date BETWEEN ? AND ? " + EXPORT_ORDER,
+                customer.getId(), Date.valueOf(startDate), Date.valueOf(endDate));
+        
+        // Add footer
+        addPDFFooter(document);
 
-            document.close();
-            return baos.toByteArray();
-        } catch (Exception e) {
-            logger.error("Error generating PDF: {}", e.getMessage());
-            throw new RuntimeException("Failed to generate PDF: " + e.getMessage());
-        }
+        document.close();
+        logger.debug("Wrote PDF statement for customer {} ({} entries)", customer.getId(), rows);
     }
 
     /**
-     * Generate CSV statement
+     * Write a CSV statement to out, streaming the period's entries from the database. out is flushed, not closed.
      */
-    private byte[] generateCSVStatement(Customer customer, List<LedgerEntryResponse> entries, 
-                                      LocalDate startDate, LocalDate endDate) {
-        try (StringWriter writer = new StringWriter();
-             CSVWriter csvWriter = new CSVWriter(writer)) {
-
-            // Write header
-            csvWriter.writeNext(new String[]{
-                "Customer Statement",
-                customer.getName(),
-                "Period: " + startDate.format(DATE_FORMATTER) + " to " + endDate.format(DATE_FORMATTER)
-            });
-            csvWriter.writeNext(new String[]{""});
-            csvWriter.writeNext(new String[]{""});
-
-            // Write customer info
-            csvWriter.writeNext(new String[]{"Customer Information"});
-            csvWriter.writeNext(new String[]{"Name", customer.getName()});
-            csvWriter.writeNext(new String[]{"Email", customer.getEmail() != null ? customer.getEmail() : ""});
-            csvWriter.writeNext(new String[]{"Phone", customer.getPhoneNumber() != null ? customer.getPhoneNumber() : ""});
-            csvWriter.writeNext(new String[]{"Business", customer.getBusinessName() != null ? customer.getBusinessName() : ""});
-            csvWriter.writeNext(new String[]{""});
-
-            // Write transaction summary
-            csvWriter.writeNext(new String[]{"Transaction Summary"});
-            csvWriter.writeNext(new String[]{"Total Transactions", String.valueOf(entries.size())});
-            
-            BigDecimal totalCredit = entries.stream()
-                    .filter(LedgerEntryResponse::isCredit)
-                    .map(LedgerEntryResponse::getAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
-            BigDecimal totalDebit = entries.stream()
-                    .filter(LedgerEntryResponse::isDebit)
-                    .map(LedgerEntryResponse::getAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
-            csvWriter.writeNext(new String[]{"Total Credits", totalCredit.toString()});
-            csvWriter.writeNext(new String[]{"Total Debits", totalDebit.toString()});
-            csvWriter.writeNext(new String[]{"Net Balance", totalCredit.subtract(totalDebit).toString()});
-            csvWriter.writeNext(new String[]{""});
-
-            // Write transaction details
-            csvWriter.writeNext(new String[]{"Transaction Details"});
-            csvWriter.writeNext(new String[]{
-                "Date", "Type", "Shop", "Description", "Reference", "Invoice", "Amount", "Balance After"
-            });
+    public void writeCustomerStatementCSV(Customer customer, LocalDate startDate, LocalDate endDate,
+                                          OutputStream out) throws IOException {
+        PeriodSummary periodSummary = ledgerAggregateService.getPeriodSummary(customer.getId(), startDate, endDate);
+        CSVWriter csvWriter = csvWriterFor(out);
+
+        // Write header
+        csvWriter.writeNext(new String[]{
+            "Customer Statement",
+            customer.getName(),
+            "Period: " + startDate.format(DATE_FORMATTER) + " to " + endDate.format(DATE_FORMATTER)
+        });
+        csvWriter.writeNext(new String[]{""});
+        csvWriter.writeNext(new String[]{""});
+
+        writeCSVCustomerInfo(csvWriter, customer);
+
+        // Write transaction summary
+        csvWriter.writeNext(new String[]{"Transaction Summary"});
+        csvWriter.writeNext(new String[]{"Total Transactions", String.valueOf(periodSummary.getEntryCount())});
+        csvWriter.writeNext(new String[]{"Opening Balance", periodSummary.getOpeningBalance().toString()});
+        csvWriter.writeNext(new String[]{"Total Credits", periodSummary.getTotalCredit().toString()});
+        csvWriter.writeNext(new String[]{"Total Debits", periodSummary.getTotalDebit().toString()});
+        csvWriter.writeNext(new String[]{"Net Balance", periodSummary.getNetChange().toString()});
+        csvWriter.writeNext(new String[]{"Closing Balance", periodSummary.getClosingBalance().toString()});
+        csvWriter.writeNext(new String[]{""});
+
+        // Write transaction details
+        csvWriter.writeNext(new String[]{"Transaction Details"});
+        csvWriter.writeNext(new String[]{
+            "Date", "Type", "Shop", "Description", "Reference", "Invoice", "Amount", "Balance After"
+        });
+        long rows = streamEntriesCSV(csvWriter, false, EXPORT_ENTRIES_SQL +
+                "AND le.transaction_date BETWEEN ? AND ? " + EXPORT_ORDER,
+                customer.getId(), Date.valueOf(startDate), Date.valueOf(endDate));
+
+        csvWriter.flush();
+        logger.debug("Wrote CSV statement for customer {} ({} entries)", customer.getId(), rows);
+    }
+
+    /**
+     * Write a customer's complete CSV transaction history to out, streaming entries from the database.
+     * out is flushed, not closed.
+     */
+    public void writeTransactionHistoryCSV(Customer customer, OutputStream out) throws IOException {
+        CSVWriter csvWriter = csvWriterFor(out);
+
+        // Write header
+        csvWriter.writeNext(new String[]{
+            "Complete Transaction History",
+            customer.getName(),
+            "Generated on: " + LocalDate.now().format(DATE_FORMATTER)
+        });
+        csvWriter.writeNext(new String[]{""});
+        csvWriter.writeNext(new String[]{""});
+
+        writeCSVCustomerInfo(csvWriter, customer);
+
+        // Write transaction details
+        csvWriter.writeNext(new String[]{"Complete Transaction History"});
+        csvWriter.writeNext(new String[]{
+            "Date", "Type", "Shop", "Description", "Reference", "Invoice", "Amount", "Balance After", "Reconciled"
+        });
+        long rows = streamEntriesCSV(csvWriter, true, EXPORT_ENTRIES_SQL + EXPORT_ORDER, customer.getId());
+
+        csvWriter.flush();
+        logger.debug("Wrote CSV transaction history for customer {} ({} entries)", customer.getId(), rows);
+    }
+
+    private CSVWriter csvWriterFor(OutputStream out) {
+        return new CSVWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), CSV_BUFFER_SIZE));
+    }
 
-            for (LedgerEntryResponse entry : entries) {
-                csvWriter.writeNext(new String[]{
-                    entry.getTransactionDate().format(DATE_FORMATTER),
-                    entry.getTransactionType().toString(),
-                    entry.getShopName() != null ? entry.getShopName() : "N/A",
-                    entry.getDescription() != null ? entry.getDescription() : "",
-                    entry.getReferenceNumber() != null ? entry.getReferenceNumber() : "",
-                    entry.getInvoiceNumber() != null ? entry.getInvoiceNumber() : "",
-                    entry.getAmount().toString(),
-                    entry.getBalanceAfterTransaction() != null ? entry.getBalanceAfterTransaction().toString() : ""
-                });
+    private void writeCSVCustomerInfo(CSVWriter csvWriter, Customer customer) {
+        csvWriter.writeNext(new String[]{"Customer Information"});
+        csvWriter.writeNext(new String[]{"Name", customer.getName()});
+        csvWriter.writeNext(new String[]{"Email", customer.getEmail() != null ? customer.getEmail() : ""});
+        csvWriter.writeNext(new String[]{"Phone", customer.getPhoneNumber() != null ? customer.getPhoneNumber() : ""});
+        csvWriter.writeNext(new String[]{"Business", customer.getBusinessName() != null ? customer.getBusinessName() : ""});
+        csvWriter.writeNext(new String[]{""});
+    }
+
+    /**
+     * Write one CSV row per entry as the cursor reads it, flushing every flushRows rows so the client receives
+     * the export while it is produced
+     */
+    private long streamEntriesCSV(CSVWriter csvWriter, boolean withReconciled, String sql, Object... params)
+            throws IOException {
+        return streamEntries(sql, (entry, row) -> {
+            csvWriter.writeNext(csvRow(entry, withReconciled));
+            if (row % flushRows == 0) {
+                csvWriter.flush();
             }
+        }, params);
+    }
 
-            csvWriter.close();
-            return writer.toString().getBytes();
-        } catch (Exception e) {
-            logger.error("Error generating CSV: {}", e.getMessage());
-            throw new RuntimeException("Failed to generate CSV: " + e.getMessage());
+    /**
+     * Read EXPORT_ENTRIES_SQL rows through a forward-only cursor of fetchSize rows, handing each entry to the
+     * writer; returns the number of rows read
+     */
+    private long streamEntries(String sql, EntryWriter entryWriter, Object... params) throws IOException {
+        long[] rows = {0};
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(fetchSize);
+                for (int i = 0; i < params.length; i++) {
+                    ps.setObject(i + 1, params[i]);
+                }
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                try {
+                    entryWriter.write(exportEntryOf(rs), ++rows[0]);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // A failed write to the client ends the export and closes the cursor
+            throw e.getCause();
         }
+        return rows[0];
     }
 
     /**
-     * Generate PDF transaction history
+     * The exported columns of one EXPORT_ENTRIES_SQL row
      */
-    private byte[] generatePDFTransactionHistory(Customer customer, List<LedgerEntryResponse> entries, 
-                                               CustomerBalanceSummary balanceSummary) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            com.itextpdf.kernel.pdf.PdfDocument pdf = new com.itextpdf.kernel.pdf.PdfDocument(
-                    new com.itextpdf.kernel.pdf.PdfWriter(baos));
-            com.itextpdf.layout.Document document = new com.itextpdf.layout.Document(pdf);
-
-            // Add header
-            addPDFTransactionHistoryHeader(document, customer);
-            
-            // Add customer info
-            addPDFCustomerInfo(document, customer, balanceSummary);
-            
-            // Add complete transaction history
-            addPDFTransactionDetails(document, entries);
-            
-            // Add footer
-            addPDFFooter(document);
+    static LedgerEntryResponse exportEntryOf(ResultSet rs) throws SQLException {
+        LedgerEntryResponse entry = new LedgerEntryResponse();
+        entry.setTransactionDate(rs.getDate("transaction_date").toLocalDate());
+        entry.setTransactionType(TransactionType.valueOf(rs.getString("transaction_type")));
+        entry.setShopName(rs.getString("shop_name"));
+        entry.setDescription(rs.getString("description"));
+        entry.setReferenceNumber(rs.getString("reference_number"));
+        entry.setInvoiceNumber(rs.getString("invoice_number"));
+        entry.setAmount(rs.getBigDecimal("amount"));
+        entry.setBalanceAfterTransaction(rs.getBigDecimal("balance_after_transaction"));
+        entry.setReconciled(rs.getBoolean("is_reconciled"));
+        return entry;
+    }
 
-            document.close();
-            return baos.toByteArray();
-        } catch (Exception e) {
-            logger.error("Error generating PDF transaction history: {}", e.getMessage());
-            throw new RuntimeException("Failed to generate PDF transaction history: " + e.getMessage());
+    private static String[] csvRow(LedgerEntryResponse entry, boolean withReconciled) {
+        String[] row = new String[withReconciled ? 9 : 8];
+        row[0] = entry.getTransactionDate().format(DATE_FORMATTER);
+        row[1] = entry.getTransactionType().toString();
+        row[2] = entry.getShopName() != null ? entry.getShopName() : "N/A";
+        row[3] = entry.getDescription() != null ? entry.getDescription() : "";
+        row[4] = entry.getReferenceNumber() != null ? entry.getReferenceNumber() : "";
+        row[5] = entry.getInvoiceNumber() != null ? entry.getInvoiceNumber() : "";
+        row[6] = entry.getAmount().toString();
+        row[7] = entry.getBalanceAfterTransaction() != null ? entry.getBalanceAfterTransaction().toString() : "";
+        if (withReconciled) {
+            row[8] = entry.isReconciled() ? "Yes" : "No";
         }
+        return row;
     }
 
     /**
-     * Generate CSV transaction history
+     * Write a customer's complete PDF transaction history to out, rendering the transaction table in chunks as
+     * entries are read. out is not closed.
      */
-    private byte[] generateCSVTransactionHistory(Customer customer, List<LedgerEntryResponse> entries) {
-        try (StringWriter writer = new StringWriter();
-             CSVWriter csvWriter = new CSVWriter(writer)) {
-
-            // Write header
-            csvWriter.writeNext(new String[]{
-                "Complete Transaction History",
-                customer.getName(),
-                "Generated on: " + LocalDate.now().format(DATE_FORMATTER)
-            });
-            csvWriter.writeNext(new String[]{""});
-            csvWriter.writeNext(new String[]{""});
-
-            // Write customer info
-            csvWriter.writeNext(new String[]{"Customer Information"});
-            csvWriter.writeNext(new String[]{"Name", customer.getName()});
-            csvWriter.writeNext(new String[]{"Email", customer.getEmail() != null ? customer.getEmail() : ""});
-            csvWriter.writeNext(new String[]{"Phone", customer.getPhoneNumber() != null ? customer.getPhoneNumber() : ""});
-            csvWriter.writeNext(new String[]{"Business", customer.getBusinessName() != null ? customer.getBusinessName() : ""});
-            csvWriter.writeNext(new String[]{""});
-
-            // Write transaction details
-            csvWriter.writeNext(new String[]{"Complete Transaction History"});
-            csvWriter.writeNext(new String[]{
-                "Date", "Type", "Shop", "Description", "Reference", "Invoice", "Amount", "Balance After", "Reconciled"
-            });
+    public void writeTransactionHistoryPDF(Customer customer, OutputStream out) throws IOException {
+        CustomerBalanceSummary balanceSummary = ledgerService.getCustomerBalanceSummary(customer.getId());
+        com.itextpdf.layout.Document document = pdfDocumentFor(out);
 
-            for (LedgerEntryResponse entry : entries) {
-                csvWriter.writeNext(new String[]{
-                    entry.getTransactionDate().format(DATE_FORMATTER),
-                    entry.getTransactionType().toString(),
-                    entry.getShopName() != null ? entry.getShopName() : "N/A",
-                    entry.getDescription() != null ? entry.getDescription() : "",
-                    entry.getReferenceNumber() != null ? entry.getReferenceNumber() : "",
-                    entry.getInvoiceNumber() != null ? entry.getInvoiceNumber() : "",
-                    entry.getAmount().toString(),
-                    entry.getBalanceAfterTransaction() != null ? entry.getBalanceAfterTransaction().toString() : "",
-                    entry.isReconciled() ? "Yes" : "No"
-                });
-            }
+        // Add header
+        addPDFTransactionHistoryHeader(document, customer);
+        
+        // Add customer info
+        addPDFCustomerInfo(document, customer, balanceSummary);
+        
+        // Add complete transaction history
+        long rows = addPDFTransactionDetails(document, EXPORT_ENTRIES_SQL + EXPORT_ORDER, customer.getId());
+        
+        // Add footer
+        addPDFFooter(document);
 
-            csvWriter.close();
-            return writer.toString().getBytes();
-        } catch (Exception e) {
-            logger.error("Error generating CSV transaction history: {}", e.getMessage());
-            throw new RuntimeException("Failed to generate CSV transaction history: " + e.getMessage());
-        }
+        document.close();
+        logger.debug("Wrote PDF transaction history for customer {} ({} entries)", customer.getId(), rows);
     }
 
     // Helper methods for PDF generation
+
+    /**
+     * Layout document writing straight to out; completed pages are flushed as they are laid out, and closing
+     * the document finishes the PDF without closing out
+     */
+    private com.itextpdf.layout.Document pdfDocumentFor(OutputStream out) {
+        com.itextpdf.kernel.pdf.PdfWriter writer = new com.itextpdf.kernel.pdf.PdfWriter(out);
+        writer.setCloseStream(false);
+        return new com.itextpdf.layout.Document(new com.itextpdf.kernel.pdf.PdfDocument(writer));
+    }
+
     private void addPDFHeader(com.itextpdf.layout.Document document, Customer customer, LocalDate startDate, LocalDate endDate) {
         com.itextpdf.layout.element.Paragraph header = new com.itextpdf.layout.element.Paragraph(
                 "CUSTOMER STATEMENT\n" + customer.getName() + "\n" +
@@ -381,36 +438,34 @@ public class ExportService {
         document.add(new com.itextpdf.layout.element.Paragraph(""));
     }
 
-    private void addPDFTransactionSummary(com.itextpdf.layout.Document document, List<LedgerEntryResponse> entries, 
-                                        LocalDate startDate, LocalDate endDate) {
-        BigDecimal totalCredit = entries.stream()
-                .filter(LedgerEntryResponse::isCredit)
-                .map(LedgerEntryResponse::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        BigDecimal totalDebit = entries.stream()
-                .filter(LedgerEntryResponse::isDebit)
-                .map(LedgerEntryResponse::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
+    private void addPDFTransactionSummary(com.itextpdf.layout.Document document, PeriodSummary periodSummary) {
         com.itextpdf.layout.element.Paragraph summary = new com.itextpdf.layout.element.Paragraph(
-                "Transaction Summary (" + startDate.format(DATE_FORMATTER) + " to " + endDate.format(DATE_FORMATTER) + "):\n" +
-                "Total Transactions: " + entries.size() + "\n" +
-                "Total Credits: " + totalCredit + "\n" +
-                "Total Debits: " + totalDebit + "\n" +
-                "Net Balance: " + totalCredit.subtract(totalDebit));
+                "Transaction Summary (" + periodSummary.getStartDate().format(DATE_FORMATTER) + " to " +
+                periodSummary.getEndDate().format(DATE_FORMATTER) + "):\n" +
+                "Total Transactions: " + periodSummary.getEntryCount() + "\n" +
+                "Opening Balance: " + periodSummary.getOpeningBalance() + "\n" +
+                "Total Credits: " + periodSummary.getTotalCredit() + "\n" +
+                "Total Debits: " + periodSummary.getTotalDebit() + "\n" +
+                "Net Balance: " + periodSummary.getNetChange() + "\n" +
+                "Closing Balance: " + periodSummary.getClosingBalance());
         summary.setFontSize(12);
         document.add(summary);
         document.add(new com.itextpdf.layout.element.Paragraph(""));
     }
 
-    private void addPDFTransactionDetails(com.itextpdf.layout.Document document, List<LedgerEntryResponse> entries) {
+    /**
+     * Transaction table as an iText large table: rows are added as the cursor reads them and every
+     * pdfChunkRows rows the finished part of the table is laid out and flushed with its pages, so only one
+     * chunk of cells is held at a time. The header row repeats on every page.
+     */
+    private long addPDFTransactionDetails(com.itextpdf.layout.Document document, String sql, Object... params)
+            throws IOException {
         com.itextpdf.layout.element.Paragraph detailsHeader = new com.itextpdf.layout.element.Paragraph("Transaction Details:");
         detailsHeader.setFontSize(14);
         document.add(detailsHeader);
 
         // Create table for transactions
-        com.itextpdf.layout.element.Table table = new com.itextpdf.layout.element.Table(8);
+        com.itextpdf.layout.element.Table table = new com.itextpdf.layout.element.Table(8, true);
 
         // Add table headers
         table.addHeaderCell(new com.itextpdf.layout.element.Cell().add(new com.itextpdf.layout.element.Paragraph("Date")));
@@ -422,29 +477,40 @@ public class ExportService {
         table.addHeaderCell(new com.itextpdf.layout.element.Cell().add(new com.itextpdf.layout.element.Paragraph("Balance")));
         table.addHeaderCell(new com.itextpdf.layout.element.Cell().add(new com.itextpdf.layout.element.Paragraph("Reconciled")));
 
+        // A large table is added before its rows and filled in afterwards
+        document.add(table);
+
         // Add transaction rows
-        for (LedgerEntryResponse entry : entries) {
-            table.addCell(new com.itextpdf.layout.element.Cell().add(
-                new com.itextpdf.layout.element.Paragraph(entry.getTransactionDate().format(DATE_FORMATTER))));
-            table.addCell(new com.itextpdf.layout.element.Cell().add(
-                new com.itextpdf.layout.element.Paragraph(entry.getTransactionType().toString())));
-            table.addCell(new com.itextpdf.layout.element.Cell().add(
-                new com.itextpdf.layout.element.Paragraph(entry.getShopName() != null ? entry.getShopName() : "N/A")));
-            table.addCell(new com.itextpdf.layout.element.Cell().add(
-                new com.itextpdf.layout.element.Paragraph(entry.getDescription() != null ? entry.getDescription() : "")));
-            table.addCell(new com.itextpdf.layout.element.Cell().add(
-                new com.itextpdf.layout.element.Paragraph(entry.getReferenceNumber() != null ? entry.getReferenceNumber() : "")));
-            table.addCell(new com.itextpdf.layout.element.Cell().add(
-                new com.itextpdf.layout.element.Paragraph(entry.getAmount().toString())));
-            table.addCell(new com.itextpdf.layout.element.Cell().add(
-                new com.itextpdf.layout.element.Paragraph(entry.getBalanceAfterTransaction() != null ? 
-                    entry.getBalanceAfterTransaction().toString() : "")));
-            table.addCell(new com.itextpdf.layout.element.Cell().add(
-                new com.itextpdf.layout.element.Paragraph(entry.isReconciled() ? "Yes" : "No")));
-        }
+        long rows = streamEntries(sql, (entry, row) -> {
+            addPDFTransactionRow(table, entry);
+            if (row % pdfChunkRows == 0) {
+                table.flush();
+            }
+        }, params);
 
-        document.add(table);
+        table.complete();
         document.add(new com.itextpdf.layout.element.Paragraph(""));
+        return rows;
+    }
+
+    private void addPDFTransactionRow(com.itextpdf.layout.element.Table table, LedgerEntryResponse entry) {
+        table.addCell(new com.itextpdf.layout.element.Cell().add(
+            new com.itextpdf.layout.element.Paragraph(entry.getTransactionDate().format(DATE_FORMATTER))));
+        table.addCell(new com.itextpdf.layout.element.Cell().add(
+            new com.itextpdf.layout.element.Paragraph(entry.getTransactionType().toString())));
+        table.addCell(new com.itextpdf.layout.element.Cell().add(
+            new com.itextpdf.layout.element.Paragraph(entry.getShopName() != null ? entry.getShopName() : "N/A")));
+        table.addCell(new com.itextpdf.layout.element.Cell().add(
+            new com.itextpdf.layout.element.Paragraph(entry.getDescription() != null ? entry.getDescription() : "")));
+        table.addCell(new com.itextpdf.layout.element.Cell().add(
+            new com.itextpdf.layout.element.Paragraph(entry.getReferenceNumber() != null ? entry.getReferenceNumber() : "")));
+        table.addCell(new com.itextpdf.layout.element.Cell().add(
+            new com.itextpdf.layout.element.Paragraph(entry.getAmount().toString())));
+        table.addCell(new com.itextpdf.layout.element.Cell().add(
+            new com.itextpdf.layout.element.Paragraph(entry.getBalanceAfterTransaction() != null ? 
+                entry.getBalanceAfterTransaction().toString() : "")));
+        table.addCell(new com.itextpdf.layout.element.Cell().add(
+            new com.itextpdf.layout.element.Paragraph(entry.isReconciled() ? "Yes" : "No")));
     }
 
     private void addPDFFooter(com.itextpdf.layout.Document document) {
@@ -457,28 +523,10 @@ public class ExportService {
     }
 
     /**
-     * Helper method to map LedgerEntry to LedgerEntryResponse
+     * Receives each exported entry with its 1-based row number
      */
-    private LedgerEntryResponse mapToLedgerEntryResponse(com.example.ledgerly.entity.LedgerEntry entry) {
-        LedgerEntryResponse response = new LedgerEntryResponse();
-        response.setId(entry.getId());
-        response.setTransactionDate(entry.getTransactionDate());
-        response.setTransactionType(entry.getTransactionType());
-        response.setAmount(entry.getAmount());
-        response.setDescription(entry.getDescription());
-        response.setNotes(entry.getNotes());
-        response.setReferenceNumber(entry.getReferenceNumber());
-        response.setInvoiceNumber(entry.getInvoiceNumber());
-        response.setInvoiceDate(entry.getInvoiceDate());
-        response.setPaymentMethod(entry.getPaymentMethod());
-        response.setBalanceAfterTransaction(entry.getBalanceAfterTransaction());
-        response.setReconciled(entry.isReconciled());
-        response.setReconciledDate(entry.getReconciledDate());
-        response.setActive(entry.isActive());
-        response.setCustomerId(entry.getCustomer().getId());
-        response.setCustomerName(entry.getCustomer().getName());
-        response.setCreatedAt(entry.getCreatedAt());
-        response.setUpdatedAt(entry.getUpdatedAt());
-        return response;
+    @FunctionalInterface
+    private interface EntryWriter {
+        void write(LedgerEntryResponse entry, long row) throws IOException;
     }
 }
@@ -0,0 +1,89 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.exception.BusinessRuleException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque "after" token for keyset pagination: the sort key and id of the last row of the previous page.
+ * Listings are ordered by (sortKey DESC, id DESC), so the next page is every row strictly below that pair.
+ */
+public final class KeysetCursor {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final char SEPARATOR = '|';
+
+    private final String sortKey;
+    private final Long id;
+
+    private KeysetCursor(String sortKey, Long id) {
+        this.sortKey = sortKey;
+        this.id = id;
+    }
+
+    public static String encode(Object sortKey, Long id) {
+        String raw = sortKey + String.valueOf(SEPARATOR) + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token, or return null for the first page when no token is given
+     */
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator <= 0) {
+                throw invalid();
+            }
+            return new KeysetCursor(raw.substring(0, separator), Long.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            throw invalid();
+        }
+    }
+
+    /**
+     * Clamp a requested page size to 1..MAX_PAGE_SIZE
+     */
+    public static int pageSize(int requested) {
+        return Math.max(1, Math.min(requested, MAX_PAGE_SIZE));
+    }
+
+    public static LocalDate dateOf(KeysetCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(cursor.sortKey);
+        } catch (DateTimeParseException e) {
+            throw invalid();
+        }
+    }
+
+    public static LocalDateTime dateTimeOf(KeysetCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(cursor.sortKey);
+        } catch (DateTimeParseException e) {
+            throw invalid();
+        }
+    }
+
+    public static Long idOf(KeysetCursor cursor) {
+        return cursor != null ? cursor.id : null;
+    }
+
+    private static BusinessRuleException invalid() {
+        return new BusinessRuleException("INVALID_CURSOR", "Invalid page cursor");
+    }
+}
@@ -0,0 +1,837 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.CustomerDailyTotal;
+import com.example.ledgerly.entity.CustomerMonthlyBalance;
+import com.example.ledgerly.entity.LedgerEntry;
+import com.example.ledgerly.entity.RollupSource;
+import com.example.ledgerly.repository.CustomerDailyTotalRepository;
+import com.example.ledgerly.repository.CustomerMonthlyBalanceRepository;
+import com.example.ledgerly.repository.CustomerRepository;
+import com.example.ledgerly.repository.LedgerEntryRepository;
+import com.example.ledgerly.repository.SummaryRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+
+/**
+ * Maintains pre-aggregated tables in the same transaction as each ledger or payment write:
+ * daily totals, monthly balance checkpoints and summary rollups.
+ *
+ * Callers pass the relevant state of a row before and after a change; the aggregates are
+ * moved by the difference with upserts, so a write never re-reads the customer's history. Each
+ * aggregate can be rebuilt from the raw tables for historical data or after a suspected drift.
+ */
+@Service
+@Transactional
+public class LedgerAggregateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerAggregateService.class);
+    private static final int REBUILD_BATCH_SIZE = 500;
+    private static final int MAX_REPORTED_MISMATCHES = 100;
+    // Rollup rows carry a NOT NULL shop_id; rows without a shop are keyed under 0
+    private static final long NO_SHOP_ID = 0L;
+
+    private static final String UPSERT_DAILY_TOTAL_SQL =
+        "INSERT INTO customer_daily_totals (customer_id, transaction_date, total_amount, entry_count) " +
+        "VALUES (?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE total_amount = total_amount + VALUES(total_amount), " +
+        "entry_count = entry_count + VALUES(entry_count)";
+
+    // Creates a missing month row opening at the previous checkpoint's closing balance; no-op if it exists
+    private static final String ENSURE_MONTHLY_BALANCE_SQL =
+        "INSERT INTO customer_monthly_balances " +
+        "(customer_id, period_start, total_credit, total_debit, entry_count, closing_balance) " +
+        "SELECT ?, ?, 0, 0, 0, COALESCE((SELECT p.closing_balance FROM customer_monthly_balances p " +
+        "WHERE p.customer_id = ? AND p.period_start < ? ORDER BY p.period_start DESC LIMIT 1), 0) " +
+        "ON DUPLICATE KEY UPDATE entry_count = entry_count";
+
+    // Adds the month's totals to its own row and shifts the closing balance of it and every later month
+    private static final String SHIFT_MONTHLY_BALANCE_SQL =
+        "UPDATE customer_monthly_balances SET " +
+        "total_credit = total_credit + IF(period_start = ?, ?, 0), " +
+        "total_debit = total_debit + IF(period_start = ?, ?, 0), " +
+        "entry_count = entry_count + IF(period_start = ?, ?, 0), " +
+        "closing_balance = closing_balance + ? " +
+        "WHERE customer_id = ? AND period_start >= ?";
+
+    private static final String UPSERT_ROLLUP_SQL =
+        "INSERT INTO summary_rollups (source, shop_id, customer_id, period_start, category, item_count, total_amount) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE item_count = item_count + VALUES(item_count), " +
+        "total_amount = total_amount + VALUES(total_amount)";
+
+    // Rollup rows recomputed from each raw table for a customer id range; used by rebuild and reconciliation
+    private static final List<String> RAW_ROLLUP_SQLS = List.of(
+        "SELECT 'LEDGER_ENTRY', COALESCE(shop_id, 0) AS rollup_shop_id, customer_id, " +
+        "DATE_SUB(transaction_date, INTERVAL DAYOFMONTH(transaction_date) - 1 DAY) AS period_start, " +
+        "transaction_type, COUNT(*), SUM(amount) FROM ledger_entries " +
+        "WHERE is_active = true AND customer_id BETWEEN ? AND ? " +
+        "GROUP BY rollup_shop_id, customer_id, period_start, transaction_type",
+
+        "SELECT 'PAYMENT', COALESCE(shop_id, 0) AS rollup_shop_id, customer_id, " +
+        "DATE_SUB(payment_date, INTERVAL DAYOFMONTH(payment_date) - 1 DAY) AS period_start, " +
+        "status, COUNT(*), SUM(amount) FROM payments " +
+        "WHERE is_active = true AND customer_id BETWEEN ? AND ? " +
+        "GROUP BY rollup_shop_id, customer_id, period_start, status",
+
+        "SELECT 'PAYMENT_APPLICATION', COALESCE(p.shop_id, 0) AS rollup_shop_id, p.customer_id, " +
+        "DATE_SUB(DATE(pa.applied_at), INTERVAL DAYOFMONTH(pa.applied_at) - 1 DAY) AS period_start, " +
+        "'" + RollupContribution.APPLIED + "', COUNT(*), SUM(pa.applied_amount) " +
+        "FROM payment_applications pa JOIN payments p ON p.id = pa.payment_id " +
+        "WHERE pa.is_reversed = false AND p.customer_id BETWEEN ? AND ? " +
+        "GROUP BY rollup_shop_id, p.customer_id, period_start");
+
+    private static final String INSERT_ROLLUP_PREFIX =
+        "INSERT INTO summary_rollups (source, shop_id, customer_id, period_start, category, item_count, total_amount) ";
+
+    private static final String STORED_ROLLUPS_SQL =
+        "SELECT source, shop_id, customer_id, period_start, category, item_count, total_amount FROM summary_rollups " +
+        "WHERE customer_id BETWEEN ? AND ?";
+
+    private final CustomerDailyTotalRepository customerDailyTotalRepository;
+    private final CustomerMonthlyBalanceRepository customerMonthlyBalanceRepository;
+    private final SummaryRollupRepository summaryRollupRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final CustomerRepository customerRepository;
+    private final CustomerLockService customerLockService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    @Autowired
+    public LedgerAggregateService(CustomerDailyTotalRepository customerDailyTotalRepository,
+                                  CustomerMonthlyBalanceRepository customerMonthlyBalanceRepository,
+                                  SummaryRollupRepository summaryRollupRepository,
+                                  LedgerEntryRepository ledgerEntryRepository,
+                                  CustomerRepository customerRepository,
+                                  CustomerLockService customerLockService,
+                                  JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager) {
+        this.customerDailyTotalRepository = customerDailyTotalRepository;
+        this.customerMonthlyBalanceRepository = customerMonthlyBalanceRepository;
+        this.summaryRollupRepository = summaryRollupRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.customerRepository = customerRepository;
+        this.customerLockService = customerLockService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Move the aggregates by the difference between two states of an entry
+     *
+     * @param before state before the change, or null for a newly created entry
+     * @param after  state after the change
+     */
+    public void applyEntryChange(LedgerEntryState before, LedgerEntryState after) {
+        AggregateDeltas deltas = new AggregateDeltas();
+        if (before != null) {
+            deltas.remove(before);
+        }
+        deltas.add(after);
+        apply(deltas);
+    }
+
+    /**
+     * Add a batch of newly inserted entries to the aggregates (bulk import)
+     */
+    public void applyNewEntries(Collection<LedgerEntry> entries) {
+        AggregateDeltas deltas = new AggregateDeltas();
+        for (LedgerEntry entry : entries) {
+            deltas.add(LedgerEntryState.of(entry));
+        }
+        apply(deltas);
+    }
+
+    /**
+     * Move the summary rollups by the difference between two states of a payment or payment application
+     *
+     * @param before state before the change, or null for a newly created row
+     * @param after  state after the change
+     */
+    public void applyRollupChange(RollupContribution before, RollupContribution after) {
+        AggregateDeltas deltas = new AggregateDeltas();
+        if (before != null) {
+            deltas.mergeRollup(before, -1);
+        }
+        deltas.mergeRollup(after, 1);
+        apply(deltas);
+    }
+
+    /**
+     * Move the summary rollups for many rows changed together (e.g. a bulk status update), in one apply
+     */
+    public void applyRollupChanges(Collection<RollupContribution> before, Collection<RollupContribution> after) {
+        AggregateDeltas deltas = new AggregateDeltas();
+        for (RollupContribution contribution : before) {
+            deltas.mergeRollup(contribution, -1);
+        }
+        for (RollupContribution contribution : after) {
+            deltas.mergeRollup(contribution, 1);
+        }
+        apply(deltas);
+    }
+
+    /**
+     * Add newly created payments or payment applications to the summary rollups
+     */
+    public void applyNewRollups(Collection<RollupContribution> contributions) {
+        AggregateDeltas deltas = new AggregateDeltas();
+        for (RollupContribution contribution : contributions) {
+            deltas.mergeRollup(contribution, 1);
+        }
+        apply(deltas);
+    }
+
+    /**
+     * Total amount a customer has posted on a day
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal getDailyTotal(Long customerId, LocalDate transactionDate) {
+        return customerDailyTotalRepository.findTotalAmount(customerId, transactionDate).orElse(BigDecimal.ZERO);
+    }
+
+    /**
+     * Daily totals for several customers over a date range, keyed by customer then date
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Map<LocalDate, BigDecimal>> getDailyTotals(Collection<Long> customerIds,
+                                                               LocalDate startDate, LocalDate endDate) {
+        Map<Long, Map<LocalDate, BigDecimal>> totals = new HashMap<>();
+        for (CustomerDailyTotal total : customerDailyTotalRepository.findByCustomersAndDateRange(customerIds, startDate, endDate)) {
+            totals.computeIfAbsent(total.getCustomerId(), id -> new HashMap<>())
+                    .put(total.getTransactionDate(), total.getTotalAmount());
+        }
+        return totals;
+    }
+
+    /**
+     * Customer balance at the start of a day: the closing balance of the last checkpoint before that
+     * month plus the entries earlier in the month
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal getBalanceBefore(Long customerId, LocalDate date) {
+        LocalDate monthStart = date.withDayOfMonth(1);
+        BigDecimal balance = customerMonthlyBalanceRepository
+                .findLatestBefore(customerId, monthStart, PageRequest.of(0, 1))
+                .stream()
+                .findFirst()
+                .map(CustomerMonthlyBalance::getClosingBalance)
+                .orElse(BigDecimal.ZERO);
+
+        if (date.isAfter(monthStart)) {
+            Totals partial = new Totals();
+            partial.add(ledgerEntryRepository.sumCreditsAndDebitsForCustomer(customerId, monthStart, date.minusDays(1)));
+            balance = balance.add(partial.credit).subtract(partial.debit);
+        }
+        return balance;
+    }
+
+    /**
+     * Opening balance, credits, debits and closing balance for a date range.
+     * Whole months come from checkpoints; only the partial months at either end read ledger entries.
+     */
+    @Transactional(readOnly = true)
+    public PeriodSummary getPeriodSummary(Long customerId, LocalDate startDate, LocalDate endDate) {
+        LocalDate firstFullMonth = startDate.getDayOfMonth() == 1 ? startDate : startDate.plusMonths(1).withDayOfMonth(1);
+        LocalDate lastFullMonthEnd = endDate.equals(YearMonth.from(endDate).atEndOfMonth())
+                ? endDate : endDate.withDayOfMonth(1).minusDays(1);
+
+        Totals totals = new Totals();
+        if (firstFullMonth.isAfter(lastFullMonthEnd)) {
+            totals.add(ledgerEntryRepository.sumCreditsAndDebitsForCustomer(customerId, startDate, endDate));
+        } else {
+            if (startDate.isBefore(firstFullMonth)) {
+                totals.add(ledgerEntryRepository.sumCreditsAndDebitsForCustomer(customerId, startDate, firstFullMonth.minusDays(1)));
+            }
+            totals.add(customerMonthlyBalanceRepository.sumForPeriods(customerId, firstFullMonth, lastFullMonthEnd.withDayOfMonth(1)));
+            if (endDate.isAfter(lastFullMonthEnd)) {
+                totals.add(ledgerEntryRepository.sumCreditsAndDebitsForCustomer(customerId, lastFullMonthEnd.plusDays(1), endDate));
+            }
+        }
+
+        return new PeriodSummary(customerId, startDate, endDate, getBalanceBefore(customerId, startDate),
+                totals.credit, totals.debit, totals.count);
+    }
+
+    /**
+     * Summary of one calendar month, read from checkpoints only
+     */
+    @Transactional(readOnly = true)
+    public PeriodSummary getMonthlySummary(Long customerId, int year, int month) {
+        YearMonth period = YearMonth.of(year, month);
+        return getPeriodSummary(customerId, period.atDay(1), period.atEndOfMonth());
+    }
+
+    /**
+     * Summary of one calendar year, read from checkpoints only
+     */
+    @Transactional(readOnly = true)
+    public PeriodSummary getYearlySummary(Long customerId, int year) {
+        return getPeriodSummary(customerId, LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31));
+    }
+
+    /**
+     * Summary of a customer's whole history, read from checkpoints only
+     */
+    @Transactional(readOnly = true)
+    public PeriodSummary getLifetimeSummary(Long customerId) {
+        Totals totals = new Totals();
+        totals.add(customerMonthlyBalanceRepository.sumForCustomer(customerId));
+        return new PeriodSummary(customerId, null, null, BigDecimal.ZERO, totals.credit, totals.debit, totals.count);
+    }
+
+    /**
+     * Count and amount per category for a customer over a year, or one month of it when month is given
+     */
+    @Transactional(readOnly = true)
+    public List<RollupTotal> getCustomerRollup(RollupSource source, Long customerId, int year, Integer month) {
+        LocalDate fromPeriod = month != null ? LocalDate.of(year, month, 1) : LocalDate.of(year, 1, 1);
+        LocalDate toPeriod = month != null ? fromPeriod : LocalDate.of(year, 12, 1);
+        return toRollupTotals(summaryRollupRepository.sumByCategoryForCustomer(source, customerId, fromPeriod, toPeriod));
+    }
+
+    /**
+     * Count and amount per category across all customers, optionally for one shop
+     */
+    @Transactional(readOnly = true)
+    public List<RollupTotal> getRollupByCategory(RollupSource source, Long shopId) {
+        return toRollupTotals(summaryRollupRepository.sumByCategory(source, shopId));
+    }
+
+    /**
+     * Count and amount per month (yyyy-MM) across all customers, optionally for one shop, newest first
+     */
+    @Transactional(readOnly = true)
+    public List<RollupTotal> getRollupByMonth(RollupSource source, Long shopId) {
+        List<RollupTotal> totals = new ArrayList<>();
+        for (Object[] row : summaryRollupRepository.sumByPeriod(source, shopId)) {
+            totals.add(new RollupTotal(YearMonth.from((LocalDate) row[0]).toString(),
+                    ((Number) row[1]).longValue(), Totals.toBigDecimal(row[2])));
+        }
+        return totals;
+    }
+
+    /**
+     * Compare every summary rollup row against the same grouping over the raw tables.
+     * Customers are walked in id order and each range is compared in its own read-only transaction, so only
+     * one range's rows are held in memory at a time.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public RollupReconciliationResult reconcileRollups() {
+        long startTime = System.currentTimeMillis();
+        RollupReconciliationResult result = new RollupReconciliationResult();
+
+        Long afterId = 0L;
+        while (true) {
+            List<Object[]> batch = customerRepository.findBalanceSnapshotAfter(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+            Long fromId = (Long) batch.get(0)[0];
+            Long toId = (Long) batch.get(batch.size() - 1)[0];
+
+            readOnlyTransactionTemplate.executeWithoutResult(status -> reconcileRollupRange(fromId, toId, result));
+            afterId = toId;
+        }
+        result.durationMs = System.currentTimeMillis() - startTime;
+
+        if (result.mismatchCount > 0) {
+            logger.warn("Summary rollup reconciliation found {} mismatched rows out of {}", result.mismatchCount, result.rowsChecked);
+        }
+        return result;
+    }
+
+    /**
+     * Compare the rollup rows of one customer id range, adding its counts and mismatches to the result
+     */
+    private void reconcileRollupRange(Long fromId, Long toId, RollupReconciliationResult result) {
+        Map<RollupKey, Delta> expected = new HashMap<>();
+        for (String sql : RAW_ROLLUP_SQLS) {
+            jdbcTemplate.query(sql, rs -> {
+                expected.put(RollupKey.from(rs), new Delta(rs.getBigDecimal(7), rs.getLong(6)));
+            }, fromId, toId);
+        }
+        Map<RollupKey, Delta> actual = new HashMap<>();
+        jdbcTemplate.query(STORED_ROLLUPS_SQL, rs -> {
+            actual.put(RollupKey.from(rs), new Delta(rs.getBigDecimal(7), rs.getLong(6)));
+        }, fromId, toId);
+
+        Set<RollupKey> keys = new HashSet<>(expected.keySet());
+        keys.addAll(actual.keySet());
+        for (RollupKey key : keys) {
+            Delta want = expected.getOrDefault(key, new Delta());
+            Delta have = actual.getOrDefault(key, new Delta());
+            result.rowsChecked++;
+            if (want.count != have.count || want.amount.compareTo(have.amount) != 0) {
+                result.mismatchCount++;
+                if (result.mismatches.size() < MAX_REPORTED_MISMATCHES) {
+                    result.mismatches.add(new RollupMismatch(key, want, have));
+                }
+            }
+        }
+    }
+
+    /**
+     * Recompute summary rollups from the raw tables, one batch of customers per transaction
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public RebuildResult rebuildRollups() {
+        return rebuildByCustomerRange("SUMMARY_ROLLUPS", (fromId, toId) -> {
+            summaryRollupRepository.deleteForCustomerRange(fromId, toId);
+            int written = 0;
+            for (String sql : RAW_ROLLUP_SQLS) {
+                written += jdbcTemplate.update(INSERT_ROLLUP_PREFIX + sql, fromId, toId);
+            }
+            return written;
+        });
+    }
+
+    /**
+     * Recompute daily totals from the ledger, one batch of customers per transaction
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public RebuildResult rebuildDailyTotals() {
+        return rebuildByCustomerRange("DAILY_TOTALS", (fromId, toId) -> {
+            customerDailyTotalRepository.deleteForCustomerRange(fromId, toId);
+            return customerDailyTotalRepository.rebuildForCustomerRange(fromId, toId);
+        });
+    }
+
+    /**
+     * Recompute monthly balance checkpoints from the ledger, one batch of customers per transaction
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public RebuildResult rebuildMonthlyBalances() {
+        return rebuildByCustomerRange("MONTHLY_BALANCES", (fromId, toId) -> {
+            customerMonthlyBalanceRepository.deleteForCustomerRange(fromId, toId);
+            return customerMonthlyBalanceRepository.rebuildForCustomerRange(fromId, toId);
+        });
+    }
+
+    /**
+     * Recompute the maintained outstanding amount of every ledger entry from its payment applications,
+     * one batch of customers per transaction
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public RebuildResult rebuildOutstandingAmounts() {
+        return rebuildByCustomerRange("OUTSTANDING_AMOUNTS", ledgerEntryRepository::recomputeOutstandingForCustomerRange);
+    }
+
+    /**
+     * Nightly outstanding-amount repair (scheduled task)
+     */
+    @Scheduled(cron = "${app.ledger.outstanding.repair-cron:0 0 3 * * ?}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void scheduledOutstandingRepair() {
+        try {
+            rebuildOutstandingAmounts();
+        } catch (Exception e) {
+            logger.error("Scheduled outstanding amount repair failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Walk customers in id order and rebuild one batch per transaction.
+     * Each batch locks its customers so live writes cannot slip between the delete and the re-insert.
+     */
+    private RebuildResult rebuildByCustomerRange(String aggregate, BiFunction<Long, Long, Integer> rebuildRange) {
+        long startTime = System.currentTimeMillis();
+        long customersProcessed = 0;
+        long rowsWritten = 0;
+
+        Long afterId = 0L;
+        while (true) {
+            List<Object[]> batch = customerRepository.findBalanceSnapshotAfter(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            List<Long> customerIds = new ArrayList<>(batch.size());
+            for (Object[] row : batch) {
+                customerIds.add((Long) row[0]);
+            }
+            Long fromId = customerIds.get(0);
+            Long toId = customerIds.get(customerIds.size() - 1);
+
+            Integer written = transactionTemplate.execute(status -> {
+                customerLockService.lockCustomers(customerIds);
+                return rebuildRange.apply(fromId, toId);
+            });
+
+            rowsWritten += written != null ? written : 0;
+            customersProcessed += customerIds.size();
+            afterId = toId;
+        }
+
+        long durationMs = System.currentTimeMillis() - startTime;
+        logger.info("Rebuilt {} for {} customers ({} rows) in {} ms", aggregate, customersProcessed, rowsWritten, durationMs);
+        return new RebuildResult(aggregate, customersProcessed, rowsWritten, durationMs);
+    }
+
+    private void apply(AggregateDeltas deltas) {
+        List<Object[]> dailyRows = new ArrayList<>();
+        for (Map.Entry<Long, Map<LocalDate, Delta>> customer : deltas.daily.entrySet()) {
+            for (Map.Entry<LocalDate, Delta> day : customer.getValue().entrySet()) {
+                Delta delta = day.getValue();
+                if (!delta.isZero()) {
+                    dailyRows.add(new Object[]{customer.getKey(), Date.valueOf(day.getKey()), delta.amount, delta.count});
+                }
+            }
+        }
+        if (!dailyRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_DAILY_TOTAL_SQL, dailyRows);
+        }
+
+        // Create every missing month row before shifting, so a new row opens at the pre-change balance
+        List<Object[]> ensureRows = new ArrayList<>();
+        List<Object[]> shiftRows = new ArrayList<>();
+        for (Map.Entry<Long, TreeMap<LocalDate, MonthDelta>> customer : deltas.monthly.entrySet()) {
+            Long customerId = customer.getKey();
+            for (Map.Entry<LocalDate, MonthDelta> month : customer.getValue().entrySet()) {
+                MonthDelta delta = month.getValue();
+                if (delta.isZero()) {
+                    continue;
+                }
+                Date period = Date.valueOf(month.getKey());
+                ensureRows.add(new Object[]{customerId, period, customerId, period});
+                shiftRows.add(new Object[]{period, delta.credit, period, delta.debit, period, delta.count,
+                        delta.credit.subtract(delta.debit), customerId, period});
+            }
+        }
+        if (!ensureRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(ENSURE_MONTHLY_BALANCE_SQL, ensureRows);
+            jdbcTemplate.batchUpdate(SHIFT_MONTHLY_BALANCE_SQL, shiftRows);
+        }
+
+        List<Object[]> rollupRows = new ArrayList<>();
+        for (Map.Entry<RollupKey, Delta> rollup : deltas.rollups.entrySet()) {
+            RollupKey key = rollup.getKey();
+            Delta delta = rollup.getValue();
+            if (!delta.isZero()) {
+                rollupRows.add(new Object[]{key.source.name(), key.shopId, key.customerId,
+                        Date.valueOf(key.periodStart), key.category, delta.count, delta.amount});
+            }
+        }
+        if (!rollupRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_ROLLUP_SQL, rollupRows);
+        }
+    }
+
+    private List<RollupTotal> toRollupTotals(List<Object[]> rows) {
+        List<RollupTotal> totals = new ArrayList<>();
+        for (Object[] row : rows) {
+            totals.add(new RollupTotal((String) row[0], ((Number) row[1]).longValue(), Totals.toBigDecimal(row[2])));
+        }
+        totals.sort((a, b) -> a.getKey().compareTo(b.getKey()));
+        return totals;
+    }
+
+    /**
+     * Signed changes to apply, merged per aggregate key
+     */
+    private static class AggregateDeltas {
+        private final Map<Long, Map<LocalDate, Delta>> daily = new HashMap<>();
+        private final Map<Long, TreeMap<LocalDate, MonthDelta>> monthly = new HashMap<>();
+        private final Map<RollupKey, Delta> rollups = new HashMap<>();
+
+        void add(LedgerEntryState state) {
+            merge(state, 1);
+        }
+
+        void remove(LedgerEntryState state) {
+            merge(state, -1);
+        }
+
+        private void merge(LedgerEntryState state, int sign) {
+            if (!state.isActive() || state.getAmount() == null) {
+                return;
+            }
+            BigDecimal amount = sign > 0 ? state.getAmount() : state.getAmount().negate();
+            daily.computeIfAbsent(state.getCustomerId(), id -> new HashMap<>())
+                    .computeIfAbsent(state.getTransactionDate(), date -> new Delta())
+                    .add(amount, sign);
+            monthly.computeIfAbsent(state.getCustomerId(), id -> new TreeMap<>())
+                    .computeIfAbsent(state.getTransactionDate().withDayOfMonth(1), month -> new MonthDelta())
+                    .add(state.isCredit(), amount, sign);
+            mergeRollup(RollupContribution.of(state), sign);
+        }
+
+        void mergeRollup(RollupContribution contribution, int sign) {
+            if (!contribution.isCounted()) {
+                return;
+            }
+            BigDecimal amount = sign > 0 ? contribution.getAmount() : contribution.getAmount().negate();
+            rollups.computeIfAbsent(RollupKey.of(contribution), key -> new Delta()).add(amount, sign);
+        }
+    }
+
+    private static class Delta {
+        private BigDecimal amount = BigDecimal.ZERO;
+        private long count;
+
+        Delta() {
+        }
+
+        Delta(BigDecimal amount, long count) {
+            this.amount = amount != null ? amount : BigDecimal.ZERO;
+            this.count = count;
+        }
+
+        void add(BigDecimal amount, long count) {
+            this.amount = this.amount.add(amount);
+            this.count += count;
+        }
+
+        boolean isZero() {
+            return amount.signum() == 0 && count == 0;
+        }
+    }
+
+    private static class MonthDelta {
+        private BigDecimal credit = BigDecimal.ZERO;
+        private BigDecimal debit = BigDecimal.ZERO;
+        private long count;
+
+        void add(boolean isCredit, BigDecimal amount, long count) {
+            if (isCredit) {
+                this.credit = this.credit.add(amount);
+            } else {
+                this.debit = this.debit.add(amount);
+            }
+            this.count += count;
+        }
+
+        boolean isZero() {
+            return credit.signum() == 0 && debit.signum() == 0 && count == 0;
+        }
+    }
+
+    /**
+     * Running credit, debit and count totals accumulated from aggregate query rows
+     */
+    private static class Totals {
+        private BigDecimal credit = BigDecimal.ZERO;
+        private BigDecimal debit = BigDecimal.ZERO;
+        private long count;
+
+        void add(List<Object[]> rows) {
+            for (Object[] row : rows) {
+                credit = credit.add(toBigDecimal(row[0]));
+                debit = debit.add(toBigDecimal(row[1]));
+                count += row[2] != null ? ((Number) row[2]).longValue() : 0;
+            }
+        }
+
+        static BigDecimal toBigDecimal(Object value) {
+            if (value == null) {
+                return BigDecimal.ZERO;
+            }
+            return value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+        }
+    }
+
+    /**
+     * Identity of a summary rollup row
+     */
+    private static final class RollupKey {
+        private final RollupSource source;
+        private final long shopId;
+        private final long customerId;
+        private final LocalDate periodStart;
+        private final String category;
+
+        private RollupKey(RollupSource source, long shopId, long customerId, LocalDate periodStart, String category) {
+            this.source = source;
+            this.shopId = shopId;
+            this.customerId = customerId;
+            this.periodStart = periodStart;
+            this.category = category;
+        }
+
+        static RollupKey of(RollupContribution contribution) {
+            return new RollupKey(contribution.getSource(),
+                    contribution.getShopId() != null ? contribution.getShopId() : NO_SHOP_ID,
+                    contribution.getCustomerId(), contribution.getPeriodStart(), contribution.getCategory());
+        }
+
+        static RollupKey from(ResultSet rs) throws SQLException {
+            return new RollupKey(RollupSource.valueOf(rs.getString(1)), rs.getLong(2), rs.getLong(3),
+                    rs.getDate(4).toLocalDate(), rs.getString(5));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RollupKey)) return false;
+            RollupKey other = (RollupKey) o;
+            return shopId == other.shopId && customerId == other.customerId && source == other.source &&
+                   periodStart.equals(other.periodStart) && category.equals(other.category);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(source, shopId, customerId, periodStart, category);
+        }
+    }
+
+    /**
+     * Count and amount of one summary group (a category, or a month as yyyy-MM)
+     */
+    public static class RollupTotal {
+        private final String key;
+        private final long count;
+        private final BigDecimal amount;
+
+        public RollupTotal(String key, long count, BigDecimal amount) {
+            this.key = key;
+            this.count = count;
+            this.amount = amount;
+        }
+
+        public String getKey() { return key; }
+        public long getCount() { return count; }
+        public BigDecimal getAmount() { return amount; }
+    }
+
+    /**
+     * A rollup row whose stored count or amount differs from the raw tables
+     */
+    public static class RollupMismatch {
+        private final RollupSource source;
+        private final Long shopId;
+        private final Long customerId;
+        private final LocalDate periodStart;
+        private final String category;
+        private final long expectedCount;
+        private final long storedCount;
+        private final BigDecimal expectedAmount;
+        private final BigDecimal storedAmount;
+
+        private RollupMismatch(RollupKey key, Delta expected, Delta stored) {
+            this.source = key.source;
+            this.shopId = key.shopId;
+            this.customerId = key.customerId;
+            this.periodStart = key.periodStart;
+            this.category = key.category;
+            this.expectedCount = expected.count;
+            this.storedCount = stored.count;
+            this.expectedAmount = expected.amount;
+            this.storedAmount = stored.amount;
+        }
+
+        public RollupSource getSource() { return source; }
+        public Long getShopId() { return shopId; }
+        public Long getCustomerId() { return customerId; }
+        public LocalDate getPeriodStart() { return periodStart; }
+        public String getCategory() { return category; }
+        public long getExpectedCount() { return expectedCount; }
+        public long getStoredCount() { return storedCount; }
+        public BigDecimal getExpectedAmount() { return expectedAmount; }
+        public BigDecimal getStoredAmount() { return storedAmount; }
+    }
+
+    /**
+     * Outcome of a rollup reconciliation
+     */
+    public static class RollupReconciliationResult {
+        private long rowsChecked;
+        private long mismatchCount;
+        private long durationMs;
+        private final List<RollupMismatch> mismatches = new ArrayList<>();
+
+        public long getRowsChecked() { return rowsChecked; }
+        public long getMismatchCount() { return mismatchCount; }
+        public long getDurationMs() { return durationMs; }
+        public List<RollupMismatch> getMismatches() { return mismatches; }
+    }
+
+    /**
+     * Balance movement of a customer over a period
+     */
+    public static class PeriodSummary {
+        private final Long customerId;
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final BigDecimal openingBalance;
+        private final BigDecimal totalCredit;
+        private final BigDecimal totalDebit;
+        private final long entryCount;
+
+        public PeriodSummary(Long customerId, LocalDate startDate, LocalDate endDate, BigDecimal openingBalance,
+                             BigDecimal totalCredit, BigDecimal totalDebit, long entryCount) {
+            this.customerId = customerId;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.openingBalance = openingBalance;
+            this.totalCredit = totalCredit;
+            this.totalDebit = totalDebit;
+            this.entryCount = entryCount;
+        }
+
+        public Long getCustomerId() { return customerId; }
+        public LocalDate getStartDate() { return startDate; }
+        public LocalDate getEndDate() { return endDate; }
+        public BigDecimal getOpeningBalance() { return openingBalance; }
+        public BigDecimal getTotalCredit() { return totalCredit; }
+        public BigDecimal getTotalDebit() { return totalDebit; }
+        public long getEntryCount() { return entryCount; }
+
+        public BigDecimal getNetChange() {
+            return totalCredit.subtract(totalDebit);
+        }
+
+        public BigDecimal getClosingBalance() {
+            return openingBalance.add(getNetChange());
+        }
+    }
+
+    /**
+     * Outcome of an aggregate rebuild
+     */
+    public static class RebuildResult {
+        private final String aggregate;
+        private final long customersProcessed;
+        private final long rowsWritten;
+        private final long durationMs;
+
+        public RebuildResult(String aggregate, long customersProcessed, long rowsWritten, long durationMs) {
+            this.aggregate = aggregate;
+            this.customersProcessed = customersProcessed;
+            this.rowsWritten = rowsWritten;
+            this.durationMs = durationMs;
+        }
+
+        public String getAggregate() { return aggregate; }
+        public long getCustomersProcessed() { return customersProcessed; }
+        public long getRowsWritten() { return rowsWritten; }
+        public long getDurationMs() { return durationMs; }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.dto.DocumentAttachmentResponse;
+import com.example.ledgerly.dto.KeysetPage;
+import com.example.ledgerly.dto.LedgerEntryResponse;
+import com.example.ledgerly.entity.DocumentAttachment;
+import com.example.ledgerly.entity.TransactionType;
+import com.example.ledgerly.repository.DocumentAttachmentRepository;
+import com.example.ledgerly.repository.LedgerEntryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Read model for ledger listings.
+ * Rows come from the LedgerEntryResponse projections in LedgerEntryRepository, which already carry the
+ * customer, shop and user names; the attachments of a whole page are added with one batched query,
+ * so a page costs the same number of queries whatever its size.
+ */
+@Service
+@Transactional(readOnly = true)
+public class LedgerEntryReadService {
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final DocumentAttachmentRepository documentAttachmentRepository;
+
+    @Autowired
+    public LedgerEntryReadService(LedgerEntryRepository ledgerEntryRepository,
+                                  DocumentAttachmentRepository documentAttachmentRepository) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.documentAttachmentRepository = documentAttachmentRepository;
+    }
+
+    /**
+     * Page of a customer's active entries
+     */
+    public Page<LedgerEntryResponse> getEntriesForCustomer(Long customerId, Pageable pageable) {
+        Page<LedgerEntryResponse> entries = ledgerEntryRepository.findResponsesForCustomer(customerId, pageable);
+        withAttachments(entries.getContent());
+        return entries;
+    }
+
+    /**
+     * Keyset page of a customer's active entries, newest first, continuing after the given cursor
+     */
+    public KeysetPage<LedgerEntryResponse> getEntriesForCustomerAfter(Long customerId, String after, int size,
+                                                                     boolean includeTotal) {
+        KeysetCursor cursor = KeysetCursor.decode(after);
+        int pageSize = KeysetCursor.pageSize(size);
+
+        List<LedgerEntryResponse> rows = ledgerEntryRepository.findResponsePageForCustomer(customerId,
+                KeysetCursor.dateOf(cursor), KeysetCursor.idOf(cursor), PageRequest.of(0, pageSize + 1));
+        KeysetPage<LedgerEntryResponse> page = KeysetPage.of(rows, pageSize,
+                entry -> KeysetCursor.encode(entry.getTransactionDate(), entry.getId()));
+        withAttachments(page.getContent());
+        if (includeTotal) {
+            page.setTotalElements(ledgerEntryRepository.countByCustomerIdAndIsActiveTrue(customerId));
+        }
+        return page;
+    }
+
+    /**
+     * Page of active entries matching the given criteria; null criteria are not applied
+     */
+    public Page<LedgerEntryResponse> searchEntries(Long customerId, TransactionType transactionType,
+                                                   LocalDate startDate, LocalDate endDate,
+                                                   BigDecimal minAmount, BigDecimal maxAmount,
+                                                   String description, String referenceNumber,
+                                                   String invoiceNumber, Boolean isReconciled,
+                                                   Pageable pageable) {
+        Page<LedgerEntryResponse> entries = ledgerEntryRepository.searchLedgerEntryResponses(
+                customerId, transactionType, startDate, endDate, minAmount, maxAmount,
+                description, referenceNumber, invoiceNumber, isReconciled, pageable);
+        withAttachments(entries.getContent());
+        return entries;
+    }
+
+    /**
+     * A customer's unreconciled active entries
+     */
+    public List<LedgerEntryResponse> getUnreconciledEntries(Long customerId) {
+        return withAttachments(ledgerEntryRepository.findUnreconciledResponsesForCustomer(customerId));
+    }
+
+    /**
+     * Fill in the active attachments of every response in one query; entries without attachments are left as-is
+     */
+    public List<LedgerEntryResponse> withAttachments(List<LedgerEntryResponse> responses) {
+        if (responses.isEmpty()) {
+            return responses;
+        }
+
+        List<Long> entryIds = responses.stream()
+                .map(LedgerEntryResponse::getId)
+                .collect(Collectors.toList());
+
+        Map<Long, List<DocumentAttachmentResponse>> attachmentsByEntry = new HashMap<>();
+        for (Object[] row : documentAttachmentRepository.findActiveByLedgerEntryIds(entryIds)) {
+            attachmentsByEntry.computeIfAbsent((Long) row[0], id -> new ArrayList<>())
+                    .add(toAttachmentResponse((DocumentAttachment) row[1], (String) row[2]));
+        }
+
+        for (LedgerEntryResponse response : responses) {
+            List<DocumentAttachmentResponse> attachments = attachmentsByEntry.get(response.getId());
+            if (attachments != null) {
+                response.setAttachments(attachments);
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Convert DocumentAttachment to DocumentAttachmentResponse
+     */
+    static DocumentAttachmentResponse toAttachmentResponse(DocumentAttachment attachment) {
+        return toAttachmentResponse(attachment, attachment.getUploadedBy().getUsername());
+    }
+
+    private static DocumentAttachmentResponse toAttachmentResponse(DocumentAttachment attachment,
+                                                                   String uploadedByUsername) {
+        DocumentAttachmentResponse response = new DocumentAttachmentResponse();
+        response.setId(attachment.getId());
+        response.setFileName(attachment.getFileName());
+        response.setOriginalFileName(attachment.getOriginalFileName());
+        response.setContentType(attachment.getContentType());
+        response.setFileSize(attachment.getFileSize());
+        response.setDescription(attachment.getDescription());
+        response.setActive(attachment.isActive());
+        response.setUploadedAt(attachment.getUploadedAt());
+        response.setUploadedByUsername(uploadedByUsername);
+        response.setDownloadUrl("/api/v1/files/download/" + attachment.getId());
+        return response;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.LedgerEntry;
+import com.example.ledgerly.entity.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Immutable copy of the balance-relevant fields of a ledger entry.
+ * Captured before an entry is mutated so that aggregates can be adjusted by delta.
+ */
+public final class LedgerEntryState {
+
+    private final Long customerId;
+    private final Long shopId;
+    private final LocalDate transactionDate;
+    private final TransactionType transactionType;
+    private final BigDecimal amount;
+    private final boolean active;
+
+    public LedgerEntryState(Long customerId, Long shopId, LocalDate transactionDate, TransactionType transactionType,
+                            BigDecimal amount, boolean active) {
+        this.customerId = customerId;
+        this.shopId = shopId;
+        this.transactionDate = transactionDate;
+        this.transactionType = transactionType;
+        this.amount = amount;
+        this.active = active;
+    }
+
+    public static LedgerEntryState of(LedgerEntry entry) {
+        return new LedgerEntryState(
+                entry.getCustomer() != null ? entry.getCustomer().getId() : null,
+                entry.getShop() != null ? entry.getShop().getId() : null,
+                entry.getTransactionDate(),
+                entry.getTransactionType(),
+                entry.getAmount(),
+                entry.isActive());
+    }
+
+    /**
+     * Signed contribution of this entry to the customer balance (zero when inactive)
+     */
+    public BigDecimal getBalanceEffect() {
+        if (!active || amount == null) {
+            return BigDecimal.ZERO;
+        }
+        return isCredit() ? amount : amount.negate();
+    }
+
+    public boolean isCredit() {
+        return TransactionType.CREDIT.equals(transactionType) ||
+               TransactionType.OPENING_BALANCE.equals(transactionType);
+    }
+
+    public boolean isDebit() {
+        return TransactionType.DEBIT.equals(transactionType);
+    }
+
+    public Long getCustomerId() { return customerId; }
+    public Long getShopId() { return shopId; }
+    public LocalDate getTransactionDate() { return transactionDate; }
+    public TransactionType getTransactionType() { return transactionType; }
+    public BigDecimal getAmount() { return amount; }
+    public boolean isActive() { return active; }
+}
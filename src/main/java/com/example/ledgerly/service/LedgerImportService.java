@@ -0,0 +1,497 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.dto.LedgerEntryCreateRequest;
+import com.example.ledgerly.dto.LedgerImportResponse;
+import com.example.ledgerly.entity.Customer;
+import com.example.ledgerly.entity.LedgerEntry;
+import com.example.ledgerly.entity.TransactionType;
+import com.example.ledgerly.entity.User;
+import com.example.ledgerly.exception.BusinessRuleException;
+import com.example.ledgerly.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Service for bulk ledger entry imports (spreadsheet migrations).
+ *
+ * Rows are streamed from the upload and processed in fixed-size chunks, each in its own transaction:
+ * customers for the chunk are loaded with one query, rows are validated against a running balance per
+ * customer, valid rows are written with a single JDBC batch insert and the customer balances are moved
+ * by one delta each. A failing row is reported and skipped; it does not abort the rest of the import.
+ */
+@Service
+public class LedgerImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerImportService.class);
+
+    // LedgerEntry uses IDENTITY ids, which disables Hibernate insert batching, so rows go through JDBC
+    private static final String INSERT_LEDGER_ENTRY_SQL =
+        "INSERT INTO ledger_entries (transaction_date, transaction_type, amount, description, notes, " +
+        "reference_number, invoice_number, invoice_date, payment_method, balance_after_transaction, " +
+        "outstanding_amount, is_settled, is_reconciled, is_active, customer_id, shop_id, created_by_user_id, " +
+        "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, false, true, ?, ?, ?, ?, ?)";
+
+    private final UserRepository userRepository;
+    private final BusinessRuleService businessRuleService;
+    private final CustomerBalanceService customerBalanceService;
+    private final LedgerRebalanceService ledgerRebalanceService;
+    private final CustomerLockService customerLockService;
+    private final LedgerAggregateService ledgerAggregateService;
+    private final AuditService auditService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Value("${app.ledger.import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.ledger.import.max-reported-errors:500}")
+    private int maxReportedErrors;
+
+    @Autowired
+    public LedgerImportService(UserRepository userRepository,
+                               BusinessRuleService businessRuleService,
+                               CustomerBalanceService customerBalanceService,
+                               LedgerRebalanceService ledgerRebalanceService,
+                               CustomerLockService customerLockService,
+                               LedgerAggregateService ledgerAggregateService,
+                               AuditService auditService,
+                               JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               ObjectMapper objectMapper,
+                               Validator validator) {
+        this.userRepository = userRepository;
+        this.businessRuleService = businessRuleService;
+        this.customerBalanceService = customerBalanceService;
+        this.ledgerRebalanceService = ledgerRebalanceService;
+        this.customerLockService = customerLockService;
+        this.ledgerAggregateService = ledgerAggregateService;
+        this.auditService = auditService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    /**
+     * Import ledger entries from a CSV stream with a header row naming the columns
+     */
+    public LedgerImportResponse importCsv(InputStream inputStream) {
+        ImportRun run = new ImportRun(getCurrentUser());
+
+        try (Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
+             CSVReader csvReader = new CSVReader(reader)) {
+
+            String[] header = csvReader.readNext();
+            if (header == null) {
+                throw new IllegalArgumentException("CSV file is empty");
+            }
+            Map<String, Integer> columns = mapCsvHeader(header);
+
+            long rowNumber = 0;
+            String[] line;
+            while ((line = csvReader.readNext()) != null) {
+                rowNumber++;
+                if (line.length == 1 && line[0].isBlank()) {
+                    continue;
+                }
+                run.accept(parseCsvRow(rowNumber, line, columns));
+            }
+        } catch (IOException | CsvValidationException e) {
+            throw new IllegalArgumentException("Failed to read CSV file: " + e.getMessage(), e);
+        }
+
+        return run.finish();
+    }
+
+    /**
+     * Import ledger entries from a JSON array of LedgerEntryCreateRequest objects
+     */
+    public LedgerImportResponse importJson(InputStream inputStream) {
+        ImportRun run = new ImportRun(getCurrentUser());
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Expected a JSON array of ledger entries");
+            }
+
+            long rowNumber = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new IllegalArgumentException("Failed to read JSON: unexpected end of input, expected ']'");
+                }
+                rowNumber++;
+                if (token != JsonToken.START_OBJECT) {
+                    // Report the element and move past it, including any nested array
+                    run.accept(ImportRow.failed(rowNumber, null, "Invalid row: expected a JSON object but found " + token));
+                    parser.skipChildren();
+                    continue;
+                }
+                // Read the whole object first so a bad field cannot leave the parser mid-object
+                JsonNode node = parser.readValueAsTree();
+                try {
+                    run.accept(ImportRow.parsed(rowNumber,
+                            objectMapper.treeToValue(node, LedgerEntryCreateRequest.class)));
+                } catch (JsonProcessingException | IllegalArgumentException e) {
+                    Long customerId = node.hasNonNull("customerId") ? node.get("customerId").asLong() : null;
+                    run.accept(ImportRow.failed(rowNumber, customerId, "Invalid row: " + e.getMessage()));
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to read JSON: " + e.getMessage(), e);
+        }
+
+        return run.finish();
+    }
+
+    /**
+     * Validate and insert one chunk in its own transaction
+     */
+    private ChunkOutcome processChunk(List<ImportRow> chunk, User currentUser) {
+        ChunkOutcome outcome = new ChunkOutcome();
+
+        List<ImportRow> candidates = new ArrayList<>();
+        for (ImportRow row : chunk) {
+            if (row.error != null) {
+                outcome.errors.add(new LedgerImportResponse.RowError(row.rowNumber, row.customerId(), "INVALID_ROW", row.error));
+                continue;
+            }
+            String violations = validateRequest(row.request);
+            if (violations != null) {
+                outcome.errors.add(new LedgerImportResponse.RowError(row.rowNumber, row.customerId(), "INVALID_ROW", violations));
+                continue;
+            }
+            candidates.add(row);
+        }
+        if (candidates.isEmpty()) {
+            return outcome;
+        }
+
+        Set<Long> customerIds = candidates.stream().map(ImportRow::customerId).collect(Collectors.toSet());
+        LocalDate minDate = candidates.stream().map(r -> r.request.getTransactionDate()).min(LocalDate::compareTo).get();
+        LocalDate maxDate = candidates.stream().map(r -> r.request.getTransactionDate()).max(LocalDate::compareTo).get();
+
+        Map<Long, Customer> customers = new HashMap<>();
+        // Lock every customer in the chunk so running balances cannot race live writes
+        for (Customer customer : customerLockService.lockCustomers(customerIds)) {
+            customers.put(customer.getId(), customer);
+        }
+
+        Map<Long, Map<LocalDate, BigDecimal>> dailyTotals = ledgerAggregateService.getDailyTotals(customerIds, minDate, maxDate);
+
+        Map<Long, BigDecimal> runningBalances = new HashMap<>();
+        Map<Long, BigDecimal> balanceDeltas = new LinkedHashMap<>();
+        Map<Long, LocalDate> earliestDates = new HashMap<>();
+        List<LedgerEntry> entries = new ArrayList<>(candidates.size());
+
+        for (ImportRow row : candidates) {
+            LedgerEntryCreateRequest request = row.request;
+            Customer customer = customers.get(request.getCustomerId());
+            if (customer == null) {
+                outcome.errors.add(new LedgerImportResponse.RowError(row.rowNumber, request.getCustomerId(),
+                        "CUSTOMER_NOT_FOUND", "Customer not found with id: " + request.getCustomerId()));
+                continue;
+            }
+
+            LedgerEntry entry = new LedgerEntry();
+            entry.setCustomer(customer);
+            entry.setShop(customer.getShop());
+            entry.setTransactionDate(request.getTransactionDate());
+            entry.setTransactionType(request.getTransactionType());
+            entry.setAmount(request.getAmount());
+            entry.setDescription(request.getDescription().trim());
+            entry.setNotes(request.getNotes());
+            entry.setReferenceNumber(request.getReferenceNumber());
+            entry.setInvoiceNumber(request.getInvoiceNumber());
+            entry.setInvoiceDate(request.getInvoiceDate());
+            entry.setPaymentMethod(request.getPaymentMethod());
+            entry.setCreatedBy(currentUser);
+            entry.refreshOutstanding(BigDecimal.ZERO);
+
+            BigDecimal runningBalance = runningBalances.computeIfAbsent(customer.getId(),
+                    id -> customerBalanceService.getCurrentBalance(customer));
+            Map<LocalDate, BigDecimal> customerDailyTotals = dailyTotals.computeIfAbsent(customer.getId(), id -> new HashMap<>());
+            BigDecimal dailyTotal = customerDailyTotals.getOrDefault(entry.getTransactionDate(), BigDecimal.ZERO);
+
+            try {
+                businessRuleService.validateImportedEntry(entry, runningBalance, dailyTotal);
+            } catch (BusinessRuleException e) {
+                outcome.errors.add(new LedgerImportResponse.RowError(row.rowNumber, customer.getId(),
+                        e.getRuleCode(), e.getMessage()));
+                continue;
+            }
+
+            BigDecimal effect = LedgerEntryState.of(entry).getBalanceEffect();
+            BigDecimal newBalance = runningBalance.add(effect);
+            entry.setBalanceAfterTransaction(newBalance);
+
+            runningBalances.put(customer.getId(), newBalance);
+            customerDailyTotals.put(entry.getTransactionDate(), dailyTotal.add(entry.getAmount()));
+            balanceDeltas.merge(customer.getId(), effect, BigDecimal::add);
+            earliestDates.merge(customer.getId(), entry.getTransactionDate(),
+                    (a, b) -> a.isBefore(b) ? a : b);
+            entries.add(entry);
+        }
+
+        if (!entries.isEmpty()) {
+            insertEntries(entries, currentUser);
+            ledgerAggregateService.applyNewEntries(entries);
+            for (Map.Entry<Long, BigDecimal> delta : balanceDeltas.entrySet()) {
+                customerBalanceService.applyDelta(customers.get(delta.getKey()), delta.getValue());
+            }
+            // Running balances above follow upload order; restore date order where rows were backdated
+            for (Map.Entry<Long, LocalDate> earliest : earliestDates.entrySet()) {
+                ledgerRebalanceService.rebalanceIfBackdated(earliest.getKey(), earliest.getValue());
+            }
+        }
+
+        outcome.imported = entries.size();
+        return outcome;
+    }
+
+    private void insertEntries(List<LedgerEntry> entries, User currentUser) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        jdbcTemplate.batchUpdate(INSERT_LEDGER_ENTRY_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setDate(1, Date.valueOf(entry.getTransactionDate()));
+            ps.setString(2, entry.getTransactionType().name());
+            ps.setBigDecimal(3, entry.getAmount());
+            ps.setString(4, entry.getDescription());
+            ps.setString(5, entry.getNotes());
+            ps.setString(6, entry.getReferenceNumber());
+            ps.setString(7, entry.getInvoiceNumber());
+            if (entry.getInvoiceDate() != null) {
+                ps.setDate(8, Date.valueOf(entry.getInvoiceDate()));
+            } else {
+                ps.setNull(8, Types.DATE);
+            }
+            ps.setString(9, entry.getPaymentMethod());
+            ps.setBigDecimal(10, entry.getBalanceAfterTransaction());
+            ps.setBigDecimal(11, entry.getOutstandingAmount());
+            ps.setBoolean(12, entry.isSettled());
+            ps.setLong(13, entry.getCustomer().getId());
+            ps.setLong(14, entry.getShop().getId());
+            ps.setLong(15, currentUser.getId());
+            ps.setTimestamp(16, now);
+            ps.setTimestamp(17, now);
+        });
+    }
+
+    private String validateRequest(LedgerEntryCreateRequest request) {
+        Set<ConstraintViolation<LedgerEntryCreateRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private Map<String, Integer> mapCsvHeader(String[] header) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.length; i++) {
+            // Tolerate a UTF-8 BOM and "Transaction Date" style headings from spreadsheet exports
+            String name = header[i].replace("\uFEFF", "").replaceAll("[\\s_]", "").toLowerCase(Locale.ROOT);
+            columns.put(name, i);
+        }
+        for (String required : new String[]{"customerId", "transactionDate", "transactionType", "amount", "description"}) {
+            if (!columns.containsKey(required.toLowerCase(Locale.ROOT))) {
+                throw new IllegalArgumentException("CSV header is missing required column: " + required);
+            }
+        }
+        return columns;
+    }
+
+    private ImportRow parseCsvRow(long rowNumber, String[] line, Map<String, Integer> columns) {
+        Long customerId = null;
+        try {
+            String customerIdValue = csvValue(line, columns, "customerId");
+            customerId = customerIdValue != null ? Long.valueOf(customerIdValue) : null;
+
+            LedgerEntryCreateRequest request = new LedgerEntryCreateRequest();
+            request.setCustomerId(customerId);
+            request.setTransactionDate(parseDate(csvValue(line, columns, "transactionDate")));
+            String type = csvValue(line, columns, "transactionType");
+            request.setTransactionType(type != null
+                    ? TransactionType.valueOf(type.toUpperCase(Locale.ROOT).replace(' ', '_')) : null);
+            String amount = csvValue(line, columns, "amount");
+            request.setAmount(amount != null ? new BigDecimal(amount) : null);
+            request.setDescription(csvValue(line, columns, "description"));
+            request.setNotes(csvValue(line, columns, "notes"));
+            request.setReferenceNumber(csvValue(line, columns, "referenceNumber"));
+            request.setInvoiceNumber(csvValue(line, columns, "invoiceNumber"));
+            request.setInvoiceDate(parseDate(csvValue(line, columns, "invoiceDate")));
+            request.setPaymentMethod(csvValue(line, columns, "paymentMethod"));
+            return ImportRow.parsed(rowNumber, request);
+        } catch (RuntimeException e) {
+            return ImportRow.failed(rowNumber, customerId, "Invalid row: " + e.getMessage());
+        }
+    }
+
+    private String csvValue(String[] line, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column.toLowerCase(Locale.ROOT));
+        if (index == null || index >= line.length) {
+            return null;
+        }
+        String value = line[index].trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private LocalDate parseDate(String value) {
+        return value != null ? LocalDate.parse(value) : null;
+    }
+
+    /**
+     * Get current authenticated user
+     */
+    private User getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String username = authentication.getName();
+        return userRepository.findByUsernameOrEmail(username)
+                .orElseThrow(() -> new RuntimeException("Current user not found"));
+    }
+
+    /**
+     * Buffers streamed rows into chunks and accumulates the overall result
+     */
+    private class ImportRun {
+        private final User currentUser;
+        private final long startTime = System.currentTimeMillis();
+        private final List<ImportRow> chunk = new ArrayList<>();
+        private final LedgerImportResponse response = new LedgerImportResponse();
+
+        ImportRun(User currentUser) {
+            this.currentUser = currentUser;
+        }
+
+        void accept(ImportRow row) {
+            chunk.add(row);
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        LedgerImportResponse finish() {
+            flush();
+            response.setDurationMs(System.currentTimeMillis() - startTime);
+
+            logger.info("Ledger import finished: {} rows, {} imported, {} failed in {} ms",
+                    response.getTotalRows(), response.getImportedRows(), response.getFailedRows(),
+                    response.getDurationMs());
+            auditService.logSuccess("IMPORT_LEDGER_ENTRIES", "LEDGER_ENTRY", null,
+                    null, null,
+                    String.format("Imported %d of %d ledger entries (%d failed) in %d ms",
+                            response.getImportedRows(), response.getTotalRows(),
+                            response.getFailedRows(), response.getDurationMs()),
+                    currentUser);
+            return response;
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+
+            ChunkOutcome outcome;
+            try {
+                outcome = transactionTemplate.execute(status -> processChunk(chunk, currentUser));
+            } catch (RuntimeException e) {
+                // The whole chunk was rolled back; report every row in it
+                logger.warn("Ledger import chunk of {} rows rolled back: {}", chunk.size(), e.getMessage());
+                String ruleCode = e instanceof BusinessRuleException ? ((BusinessRuleException) e).getRuleCode() : "CHUNK_FAILED";
+                outcome = new ChunkOutcome();
+                for (ImportRow row : chunk) {
+                    outcome.errors.add(new LedgerImportResponse.RowError(row.rowNumber, row.customerId(),
+                            ruleCode, "Chunk rolled back: " + e.getMessage()));
+                }
+            }
+
+            response.setTotalRows(response.getTotalRows() + chunk.size());
+            response.setImportedRows(response.getImportedRows() + outcome.imported);
+            response.setFailedRows(response.getFailedRows() + outcome.errors.size());
+            for (LedgerImportResponse.RowError error : outcome.errors) {
+                if (response.getErrors().size() < maxReportedErrors) {
+                    response.getErrors().add(error);
+                } else {
+                    response.setErrorsTruncated(true);
+                    break;
+                }
+            }
+            chunk.clear();
+        }
+    }
+
+    /**
+     * A parsed upload row, or the reason it could not be parsed
+     */
+    private static class ImportRow {
+        private final long rowNumber;
+        private final LedgerEntryCreateRequest request;
+        private final Long failedCustomerId;
+        private final String error;
+
+        private ImportRow(long rowNumber, LedgerEntryCreateRequest request, Long failedCustomerId, String error) {
+            this.rowNumber = rowNumber;
+            this.request = request;
+            this.failedCustomerId = failedCustomerId;
+            this.error = error;
+        }
+
+        static ImportRow parsed(long rowNumber, LedgerEntryCreateRequest request) {
+            return new ImportRow(rowNumber, request, null, null);
+        }
+
+        static ImportRow failed(long rowNumber, Long customerId, String error) {
+            return new ImportRow(rowNumber, null, customerId, error);
+        }
+
+        Long customerId() {
+            return request != null ? request.getCustomerId() : failedCustomerId;
+        }
+    }
+
+    private static class ChunkOutcome {
+        private int imported;
+        private final List<LedgerImportResponse.RowError> errors = new ArrayList<>();
+    }
+}
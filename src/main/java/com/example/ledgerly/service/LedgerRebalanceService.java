@@ -0,0 +1,272 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.LedgerEntry;
+import com.example.ledgerly.repository.CustomerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps LedgerEntry.balanceAfterTransaction consistent when history changes.
+ *
+ * Running balances are ordered by (transaction_date, id). When an entry is backdated, edited or deleted,
+ * only the suffix of the customer's history from the first affected date can change. That suffix is
+ * rewritten with one set-based UPDATE driven by a window SUM, seeded from the stored balance of the last
+ * entry before the affected date; rows whose balance is already correct are not touched.
+ */
+@Service
+@Transactional
+public class LedgerRebalanceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerRebalanceService.class);
+    private static final int CUSTOMER_BATCH_SIZE = 500;
+    private static final int MAX_REPORTED_DIFFS = 100;
+    // Earliest DATE MySQL accepts; used when the whole history is rebalanced
+    private static final LocalDate HISTORY_START = LocalDate.of(1000, 1, 1);
+
+    private static final String SIGNED_AMOUNT_SQL =
+        "CASE WHEN transaction_type IN ('CREDIT', 'OPENING_BALANCE') THEN amount ELSE -amount END";
+
+    private static final String RUNNING_BALANCE_SQL =
+        "SELECT id, transaction_date, balance_after_transaction, " +
+        "? + SUM(" + SIGNED_AMOUNT_SQL + ") OVER (ORDER BY transaction_date, id " +
+        "ROWS BETWEEN UNBOUNDED PRECEDING AND CURRENT ROW) AS running_balance " +
+        "FROM ledger_entries WHERE customer_id = ? AND is_active = true AND transaction_date >= ?";
+
+    private static final String REBALANCE_SQL =
+        "UPDATE ledger_entries le JOIN (" + RUNNING_BALANCE_SQL + ") r ON r.id = le.id " +
+        "SET le.balance_after_transaction = r.running_balance " +
+        "WHERE le.balance_after_transaction IS NULL OR le.balance_after_transaction <> r.running_balance";
+
+    private static final String DIFF_SQL =
+        "SELECT id, transaction_date, balance_after_transaction, running_balance FROM (" + RUNNING_BALANCE_SQL + ") r " +
+        "WHERE balance_after_transaction IS NULL OR balance_after_transaction <> running_balance " +
+        "ORDER BY transaction_date, id";
+
+    private static final String PRIOR_BALANCE_SQL =
+        "SELECT balance_after_transaction FROM ledger_entries " +
+        "WHERE customer_id = ? AND is_active = true AND transaction_date < ? " +
+        "ORDER BY transaction_date DESC, id DESC LIMIT 1";
+
+    private static final String LATER_ENTRY_EXISTS_SQL =
+        "SELECT EXISTS (SELECT 1 FROM ledger_entries " +
+        "WHERE customer_id = ? AND is_active = true AND transaction_date > ?)";
+
+    private static final String STORED_BALANCE_SQL =
+        "SELECT balance_after_transaction FROM ledger_entries WHERE id = ?";
+
+    private final CustomerRepository customerRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final LedgerAggregateService ledgerAggregateService;
+    private final CustomerLockService customerLockService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public LedgerRebalanceService(CustomerRepository customerRepository, JdbcTemplate jdbcTemplate,
+                                  LedgerAggregateService ledgerAggregateService,
+                                  CustomerLockService customerLockService,
+                                  PlatformTransactionManager transactionManager) {
+        this.customerRepository = customerRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.ledgerAggregateService = ledgerAggregateService;
+        this.customerLockService = customerLockService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Rewrite running balances of a customer's active entries dated on or after fromDate
+     *
+     * @param fromDate first affected transaction date, or null to rebalance the whole history
+     * @return number of entries whose stored balance changed
+     */
+    public int rebalanceFrom(Long customerId, LocalDate fromDate) {
+        LocalDate startDate = fromDate != null ? fromDate : HISTORY_START;
+        BigDecimal openingBalance = openingBalance(customerId, startDate);
+
+        int updated = jdbcTemplate.update(REBALANCE_SQL, openingBalance, customerId, Date.valueOf(startDate));
+        if (updated > 0) {
+            logger.debug("Rebalanced {} ledger entries of customer {} from {}", updated, customerId, startDate);
+        }
+        return updated;
+    }
+
+    /**
+     * Rebalance after an entry was posted on a date that already has later entries (backdated entry)
+     */
+    public int rebalanceIfBackdated(Long customerId, LocalDate transactionDate) {
+        Boolean hasLaterEntries = jdbcTemplate.queryForObject(LATER_ENTRY_EXISTS_SQL, Boolean.class,
+                customerId, Date.valueOf(transactionDate));
+        return Boolean.TRUE.equals(hasLaterEntries) ? rebalanceFrom(customerId, transactionDate) : 0;
+    }
+
+    /**
+     * Rebalance after an entry changed from the given state to its current state
+     */
+    public int rebalanceAfterChange(LedgerEntryState before, LedgerEntryState after) {
+        boolean balanceRelevantChange = before.isActive() != after.isActive()
+                || before.getBalanceEffect().compareTo(after.getBalanceEffect()) != 0
+                || !before.getTransactionDate().equals(after.getTransactionDate());
+        if (!balanceRelevantChange) {
+            return 0;
+        }
+
+        LocalDate fromDate = before.getTransactionDate().isBefore(after.getTransactionDate())
+                ? before.getTransactionDate() : after.getTransactionDate();
+        return rebalanceFrom(after.getCustomerId(), fromDate);
+    }
+
+    /**
+     * Copy the rebalanced running balance back onto an entry loaded in the current session
+     */
+    public void refreshRunningBalance(LedgerEntry entry) {
+        entry.setBalanceAfterTransaction(jdbcTemplate.queryForObject(STORED_BALANCE_SQL, BigDecimal.class, entry.getId()));
+    }
+
+    /**
+     * Report (and unless dryRun, fix) stale running balances.
+     * Each customer is checked in its own transaction under its customer lock, so live ledger writes cannot
+     * interleave with the diff and the rewrite, and row locks are held for one customer at a time.
+     *
+     * @param customerId customer to check, or null for every customer
+     * @param fromDate   first date to check, or null for the whole history
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public RebalanceResult rebalance(Long customerId, LocalDate fromDate, boolean dryRun) {
+        long startTime = System.currentTimeMillis();
+        RebalanceResult result = new RebalanceResult(dryRun);
+
+        if (customerId != null) {
+            rebalanceCustomer(customerId, fromDate, dryRun, result);
+        } else {
+            Long afterId = 0L;
+            while (true) {
+                List<Object[]> batch = customerRepository.findBalanceSnapshotAfter(afterId, PageRequest.of(0, CUSTOMER_BATCH_SIZE));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (Object[] row : batch) {
+                    rebalanceCustomer((Long) row[0], fromDate, dryRun, result);
+                }
+                afterId = (Long) batch.get(batch.size() - 1)[0];
+            }
+        }
+
+        result.durationMs = System.currentTimeMillis() - startTime;
+        logger.info("Running balance {} checked {} customers: {} stale entries in {} ms",
+                dryRun ? "dry run" : "rebalance", result.customersChecked, result.staleEntries, result.durationMs);
+        return result;
+    }
+
+    private void rebalanceCustomer(Long customerId, LocalDate fromDate, boolean dryRun, RebalanceResult result) {
+        transactionTemplate.executeWithoutResult(status -> {
+            customerLockService.lockCustomer(customerId);
+            checkCustomer(customerId, fromDate, dryRun, result);
+        });
+        result.customersChecked++;
+    }
+
+    private void checkCustomer(Long customerId, LocalDate fromDate, boolean dryRun, RebalanceResult result) {
+        LocalDate startDate = fromDate != null ? fromDate : HISTORY_START;
+        BigDecimal openingBalance = openingBalance(customerId, startDate);
+
+        long[] stale = {0};
+        jdbcTemplate.query(DIFF_SQL, rs -> {
+            stale[0]++;
+            if (result.diffs.size() < MAX_REPORTED_DIFFS) {
+                result.diffs.add(new BalanceDiff(rs.getLong("id"), customerId,
+                        rs.getDate("transaction_date").toLocalDate(),
+                        rs.getBigDecimal("balance_after_transaction"),
+                        rs.getBigDecimal("running_balance")));
+            }
+        }, openingBalance, customerId, Date.valueOf(startDate));
+
+        if (stale[0] > 0) {
+            result.staleEntries += stale[0];
+            if (!dryRun) {
+                result.updatedEntries += jdbcTemplate.update(REBALANCE_SQL, openingBalance, customerId, Date.valueOf(startDate));
+            }
+        }
+    }
+
+    /**
+     * Balance just before startDate: the stored balance of the previous entry, which rebalancing keeps
+     * correct, falling back to the monthly checkpoints when that entry predates running balances
+     */
+    private BigDecimal openingBalance(Long customerId, LocalDate startDate) {
+        if (HISTORY_START.equals(startDate)) {
+            return BigDecimal.ZERO;
+        }
+
+        List<BigDecimal> prior = jdbcTemplate.query(PRIOR_BALANCE_SQL,
+                (rs, rowNum) -> rs.getBigDecimal(1), customerId, Date.valueOf(startDate));
+        if (prior.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+        if (prior.get(0) != null) {
+            return prior.get(0);
+        }
+        return ledgerAggregateService.getBalanceBefore(customerId, startDate);
+    }
+
+    /**
+     * An entry whose stored running balance differs from the recomputed one
+     */
+    public static class BalanceDiff {
+        private final Long entryId;
+        private final Long customerId;
+        private final LocalDate transactionDate;
+        private final BigDecimal storedBalance;
+        private final BigDecimal expectedBalance;
+
+        public BalanceDiff(Long entryId, Long customerId, LocalDate transactionDate,
+                           BigDecimal storedBalance, BigDecimal expectedBalance) {
+            this.entryId = entryId;
+            this.customerId = customerId;
+            this.transactionDate = transactionDate;
+            this.storedBalance = storedBalance;
+            this.expectedBalance = expectedBalance;
+        }
+
+        public Long getEntryId() { return entryId; }
+        public Long getCustomerId() { return customerId; }
+        public LocalDate getTransactionDate() { return transactionDate; }
+        public BigDecimal getStoredBalance() { return storedBalance; }
+        public BigDecimal getExpectedBalance() { return expectedBalance; }
+    }
+
+    /**
+     * Outcome of a rebalance or dry run
+     */
+    public static class RebalanceResult {
+        private final boolean dryRun;
+        private long customersChecked;
+        private long staleEntries;
+        private long updatedEntries;
+        private long durationMs;
+        private final List<BalanceDiff> diffs = new ArrayList<>();
+
+        public RebalanceResult(boolean dryRun) {
+            this.dryRun = dryRun;
+        }
+
+        public boolean isDryRun() { return dryRun; }
+        public long getCustomersChecked() { return customersChecked; }
+        public long getStaleEntries() { return staleEntries; }
+        public long getUpdatedEntries() { return updatedEntries; }
+        public long getDurationMs() { return durationMs; }
+        public List<BalanceDiff> getDiffs() { return diffs; }
+    }
+}
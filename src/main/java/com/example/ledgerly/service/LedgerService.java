@@ -5,11 +5,12 @@ import com.example.ledgerly.entity.*;
 import com.example.ledgerly.exception.BusinessRuleException;
 import com.example.ledgerly.repository.CustomerRepository;
 import com.example.ledgerly.repository.LedgerEntryRepository;
+import com.example.ledgerly.repository.PaymentApplicationRepository;
+import com.example.ledgerly.repository.ShopRepository;
 import com.example.ledgerly.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -36,6 +37,13 @@ public class LedgerService {
     private final FileUploadService fileUploadService;
     private final BusinessRuleService businessRuleService;
     private final AuditService auditService;
+    private final CustomerBalanceService customerBalanceService;
+    private final LedgerRebalanceService ledgerRebalanceService;
+    private final CustomerLockService customerLockService;
+    private final ShopRepository shopRepository;
+    private final LedgerAggregateService ledgerAggregateService;
+    private final LedgerEntryReadService ledgerEntryReadService;
+    private final PaymentApplicationRepository paymentApplicationRepository;
 
     @Autowired
     public LedgerService(LedgerEntryRepository ledgerEntryRepository,
@@ -43,13 +51,27 @@ public class LedgerService {
                         UserRepository userRepository,
                         FileUploadService fileUploadService,
                         BusinessRuleService businessRuleService,
-                        AuditService auditService) {
+                        AuditService auditService,
+                        CustomerBalanceService customerBalanceService,
+                        LedgerRebalanceService ledgerRebalanceService,
+                        CustomerLockService customerLockService,
+                        ShopRepository shopRepository,
+                        LedgerAggregateService ledgerAggregateService,
+                        LedgerEntryReadService ledgerEntryReadService,
+                        PaymentApplicationRepository paymentApplicationRepository) {
         this.ledgerEntryRepository = ledgerEntryRepository;
         this.customerRepository = customerRepository;
         this.userRepository = userRepository;
         this.fileUploadService = fileUploadService;
         this.businessRuleService = businessRuleService;
         this.auditService = auditService;
+        this.customerBalanceService = customerBalanceService;
+        this.ledgerRebalanceService = ledgerRebalanceService;
+        this.customerLockService = customerLockService;
+        this.shopRepository = shopRepository;
+        this.ledgerAggregateService = ledgerAggregateService;
+        this.ledgerEntryReadService = ledgerEntryReadService;
+        this.paymentApplicationRepository = paymentApplicationRepository;
     }
 
     /**
@@ -60,13 +82,13 @@ public class LedgerService {
         User currentUser = getCurrentUser();
 
         try {
-            // Validate customer
-            Customer customer = customerRepository.findById(request.getCustomerId())
-                    .orElseThrow(() -> new RuntimeException("Customer not found with id: " + request.getCustomerId()));
+            // Validate customer and serialize writes for it until commit
+            Customer customer = customerLockService.lockCustomer(request.getCustomerId());
 
             // Create new ledger entry for validation
             LedgerEntry ledgerEntry = new LedgerEntry();
             ledgerEntry.setCustomer(customer);
+            ledgerEntry.setShop(customer.getShop());
             ledgerEntry.setTransactionDate(request.getTransactionDate());
             ledgerEntry.setTransactionType(request.getTransactionType());
             ledgerEntry.setAmount(request.getAmount());
@@ -81,17 +103,9 @@ public class LedgerService {
             // Apply business rule validations
             businessRuleService.validateLedgerEntryCreation(ledgerEntry, currentUser);
 
-            // Calculate and set balance after transaction
-            BigDecimal currentBalance = calculateCurrentBalanceForCustomer(customer.getId());
-            BigDecimal newBalance;
-            
-            if (ledgerEntry.isCredit()) {
-                newBalance = currentBalance.add(request.getAmount());
-            } else {
-                newBalance = currentBalance.subtract(request.getAmount());
-            }
-            
-            ledgerEntry.setBalanceAfterTransaction(newBalance);
+            // Balance after transaction comes from the maintained customer balance, not a SUM over history
+            ledgerEntry.setBalanceAfterTransaction(customerBalanceService.projectBalance(customer, ledgerEntry));
+            ledgerEntry.refreshOutstanding(BigDecimal.ZERO);
 
             // Create audit snapshot before saving
             Map<String, Object> auditSnapshot = auditService.createAuditSnapshot(ledgerEntry);
@@ -99,9 +113,14 @@ public class LedgerService {
             // Save ledger entry
             LedgerEntry savedEntry = ledgerEntryRepository.save(ledgerEntry);
 
-            // Update customer's current balance
-            customer.setCurrentBalance(newBalance);
-            customerRepository.save(customer);
+            // Update customer's current balance by delta
+            customerBalanceService.applyEntryChange(customer, null, savedEntry);
+            ledgerAggregateService.applyEntryChange(null, LedgerEntryState.of(savedEntry));
+
+            // A backdated entry shifts the running balance of every later entry
+            if (ledgerRebalanceService.rebalanceIfBackdated(customer.getId(), savedEntry.getTransactionDate()) > 0) {
+                ledgerRebalanceService.refreshRunningBalance(savedEntry);
+            }
 
             // Log successful creation
             auditService.logSuccess("CREATE_LEDGER_ENTRY", "LEDGER_ENTRY", savedEntry.getId(),
@@ -151,13 +170,55 @@ public class LedgerService {
 
             // Update response with attachments
             response.setAttachments(attachments.stream()
-                    .map(this::convertToAttachmentResponse)
+                    .map(LedgerEntryReadService::toAttachmentResponse)
                     .collect(Collectors.toList()));
         }
 
         return response;
     }
 
+    /**
+     * Record a customer purchase as a DEBIT ledger entry
+     */
+    public LedgerEntryResponse recordPurchase(PurchaseRequest request) {
+        Customer customer = customerLockService.lockCustomer(request.getCustomerId());
+        Shop shop = shopRepository.findById(request.getShopId())
+                .orElseThrow(() -> new RuntimeException("Shop not found with ID: " + request.getShopId()));
+        User currentUser = getCurrentUser();
+
+        LedgerEntry debitEntry = new LedgerEntry();
+        debitEntry.setCustomer(customer);
+        debitEntry.setShop(shop);
+        debitEntry.setTransactionDate(request.getTransactionDate());
+        debitEntry.setDescription(request.getDescription());
+        debitEntry.setAmount(request.getAmount());
+        debitEntry.setTransactionType(TransactionType.DEBIT); // This creates debt
+        debitEntry.setReferenceNumber("PUR-" + System.currentTimeMillis());
+        // Category is not stored in LedgerEntry entity
+        debitEntry.setNotes(request.getNotes());
+        debitEntry.setActive(true);
+        debitEntry.setCreatedBy(currentUser);
+        debitEntry.setUpdatedBy(currentUser);
+        debitEntry.setBalanceAfterTransaction(customerBalanceService.projectBalance(customer, debitEntry));
+        debitEntry.refreshOutstanding(BigDecimal.ZERO);
+
+        LedgerEntry savedEntry = ledgerEntryRepository.save(debitEntry);
+
+        customerBalanceService.applyEntryChange(customer, null, savedEntry);
+        ledgerAggregateService.applyEntryChange(null, LedgerEntryState.of(savedEntry));
+        if (ledgerRebalanceService.rebalanceIfBackdated(customer.getId(), savedEntry.getTransactionDate()) > 0) {
+            ledgerRebalanceService.refreshRunningBalance(savedEntry);
+        }
+
+        auditService.logSuccess("CREATE_DEBIT_ENTRY", "LEDGER_ENTRY", savedEntry.getId(),
+                null, auditService.createAuditSnapshot(savedEntry),
+                String.format("Created DEBIT ledger entry for purchase: %s - Amount: %s",
+                            request.getDescription(), request.getAmount()),
+                currentUser);
+
+        return convertToResponse(savedEntry);
+    }
+
     /**
      * Get ledger entry by ID
      */
@@ -174,11 +235,13 @@ public class LedgerService {
         User currentUser = getCurrentUser();
         
         try {
+            lockCustomerOfEntry(id);
             LedgerEntry existingEntry = ledgerEntryRepository.findById(id)
                     .orElseThrow(() -> new RuntimeException("Ledger entry not found with id: " + id));
 
             // Create audit snapshot of old values
             Map<String, Object> oldValues = auditService.createAuditSnapshot(existingEntry);
+            LedgerEntryState before = LedgerEntryState.of(existingEntry);
 
             // Create updated entry for validation
             LedgerEntry updatedEntry = new LedgerEntry();
@@ -232,13 +295,26 @@ public class LedgerService {
 
             existingEntry.setUpdatedBy(currentUser);
 
-            // Recalculate balance if amount or type changed
-            if (request.getAmount() != null || request.getTransactionType() != null) {
-                recalculateCustomerBalance(existingEntry.getCustomer().getId());
+            // Amount, type or active state decide what is still owed on the entry
+            LedgerEntryState after = LedgerEntryState.of(existingEntry);
+            if (before.getAmount().compareTo(after.getAmount()) != 0
+                    || before.getTransactionType() != after.getTransactionType()
+                    || before.isActive() != after.isActive()) {
+                existingEntry.refreshOutstanding(paymentApplicationRepository.calculateTotalAppliedForLedgerEntry(id));
             }
 
             LedgerEntry savedEntry = ledgerEntryRepository.save(existingEntry);
 
+            // Adjust balance by the difference between old and new amount/type/active state
+            customerBalanceService.applyEntryChange(savedEntry.getCustomer(), before, savedEntry);
+            ledgerAggregateService.applyEntryChange(before, LedgerEntryState.of(savedEntry));
+
+            // Rewrite running balances from the earliest date the change touches
+            ledgerEntryRepository.flush();
+            if (ledgerRebalanceService.rebalanceAfterChange(before, LedgerEntryState.of(savedEntry)) > 0) {
+                ledgerRebalanceService.refreshRunningBalance(savedEntry);
+            }
+
             // Create audit snapshot of new values
             Map<String, Object> newValues = auditService.createAuditSnapshot(savedEntry);
 
@@ -271,6 +347,7 @@ public class LedgerService {
         User currentUser = getCurrentUser();
         
         try {
+            lockCustomerOfEntry(id);
             LedgerEntry ledgerEntry = ledgerEntryRepository.findById(id)
                     .orElseThrow(() -> new RuntimeException("Ledger entry not found with id: " + id));
 
@@ -279,13 +356,17 @@ public class LedgerService {
 
             // Create audit snapshot before deletion
             Map<String, Object> oldValues = auditService.createAuditSnapshot(ledgerEntry);
+            LedgerEntryState before = LedgerEntryState.of(ledgerEntry);
 
             ledgerEntry.setActive(false);
+            ledgerEntry.refreshOutstanding(BigDecimal.ZERO);
             ledgerEntry.setUpdatedBy(currentUser);
             LedgerEntry deletedEntry = ledgerEntryRepository.save(ledgerEntry);
 
-            // Recalculate customer balance
-            recalculateCustomerBalance(ledgerEntry.getCustomer().getId());
+            // Reverse the entry's effect on the customer balance
+            customerBalanceService.applyEntryChange(deletedEntry.getCustomer(), before, deletedEntry);
+            ledgerAggregateService.applyEntryChange(before, LedgerEntryState.of(deletedEntry));
+            ledgerRebalanceService.rebalanceAfterChange(before, LedgerEntryState.of(deletedEntry));
 
             // Log successful deletion
             auditService.logSuccess("DELETE_LEDGER_ENTRY", "LEDGER_ENTRY", deletedEntry.getId(),
@@ -315,11 +396,16 @@ public class LedgerService {
         Sort sort = sortDir.equalsIgnoreCase("desc") ? 
                 Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
         
-        Pageable pageable = PageRequest.of(page, size, sort);
-        Page<LedgerEntry> entries = ledgerEntryRepository.findByCustomerIdAndIsActiveTrueOrderByTransactionDateDesc(
-                customerId, pageable);
-        
-        return entries.map(this::convertToResponse);
+        return ledgerEntryReadService.getEntriesForCustomer(customerId, PageRequest.of(page, size, sort));
+    }
+
+    /**
+     * Get ledger entries for a customer by keyset, newest first, continuing after the given cursor
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<LedgerEntryResponse> getLedgerEntriesForCustomerAfter(Long customerId, String after,
+                                                                           int size, boolean includeTotal) {
+        return ledgerEntryReadService.getEntriesForCustomerAfter(customerId, after, size, includeTotal);
     }
 
     /**
@@ -334,13 +420,9 @@ public class LedgerService {
         Sort sort = sortDir.equalsIgnoreCase("desc") ? 
                 Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
         
-        Pageable pageable = PageRequest.of(page, size, sort);
-        
-        Page<LedgerEntry> entries = ledgerEntryRepository.searchLedgerEntries(
-                customerId, transactionType, startDate, endDate, minAmount, maxAmount,
-                description, referenceNumber, invoiceNumber, isReconciled, pageable);
-        
-        return entries.map(this::convertToResponse);
+        return ledgerEntryReadService.searchEntries(customerId, transactionType, startDate, endDate,
+                minAmount, maxAmount, description, referenceNumber, invoiceNumber, isReconciled,
+                PageRequest.of(page, size, sort));
     }
 
     /**
@@ -350,26 +432,19 @@ public class LedgerService {
         Customer customer = customerRepository.findById(customerId)
                 .orElseThrow(() -> new RuntimeException("Customer not found with id: " + customerId));
 
-        BigDecimal totalCredit = ledgerEntryRepository.calculateTotalCreditForCustomer(customerId);
-        BigDecimal totalDebit = ledgerEntryRepository.calculateTotalDebitForCustomer(customerId);
-        BigDecimal currentBalance = ledgerEntryRepository.calculateCurrentBalanceForCustomer(customerId);
-
-        long totalTransactions = ledgerEntryRepository.countByTransactionTypeAndIsActiveTrue(TransactionType.CREDIT) +
-                               ledgerEntryRepository.countByTransactionTypeAndIsActiveTrue(TransactionType.DEBIT);
+        // Totals come from the monthly checkpoints rather than scans over the customer's history
+        LedgerAggregateService.PeriodSummary lifetime = ledgerAggregateService.getLifetimeSummary(customerId);
 
         return new CustomerBalanceSummary(customer.getId(), customer.getName(), 
-                totalCredit, totalDebit, currentBalance, totalTransactions,
-                customer.getCreditLimit());
+                lifetime.getTotalCredit(), lifetime.getTotalDebit(), lifetime.getClosingBalance(),
+                lifetime.getEntryCount(), customer.getCreditLimit());
     }
 
     /**
      * Get unreconciled entries for a customer
      */
     public List<LedgerEntryResponse> getUnreconciledEntries(Long customerId) {
-        List<LedgerEntry> entries = ledgerEntryRepository.findByCustomerIdAndIsReconciledFalseAndIsActiveTrueOrderByTransactionDateDesc(customerId);
-        return entries.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return ledgerEntryReadService.getUnreconciledEntries(customerId);
     }
 
     /**
@@ -403,26 +478,8 @@ public class LedgerService {
     }
 
     /**
-     * Calculate current balance for a customer
-     */
-    private BigDecimal calculateCurrentBalanceForCustomer(Long customerId) {
-        return ledgerEntryRepository.calculateCurrentBalanceForCustomer(customerId);
-    }
-
-    /**
-     * Recalculate and update customer balance
-     */
-    private void recalculateCustomerBalance(Long customerId) {
-        BigDecimal newBalance = calculateCurrentBalanceForCustomer(customerId);
-        Customer customer = customerRepository.findById(customerId)
-                .orElseThrow(() -> new RuntimeException("Customer not found with id: " + customerId));
-        
-        customer.setCurrentBalance(newBalance);
-        customerRepository.save(customer);
-    }
-
-    /**
-     * Convert LedgerEntry entity to LedgerEntryResponse DTO
+     * Convert a single LedgerEntry entity to LedgerEntryResponse DTO.
+     * Listings use the projections and LedgerEntryReadService instead, which avoid the per-row lazy loads.
      */
     private LedgerEntryResponse convertToResponse(LedgerEntry entry) {
         LedgerEntryResponse response = new LedgerEntryResponse();
@@ -451,7 +508,7 @@ public class LedgerService {
         if (entry.getAttachments() != null && !entry.getAttachments().isEmpty()) {
             response.setAttachments(entry.getAttachments().stream()
                     .filter(DocumentAttachment::isActive)
-                    .map(this::convertToAttachmentResponse)
+                    .map(LedgerEntryReadService::toAttachmentResponse)
                     .collect(Collectors.toList()));
         }
 
@@ -459,21 +516,12 @@ public class LedgerService {
     }
 
     /**
-     * Convert DocumentAttachment to DocumentAttachmentResponse
+     * Lock the customer owning an entry before the entry itself is read, so its state cannot change underneath us
      */
-    private DocumentAttachmentResponse convertToAttachmentResponse(DocumentAttachment attachment) {
-        DocumentAttachmentResponse response = new DocumentAttachmentResponse();
-        response.setId(attachment.getId());
-        response.setFileName(attachment.getFileName());
-        response.setOriginalFileName(attachment.getOriginalFileName());
-        response.setContentType(attachment.getContentType());
-        response.setFileSize(attachment.getFileSize());
-        response.setDescription(attachment.getDescription());
-        response.setActive(attachment.isActive());
-        response.setUploadedAt(attachment.getUploadedAt());
-        response.setUploadedByUsername(attachment.getUploadedBy().getUsername());
-        response.setDownloadUrl("/api/v1/files/download/" + attachment.getId());
-        return response;
+    private void lockCustomerOfEntry(Long entryId) {
+        Long customerId = ledgerEntryRepository.findCustomerIdById(entryId)
+                .orElseThrow(() -> new RuntimeException("Ledger entry not found with id: " + entryId));
+        customerLockService.lockCustomer(customerId);
     }
 
     /**
@@ -0,0 +1,309 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.PaymentStatus;
+import com.example.ledgerly.entity.RollupSource;
+import com.example.ledgerly.entity.User;
+import com.example.ledgerly.exception.BusinessRuleException;
+import com.example.ledgerly.repository.PaymentRepository;
+import com.example.ledgerly.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Marks PENDING and PARTIAL payments whose due date has passed as OVERDUE.
+ *
+ * Candidates are read per status in keyset-paged chunks ordered by (due_date, id), which
+ * idx_payments_status_due serves without scanning settled history. Each chunk runs in its own
+ * transaction: the chunk's customers are locked, the still-eligible rows are re-read, flipped with one
+ * UPDATE, the payment rollups move by one delta, and the audit rows go in as one batch.
+ */
+@Service
+public class OverdueDetectionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OverdueDetectionService.class);
+    private static final List<PaymentStatus> CANDIDATE_STATUSES = List.of(PaymentStatus.PENDING, PaymentStatus.PARTIAL);
+
+    private final PaymentRepository paymentRepository;
+    private final UserRepository userRepository;
+    private final CustomerLockService customerLockService;
+    private final LedgerAggregateService ledgerAggregateService;
+    private final AuditService auditService;
+    private final TransactionTemplate transactionTemplate;
+
+    // Only one run at a time; the progress fields below describe the current (or last) run
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile LocalDateTime runStartedAt;
+    private volatile long scanned;
+    private volatile long marked;
+    private volatile int chunks;
+    private volatile OverdueRunResult lastResult;
+
+    @Value("${app.payments.overdue.chunk-size:1000}")
+    private int chunkSize;
+
+    @Autowired
+    public OverdueDetectionService(PaymentRepository paymentRepository,
+                                   UserRepository userRepository,
+                                   CustomerLockService customerLockService,
+                                   LedgerAggregateService ledgerAggregateService,
+                                   AuditService auditService,
+                                   PlatformTransactionManager transactionManager) {
+        this.paymentRepository = paymentRepository;
+        this.userRepository = userRepository;
+        this.customerLockService = customerLockService;
+        this.ledgerAggregateService = ledgerAggregateService;
+        this.auditService = auditService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Mark every active PENDING or PARTIAL payment due before today as OVERDUE
+     */
+    public OverdueRunResult detectOverduePayments() {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessRuleException("OVERDUE_RUN_IN_PROGRESS", "An overdue check is already in progress");
+        }
+
+        try {
+            return detectAll(LocalDate.now());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Daily safety-net rescan (scheduled task); OverdueScheduler marks payments as they fall due
+     */
+    @Scheduled(cron = "${app.payments.overdue.cron:0 0 9 * * ?}")
+    public void scheduledOverdueCheck() {
+        try {
+            detectOverduePayments();
+        } catch (Exception e) {
+            logger.error("Scheduled overdue check failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Progress of the running check, or the totals of the last one when idle
+     */
+    public OverdueRunProgress getProgress() {
+        long elapsedMs = runStartedAt != null && running.get()
+                ? ChronoUnit.MILLIS.between(runStartedAt, LocalDateTime.now()) : 0;
+        return new OverdueRunProgress(running.get(), runStartedAt, scanned, marked, chunks, elapsedMs, lastResult);
+    }
+
+    /**
+     * Mark the given payments OVERDUE if they are still PENDING or PARTIAL and past due, in one transaction.
+     * Used by OverdueScheduler when payments reach their due time; payments paid or cancelled in the meantime
+     * are skipped.
+     *
+     * @param customerIds customers of the given payments, locked before the payments are re-read
+     * @return number of payments marked overdue
+     */
+    public int markOverdue(Collection<Long> paymentIds, Collection<Long> customerIds) {
+        if (paymentIds.isEmpty()) {
+            return 0;
+        }
+        User runUser = getRunUser();
+        LocalDate today = LocalDate.now();
+        Integer count = transactionTemplate.execute(tx -> markEligible(paymentIds, customerIds, today, runUser));
+        return count != null ? count : 0;
+    }
+
+    private OverdueRunResult detectAll(LocalDate today) {
+        User runUser = getRunUser();
+        runStartedAt = LocalDateTime.now();
+        scanned = 0;
+        marked = 0;
+        chunks = 0;
+        long startTime = System.currentTimeMillis();
+
+        try {
+            for (PaymentStatus status : CANDIDATE_STATUSES) {
+                LocalDate afterDate = null;
+                Long afterId = null;
+                while (true) {
+                    LocalDate cursorDate = afterDate;
+                    Long cursorId = afterId;
+                    ChunkOutcome outcome = transactionTemplate.execute(
+                            tx -> processChunk(status, today, cursorDate, cursorId, runUser));
+                    if (outcome == null || outcome.scanned == 0) {
+                        break;
+                    }
+                    scanned += outcome.scanned;
+                    marked += outcome.marked;
+                    chunks++;
+                    afterDate = outcome.lastDueDate;
+                    afterId = outcome.lastId;
+                }
+            }
+        } catch (RuntimeException e) {
+            auditService.logFailure("OVERDUE_CHECK_FAILED", "SYSTEM", null,
+                    e.getMessage(),
+                    String.format("Overdue check failed after %d chunks, %d payments marked overdue", chunks, marked),
+                    runUser);
+            throw e;
+        }
+
+        long durationMs = System.currentTimeMillis() - startTime;
+        lastResult = new OverdueRunResult(scanned, marked, chunks, durationMs);
+        logger.info("Overdue check scanned {} payments in {} chunks, marked {} overdue in {} ms",
+                scanned, chunks, marked, durationMs);
+        auditService.logSuccess("OVERDUE_CHECK_COMPLETED", "SYSTEM", null,
+                null, null,
+                String.format("Checked for overdue payments, marked %d payments as overdue (%d scanned, %d ms)",
+                        marked, scanned, durationMs),
+                runUser);
+        return lastResult;
+    }
+
+    private ChunkOutcome processChunk(PaymentStatus status, LocalDate today, LocalDate afterDate, Long afterId,
+                                      User runUser) {
+        List<Object[]> candidates = paymentRepository.findOverdueCandidatesAfter(status, today, afterDate, afterId,
+                PageRequest.of(0, chunkSize));
+        ChunkOutcome outcome = new ChunkOutcome();
+        if (candidates.isEmpty()) {
+            return outcome;
+        }
+        Object[] last = candidates.get(candidates.size() - 1);
+        outcome.scanned = candidates.size();
+        outcome.lastId = (Long) last[0];
+        outcome.lastDueDate = (LocalDate) last[2];
+
+        Set<Long> customerIds = candidates.stream().map(row -> (Long) row[1]).collect(Collectors.toSet());
+        List<Long> candidateIds = candidates.stream().map(row -> (Long) row[0]).collect(Collectors.toList());
+        outcome.marked = markEligible(candidateIds, customerIds, today, runUser);
+        return outcome;
+    }
+
+    private int markEligible(Collection<Long> candidateIds, Collection<Long> customerIds, LocalDate today,
+                             User runUser) {
+        // Lock the customers, then re-read so rows changed since they were picked are left alone
+        customerLockService.lockCustomers(customerIds);
+        List<Object[]> eligible = paymentRepository.findOverdueStateByIds(candidateIds, today);
+        if (eligible.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> ids = new ArrayList<>(eligible.size());
+        List<RollupContribution> before = new ArrayList<>(eligible.size());
+        List<RollupContribution> after = new ArrayList<>(eligible.size());
+        Map<Long, String> descriptions = new LinkedHashMap<>();
+        for (Object[] row : eligible) {
+            Long id = (Long) row[0];
+            Long shopId = (Long) row[1];
+            Long customerId = (Long) row[2];
+            LocalDate paymentDate = (LocalDate) row[3];
+            PaymentStatus oldStatus = (PaymentStatus) row[4];
+            BigDecimal amount = (BigDecimal) row[5];
+            long daysOverdue = ChronoUnit.DAYS.between((LocalDate) row[6], today);
+
+            ids.add(id);
+            before.add(new RollupContribution(RollupSource.PAYMENT, shopId, customerId, paymentDate,
+                    oldStatus.name(), amount, true));
+            after.add(new RollupContribution(RollupSource.PAYMENT, shopId, customerId, paymentDate,
+                    PaymentStatus.OVERDUE.name(), amount, true));
+            descriptions.put(id, String.format("Automatically marked payment %d as overdue (%d days)", id, daysOverdue));
+        }
+
+        int count = paymentRepository.markOverdue(ids, today, LocalDateTime.now(),
+                runUser != null ? runUser.getId() : null);
+        ledgerAggregateService.applyRollupChanges(before, after);
+        auditService.logSuccessBatch("AUTO_MARK_OVERDUE", "PAYMENT", descriptions, runUser);
+        return count;
+    }
+
+    /**
+     * User recorded as having changed the status: the system user, else whoever triggered the check
+     */
+    private User getRunUser() {
+        return userRepository.findByUsernameOrEmail("system").orElseGet(() -> {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            return authentication != null
+                    ? userRepository.findByUsernameOrEmail(authentication.getName()).orElse(null) : null;
+        });
+    }
+
+    private static class ChunkOutcome {
+        private int scanned;
+        private int marked;
+        private Long lastId;
+        private LocalDate lastDueDate;
+    }
+
+    /**
+     * Totals of a finished overdue check
+     */
+    public static class OverdueRunResult {
+        private final long scanned;
+        private final long marked;
+        private final int chunks;
+        private final long durationMs;
+
+        public OverdueRunResult(long scanned, long marked, int chunks, long durationMs) {
+            this.scanned = scanned;
+            this.marked = marked;
+            this.chunks = chunks;
+            this.durationMs = durationMs;
+        }
+
+        public long getScanned() { return scanned; }
+        public long getMarked() { return marked; }
+        public int getChunks() { return chunks; }
+        public long getDurationMs() { return durationMs; }
+    }
+
+    /**
+     * Snapshot of the overdue check's progress
+     */
+    public static class OverdueRunProgress {
+        private final boolean running;
+        private final LocalDateTime startedAt;
+        private final long scanned;
+        private final long marked;
+        private final int chunks;
+        private final long elapsedMs;
+        private final OverdueRunResult lastResult;
+
+        public OverdueRunProgress(boolean running, LocalDateTime startedAt, long scanned, long marked, int chunks,
+                                  long elapsedMs, OverdueRunResult lastResult) {
+            this.running = running;
+            this.startedAt = startedAt;
+            this.scanned = scanned;
+            this.marked = marked;
+            this.chunks = chunks;
+            this.elapsedMs = elapsedMs;
+            this.lastResult = lastResult;
+        }
+
+        public boolean isRunning() { return running; }
+        public LocalDateTime getStartedAt() { return startedAt; }
+        public long getScanned() { return scanned; }
+        public long getMarked() { return marked; }
+        public int getChunks() { return chunks; }
+        public long getElapsedMs() { return elapsedMs; }
+        public OverdueRunResult getLastResult() { return lastResult; }
+    }
+}
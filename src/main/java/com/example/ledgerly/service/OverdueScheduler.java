@@ -0,0 +1,303 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.Payment;
+import com.example.ledgerly.entity.PaymentStatus;
+import com.example.ledgerly.exception.BusinessRuleException;
+import com.example.ledgerly.repository.PaymentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Marks payments OVERDUE close to the moment they fall due, instead of waiting for the daily rescan.
+ *
+ * PENDING and PARTIAL payments due within the next few days are held in memory in a priority queue ordered by
+ * fire time. A payment due on day D fires at midnight after D plus a per-payment offset, so payments sharing a
+ * due date are spread over the spread window rather than flipped in one burst, and each tick marks at most
+ * max-per-tick payments. Entries are only hints: OverdueDetectionService re-reads every payment under its
+ * customer lock, so payments paid, cancelled or re-dated before their entry fires are left alone.
+ *
+ * Nothing is persisted. After a restart the first tick runs the full OverdueDetectionService rescan to catch
+ * payments that fell due while the application was down, then loads the window again.
+ */
+@Service
+public class OverdueScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(OverdueScheduler.class);
+    private static final long RETRY_DELAY_SECONDS = 300;
+
+    private final PaymentRepository paymentRepository;
+    private final OverdueDetectionService overdueDetectionService;
+
+    // Guarded by this; an entry polled from the queue is stale unless it is still the one mapped for its payment
+    private final PriorityQueue<ScheduledCheck> queue = new PriorityQueue<>();
+    private final Map<Long, ScheduledCheck> scheduled = new HashMap<>();
+    private LocalDate loadedDate;
+    private LocalDate loadedUntil;
+
+    private volatile long markedTotal;
+    private volatile LocalDateTime lastTickAt;
+
+    @Value("${app.payments.overdue.horizon-days:2}")
+    private int horizonDays;
+
+    @Value("${app.payments.overdue.spread-minutes:120}")
+    private int spreadMinutes;
+
+    @Value("${app.payments.overdue.max-per-tick:1000}")
+    private int maxPerTick;
+
+    @Value("${app.payments.overdue.chunk-size:1000}")
+    private int chunkSize;
+
+    @Autowired
+    public OverdueScheduler(PaymentRepository paymentRepository,
+                            OverdueDetectionService overdueDetectionService) {
+        this.paymentRepository = paymentRepository;
+        this.overdueDetectionService = overdueDetectionService;
+    }
+
+    /**
+     * Mark payments whose fire time has passed (scheduled task)
+     */
+    @Scheduled(fixedDelayString = "${app.payments.overdue.tick-ms:30000}")
+    public void scheduledTick() {
+        try {
+            tick(LocalDateTime.now());
+        } catch (Exception e) {
+            logger.error("Overdue scheduler tick failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Start, stop or move tracking of a payment after its status or due date changed. Applied once the
+     * surrounding transaction commits, so a rolled-back change leaves the queue as it was.
+     */
+    public void track(Payment payment) {
+        Long paymentId = payment.getId();
+        Long customerId = payment.getCustomer().getId();
+        LocalDate dueDate = payment.isActive() && (payment.getStatus() == PaymentStatus.PENDING
+                || payment.getStatus() == PaymentStatus.PARTIAL) ? payment.getDueDate() : null;
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(paymentId, customerId, dueDate);
+                }
+            });
+        } else {
+            apply(paymentId, customerId, dueDate);
+        }
+    }
+
+    /**
+     * Queue size and counters of the scheduler
+     */
+    public synchronized SchedulerStatus getStatus() {
+        ScheduledCheck next = peekLive();
+        return new SchedulerStatus(scheduled.size(), next != null ? next.fireAt : null, loadedUntil,
+                markedTotal, lastTickAt);
+    }
+
+    void tick(LocalDateTime now) {
+        LocalDate today = now.toLocalDate();
+        if (loadedDate == null) {
+            // Nothing was tracked while the application was down
+            rescan();
+        }
+        if (!today.equals(loadedDate)) {
+            loadWindow(today);
+        }
+
+        List<ScheduledCheck> due = pollDue(now);
+        for (int start = 0; start < due.size(); start += chunkSize) {
+            List<ScheduledCheck> batch = due.subList(start, Math.min(start + chunkSize, due.size()));
+            Set<Long> paymentIds = new LinkedHashSet<>();
+            Set<Long> customerIds = new LinkedHashSet<>();
+            for (ScheduledCheck check : batch) {
+                paymentIds.add(check.paymentId);
+                customerIds.add(check.customerId);
+            }
+            try {
+                markedTotal += overdueDetectionService.markOverdue(paymentIds, customerIds);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to mark {} payments overdue, retrying in {} s: {}",
+                        batch.size(), RETRY_DELAY_SECONDS, e.getMessage());
+                requeue(batch, now.plusSeconds(RETRY_DELAY_SECONDS));
+            }
+        }
+        lastTickAt = now;
+    }
+
+    private void rescan() {
+        try {
+            overdueDetectionService.detectOverduePayments();
+        } catch (BusinessRuleException e) {
+            // A rescan is already running and covers the same payments
+            logger.info("Skipping startup overdue rescan: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Track payments falling due up to horizon-days ahead that are not tracked yet
+     */
+    private void loadWindow(LocalDate today) {
+        LocalDate from;
+        synchronized (this) {
+            from = loadedUntil != null && loadedUntil.isAfter(today) ? loadedUntil : today;
+        }
+        LocalDate to = today.plusDays(horizonDays);
+
+        int loaded = 0;
+        LocalDate afterDate = null;
+        Long afterId = null;
+        while (from.isBefore(to)) {
+            List<Object[]> rows = paymentRepository.findDueBetweenAfter(from, to, afterDate, afterId,
+                    PageRequest.of(0, chunkSize));
+            if (rows.isEmpty()) {
+                break;
+            }
+            synchronized (this) {
+                for (Object[] row : rows) {
+                    Long paymentId = (Long) row[0];
+                    if (!scheduled.containsKey(paymentId)) {
+                        schedule(paymentId, (Long) row[1], (LocalDate) row[2]);
+                    }
+                }
+            }
+            loaded += rows.size();
+            Object[] last = rows.get(rows.size() - 1);
+            afterId = (Long) last[0];
+            afterDate = (LocalDate) last[2];
+        }
+
+        int tracked;
+        synchronized (this) {
+            loadedDate = today;
+            loadedUntil = to;
+            tracked = scheduled.size();
+        }
+        logger.info("Overdue scheduler loaded {} payments due before {}, {} tracked", loaded, to, tracked);
+    }
+
+    private synchronized void apply(Long paymentId, Long customerId, LocalDate dueDate) {
+        // Due dates beyond the loaded window are picked up when the window reaches them
+        if (dueDate != null && loadedUntil != null && dueDate.isBefore(loadedUntil)) {
+            schedule(paymentId, customerId, dueDate);
+        } else {
+            scheduled.remove(paymentId);
+        }
+    }
+
+    private synchronized List<ScheduledCheck> pollDue(LocalDateTime now) {
+        List<ScheduledCheck> due = new ArrayList<>();
+        while (due.size() < maxPerTick) {
+            ScheduledCheck next = peekLive();
+            if (next == null || next.fireAt.isAfter(now)) {
+                break;
+            }
+            queue.poll();
+            scheduled.remove(next.paymentId);
+            due.add(next);
+        }
+        return due;
+    }
+
+    private synchronized void requeue(List<ScheduledCheck> checks, LocalDateTime fireAt) {
+        for (ScheduledCheck check : checks) {
+            if (!scheduled.containsKey(check.paymentId)) {
+                ScheduledCheck retry = new ScheduledCheck(check.paymentId, check.customerId, fireAt);
+                scheduled.put(retry.paymentId, retry);
+                queue.add(retry);
+            }
+        }
+    }
+
+    private void schedule(Long paymentId, Long customerId, LocalDate dueDate) {
+        ScheduledCheck check = new ScheduledCheck(paymentId, customerId, fireTime(paymentId, dueDate));
+        scheduled.put(paymentId, check);
+        queue.add(check);
+    }
+
+    /**
+     * Drop stale entries from the head of the queue and return the first live one
+     */
+    private ScheduledCheck peekLive() {
+        ScheduledCheck head = queue.peek();
+        while (head != null && scheduled.get(head.paymentId) != head) {
+            queue.poll();
+            head = queue.peek();
+        }
+        return head;
+    }
+
+    /**
+     * Midnight after the due date plus a stable per-payment offset within the spread window
+     */
+    LocalDateTime fireTime(Long paymentId, LocalDate dueDate) {
+        long spreadSeconds = Math.max(1, spreadMinutes * 60L);
+        long offset = Math.floorMod(Long.hashCode(paymentId * 0x9E3779B97F4A7C15L), spreadSeconds);
+        return dueDate.plusDays(1).atStartOfDay().plusSeconds(offset);
+    }
+
+    private static final class ScheduledCheck implements Comparable<ScheduledCheck> {
+        private final Long paymentId;
+        private final Long customerId;
+        private final LocalDateTime fireAt;
+
+        private ScheduledCheck(Long paymentId, Long customerId, LocalDateTime fireAt) {
+            this.paymentId = paymentId;
+            this.customerId = customerId;
+            this.fireAt = fireAt;
+        }
+
+        @Override
+        public int compareTo(ScheduledCheck other) {
+            int byTime = fireAt.compareTo(other.fireAt);
+            return byTime != 0 ? byTime : paymentId.compareTo(other.paymentId);
+        }
+    }
+
+    /**
+     * Snapshot of the scheduler's queue
+     */
+    public static class SchedulerStatus {
+        private final int trackedPayments;
+        private final LocalDateTime nextFireAt;
+        private final LocalDate loadedUntil;
+        private final long markedTotal;
+        private final LocalDateTime lastTickAt;
+
+        public SchedulerStatus(int trackedPayments, LocalDateTime nextFireAt, LocalDate loadedUntil,
+                               long markedTotal, LocalDateTime lastTickAt) {
+            this.trackedPayments = trackedPayments;
+            this.nextFireAt = nextFireAt;
+            this.loadedUntil = loadedUntil;
+            this.markedTotal = markedTotal;
+            this.lastTickAt = lastTickAt;
+        }
+
+        public int getTrackedPayments() { return trackedPayments; }
+        public LocalDateTime getNextFireAt() { return nextFireAt; }
+        public LocalDate getLoadedUntil() { return loadedUntil; }
+        public long getMarkedTotal() { return markedTotal; }
+        public LocalDateTime getLastTickAt() { return lastTickAt; }
+    }
+}
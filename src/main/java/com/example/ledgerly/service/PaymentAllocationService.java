@@ -0,0 +1,430 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.Payment;
+import com.example.ledgerly.entity.PaymentStatus;
+import com.example.ledgerly.entity.RollupSource;
+import com.example.ledgerly.entity.User;
+import com.example.ledgerly.exception.BusinessRuleException;
+import com.example.ledgerly.repository.LedgerEntryRepository;
+import com.example.ledgerly.repository.PaymentRepository;
+import com.example.ledgerly.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.InvalidResultSetAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+/**
+ * Allocates unapplied payments to a customer's open debit entries.
+ *
+ * Open entries (is_settled = false) are read through a forward-only cursor in the order of the chosen
+ * AllocationStrategy and consumed until every payment is exhausted, so a large ledger is never loaded and
+ * the rows after the last touched entry are never fetched. Allocation happens entirely while reading;
+ * the resulting payment applications are then inserted with one JDBC batch and the touched entries'
+ * outstanding amounts are lowered with a second batch. Several payments of one customer are allocated in
+ * a single pass, oldest payment first.
+ *
+ * Callers must hold the customer lock (CustomerLockService) for the whole transaction.
+ */
+@Service
+@Transactional
+public class PaymentAllocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentAllocationService.class);
+
+    // Rows per round trip of the open-entry cursor (needs useCursorFetch=true on MySQL)
+    private static final int CURSOR_FETCH_SIZE = 200;
+
+    private static final String OPEN_ENTRIES_SQL =
+        "SELECT id, outstanding_amount FROM ledger_entries " +
+        "WHERE customer_id = ? AND is_settled = false ORDER BY ";
+
+    private static final String INSERT_APPLICATION_SQL =
+        "INSERT INTO payment_applications (applied_amount, application_notes, is_reversed, payment_id, " +
+        "ledger_entry_id, applied_by_user_id, applied_at) VALUES (?, ?, false, ?, ?, ?, ?)";
+
+    // MySQL evaluates SET assignments left to right, so is_settled sees the lowered outstanding amount
+    private static final String LOWER_OUTSTANDING_SQL =
+        "UPDATE ledger_entries SET outstanding_amount = outstanding_amount - ?, " +
+        "is_settled = (outstanding_amount <= 0), updated_at = ? WHERE id = ?";
+
+    private final PaymentRepository paymentRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final UserRepository userRepository;
+    private final CustomerLockService customerLockService;
+    private final LedgerAggregateService ledgerAggregateService;
+    private final AuditService auditService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public PaymentAllocationService(PaymentRepository paymentRepository,
+                                    LedgerEntryRepository ledgerEntryRepository,
+                                    UserRepository userRepository,
+                                    CustomerLockService customerLockService,
+                                    LedgerAggregateService ledgerAggregateService,
+                                    AuditService auditService,
+                                    JdbcTemplate jdbcTemplate) {
+        this.paymentRepository = paymentRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.userRepository = userRepository;
+        this.customerLockService = customerLockService;
+        this.ledgerAggregateService = ledgerAggregateService;
+        this.auditService = auditService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Allocate one payment to its customer's open entries
+     */
+    public AllocationResult allocatePayment(Long paymentId, AllocationStrategy strategy) {
+        Long customerId = paymentRepository.findCustomerIdById(paymentId)
+                .orElseThrow(() -> new RuntimeException("Payment not found with id: " + paymentId));
+        customerLockService.lockCustomer(customerId);
+
+        Payment payment = paymentRepository.findById(paymentId)
+                .orElseThrow(() -> new RuntimeException("Payment not found with id: " + paymentId));
+
+        if (payment.getStatus() == PaymentStatus.CANCELLED ||
+            payment.getStatus() == PaymentStatus.FAILED ||
+            !payment.isActive()) {
+            throw new BusinessRuleException("INVALID_PAYMENT_STATUS",
+                "Cannot apply cancelled, failed, or inactive payments");
+        }
+
+        if (payment.isFullyApplied()) {
+            throw new BusinessRuleException("PAYMENT_FULLY_APPLIED",
+                "Payment is already fully applied");
+        }
+
+        AllocationResult result = allocate(customerId, List.of(payment), strategy, getCurrentUser());
+        if (result.getApplicationCount() == 0) {
+            throw new BusinessRuleException("NO_OUTSTANDING_ENTRIES",
+                "No outstanding entries found for auto-application");
+        }
+        return result;
+    }
+
+    /**
+     * Allocate every unapplied payment of a customer in one pass over its open entries
+     */
+    public AllocationResult allocateCustomer(Long customerId, AllocationStrategy strategy) {
+        customerLockService.lockCustomer(customerId);
+        return allocate(customerId, paymentRepository.findUnappliedPaymentsByCustomer(customerId), strategy,
+                getCurrentUser());
+    }
+
+    /**
+     * Allocate the given payments, oldest first; the caller holds the customer lock
+     *
+     * @param payments managed payments of the customer, in the order they should be spent
+     * @param appliedBy user recorded on the new payment applications
+     */
+    public AllocationResult allocate(Long customerId, List<Payment> payments, AllocationStrategy strategy,
+                                     User appliedBy) {
+        return allocate(customerId, payments, strategy, appliedBy, true);
+    }
+
+    /**
+     * Allocate the given payments, oldest first; the caller holds the customer lock
+     *
+     * @param auditPayments whether to write an audit row per updated payment; bulk runs log one summary instead
+     */
+    public AllocationResult allocate(Long customerId, List<Payment> payments, AllocationStrategy strategy,
+                                     User appliedBy, boolean auditPayments) {
+        List<Payment> spendable = payments.stream()
+                .filter(payment -> payment.getUnappliedAmount().signum() > 0)
+                .collect(Collectors.toList());
+        if (spendable.isEmpty()) {
+            return new AllocationResult(customerId, List.of(), List.of());
+        }
+
+        BigDecimal totalOutstanding = strategy == AllocationStrategy.PROPORTIONAL
+                ? totalOutstanding(customerId) : null;
+
+        List<Allocation> allocations = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(OPEN_ENTRIES_SQL + strategy.getOrderBy(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(CURSOR_FETCH_SIZE);
+            ps.setLong(1, customerId);
+            return ps;
+        }, (ResultSetExtractor<List<Allocation>>) rs ->
+                allocate(strategy, new OpenEntryCursor(rs), spendable, totalOutstanding));
+
+        if (allocations == null || allocations.isEmpty()) {
+            return new AllocationResult(customerId, List.of(), List.of());
+        }
+
+        write(allocations, appliedBy, "Auto-applied (" + strategy + ")");
+
+        // Payments are few and already managed; their applied amounts and status follow the entity rules
+        Map<Payment, BigDecimal> appliedByPayment = new LinkedHashMap<>();
+        for (Allocation allocation : allocations) {
+            appliedByPayment.merge(allocation.getPayment(), allocation.getAmount(), BigDecimal::add);
+        }
+
+        // One applied rollup per allocation, dated today like applications saved through JPA
+        LocalDate today = LocalDate.now();
+        List<RollupContribution> added = new ArrayList<>();
+        for (Allocation allocation : allocations) {
+            Payment payment = allocation.getPayment();
+            added.add(new RollupContribution(RollupSource.PAYMENT_APPLICATION,
+                    payment.getShop() != null ? payment.getShop().getId() : null, customerId,
+                    today, RollupContribution.APPLIED, allocation.getAmount(), true));
+        }
+        ledgerAggregateService.applyNewRollups(added);
+
+        List<Payment> updated = new ArrayList<>();
+        for (Map.Entry<Payment, BigDecimal> applied : appliedByPayment.entrySet()) {
+            Payment payment = applied.getKey();
+            RollupContribution paymentBefore = RollupContribution.of(payment);
+            payment.applyAmount(applied.getValue());
+            Payment updatedPayment = paymentRepository.save(payment);
+            ledgerAggregateService.applyRollupChange(paymentBefore, RollupContribution.of(updatedPayment));
+            updated.add(updatedPayment);
+
+            if (!auditPayments) {
+                continue;
+            }
+            auditService.logSuccess("AUTO_APPLY_PAYMENT", "PAYMENT", updatedPayment.getId(),
+                    null, auditService.createAuditSnapshot(updatedPayment),
+                    String.format("Auto-applied payment %d (%s), amount: %s",
+                                updatedPayment.getId(), strategy, applied.getValue()),
+                    appliedBy);
+        }
+
+        logger.debug("Allocated {} payments of customer {} to {} ledger entries with {}",
+                updated.size(), customerId, allocations.size(), strategy);
+        return new AllocationResult(customerId, updated, allocations);
+    }
+
+    /**
+     * Split the payments over the open entries in cursor order. Stops reading as soon as the payments are
+     * spent; PROPORTIONAL needs the customer's total outstanding amount up front.
+     */
+    static List<Allocation> allocate(AllocationStrategy strategy, Iterator<OpenEntry> openEntries,
+                                     List<Payment> payments, BigDecimal totalOutstanding) {
+        PaymentFunds funds = new PaymentFunds(payments);
+        List<Allocation> allocations = new ArrayList<>();
+
+        BigDecimal ratio = null;
+        if (strategy == AllocationStrategy.PROPORTIONAL && totalOutstanding != null
+                && funds.total().compareTo(totalOutstanding) < 0) {
+            ratio = funds.total().divide(totalOutstanding, 10, RoundingMode.DOWN);
+        }
+
+        while (funds.hasMore() && openEntries.hasNext()) {
+            OpenEntry entry = openEntries.next();
+            BigDecimal due = ratio == null ? entry.getOutstanding()
+                    : entry.getOutstanding().multiply(ratio).setScale(2, RoundingMode.DOWN);
+            funds.spend(entry.getId(), due, allocations);
+        }
+        return allocations;
+    }
+
+    /**
+     * Total outstanding amount of a customer's open entries
+     */
+    private BigDecimal totalOutstanding(Long customerId) {
+        Object[] totals = ledgerEntryRepository.summarizeOutstandingForCustomer(customerId).get(0);
+        return totals[1] != null ? new BigDecimal(totals[1].toString()) : BigDecimal.ZERO;
+    }
+
+    /**
+     * Insert the applications and lower the outstanding amounts of the touched entries, one batch each
+     */
+    private void write(List<Allocation> allocations, User appliedBy, String notes) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        jdbcTemplate.batchUpdate(INSERT_APPLICATION_SQL, allocations, allocations.size(), (ps, allocation) -> {
+            ps.setBigDecimal(1, allocation.getAmount());
+            ps.setString(2, notes);
+            ps.setLong(3, allocation.getPayment().getId());
+            ps.setLong(4, allocation.getLedgerEntryId());
+            ps.setLong(5, appliedBy.getId());
+            ps.setTimestamp(6, now);
+        });
+
+        // An entry funded by two payments gets a single update
+        Map<Long, BigDecimal> appliedByEntry = new LinkedHashMap<>();
+        for (Allocation allocation : allocations) {
+            appliedByEntry.merge(allocation.getLedgerEntryId(), allocation.getAmount(), BigDecimal::add);
+        }
+        List<Map.Entry<Long, BigDecimal>> entryUpdates = new ArrayList<>(appliedByEntry.entrySet());
+        jdbcTemplate.batchUpdate(LOWER_OUTSTANDING_SQL, entryUpdates, entryUpdates.size(), (ps, update) -> {
+            ps.setBigDecimal(1, update.getValue());
+            ps.setTimestamp(2, now);
+            ps.setLong(3, update.getKey());
+        });
+    }
+
+    /**
+     * Get current authenticated user
+     */
+    private User getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String username = authentication.getName();
+        return userRepository.findByUsernameOrEmail(username)
+                .orElseThrow(() -> new RuntimeException("Current user not found"));
+    }
+
+    /**
+     * Open debit entry as read from the cursor
+     */
+    static final class OpenEntry {
+        private final long id;
+        private final BigDecimal outstanding;
+
+        OpenEntry(long id, BigDecimal outstanding) {
+            this.id = id;
+            this.outstanding = outstanding;
+        }
+
+        long getId() { return id; }
+        BigDecimal getOutstanding() { return outstanding; }
+    }
+
+    /**
+     * Amount of one payment applied to one ledger entry
+     */
+    public static final class Allocation {
+        private final Payment payment;
+        private final long ledgerEntryId;
+        private final BigDecimal amount;
+
+        Allocation(Payment payment, long ledgerEntryId, BigDecimal amount) {
+            this.payment = payment;
+            this.ledgerEntryId = ledgerEntryId;
+            this.amount = amount;
+        }
+
+        public Payment getPayment() { return payment; }
+        public long getLedgerEntryId() { return ledgerEntryId; }
+        public BigDecimal getAmount() { return amount; }
+    }
+
+    /**
+     * Outcome of an allocation run for one customer
+     */
+    public static final class AllocationResult {
+        private final Long customerId;
+        private final List<Payment> payments;
+        private final List<Allocation> allocations;
+
+        AllocationResult(Long customerId, List<Payment> payments, List<Allocation> allocations) {
+            this.customerId = customerId;
+            this.payments = payments;
+            this.allocations = allocations;
+        }
+
+        public Long getCustomerId() { return customerId; }
+
+        /**
+         * Payments that received at least one application
+         */
+        public List<Payment> getPayments() { return payments; }
+        public List<Allocation> getAllocations() { return allocations; }
+        public int getApplicationCount() { return allocations.size(); }
+
+        public BigDecimal getTotalApplied() {
+            return allocations.stream().map(Allocation::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+        }
+    }
+
+    /**
+     * Unapplied amounts of the payments being allocated, spent in list order
+     */
+    private static final class PaymentFunds {
+        private final List<Payment> payments;
+        private final BigDecimal total;
+        private int index;
+        private BigDecimal available;
+
+        PaymentFunds(List<Payment> payments) {
+            this.payments = payments;
+            this.total = payments.stream().map(Payment::getUnappliedAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+            this.available = payments.isEmpty() ? BigDecimal.ZERO : payments.get(0).getUnappliedAmount();
+        }
+
+        BigDecimal total() {
+            return total;
+        }
+
+        boolean hasMore() {
+            return index < payments.size();
+        }
+
+        /**
+         * Cover up to the given amount of an entry, moving on to the next payment as each one runs out
+         */
+        void spend(long ledgerEntryId, BigDecimal due, List<Allocation> allocations) {
+            while (due.signum() > 0 && hasMore()) {
+                BigDecimal amount = due.min(available);
+                allocations.add(new Allocation(payments.get(index), ledgerEntryId, amount));
+                due = due.subtract(amount);
+                available = available.subtract(amount);
+                if (available.signum() <= 0) {
+                    index++;
+                    available = hasMore() ? payments.get(index).getUnappliedAmount() : BigDecimal.ZERO;
+                }
+            }
+        }
+    }
+
+    /**
+     * Forward-only view of the open-entry result set; rows are read only as the allocation asks for them
+     */
+    private static final class OpenEntryCursor implements Iterator<OpenEntry> {
+        private final ResultSet rs;
+        private Boolean hasRow;
+
+        OpenEntryCursor(ResultSet rs) {
+            this.rs = rs;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (hasRow == null) {
+                try {
+                    hasRow = rs.next();
+                } catch (SQLException e) {
+                    throw new InvalidResultSetAccessException(e);
+                }
+            }
+            return hasRow;
+        }
+
+        @Override
+        public OpenEntry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            hasRow = null;
+            try {
+                return new OpenEntry(rs.getLong("id"), rs.getBigDecimal("outstanding_amount"));
+            } catch (SQLException e) {
+                throw new InvalidResultSetAccessException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.Customer;
+import com.example.ledgerly.entity.LedgerEntry;
+import com.example.ledgerly.entity.Payment;
+import com.example.ledgerly.entity.TransactionType;
+import com.example.ledgerly.entity.User;
+import com.example.ledgerly.repository.PaymentRepository;
+import com.example.ledgerly.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Creates the CREDIT ledger entry for payments that have no active one, e.g. payments recorded before ledger
+ * entries were posted automatically, whose entry failed to post or whose entry was deleted.
+ *
+ * Unsynced payments are found with an anti-join on ledger_entries.payment_id and processed in id-ordered
+ * chunks, one transaction per chunk. A chunk's entries are inserted with one JDBC batch and the affected
+ * customers' balances, rollups and running balances are adjusted once per customer.
+ */
+@Service
+public class PaymentLedgerSyncService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentLedgerSyncService.class);
+
+    // LedgerEntry uses IDENTITY ids, which disables Hibernate insert batching, so rows go through JDBC
+    private static final String INSERT_PAYMENT_ENTRY_SQL =
+        "INSERT INTO ledger_entries (transaction_date, transaction_type, amount, description, notes, " +
+        "reference_number, payment_method, balance_after_transaction, outstanding_amount, is_settled, " +
+        "is_reconciled, is_active, customer_id, shop_id, payment_id, created_by_user_id, updated_by_user_id, " +
+        "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, false, true, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final PaymentRepository paymentRepository;
+    private final UserRepository userRepository;
+    private final CustomerBalanceService customerBalanceService;
+    private final LedgerRebalanceService ledgerRebalanceService;
+    private final CustomerLockService customerLockService;
+    private final LedgerAggregateService ledgerAggregateService;
+    private final AuditService auditService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.payments.ledger-sync.chunk-size:500}")
+    private int chunkSize;
+
+    @Autowired
+    public PaymentLedgerSyncService(PaymentRepository paymentRepository,
+                                    UserRepository userRepository,
+                                    CustomerBalanceService customerBalanceService,
+                                    LedgerRebalanceService ledgerRebalanceService,
+                                    CustomerLockService customerLockService,
+                                    LedgerAggregateService ledgerAggregateService,
+                                    AuditService auditService,
+                                    JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager) {
+        this.paymentRepository = paymentRepository;
+        this.userRepository = userRepository;
+        this.customerBalanceService = customerBalanceService;
+        this.ledgerRebalanceService = ledgerRebalanceService;
+        this.customerLockService = customerLockService;
+        this.ledgerAggregateService = ledgerAggregateService;
+        this.auditService = auditService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Post a ledger entry for every active payment that has none
+     */
+    public SyncResult syncPaymentsWithoutLedgerEntries() {
+        User currentUser = getCurrentUser();
+        long startTime = System.currentTimeMillis();
+        long synced = 0;
+        int chunks = 0;
+
+        Long afterId = 0L;
+        while (true) {
+            Long lastId = afterId;
+            ChunkOutcome outcome = transactionTemplate.execute(status -> syncChunk(lastId, currentUser));
+            if (outcome == null || outcome.lastPaymentId == null) {
+                break;
+            }
+            synced += outcome.synced;
+            chunks++;
+            afterId = outcome.lastPaymentId;
+        }
+
+        long durationMs = System.currentTimeMillis() - startTime;
+        logger.info("Payment ledger sync created {} ledger entries in {} chunks in {} ms", synced, chunks, durationMs);
+        auditService.logSuccess("SYNC_PAYMENT_LEDGER_ENTRIES", "LEDGER_ENTRY", null,
+                null, null,
+                String.format("Created ledger entries for %d payments in %d ms", synced, durationMs),
+                currentUser);
+        return new SyncResult(synced, durationMs);
+    }
+
+    private ChunkOutcome syncChunk(Long afterId, User currentUser) {
+        List<Payment> payments = paymentRepository.findPaymentsWithoutLedgerEntryAfter(afterId,
+                PageRequest.of(0, chunkSize));
+        ChunkOutcome outcome = new ChunkOutcome();
+        if (payments.isEmpty()) {
+            return outcome;
+        }
+        outcome.lastPaymentId = payments.get(payments.size() - 1).getId();
+
+        // Lock every customer in the chunk so running balances cannot race live writes
+        Map<Long, Customer> customers = new HashMap<>();
+        for (Customer customer : customerLockService.lockCustomers(payments.stream()
+                .map(payment -> payment.getCustomer().getId())
+                .collect(Collectors.toSet()))) {
+            customers.put(customer.getId(), customer);
+        }
+
+        Map<Long, BigDecimal> runningBalances = new HashMap<>();
+        Map<Long, BigDecimal> balanceDeltas = new LinkedHashMap<>();
+        Map<Long, LocalDate> earliestDates = new HashMap<>();
+        List<LedgerEntry> entries = new ArrayList<>(payments.size());
+
+        for (Payment payment : payments) {
+            Customer customer = customers.get(payment.getCustomer().getId());
+
+            LedgerEntry entry = new LedgerEntry();
+            entry.setCustomer(customer);
+            entry.setShop(payment.getShop() != null ? payment.getShop() : customer.getShop());
+            entry.setPayment(payment);
+            entry.setTransactionDate(payment.getPaymentDate());
+            entry.setDescription(payment.getDescription() != null ? payment.getDescription() : "Payment received");
+            entry.setAmount(payment.getAmount());
+            entry.setTransactionType(TransactionType.CREDIT); // Payment is a credit to the customer
+            entry.setReferenceNumber("PAY-" + payment.getId()); // Shown on statements
+            entry.setPaymentMethod(payment.getPaymentMethod());
+            entry.setNotes(payment.getNotes());
+            entry.setCreatedBy(currentUser);
+            entry.setUpdatedBy(currentUser);
+            entry.refreshOutstanding(BigDecimal.ZERO);
+
+            BigDecimal runningBalance = runningBalances.computeIfAbsent(customer.getId(),
+                    id -> customerBalanceService.getCurrentBalance(customer));
+            BigDecimal effect = LedgerEntryState.of(entry).getBalanceEffect();
+            BigDecimal newBalance = runningBalance.add(effect);
+            entry.setBalanceAfterTransaction(newBalance);
+
+            runningBalances.put(customer.getId(), newBalance);
+            balanceDeltas.merge(customer.getId(), effect, BigDecimal::add);
+            earliestDates.merge(customer.getId(), entry.getTransactionDate(),
+                    (a, b) -> a.isBefore(b) ? a : b);
+            entries.add(entry);
+        }
+
+        insertEntries(entries, currentUser);
+        ledgerAggregateService.applyNewEntries(entries);
+        for (Map.Entry<Long, BigDecimal> delta : balanceDeltas.entrySet()) {
+            customerBalanceService.applyDelta(customers.get(delta.getKey()), delta.getValue());
+        }
+        // Running balances above follow payment id order; restore date order where entries were backdated
+        for (Map.Entry<Long, LocalDate> earliest : earliestDates.entrySet()) {
+            ledgerRebalanceService.rebalanceIfBackdated(earliest.getKey(), earliest.getValue());
+        }
+
+        outcome.synced = entries.size();
+        return outcome;
+    }
+
+    private void insertEntries(List<LedgerEntry> entries, User currentUser) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        jdbcTemplate.batchUpdate(INSERT_PAYMENT_ENTRY_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setDate(1, Date.valueOf(entry.getTransactionDate()));
+            ps.setString(2, entry.getTransactionType().name());
+            ps.setBigDecimal(3, entry.getAmount());
+            ps.setString(4, entry.getDescription());
+            ps.setString(5, entry.getNotes());
+            ps.setString(6, entry.getReferenceNumber());
+            ps.setString(7, entry.getPaymentMethod());
+            ps.setBigDecimal(8, entry.getBalanceAfterTransaction());
+            ps.setBigDecimal(9, entry.getOutstandingAmount());
+            ps.setBoolean(10, entry.isSettled());
+            ps.setLong(11, entry.getCustomer().getId());
+            ps.setLong(12, entry.getShop().getId());
+            ps.setLong(13, entry.getPayment().getId());
+            ps.setLong(14, currentUser.getId());
+            ps.setLong(15, currentUser.getId());
+            ps.setTimestamp(16, now);
+            ps.setTimestamp(17, now);
+        });
+    }
+
+    /**
+     * Get current authenticated user
+     */
+    private User getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String username = authentication.getName();
+        return userRepository.findByUsernameOrEmail(username)
+                .orElseThrow(() -> new RuntimeException("Current user not found"));
+    }
+
+    private static class ChunkOutcome {
+        private Long lastPaymentId;
+        private int synced;
+    }
+
+    /**
+     * Outcome of a sync run
+     */
+    public static class SyncResult {
+        private final long createdEntries;
+        private final long durationMs;
+
+        public SyncResult(long createdEntries, long durationMs) {
+            this.createdEntries = createdEntries;
+            this.durationMs = durationMs;
+        }
+
+        public long getCreatedEntries() { return createdEntries; }
+        public long getDurationMs() { return durationMs; }
+    }
+}
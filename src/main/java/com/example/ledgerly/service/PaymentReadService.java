@@ -0,0 +1,154 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.dto.PaymentApplicationResponse;
+import com.example.ledgerly.dto.PaymentResponse;
+import com.example.ledgerly.entity.Payment;
+import com.example.ledgerly.entity.PaymentApplication;
+import com.example.ledgerly.repository.PaymentApplicationRepository;
+import com.example.ledgerly.repository.PaymentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Builds PaymentResponse DTOs for PaymentService and PaymentStatusService.
+ * A whole page of payments costs two queries whatever its size: one projects the customer and user names
+ * of every payment, the other loads the active applications with their ledger entry and applying user's
+ * name, grouped by payment in memory. The lazy customer and user associations are never touched.
+ */
+@Service
+@Transactional(readOnly = true)
+public class PaymentReadService {
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentApplicationRepository paymentApplicationRepository;
+
+    @Autowired
+    public PaymentReadService(PaymentRepository paymentRepository,
+                              PaymentApplicationRepository paymentApplicationRepository) {
+        this.paymentRepository = paymentRepository;
+        this.paymentApplicationRepository = paymentApplicationRepository;
+    }
+
+    /**
+     * Convert a single payment, with its active applications
+     */
+    public PaymentResponse toResponse(Payment payment) {
+        return toResponses(List.of(payment)).get(0);
+    }
+
+    /**
+     * Convert a page of payments, loading the names and applications of all of them in one query each
+     */
+    public Page<PaymentResponse> toResponses(Page<Payment> payments) {
+        return new PageImpl<>(toResponses(payments.getContent()), payments.getPageable(), payments.getTotalElements());
+    }
+
+    /**
+     * Convert a list of payments, loading the names and applications of all of them in one query each
+     */
+    public List<PaymentResponse> toResponses(List<Payment> payments) {
+        if (payments.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> paymentIds = payments.stream()
+                .map(Payment::getId)
+                .collect(Collectors.toList());
+
+        Map<Long, Object[]> namesByPayment = new HashMap<>();
+        for (Object[] row : paymentRepository.findResponseNamesByIds(paymentIds)) {
+            namesByPayment.put((Long) row[0], row);
+        }
+
+        Map<Long, List<Object[]>> applicationsByPayment = new HashMap<>();
+        for (Object[] row : paymentApplicationRepository.findActiveByPaymentIds(paymentIds)) {
+            applicationsByPayment.computeIfAbsent(((PaymentApplication) row[0]).getPayment().getId(),
+                    id -> new ArrayList<>()).add(row);
+        }
+
+        List<PaymentResponse> responses = new ArrayList<>(payments.size());
+        for (Payment payment : payments) {
+            PaymentResponse response = convertToPaymentResponse(payment, namesByPayment.get(payment.getId()));
+            response.setApplications(applicationsByPayment.getOrDefault(payment.getId(), List.of()).stream()
+                    .map(row -> convertToApplicationResponse((PaymentApplication) row[0], (String) row[1], payment))
+                    .collect(Collectors.toList()));
+            responses.add(response);
+        }
+        return responses;
+    }
+
+    /**
+     * Convert Payment entity to PaymentResponse DTO, without applications. The customer and user names come
+     * from a findResponseNamesByIds row.
+     */
+    private PaymentResponse convertToPaymentResponse(Payment payment, Object[] names) {
+        PaymentResponse response = new PaymentResponse();
+        response.setId(payment.getId());
+        response.setPaymentDate(payment.getPaymentDate());
+        response.setAmount(payment.getAmount());
+        response.setAppliedAmount(payment.getAppliedAmount());
+        response.setRemainingAmount(payment.getRemainingAmount());
+        response.setDescription(payment.getDescription());
+        response.setNotes(payment.getNotes());
+        response.setReferenceNumber(payment.getReferenceNumber());
+        response.setPaymentMethod(payment.getPaymentMethod());
+        response.setStatus(payment.getStatus());
+        response.setBankDetails(payment.getBankDetails());
+        response.setCheckNumber(payment.getCheckNumber());
+        response.setProcessedDate(payment.getProcessedDate());
+        response.setAdvancePayment(payment.isAdvancePayment());
+        response.setActive(payment.isActive());
+        response.setCustomerId((Long) names[1]);
+        response.setCustomerName((String) names[2]);
+        response.setCreatedByUsername((String) names[3]);
+        response.setUpdatedByUsername((String) names[4]);
+        response.setCreatedAt(payment.getCreatedAt());
+        response.setUpdatedAt(payment.getUpdatedAt());
+
+        // Status tracking fields
+        response.setDueDate(payment.getDueDate());
+        response.setStatusUpdatedAt(payment.getStatusUpdatedAt());
+        response.setStatusUpdatedByUsername((String) names[5]);
+        response.setStatusNotes(payment.getStatusNotes());
+        response.setDisputeDate(payment.getDisputeDate());
+        response.setDisputeReason(payment.getDisputeReason());
+        response.setDisputedByUsername((String) names[6]);
+        response.setOverdueDays(payment.getOverdueDays());
+        response.setLastReminderSent(payment.getLastReminderSent());
+        response.setReminderCount(payment.getReminderCount());
+
+        return response;
+    }
+
+    /**
+     * Convert PaymentApplication to PaymentApplicationResponse; payment fields come from the owning payment
+     * rather than the application's lazy reference
+     */
+    private PaymentApplicationResponse convertToApplicationResponse(PaymentApplication application,
+                                                                    String appliedByUsername, Payment payment) {
+        PaymentApplicationResponse response = new PaymentApplicationResponse();
+        response.setId(application.getId());
+        response.setAppliedAmount(application.getAppliedAmount());
+        response.setApplicationNotes(application.getApplicationNotes());
+        response.setReversed(application.isReversed());
+        response.setReversedAt(application.getReversedAt());
+        response.setReversedByUsername(application.getReversedBy() != null ? application.getReversedBy().getUsername() : null);
+        response.setPaymentId(payment.getId());
+        response.setPaymentDescription(payment.getDescription());
+        response.setLedgerEntryId(application.getLedgerEntry().getId());
+        response.setLedgerEntryDescription(application.getLedgerEntry().getDescription());
+        response.setLedgerEntryAmount(application.getLedgerEntry().getAmount());
+        response.setAppliedByUsername(appliedByUsername);
+        response.setAppliedAt(application.getAppliedAt());
+        return response;
+    }
+}
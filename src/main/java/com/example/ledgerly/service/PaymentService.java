@@ -20,7 +20,6 @@ import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * Service class for Payment operations including settlements and outstanding balance tracking
@@ -35,6 +34,9 @@ import java.util.stream.Collectors;
 @Transactional
 public class PaymentService {
 
+    /** Outstanding entries returned when a caller does not ask for a page */
+    public static final int DEFAULT_OUTSTANDING_PAGE_SIZE = 100;
+
     private final PaymentRepository paymentRepository;
     private final PaymentApplicationRepository paymentApplicationRepository;
     private final CustomerRepository customerRepository;
@@ -43,6 +45,12 @@ public class PaymentService {
     private final ShopRepository shopRepository;
     private final BusinessRuleService businessRuleService;
     private final AuditService auditService;
+    private final CustomerBalanceService customerBalanceService;
+    private final LedgerRebalanceService ledgerRebalanceService;
+    private final CustomerLockService customerLockService;
+    private final LedgerAggregateService ledgerAggregateService;
+    private final PaymentReadService paymentReadService;
+    private final PaymentAllocationService paymentAllocationService;
 
     @Autowired
     public PaymentService(PaymentRepository paymentRepository,
@@ -52,7 +60,13 @@ public class PaymentService {
                          UserRepository userRepository,
                          ShopRepository shopRepository,
                          BusinessRuleService businessRuleService,
-                         AuditService auditService) {
+                         AuditService auditService,
+                         CustomerBalanceService customerBalanceService,
+                         LedgerRebalanceService ledgerRebalanceService,
+                         CustomerLockService customerLockService,
+                         LedgerAggregateService ledgerAggregateService,
+                         PaymentReadService paymentReadService,
+                         PaymentAllocationService paymentAllocationService) {
         this.paymentRepository = paymentRepository;
         this.paymentApplicationRepository = paymentApplicationRepository;
         this.customerRepository = customerRepository;
@@ -61,6 +75,12 @@ public class PaymentService {
         this.shopRepository = shopRepository;
         this.businessRuleService = businessRuleService;
         this.auditService = auditService;
+        this.customerBalanceService = customerBalanceService;
+        this.ledgerRebalanceService = ledgerRebalanceService;
+        this.customerLockService = customerLockService;
+        this.ledgerAggregateService = ledgerAggregateService;
+        this.paymentReadService = paymentReadService;
+        this.paymentAllocationService = paymentAllocationService;
     }
 
     /**
@@ -70,9 +90,8 @@ public class PaymentService {
         User currentUser = getCurrentUser();
 
         try {
-            // Validate customer
-            Customer customer = customerRepository.findById(request.getCustomerId())
-                    .orElseThrow(() -> new RuntimeException("Customer not found with id: " + request.getCustomerId()));
+            // Validate customer and serialize writes for it until commit
+            Customer customer = customerLockService.lockCustomer(request.getCustomerId());
 
             // Validate customer status
             businessRuleService.validateCustomerStatus(customer, currentUser);
@@ -106,6 +125,7 @@ public class PaymentService {
 
             // Save payment
             Payment savedPayment = paymentRepository.save(payment);
+            ledgerAggregateService.applyRollupChange(null, RollupContribution.of(savedPayment));
 
             // Automatically create a ledger entry for this payment
             createLedgerEntryForPayment(savedPayment, currentUser);
@@ -117,7 +137,7 @@ public class PaymentService {
                                 request.getAmount(), customer.getName()),
                     currentUser);
 
-            return convertToPaymentResponse(savedPayment);
+            return paymentReadService.toResponse(savedPayment);
 
         } catch (BusinessRuleException e) {
             throw e;
@@ -137,6 +157,8 @@ public class PaymentService {
         User currentUser = getCurrentUser();
 
         try {
+            lockCustomerOfPayment(request.getPaymentId());
+
             // Get payment
             Payment payment = paymentRepository.findById(request.getPaymentId())
                     .orElseThrow(() -> new RuntimeException("Payment not found with id: " + request.getPaymentId()));
@@ -185,6 +207,15 @@ public class PaymentService {
                         "Can only apply payments to debit entries");
                 }
 
+                if (detail.getAppliedAmount().compareTo(ledgerEntry.getOutstandingAmount()) > 0) {
+                    throw new BusinessRuleException("APPLICATION_EXCEEDS_OUTSTANDING",
+                        String.format("Ledger entry %d has only %s outstanding, requested: %s",
+                                    ledgerEntry.getId(), ledgerEntry.getOutstandingAmount(), detail.getAppliedAmount()));
+                }
+
+                // Keep the entry's persisted outstanding amount in step with the application
+                ledgerEntry.applyPayment(detail.getAppliedAmount());
+
                 // Create payment application
                 PaymentApplication application = new PaymentApplication();
                 application.setPayment(payment);
@@ -197,9 +228,17 @@ public class PaymentService {
             }
 
             // Update payment applied amount and status
+            RollupContribution paymentBefore = RollupContribution.of(payment);
             payment.applyAmount(totalApplicationAmount);
             Payment updatedPayment = paymentRepository.save(payment);
 
+            List<RollupContribution> added = new ArrayList<>();
+            for (PaymentApplication application : applications) {
+                added.add(RollupContribution.of(application));
+            }
+            ledgerAggregateService.applyNewRollups(added);
+            ledgerAggregateService.applyRollupChange(paymentBefore, RollupContribution.of(updatedPayment));
+
             // Log successful application
             auditService.logSuccess("APPLY_PAYMENT", "PAYMENT", updatedPayment.getId(),
                     null, auditService.createAuditSnapshot(updatedPayment),
@@ -207,7 +246,7 @@ public class PaymentService {
                                 updatedPayment.getId(), applications.size(), totalApplicationAmount),
                     currentUser);
 
-            return convertToPaymentResponse(updatedPayment);
+            return paymentReadService.toResponse(updatedPayment);
 
         } catch (BusinessRuleException e) {
             throw e;
@@ -224,64 +263,47 @@ public class PaymentService {
      * Auto-apply payment to oldest outstanding entries
      */
     public PaymentResponse autoApplyPayment(Long paymentId) {
+        return autoApplyPayment(paymentId, AllocationStrategy.FIFO);
+    }
+
+    /**
+     * Auto-apply payment to the customer's open entries in the order of the given strategy
+     */
+    public PaymentResponse autoApplyPayment(Long paymentId, AllocationStrategy strategy) {
         User currentUser = getCurrentUser();
 
         try {
-            Payment payment = paymentRepository.findById(paymentId)
-                    .orElseThrow(() -> new RuntimeException("Payment not found with id: " + paymentId));
-
-            if (payment.isFullyApplied()) {
-                throw new BusinessRuleException("PAYMENT_FULLY_APPLIED",
-                    "Payment is already fully applied");
-            }
-
-            // Get outstanding debit entries for the customer
-            List<LedgerEntry> outstandingEntries = ledgerEntryRepository.findByCustomerIdAndIsActiveTrueOrderByTransactionDateDesc(
-                    payment.getCustomer().getId()).stream()
-                    .filter(entry -> entry.isDebit() && !entry.isReconciled())
-                    .sorted((e1, e2) -> e1.getTransactionDate().compareTo(e2.getTransactionDate())) // Oldest first
-                    .collect(Collectors.toList());
+            PaymentAllocationService.AllocationResult result =
+                    paymentAllocationService.allocatePayment(paymentId, strategy);
+            return paymentReadService.toResponse(result.getPayments().get(0));
 
-            if (outstandingEntries.isEmpty()) {
-                throw new BusinessRuleException("NO_OUTSTANDING_ENTRIES",
-                    "No outstanding entries found for auto-application");
-            }
-
-            List<PaymentApplicationRequest.ApplicationDetail> applications = new ArrayList<>();
-            BigDecimal remainingAmount = payment.getUnappliedAmount();
-
-            // Apply to oldest entries first
-            for (LedgerEntry entry : outstandingEntries) {
-                if (remainingAmount.compareTo(BigDecimal.ZERO) <= 0) {
-                    break;
-                }
-
-                BigDecimal applicationAmount = remainingAmount.min(entry.getAmount());
-                applications.add(new PaymentApplicationRequest.ApplicationDetail(
-                        entry.getId(), applicationAmount));
-
-                remainingAmount = remainingAmount.subtract(applicationAmount);
-            }
-
-            if (applications.isEmpty()) {
-                throw new BusinessRuleException("NO_APPLICABLE_AMOUNT",
-                    "No amount could be applied to outstanding entries");
-            }
+        } catch (BusinessRuleException e) {
+            throw e;
+        } catch (Exception e) {
+            auditService.logFailure("AUTO_APPLY_PAYMENT", "PAYMENT", paymentId,
+                    e.getMessage(),
+                    String.format("Failed to auto-apply payment %d", paymentId),
+                    currentUser);
+            throw e;
+        }
+    }
 
-            // Create application request and apply
-            PaymentApplicationRequest request = new PaymentApplicationRequest();
-            request.setPaymentId(paymentId);
-            request.setApplications(applications);
-            request.setNotes("Auto-applied to oldest outstanding entries");
+    /**
+     * Auto-apply every unapplied payment of a customer in one pass, oldest payment first
+     */
+    public List<PaymentResponse> autoApplyPaymentsForCustomer(Long customerId, AllocationStrategy strategy) {
+        User currentUser = getCurrentUser();
 
-            return applyPaymentToEntries(request);
+        try {
+            return paymentReadService.toResponses(
+                    paymentAllocationService.allocateCustomer(customerId, strategy).getPayments());
 
         } catch (BusinessRuleException e) {
             throw e;
         } catch (Exception e) {
-            auditService.logFailure("AUTO_APPLY_PAYMENT", "PAYMENT", paymentId,
+            auditService.logFailure("AUTO_APPLY_PAYMENT", "CUSTOMER", customerId,
                     e.getMessage(),
-                    String.format("Failed to auto-apply payment %d", paymentId),
+                    String.format("Failed to auto-apply payments of customer %d", customerId),
                     currentUser);
             throw e;
         }
@@ -294,6 +316,10 @@ public class PaymentService {
         User currentUser = getCurrentUser();
 
         try {
+            Long customerId = paymentApplicationRepository.findCustomerIdById(applicationId)
+                    .orElseThrow(() -> new RuntimeException("Payment application not found with id: " + applicationId));
+            customerLockService.lockCustomer(customerId);
+
             PaymentApplication application = paymentApplicationRepository.findById(applicationId)
                     .orElseThrow(() -> new RuntimeException("Payment application not found with id: " + applicationId));
 
@@ -305,15 +331,24 @@ public class PaymentService {
             // Create audit snapshot before reversal
             Map<String, Object> oldValues = auditService.createAuditSnapshot(application);
 
+            RollupContribution applicationBefore = RollupContribution.of(application);
+            RollupContribution paymentBefore = RollupContribution.of(application.getPayment());
+
             // Reverse the application
             application.reverse(currentUser);
             paymentApplicationRepository.save(application);
 
+            // Re-open the reversed amount on the ledger entry
+            application.getLedgerEntry().reversePayment(application.getAppliedAmount());
+
             // Update payment applied amount
             Payment payment = application.getPayment();
             payment.reverseApplication(application.getAppliedAmount());
             paymentRepository.save(payment);
 
+            ledgerAggregateService.applyRollupChange(applicationBefore, RollupContribution.of(application));
+            ledgerAggregateService.applyRollupChange(paymentBefore, RollupContribution.of(payment));
+
             // Log successful reversal
             auditService.logSuccess("REVERSE_PAYMENT_APPLICATION", "PAYMENT_APPLICATION", applicationId,
                     oldValues, auditService.createAuditSnapshot(application),
@@ -333,51 +368,49 @@ public class PaymentService {
     }
 
     /**
-     * Get outstanding balance for a customer
+     * Get outstanding balance for a customer, with the first page of outstanding entries
      */
     public OutstandingBalanceResponse getOutstandingBalance(Long customerId) {
+        return getOutstandingBalance(customerId, 0, DEFAULT_OUTSTANDING_PAGE_SIZE);
+    }
+
+    /**
+     * Get outstanding balance for a customer.
+     * Totals cover every outstanding entry; the entries themselves are paged, oldest first. Out-of-range page
+     * numbers and sizes are clamped rather than rejected.
+     */
+    @Transactional(readOnly = true)
+    public OutstandingBalanceResponse getOutstandingBalance(Long customerId, int page, int size) {
         Customer customer = customerRepository.findById(customerId)
                 .orElseThrow(() -> new RuntimeException("Customer not found with id: " + customerId));
 
-        // Get all active debit entries that are not fully paid
-        List<LedgerEntry> debitEntries = ledgerEntryRepository.findByCustomerIdAndIsActiveTrueOrderByTransactionDateDesc(customerId)
-                .stream()
-                .filter(entry -> entry.isDebit())
-                .collect(Collectors.toList());
-
-        // Get all unapplied payments
-        List<Payment> unappliedPayments = paymentRepository.findUnappliedPaymentsByCustomer(customerId);
+        int pageNumber = Math.max(page, 0);
+        int pageSize = KeysetCursor.pageSize(size);
 
-        // Calculate outstanding entries
+        // Open entries come from the maintained outstanding amount; settled entries are never read
+        LocalDate today = LocalDate.now();
         List<OutstandingBalanceResponse.OutstandingEntry> outstandingEntries = new ArrayList<>();
-        BigDecimal totalOutstanding = BigDecimal.ZERO;
-        LocalDate oldestDate = null;
-        int totalDaysOutstanding = 0;
-
-        for (LedgerEntry entry : debitEntries) {
-            BigDecimal appliedToEntry = paymentApplicationRepository.calculateTotalAppliedForLedgerEntry(entry.getId());
-            BigDecimal outstandingAmount = entry.getAmount().subtract(appliedToEntry);
-
-            if (outstandingAmount.compareTo(BigDecimal.ZERO) > 0) {
-                int daysOutstanding = (int) ChronoUnit.DAYS.between(entry.getTransactionDate(), LocalDate.now());
-                
-                outstandingEntries.add(new OutstandingBalanceResponse.OutstandingEntry(
-                        entry.getId(),
-                        entry.getTransactionDate(),
-                        entry.getDescription(),
-                        entry.getAmount(),
-                        outstandingAmount,
-                        daysOutstanding
-                ));
+        for (Object[] row : ledgerEntryRepository.findOutstandingEntriesForCustomer(customerId,
+                PageRequest.of(pageNumber, pageSize))) {
+            LocalDate transactionDate = (LocalDate) row[1];
+            outstandingEntries.add(new OutstandingBalanceResponse.OutstandingEntry(
+                    (Long) row[0],
+                    transactionDate,
+                    (String) row[2],
+                    (BigDecimal) row[3],
+                    (BigDecimal) row[4],
+                    (int) ChronoUnit.DAYS.between(transactionDate, today)
+            ));
+        }
 
-                totalOutstanding = totalOutstanding.add(outstandingAmount);
-                totalDaysOutstanding += daysOutstanding;
+        Object[] totals = ledgerEntryRepository.summarizeOutstandingForCustomer(customerId).get(0);
+        long outstandingCount = ((Number) totals[0]).longValue();
+        BigDecimal totalOutstanding = new BigDecimal(totals[1].toString());
+        LocalDate oldestDate = totals[2] != null ? toLocalDate(totals[2]) : null;
+        long totalDaysOutstanding = ((Number) totals[3]).longValue();
 
-                if (oldestDate == null || entry.getTransactionDate().isBefore(oldestDate)) {
-                    oldestDate = entry.getTransactionDate();
-                }
-            }
-        }
+        // Get all unapplied payments
+        List<Payment> unappliedPayments = paymentRepository.findUnappliedPaymentsByCustomer(customerId);
 
         // Calculate unapplied payments
         List<OutstandingBalanceResponse.UnappliedPayment> unappliedPaymentList = new ArrayList<>();
@@ -408,11 +441,14 @@ public class PaymentService {
         response.setTotalCurrentBalance(customer.getCurrentBalance());
         response.setTotalUnappliedPayments(totalUnapplied);
         response.setNetOutstandingBalance(totalOutstanding.subtract(totalUnapplied));
-        response.setTotalOutstandingEntries(outstandingEntries.size());
+        response.setTotalOutstandingEntries(outstandingCount);
         response.setTotalUnappliedPaymentCount(unappliedPaymentList.size());
         response.setOldestOutstandingDate(oldestDate);
-        response.setAverageDaysOutstanding(outstandingEntries.isEmpty() ? 0 : totalDaysOutstanding / outstandingEntries.size());
+        response.setAverageDaysOutstanding(outstandingCount == 0 ? 0 : (int) (totalDaysOutstanding / outstandingCount));
         response.setOutstandingEntries(outstandingEntries);
+        // Echo the page actually read, so clients page on the clamped size
+        response.setPage(pageNumber);
+        response.setSize(pageSize);
         response.setUnappliedPayments(unappliedPaymentList);
 
         return response;
@@ -424,7 +460,7 @@ public class PaymentService {
     public PaymentResponse getPaymentById(Long id) {
         Payment payment = paymentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Payment not found with id: " + id));
-        return convertToPaymentResponse(payment);
+        return paymentReadService.toResponse(payment);
     }
 
     /**
@@ -439,115 +475,33 @@ public class PaymentService {
         Page<Payment> payments = paymentRepository.findByCustomerIdAndIsActiveTrueOrderByPaymentDateDesc(
                 customerId, pageable);
         
-        return payments.map(this::convertToPaymentResponse);
-    }
-
-    /**
-     * Get unapplied payments for customer
-     */
-    public List<PaymentResponse> getUnappliedPayments(Long customerId) {
-        List<Payment> payments = paymentRepository.findUnappliedPaymentsByCustomer(customerId);
-        return payments.stream()
-                .map(this::convertToPaymentResponse)
-                .collect(Collectors.toList());
-    }
-
-    /**
-     * Convert Payment entity to PaymentResponse DTO
-     */
-    private PaymentResponse convertToPaymentResponse(Payment payment) {
-        PaymentResponse response = new PaymentResponse();
-        response.setId(payment.getId());
-        response.setPaymentDate(payment.getPaymentDate());
-        response.setAmount(payment.getAmount());
-        response.setAppliedAmount(payment.getAppliedAmount());
-        response.setRemainingAmount(payment.getRemainingAmount());
-        response.setDescription(payment.getDescription());
-        response.setNotes(payment.getNotes());
-        response.setReferenceNumber(payment.getReferenceNumber());
-        response.setPaymentMethod(payment.getPaymentMethod());
-        response.setStatus(payment.getStatus());
-        response.setBankDetails(payment.getBankDetails());
-        response.setCheckNumber(payment.getCheckNumber());
-        response.setProcessedDate(payment.getProcessedDate());
-        response.setAdvancePayment(payment.isAdvancePayment());
-        response.setActive(payment.isActive());
-        response.setCustomerId(payment.getCustomer().getId());
-        response.setCustomerName(payment.getCustomer().getName());
-        response.setCreatedByUsername(payment.getCreatedBy().getUsername());
-        response.setUpdatedByUsername(payment.getUpdatedBy() != null ? payment.getUpdatedBy().getUsername() : null);
-        response.setCreatedAt(payment.getCreatedAt());
-        response.setUpdatedAt(payment.getUpdatedAt());
-
-        // Status tracking fields
-        response.setDueDate(payment.getDueDate());
-        response.setStatusUpdatedAt(payment.getStatusUpdatedAt());
-        response.setStatusUpdatedByUsername(payment.getStatusUpdatedBy() != null ? payment.getStatusUpdatedBy().getUsername() : null);
-        response.setStatusNotes(payment.getStatusNotes());
-        response.setDisputeDate(payment.getDisputeDate());
-        response.setDisputeReason(payment.getDisputeReason());
-        response.setDisputedByUsername(payment.getDisputedBy() != null ? payment.getDisputedBy().getUsername() : null);
-        response.setOverdueDays(payment.getOverdueDays());
-        response.setLastReminderSent(payment.getLastReminderSent());
-        response.setReminderCount(payment.getReminderCount());
-
-        // Get applications for this payment
-        List<PaymentApplication> applications = paymentApplicationRepository.findByPaymentIdAndIsReversedFalseOrderByAppliedAtDesc(payment.getId());
-        response.setApplications(applications.stream()
-                .map(this::convertToApplicationResponse)
-                .collect(Collectors.toList()));
-
-        return response;
+        return paymentReadService.toResponses(payments);
     }
 
     /**
-     * Convert PaymentApplication to PaymentApplicationResponse
+     * Get payments for customer by keyset, newest first, continuing after the given cursor
      */
-    private PaymentApplicationResponse convertToApplicationResponse(PaymentApplication application) {
-        PaymentApplicationResponse response = new PaymentApplicationResponse();
-        response.setId(application.getId());
-        response.setAppliedAmount(application.getAppliedAmount());
-        response.setApplicationNotes(application.getApplicationNotes());
-        response.setReversed(application.isReversed());
-        response.setReversedAt(application.getReversedAt());
-        response.setReversedByUsername(application.getReversedBy() != null ? application.getReversedBy().getUsername() : null);
-        response.setPaymentId(application.getPayment().getId());
-        response.setPaymentDescription(application.getPayment().getDescription());
-        response.setLedgerEntryId(application.getLedgerEntry().getId());
-        response.setLedgerEntryDescription(application.getLedgerEntry().getDescription());
-        response.setLedgerEntryAmount(application.getLedgerEntry().getAmount());
-        response.setAppliedByUsername(application.getAppliedBy().getUsername());
-        response.setAppliedAt(application.getAppliedAt());
-        return response;
-    }
-
-    /**
-     * Find ledger entry by payment reference number
-     */
-    private LedgerEntry findLedgerEntryByPaymentReference(String paymentReference) {
-        return ledgerEntryRepository.findByReferenceNumberIgnoreCaseAndIsActiveTrue(paymentReference)
-                .stream()
-                .findFirst()
-                .orElse(null);
+    @Transactional(readOnly = true)
+    public KeysetPage<PaymentResponse> getPaymentsForCustomerAfter(Long customerId, String after,
+                                                                  int size, boolean includeTotal) {
+        KeysetCursor cursor = KeysetCursor.decode(after);
+        int pageSize = KeysetCursor.pageSize(size);
+
+        List<Payment> rows = paymentRepository.findPageForCustomer(customerId,
+                KeysetCursor.dateOf(cursor), KeysetCursor.idOf(cursor), PageRequest.of(0, pageSize + 1));
+        KeysetPage<Payment> page = KeysetPage.of(rows, pageSize, this::cursorOf);
+        if (includeTotal) {
+            page.setTotalElements(paymentRepository.countByCustomerIdAndIsActiveTrue(customerId));
+        }
+        return page.mapContent(paymentReadService::toResponses);
     }
 
     /**
-     * Sync existing payments with ledger entries.
-     * This method can be used to create ledger entries for payments that were recorded
-     * before the automatic ledger entry creation was implemented.
+     * Get unapplied payments for customer
      */
-    public void syncExistingPaymentsWithLedgerEntries() {
-        User currentUser = getCurrentUser();
-        List<Payment> paymentsWithoutLedgerEntries = paymentRepository.findAll().stream()
-                .filter(payment -> {
-                    String reference = "PAY-" + payment.getId();
-                    return findLedgerEntryByPaymentReference(reference) == null;
-                })
-                .toList();
-
-        for (Payment payment : paymentsWithoutLedgerEntries) {
-            createLedgerEntryForPayment(payment, currentUser);
-        }
+    public List<PaymentResponse> getUnappliedPayments(Long customerId) {
+        List<Payment> payments = paymentRepository.findUnappliedPaymentsByCustomer(customerId);
+        return paymentReadService.toResponses(payments);
     }
 
     /**
@@ -567,12 +521,15 @@ public class PaymentService {
             ledgerEntry.setDescription(payment.getDescription() != null ? payment.getDescription() : "Payment received");
             ledgerEntry.setAmount(payment.getAmount());
             ledgerEntry.setTransactionType(TransactionType.CREDIT); // Payment is a credit to the customer
-            ledgerEntry.setReferenceNumber("PAY-" + payment.getId()); // Link to payment
+            ledgerEntry.setReferenceNumber("PAY-" + payment.getId()); // Shown on statements
+            ledgerEntry.setPayment(payment);
             ledgerEntry.setPaymentMethod(payment.getPaymentMethod());
             ledgerEntry.setNotes(payment.getNotes());
             ledgerEntry.setActive(true);
             ledgerEntry.setCreatedBy(currentUser);
             ledgerEntry.setUpdatedBy(currentUser);
+            ledgerEntry.setBalanceAfterTransaction(
+                    customerBalanceService.projectBalance(payment.getCustomer(), ledgerEntry));
 
             // Create audit snapshot before saving
             Map<String, Object> auditSnapshot = auditService.createAuditSnapshot(ledgerEntry);
@@ -580,6 +537,11 @@ public class PaymentService {
             // Save ledger entry
             LedgerEntry savedLedgerEntry = ledgerEntryRepository.save(ledgerEntry);
 
+            // Keep the customer's maintained balance in step with the new credit
+            customerBalanceService.applyEntryChange(payment.getCustomer(), null, savedLedgerEntry);
+            ledgerAggregateService.applyEntryChange(null, LedgerEntryState.of(savedLedgerEntry));
+            ledgerRebalanceService.rebalanceIfBackdated(payment.getCustomer().getId(), savedLedgerEntry.getTransactionDate());
+
             // Log successful creation
             auditService.logSuccess("CREATE_LEDGER_ENTRY", "LEDGER_ENTRY", savedLedgerEntry.getId(),
                     null, auditSnapshot,
@@ -595,6 +557,15 @@ public class PaymentService {
         }
     }
 
+    /**
+     * Lock the customer owning a payment before the payment itself is read
+     */
+    private void lockCustomerOfPayment(Long paymentId) {
+        Long customerId = paymentRepository.findCustomerIdById(paymentId)
+                .orElseThrow(() -> new RuntimeException("Payment not found with id: " + paymentId));
+        customerLockService.lockCustomer(customerId);
+    }
+
     /**
      * Get current authenticated user
      */
@@ -631,6 +602,43 @@ public class PaymentService {
         Page<Payment> payments = paymentRepository.findByShopIdInAndIsActiveTrueOrderByPaymentDateDesc(shopIds, pageable);
         
         // Convert to DTOs
-        return payments.map(this::convertToPaymentResponse);
+        return paymentReadService.toResponses(payments);
+    }
+
+    /**
+     * Get payments for shops owned by the current user by keyset, newest first, continuing after the given cursor
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<PaymentResponse> getPaymentsForOwnerShopsAfter(String after, int size, boolean includeTotal) {
+        User currentUser = getCurrentUser();
+        KeysetCursor cursor = KeysetCursor.decode(after);
+        int pageSize = KeysetCursor.pageSize(size);
+
+        List<Long> shopIds = shopRepository.findByOwnerIdAndIsActiveTrue(currentUser.getId()).stream()
+                .map(Shop::getId)
+                .toList();
+        if (shopIds.isEmpty()) {
+            KeysetPage<PaymentResponse> empty = KeysetPage.of(new ArrayList<>(), pageSize, response -> null);
+            if (includeTotal) {
+                empty.setTotalElements(0L);
+            }
+            return empty;
+        }
+
+        List<Payment> rows = paymentRepository.findPageForShops(shopIds,
+                KeysetCursor.dateOf(cursor), KeysetCursor.idOf(cursor), PageRequest.of(0, pageSize + 1));
+        KeysetPage<Payment> page = KeysetPage.of(rows, pageSize, this::cursorOf);
+        if (includeTotal) {
+            page.setTotalElements(paymentRepository.countByShopIdInAndIsActiveTrue(shopIds));
+        }
+        return page.mapContent(paymentReadService::toResponses);
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof java.sql.Date date ? date.toLocalDate() : (LocalDate) value;
+    }
+
+    private String cursorOf(Payment payment) {
+        return KeysetCursor.encode(payment.getPaymentDate(), payment.getId());
     }
 }
@@ -5,6 +5,7 @@ import com.example.ledgerly.dto.PaymentResponse;
 import com.example.ledgerly.dto.PaymentStatusUpdateRequest;
 import com.example.ledgerly.entity.Payment;
 import com.example.ledgerly.entity.PaymentStatus;
+import com.example.ledgerly.entity.RollupSource;
 import com.example.ledgerly.entity.User;
 import com.example.ledgerly.exception.BusinessRuleException;
 import com.example.ledgerly.repository.PaymentRepository;
@@ -14,16 +15,17 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * Service for managing payment status tracking and updates
@@ -35,14 +37,26 @@ public class PaymentStatusService {
     private final PaymentRepository paymentRepository;
     private final UserRepository userRepository;
     private final AuditService auditService;
+    private final CustomerLockService customerLockService;
+    private final LedgerAggregateService ledgerAggregateService;
+    private final PaymentReadService paymentReadService;
+    private final OverdueScheduler overdueScheduler;
 
     @Autowired
     public PaymentStatusService(PaymentRepository paymentRepository,
                                UserRepository userRepository,
-                               AuditService auditService) {
+                               AuditService auditService,
+                               CustomerLockService customerLockService,
+                               LedgerAggregateService ledgerAggregateService,
+                               PaymentReadService paymentReadService,
+                               OverdueScheduler overdueScheduler) {
         this.paymentRepository = paymentRepository;
         this.userRepository = userRepository;
         this.auditService = auditService;
+        this.customerLockService = customerLockService;
+        this.ledgerAggregateService = ledgerAggregateService;
+        this.paymentReadService = paymentReadService;
+        this.overdueScheduler = overdueScheduler;
     }
 
     /**
@@ -52,11 +66,14 @@ public class PaymentStatusService {
         User currentUser = getCurrentUser();
 
         try {
+            lockCustomerOfPayment(paymentId);
+
             Payment payment = paymentRepository.findById(paymentId)
                     .orElseThrow(() -> new RuntimeException("Payment not found with id: " + paymentId));
 
             // Create audit snapshot of old values
             Map<String, Object> oldValues = auditService.createAuditSnapshot(payment);
+            RollupContribution rollupBefore = RollupContribution.of(payment);
 
             PaymentStatus oldStatus = payment.getStatus();
 
@@ -92,6 +109,8 @@ public class PaymentStatusService {
             }
 
             Payment updatedPayment = paymentRepository.save(payment);
+            ledgerAggregateService.applyRollupChange(rollupBefore, RollupContribution.of(updatedPayment));
+            overdueScheduler.track(updatedPayment);
 
             // Create audit snapshot of new values
             Map<String, Object> newValues = auditService.createAuditSnapshot(updatedPayment);
@@ -103,7 +122,7 @@ public class PaymentStatusService {
                                 oldStatus, request.getStatus(), paymentId),
                     currentUser);
 
-            return convertToPaymentResponse(updatedPayment);
+            return paymentReadService.toResponse(updatedPayment);
 
         } catch (BusinessRuleException e) {
             throw e;
@@ -123,11 +142,14 @@ public class PaymentStatusService {
         User currentUser = getCurrentUser();
 
         try {
+            lockCustomerOfPayment(paymentId);
+
             Payment payment = paymentRepository.findById(paymentId)
                     .orElseThrow(() -> new RuntimeException("Payment not found with id: " + paymentId));
 
             // Create audit snapshot of old values
             Map<String, Object> oldValues = auditService.createAuditSnapshot(payment);
+            RollupContribution rollupBefore = RollupContribution.of(payment);
 
             // Mark as disputed
             String fullReason = request.getDisputeReason();
@@ -137,6 +159,8 @@ public class PaymentStatusService {
 
             payment.markAsDisputed(currentUser, fullReason);
             Payment updatedPayment = paymentRepository.save(payment);
+            ledgerAggregateService.applyRollupChange(rollupBefore, RollupContribution.of(updatedPayment));
+            overdueScheduler.track(updatedPayment);
 
             // Create audit snapshot of new values
             Map<String, Object> newValues = auditService.createAuditSnapshot(updatedPayment);
@@ -148,7 +172,7 @@ public class PaymentStatusService {
                                 paymentId, currentUser.getUsername(), request.getDisputeReason()),
                     currentUser);
 
-            return convertToPaymentResponse(updatedPayment);
+            return paymentReadService.toResponse(updatedPayment);
 
         } catch (BusinessRuleException e) {
             throw e;
@@ -168,15 +192,20 @@ public class PaymentStatusService {
         User currentUser = getCurrentUser();
 
         try {
+            lockCustomerOfPayment(paymentId);
+
             Payment payment = paymentRepository.findById(paymentId)
                     .orElseThrow(() -> new RuntimeException("Payment not found with id: " + paymentId));
 
             // Create audit snapshot of old values
             Map<String, Object> oldValues = auditService.createAuditSnapshot(payment);
+            RollupContribution rollupBefore = RollupContribution.of(payment);
 
             // Resolve dispute
             payment.resolveDispute(currentUser, resolutionNotes);
             Payment updatedPayment = paymentRepository.save(payment);
+            ledgerAggregateService.applyRollupChange(rollupBefore, RollupContribution.of(updatedPayment));
+            overdueScheduler.track(updatedPayment);
 
             // Create audit snapshot of new values
             Map<String, Object> newValues = auditService.createAuditSnapshot(updatedPayment);
@@ -188,7 +217,7 @@ public class PaymentStatusService {
                                 paymentId, currentUser.getUsername(), resolutionNotes),
                     currentUser);
 
-            return convertToPaymentResponse(updatedPayment);
+            return paymentReadService.toResponse(updatedPayment);
 
         } catch (BusinessRuleException e) {
             throw e;
@@ -212,7 +241,7 @@ public class PaymentStatusService {
         Pageable pageable = PageRequest.of(page, size, sort);
         Page<Payment> payments = paymentRepository.findByStatusAndIsActiveTrueOrderByPaymentDateDesc(status, pageable);
         
-        return payments.map(this::convertToPaymentResponse);
+        return paymentReadService.toResponses(payments);
     }
 
     /**
@@ -220,9 +249,7 @@ public class PaymentStatusService {
      */
     public List<PaymentResponse> getOverduePayments() {
         List<Payment> overduePayments = paymentRepository.findByStatusAndIsActiveTrueOrderByPaymentDateDesc(PaymentStatus.OVERDUE);
-        return overduePayments.stream()
-                .map(this::convertToPaymentResponse)
-                .collect(Collectors.toList());
+        return paymentReadService.toResponses(overduePayments);
     }
 
     /**
@@ -230,26 +257,27 @@ public class PaymentStatusService {
      */
     public List<PaymentResponse> getDisputedPayments() {
         List<Payment> disputedPayments = paymentRepository.findByStatusAndIsActiveTrueOrderByPaymentDateDesc(PaymentStatus.DISPUTED);
-        return disputedPayments.stream()
-                .map(this::convertToPaymentResponse)
-                .collect(Collectors.toList());
+        return paymentReadService.toResponses(disputedPayments);
     }
 
     /**
-     * Get payment status summary
+     * Get payment status summary, read from the payment rollups
      */
+    @Transactional(readOnly = true)
     public Map<String, Object> getPaymentStatusSummary() {
         Map<String, Object> summary = new HashMap<>();
         
         // Count by status
         Map<String, Long> statusCounts = new HashMap<>();
         for (PaymentStatus status : PaymentStatus.values()) {
-            long count = paymentRepository.countByStatusAndIsActiveTrue(status);
-            statusCounts.put(status.name(), count);
+            statusCounts.put(status.name(), 0L);
+        }
+        long totalPayments = 0;
+        for (LedgerAggregateService.RollupTotal total : ledgerAggregateService.getRollupByCategory(RollupSource.PAYMENT, null)) {
+            statusCounts.put(total.getKey(), total.getCount());
+            totalPayments += total.getCount();
         }
         
-        // Get total counts
-        long totalPayments = paymentRepository.countByIsActiveTrue();
         long problematicPayments = statusCounts.getOrDefault("OVERDUE", 0L) + 
                                  statusCounts.getOrDefault("DISPUTED", 0L) + 
                                  statusCounts.getOrDefault("FAILED", 0L);
@@ -264,47 +292,54 @@ public class PaymentStatusService {
     }
 
     /**
-     * Automatically check for overdue payments (scheduled task)
+     * Payment count and amount by status for a customer over a year, or one month of it
      */
-    @Scheduled(cron = "0 0 9 * * ?") // Run daily at 9 AM
-    public void checkOverduePayments() {
-        try {
-            List<Payment> pendingPayments = paymentRepository.findByStatusAndIsActiveTrueOrderByPaymentDateDesc(PaymentStatus.PENDING);
-            pendingPayments.addAll(paymentRepository.findByStatusAndIsActiveTrueOrderByPaymentDateDesc(PaymentStatus.PARTIAL));
-
-            int overdueCount = 0;
-            User systemUser = getSystemUser();
-
-            for (Payment payment : pendingPayments) {
-                if (payment.isOverdue() && payment.getStatus() != PaymentStatus.OVERDUE) {
-                    int daysOverdue = payment.calculateOverdueDays();
-                    payment.markAsOverdue(systemUser, daysOverdue);
-                    paymentRepository.save(payment);
-                    overdueCount++;
-
-                    // Log automatic status update
-                    auditService.logSuccess("AUTO_MARK_OVERDUE", "PAYMENT", payment.getId(),
-                            null, auditService.createAuditSnapshot(payment),
-                            String.format("Automatically marked payment %d as overdue (%d days)", 
-                                        payment.getId(), daysOverdue),
-                            systemUser);
-                }
-            }
+    @Transactional(readOnly = true)
+    public Map<String, Object> getCustomerPaymentSummary(Long customerId, int year, Integer month) {
+        return toSummary(ledgerAggregateService.getCustomerRollup(RollupSource.PAYMENT, customerId, year, month));
+    }
 
-            if (overdueCount > 0) {
-                auditService.logSuccess("OVERDUE_CHECK_COMPLETED", "SYSTEM", null,
-                        null, null,
-                        String.format("Checked for overdue payments, marked %d payments as overdue", overdueCount),
-                        systemUser);
-            }
+    /**
+     * Applied payment count and amount per month, newest first, optionally for one shop
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getApplicationMonthlySummary(Long shopId) {
+        List<Map<String, Object>> months = new ArrayList<>();
+        for (LedgerAggregateService.RollupTotal total :
+                ledgerAggregateService.getRollupByMonth(RollupSource.PAYMENT_APPLICATION, shopId)) {
+            Map<String, Object> month = new LinkedHashMap<>();
+            month.put("month", total.getKey());
+            month.put("applicationCount", total.getCount());
+            month.put("appliedAmount", total.getAmount());
+            months.add(month);
+        }
+        return months;
+    }
 
-        } catch (Exception e) {
-            User systemUser = getSystemUser();
-            auditService.logFailure("OVERDUE_CHECK_FAILED", "SYSTEM", null,
-                    e.getMessage(),
-                    "Failed to check for overdue payments during scheduled task",
-                    systemUser);
+    private Map<String, Object> toSummary(List<LedgerAggregateService.RollupTotal> totals) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        List<Map<String, Object>> byStatus = new ArrayList<>();
+        long totalCount = 0;
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (LedgerAggregateService.RollupTotal total : totals) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("status", total.getKey());
+            row.put("count", total.getCount());
+            row.put("amount", total.getAmount());
+            byStatus.add(row);
+            totalCount += total.getCount();
+            totalAmount = totalAmount.add(total.getAmount());
         }
+        summary.put("byStatus", byStatus);
+        summary.put("totalCount", totalCount);
+        summary.put("totalAmount", totalAmount);
+        return summary;
+    }
+
+    private void lockCustomerOfPayment(Long paymentId) {
+        Long customerId = paymentRepository.findCustomerIdById(paymentId)
+                .orElseThrow(() -> new RuntimeException("Payment not found with id: " + paymentId));
+        customerLockService.lockCustomer(customerId);
     }
 
     /**
@@ -336,48 +371,6 @@ public class PaymentStatusService {
         }
     }
 
-    /**
-     * Convert Payment entity to PaymentResponse DTO
-     */
-    private PaymentResponse convertToPaymentResponse(Payment payment) {
-        PaymentResponse response = new PaymentResponse();
-        response.setId(payment.getId());
-        response.setPaymentDate(payment.getPaymentDate());
-        response.setAmount(payment.getAmount());
-        response.setAppliedAmount(payment.getAppliedAmount());
-        response.setRemainingAmount(payment.getRemainingAmount());
-        response.setDescription(payment.getDescription());
-        response.setNotes(payment.getNotes());
-        response.setReferenceNumber(payment.getReferenceNumber());
-        response.setPaymentMethod(payment.getPaymentMethod());
-        response.setStatus(payment.getStatus());
-        response.setBankDetails(payment.getBankDetails());
-        response.setCheckNumber(payment.getCheckNumber());
-        response.setProcessedDate(payment.getProcessedDate());
-        response.setAdvancePayment(payment.isAdvancePayment());
-        response.setActive(payment.isActive());
-        response.setCustomerId(payment.getCustomer().getId());
-        response.setCustomerName(payment.getCustomer().getName());
-        response.setCreatedByUsername(payment.getCreatedBy().getUsername());
-        response.setUpdatedByUsername(payment.getUpdatedBy() != null ? payment.getUpdatedBy().getUsername() : null);
-        response.setCreatedAt(payment.getCreatedAt());
-        response.setUpdatedAt(payment.getUpdatedAt());
-
-        // Status tracking fields
-        response.setDueDate(payment.getDueDate());
-        response.setStatusUpdatedAt(payment.getStatusUpdatedAt());
-        response.setStatusUpdatedByUsername(payment.getStatusUpdatedBy() != null ? payment.getStatusUpdatedBy().getUsername() : null);
-        response.setStatusNotes(payment.getStatusNotes());
-        response.setDisputeDate(payment.getDisputeDate());
-        response.setDisputeReason(payment.getDisputeReason());
-        response.setDisputedByUsername(payment.getDisputedBy() != null ? payment.getDisputedBy().getUsername() : null);
-        response.setOverdueDays(payment.getOverdueDays());
-        response.setLastReminderSent(payment.getLastReminderSent());
-        response.setReminderCount(payment.getReminderCount());
-
-        return response;
-    }
-
     /**
      * Get current authenticated user
      */
@@ -387,12 +380,4 @@ public class PaymentStatusService {
         return userRepository.findByUsernameOrEmail(username)
                 .orElseThrow(() -> new RuntimeException("Current user not found"));
     }
-
-    /**
-     * Get system user for automated tasks
-     */
-    private User getSystemUser() {
-        return userRepository.findByUsernameOrEmail("system")
-                .orElse(getCurrentUser()); // Fallback to current user if system user doesn't exist
-    }
 }
@@ -0,0 +1,80 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.Payment;
+import com.example.ledgerly.entity.PaymentApplication;
+import com.example.ledgerly.entity.RollupSource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Immutable copy of the fields of a ledger entry, payment or payment application that place it in a summary rollup.
+ * Captured before a row is mutated so that rollups can be adjusted by delta.
+ */
+public final class RollupContribution {
+
+    /**
+     * Category of every counted payment application
+     */
+    public static final String APPLIED = "APPLIED";
+
+    private final RollupSource source;
+    private final Long shopId;
+    private final Long customerId;
+    private final LocalDate periodStart;
+    private final String category;
+    private final BigDecimal amount;
+    private final boolean counted;
+
+    public RollupContribution(RollupSource source, Long shopId, Long customerId, LocalDate date,
+                              String category, BigDecimal amount, boolean counted) {
+        this.source = source;
+        this.shopId = shopId;
+        this.customerId = customerId;
+        this.periodStart = date != null ? date.withDayOfMonth(1) : null;
+        this.category = category;
+        this.amount = amount;
+        this.counted = counted;
+    }
+
+    public static RollupContribution of(LedgerEntryState entry) {
+        return new RollupContribution(RollupSource.LEDGER_ENTRY, entry.getShopId(), entry.getCustomerId(),
+                entry.getTransactionDate(),
+                entry.getTransactionType() != null ? entry.getTransactionType().name() : null,
+                entry.getAmount(), entry.isActive());
+    }
+
+    public static RollupContribution of(Payment payment) {
+        return new RollupContribution(RollupSource.PAYMENT,
+                payment.getShop() != null ? payment.getShop().getId() : null,
+                payment.getCustomer() != null ? payment.getCustomer().getId() : null,
+                payment.getPaymentDate(),
+                payment.getStatus() != null ? payment.getStatus().name() : null,
+                payment.getAmount(), payment.isActive());
+    }
+
+    public static RollupContribution of(PaymentApplication application) {
+        Payment payment = application.getPayment();
+        // applied_at is stamped on insert; an application is rolled up in the month it is created
+        LocalDate appliedDate = application.getAppliedAt() != null
+                ? application.getAppliedAt().toLocalDate() : LocalDate.now();
+        return new RollupContribution(RollupSource.PAYMENT_APPLICATION,
+                payment != null && payment.getShop() != null ? payment.getShop().getId() : null,
+                payment != null && payment.getCustomer() != null ? payment.getCustomer().getId() : null,
+                appliedDate, APPLIED, application.getAppliedAmount(), !application.isReversed());
+    }
+
+    /**
+     * Whether this row is included in its rollup (active, not reversed, and fully keyed)
+     */
+    public boolean isCounted() {
+        return counted && customerId != null && periodStart != null && category != null && amount != null;
+    }
+
+    public RollupSource getSource() { return source; }
+    public Long getShopId() { return shopId; }
+    public Long getCustomerId() { return customerId; }
+    public LocalDate getPeriodStart() { return periodStart; }
+    public String getCategory() { return category; }
+    public BigDecimal getAmount() { return amount; }
+}
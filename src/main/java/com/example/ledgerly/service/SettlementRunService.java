@@ -0,0 +1,292 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.User;
+import com.example.ledgerly.exception.BusinessRuleException;
+import com.example.ledgerly.repository.PaymentRepository;
+import com.example.ledgerly.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulk settlement run: auto-applies the unapplied payments of every customer that also has open debits.
+ *
+ * Candidate customers are read in id-ordered batches, each batch is cut into partitions and the partitions
+ * are processed concurrently on a bounded thread pool. Every customer is settled in its own transaction
+ * under its customer lock, so one failing customer neither rolls back nor blocks the others. The run
+ * writes a single summary audit row instead of one row per payment.
+ */
+@Service
+public class SettlementRunService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SettlementRunService.class);
+    private static final int CANDIDATE_BATCH_SIZE = 1000;
+    private static final int MAX_REPORTED_FAILURES = 100;
+
+    private final PaymentRepository paymentRepository;
+    private final UserRepository userRepository;
+    private final CustomerLockService customerLockService;
+    private final PaymentAllocationService paymentAllocationService;
+    private final AuditService auditService;
+    private final TransactionTemplate transactionTemplate;
+
+    // Only one run at a time; a second trigger is rejected rather than queued
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Value("${app.settlement.threads:4}")
+    private int threads;
+
+    @Value("${app.settlement.partition-size:50}")
+    private int partitionSize;
+
+    @Value("${app.settlement.strategy:FIFO}")
+    private AllocationStrategy scheduledStrategy;
+
+    @Autowired
+    public SettlementRunService(PaymentRepository paymentRepository,
+                                UserRepository userRepository,
+                                CustomerLockService customerLockService,
+                                PaymentAllocationService paymentAllocationService,
+                                AuditService auditService,
+                                PlatformTransactionManager transactionManager) {
+        this.paymentRepository = paymentRepository;
+        this.userRepository = userRepository;
+        this.customerLockService = customerLockService;
+        this.paymentAllocationService = paymentAllocationService;
+        this.auditService = auditService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Settle every customer that has both applicable payments and open debit entries
+     */
+    public SettlementRunResult runSettlement(AllocationStrategy strategy) {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessRuleException("SETTLEMENT_RUN_IN_PROGRESS", "A settlement run is already in progress");
+        }
+
+        try {
+            return settleAll(strategy);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private SettlementRunResult settleAll(AllocationStrategy strategy) {
+        User runUser = getRunUser();
+        long startTime = System.currentTimeMillis();
+        SettlementRunResult result = new SettlementRunResult(strategy);
+
+        // Bounded queue with caller-runs: the reading thread settles a partition itself instead of queueing more
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 2), new SettlementThreadFactory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            Long afterId = 0L;
+            while (true) {
+                List<Long> candidates = paymentRepository.findSettlementCandidateIdsAfter(afterId,
+                        PageRequest.of(0, CANDIDATE_BATCH_SIZE));
+                if (candidates.isEmpty()) {
+                    break;
+                }
+
+                List<Future<SettlementRunResult>> partitions = new ArrayList<>();
+                for (int from = 0; from < candidates.size(); from += partitionSize) {
+                    List<Long> partition = candidates.subList(from, Math.min(from + partitionSize, candidates.size()));
+                    partitions.add(executor.submit(() -> settlePartition(partition, strategy, runUser)));
+                }
+                for (Future<SettlementRunResult> partition : partitions) {
+                    result.merge(awaitPartition(partition));
+                }
+
+                afterId = candidates.get(candidates.size() - 1);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        result.durationMs = System.currentTimeMillis() - startTime;
+        logger.info("Settlement run ({}) processed {} customers in {} ms ({} customers/s): {} settled, {} failed, " +
+                        "{} applications, {} applied",
+                strategy, result.customersProcessed, result.durationMs, result.getCustomersPerSecond(),
+                result.customersSettled, result.failureCount, result.applicationCount, result.totalApplied);
+
+        String description = String.format("Settlement run (%s) processed %d customers in %d ms: %d settled, " +
+                        "%d failed, %d payments updated, %d applications, %s applied",
+                strategy, result.customersProcessed, result.durationMs, result.customersSettled,
+                result.failureCount, result.paymentsUpdated, result.applicationCount, result.totalApplied);
+        if (result.failureCount > 0) {
+            auditService.logFailure("SETTLEMENT_RUN", "SYSTEM", null,
+                    String.format("%d customers failed, first: %s", result.failureCount,
+                            result.failures.get(0).getMessage()),
+                    description, runUser);
+        } else {
+            auditService.logSuccess("SETTLEMENT_RUN", "SYSTEM", null, null, null, description, runUser);
+        }
+        return result;
+    }
+
+    /**
+     * Nightly settlement run (scheduled task)
+     */
+    @Scheduled(cron = "${app.settlement.cron:0 0 1 * * ?}")
+    public void scheduledSettlementRun() {
+        try {
+            runSettlement(scheduledStrategy);
+        } catch (Exception e) {
+            logger.error("Scheduled settlement run failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Settle each customer of a partition in its own transaction; failures are recorded and skipped
+     */
+    private SettlementRunResult settlePartition(List<Long> customerIds, AllocationStrategy strategy, User runUser) {
+        SettlementRunResult partial = new SettlementRunResult(strategy);
+        for (Long customerId : customerIds) {
+            partial.customersProcessed++;
+            try {
+                PaymentAllocationService.AllocationResult settled = transactionTemplate.execute(status -> {
+                    customerLockService.lockCustomer(customerId);
+                    return paymentAllocationService.allocate(customerId,
+                            paymentRepository.findApplicablePaymentsByCustomer(customerId), strategy, runUser, false);
+                });
+                if (settled != null && settled.getApplicationCount() > 0) {
+                    partial.customersSettled++;
+                    partial.paymentsUpdated += settled.getPayments().size();
+                    partial.applicationCount += settled.getApplicationCount();
+                    partial.totalApplied = partial.totalApplied.add(settled.getTotalApplied());
+                }
+            } catch (Exception e) {
+                logger.warn("Settlement of customer {} failed: {}", customerId, e.getMessage());
+                partial.failureCount++;
+                if (partial.failures.size() < MAX_REPORTED_FAILURES) {
+                    partial.failures.add(new SettlementFailure(customerId, e.getMessage()));
+                }
+            }
+        }
+        return partial;
+    }
+
+    private SettlementRunResult awaitPartition(Future<SettlementRunResult> partition) {
+        try {
+            return partition.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Settlement run interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Settlement partition failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * User recorded on the applications: the system user, else whoever triggered the run
+     */
+    private User getRunUser() {
+        return userRepository.findByUsernameOrEmail("system").orElseGet(() -> {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication == null) {
+                throw new IllegalStateException("System user not found; scheduled settlement needs a 'system' user");
+            }
+            return userRepository.findByUsernameOrEmail(authentication.getName())
+                    .orElseThrow(() -> new RuntimeException("Current user not found"));
+        });
+    }
+
+    /**
+     * Names the pool threads so they stand out in thread dumps and logs
+     */
+    private static final class SettlementThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "settlement-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * A customer whose settlement failed and was rolled back
+     */
+    public static class SettlementFailure {
+        private final Long customerId;
+        private final String message;
+
+        public SettlementFailure(Long customerId, String message) {
+            this.customerId = customerId;
+            this.message = message;
+        }
+
+        public Long getCustomerId() { return customerId; }
+        public String getMessage() { return message; }
+    }
+
+    /**
+     * Outcome of a settlement run; partitions build their own and are merged by the reading thread
+     */
+    public static class SettlementRunResult {
+        private final AllocationStrategy strategy;
+        private long customersProcessed;
+        private long customersSettled;
+        private long paymentsUpdated;
+        private long applicationCount;
+        private long failureCount;
+        private BigDecimal totalApplied = BigDecimal.ZERO;
+        private long durationMs;
+        private final List<SettlementFailure> failures = new ArrayList<>();
+
+        SettlementRunResult(AllocationStrategy strategy) {
+            this.strategy = strategy;
+        }
+
+        void merge(SettlementRunResult partial) {
+            customersProcessed += partial.customersProcessed;
+            customersSettled += partial.customersSettled;
+            paymentsUpdated += partial.paymentsUpdated;
+            applicationCount += partial.applicationCount;
+            failureCount += partial.failureCount;
+            totalApplied = totalApplied.add(partial.totalApplied);
+            for (SettlementFailure failure : partial.failures) {
+                if (failures.size() < MAX_REPORTED_FAILURES) {
+                    failures.add(failure);
+                }
+            }
+        }
+
+        public AllocationStrategy getStrategy() { return strategy; }
+        public long getCustomersProcessed() { return customersProcessed; }
+        public long getCustomersSettled() { return customersSettled; }
+        public long getPaymentsUpdated() { return paymentsUpdated; }
+        public long getApplicationCount() { return applicationCount; }
+        public long getFailureCount() { return failureCount; }
+        public BigDecimal getTotalApplied() { return totalApplied; }
+        public long getDurationMs() { return durationMs; }
+        public List<SettlementFailure> getFailures() { return failures; }
+
+        public double getCustomersPerSecond() {
+            return durationMs > 0 ? customersProcessed * 1000.0 / durationMs : customersProcessed;
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.Payment;
+import com.example.ledgerly.repository.CustomerRepository;
+import com.example.ledgerly.repository.LedgerEntryRepository;
+import com.example.ledgerly.repository.PaymentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Suggests how a customer's unapplied payments could settle their open entries, without applying anything.
+ *
+ * Open entries and unapplied payments are read once and matched on minor-unit (cent) amounts:
+ * <ol>
+ *   <li>EXACT: an entry with exactly the payment's amount, found through a hash of entry amounts</li>
+ *   <li>NEAR_EXACT: an entry within the configured tolerance, e.g. a payment short by a bank fee</li>
+ *   <li>COMBINATION: two entries (hash lookup of the complement) or three entries among the oldest
+ *       COMBINATION_WINDOW candidates that add up to the payment exactly</li>
+ *   <li>FIFO: whatever is left is spread over the remaining entries, oldest first</li>
+ * </ol>
+ * Earlier passes take precedence, so an entry matched exactly is never split by the FIFO fallback.
+ */
+@Service
+@Transactional(readOnly = true)
+public class SettlementSuggestionService {
+
+    // Three-entry combinations are only searched among this many of the oldest untouched entries
+    static final int COMBINATION_WINDOW = 64;
+
+    private final CustomerRepository customerRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final PaymentRepository paymentRepository;
+
+    @Value("${app.settlement.suggestions.near-match-tolerance:1.00}")
+    private BigDecimal nearMatchTolerance;
+
+    @Autowired
+    public SettlementSuggestionService(CustomerRepository customerRepository,
+                                       LedgerEntryRepository ledgerEntryRepository,
+                                       PaymentRepository paymentRepository) {
+        this.customerRepository = customerRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.paymentRepository = paymentRepository;
+    }
+
+    /**
+     * Suggest settlements for every unapplied payment of a customer
+     */
+    public List<SettlementSuggestion> getSettlementSuggestions(Long customerId) {
+        if (!customerRepository.existsById(customerId)) {
+            throw new RuntimeException("Customer not found with id: " + customerId);
+        }
+
+        // One snapshot of the open entries, oldest first: [id, transaction date, description, amount, outstanding]
+        List<Object[]> entryRows = ledgerEntryRepository.findOutstandingEntriesForCustomer(customerId,
+                Pageable.unpaged());
+        long[] entryCents = new long[entryRows.size()];
+        for (int i = 0; i < entryCents.length; i++) {
+            entryCents[i] = toCents((BigDecimal) entryRows.get(i)[4]);
+        }
+
+        List<Payment> payments = new ArrayList<>();
+        for (Payment payment : paymentRepository.findUnappliedPaymentsByCustomer(customerId)) {
+            if (payment.getUnappliedAmount().compareTo(BigDecimal.ZERO) > 0) {
+                payments.add(payment);
+            }
+        }
+        long[] paymentCents = new long[payments.size()];
+        for (int i = 0; i < paymentCents.length; i++) {
+            paymentCents[i] = toCents(payments.get(i).getUnappliedAmount());
+        }
+
+        List<Match> matches = match(entryCents, paymentCents, toCents(nearMatchTolerance));
+
+        LocalDate today = LocalDate.now();
+        Map<Integer, SettlementSuggestion> suggestions = new HashMap<>();
+        List<SettlementSuggestion> ordered = new ArrayList<>();
+        for (Match match : matches) {
+            SettlementSuggestion suggestion = suggestions.computeIfAbsent(match.payment, index -> {
+                Payment payment = payments.get(index);
+                SettlementSuggestion created = new SettlementSuggestion(payment.getId(), payment.getDescription(),
+                        payment.getAmount(), payment.getUnappliedAmount(), match.type);
+                ordered.add(created);
+                return created;
+            });
+
+            Object[] row = entryRows.get(match.entry);
+            LocalDate transactionDate = (LocalDate) row[1];
+            suggestion.add(new SuggestedApplication((Long) row[0], (String) row[2], (BigDecimal) row[4],
+                    fromCents(match.cents), (int) ChronoUnit.DAYS.between(transactionDate, today)));
+        }
+        return ordered;
+    }
+
+    /**
+     * Match payments to entries on cent amounts. Entries must be in FIFO order; returned matches are grouped by
+     * payment, in payment order.
+     */
+    static List<Match> match(long[] entryCents, long[] paymentCents, long toleranceCents) {
+        long[] remaining = entryCents.clone();
+        AmountIndex index = new AmountIndex(entryCents, remaining);
+        List<List<Match>> byPayment = new ArrayList<>(paymentCents.length);
+        for (int p = 0; p < paymentCents.length; p++) {
+            byPayment.add(new ArrayList<>(1));
+        }
+
+        // Exact single-entry matches first, so an equal-amount entry is never consumed by a near match
+        for (int p = 0; p < paymentCents.length; p++) {
+            int entry = index.find(paymentCents[p], -1, -1);
+            if (entry >= 0) {
+                byPayment.get(p).add(take(remaining, p, entry, paymentCents[p], MatchType.EXACT));
+            }
+        }
+
+        for (int p = 0; p < paymentCents.length; p++) {
+            if (byPayment.get(p).isEmpty()) {
+                matchNear(index, remaining, paymentCents[p], p, toleranceCents, byPayment.get(p));
+            }
+        }
+
+        for (int p = 0; p < paymentCents.length; p++) {
+            if (byPayment.get(p).isEmpty()) {
+                matchCombination(index, entryCents, remaining, paymentCents[p], p, byPayment.get(p));
+            }
+        }
+
+        // FIFO fallback over whatever is still open
+        int next = 0;
+        for (int p = 0; p < paymentCents.length && next < remaining.length; p++) {
+            if (!byPayment.get(p).isEmpty()) {
+                continue;
+            }
+            long funds = paymentCents[p];
+            while (funds > 0 && next < remaining.length) {
+                if (remaining[next] > 0) {
+                    long applied = Math.min(funds, remaining[next]);
+                    byPayment.get(p).add(take(remaining, p, next, applied, MatchType.FIFO));
+                    funds -= applied;
+                }
+                if (remaining[next] <= 0) {
+                    next++;
+                }
+            }
+        }
+
+        List<Match> matches = new ArrayList<>();
+        byPayment.forEach(matches::addAll);
+        return matches;
+    }
+
+    private static void matchNear(AmountIndex index, long[] remaining, long payment, int p, long tolerance,
+                                  List<Match> out) {
+        for (long delta = 1; delta <= tolerance; delta++) {
+            // An entry slightly smaller settles fully; a slightly larger one is left with a small residual
+            int entry = index.find(payment - delta, -1, -1);
+            if (entry < 0) {
+                entry = index.find(payment + delta, -1, -1);
+            }
+            if (entry >= 0) {
+                out.add(take(remaining, p, entry, Math.min(payment, remaining[entry]), MatchType.NEAR_EXACT));
+                return;
+            }
+        }
+    }
+
+    private static void matchCombination(AmountIndex index, long[] entryCents, long[] remaining, long payment,
+                                         int p, List<Match> out) {
+        int[] window = new int[COMBINATION_WINDOW];
+        int windowSize = 0;
+
+        for (int first = 0; first < entryCents.length; first++) {
+            if (!index.isUntouched(first) || entryCents[first] >= payment) {
+                continue;
+            }
+            int second = index.find(payment - entryCents[first], first, -1);
+            if (second >= 0) {
+                out.add(take(remaining, p, first, entryCents[first], MatchType.COMBINATION));
+                out.add(take(remaining, p, second, entryCents[second], MatchType.COMBINATION));
+                return;
+            }
+            if (windowSize < window.length) {
+                window[windowSize++] = first;
+            }
+        }
+
+        for (int i = 0; i < windowSize; i++) {
+            for (int j = i + 1; j < windowSize; j++) {
+                long rest = payment - entryCents[window[i]] - entryCents[window[j]];
+                if (rest <= 0) {
+                    continue;
+                }
+                int third = index.find(rest, window[i], window[j]);
+                if (third >= 0) {
+                    out.add(take(remaining, p, window[i], entryCents[window[i]], MatchType.COMBINATION));
+                    out.add(take(remaining, p, window[j], entryCents[window[j]], MatchType.COMBINATION));
+                    out.add(take(remaining, p, third, entryCents[third], MatchType.COMBINATION));
+                    return;
+                }
+            }
+        }
+    }
+
+    private static Match take(long[] remaining, int payment, int entry, long cents, MatchType type) {
+        remaining[entry] -= cents;
+        return new Match(payment, entry, cents, type);
+    }
+
+    static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * Entry positions by original cent amount, in FIFO order. Only untouched entries (nothing taken yet) are
+     * returned, so a whole-amount match always settles its entry completely.
+     */
+    private static final class AmountIndex {
+        private final long[] entryCents;
+        private final long[] remaining;
+        private final Map<Long, int[]> positions = new HashMap<>();
+        private final Map<Long, Integer> sizes = new HashMap<>();
+        // Positions before the cursor are known to be touched
+        private final Map<Long, Integer> cursors = new HashMap<>();
+
+        private AmountIndex(long[] entryCents, long[] remaining) {
+            this.entryCents = entryCents;
+            this.remaining = remaining;
+            for (int i = 0; i < entryCents.length; i++) {
+                if (entryCents[i] <= 0) {
+                    continue;
+                }
+                int size = sizes.getOrDefault(entryCents[i], 0);
+                int[] list = positions.computeIfAbsent(entryCents[i], amount -> new int[4]);
+                if (size == list.length) {
+                    list = Arrays.copyOf(list, size * 2);
+                    positions.put(entryCents[i], list);
+                }
+                list[size] = i;
+                sizes.put(entryCents[i], size + 1);
+            }
+        }
+
+        private boolean isUntouched(int entry) {
+            return entryCents[entry] > 0 && remaining[entry] == entryCents[entry];
+        }
+
+        /**
+         * Oldest untouched entry of exactly this amount other than the excluded positions, or -1
+         */
+        private int find(long amount, int excludeA, int excludeB) {
+            int[] list = positions.get(amount);
+            if (list == null) {
+                return -1;
+            }
+            int size = sizes.get(amount);
+            int cursor = cursors.getOrDefault(amount, 0);
+            while (cursor < size && !isUntouched(list[cursor])) {
+                cursor++;
+            }
+            cursors.put(amount, cursor);
+            for (int i = cursor; i < size; i++) {
+                int entry = list[i];
+                if (entry != excludeA && entry != excludeB && isUntouched(entry)) {
+                    return entry;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * How a payment was matched to its entries
+     */
+    public enum MatchType {
+        EXACT,
+        NEAR_EXACT,
+        COMBINATION,
+        FIFO
+    }
+
+    static final class Match {
+        final int payment;
+        final int entry;
+        final long cents;
+        final MatchType type;
+
+        Match(int payment, int entry, long cents, MatchType type) {
+            this.payment = payment;
+            this.entry = entry;
+            this.cents = cents;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Suggested settlement of one payment
+     */
+    public static class SettlementSuggestion {
+        private final Long paymentId;
+        private final String paymentDescription;
+        private final BigDecimal paymentAmount;
+        private final BigDecimal unappliedAmount;
+        private final MatchType matchType;
+        private final List<SuggestedApplication> suggestedApplications = new ArrayList<>();
+        private BigDecimal totalSuggestedAmount = BigDecimal.ZERO;
+
+        SettlementSuggestion(Long paymentId, String paymentDescription, BigDecimal paymentAmount,
+                             BigDecimal unappliedAmount, MatchType matchType) {
+            this.paymentId = paymentId;
+            this.paymentDescription = paymentDescription;
+            this.paymentAmount = paymentAmount;
+            this.unappliedAmount = unappliedAmount;
+            this.matchType = matchType;
+        }
+
+        private void add(SuggestedApplication application) {
+            suggestedApplications.add(application);
+            totalSuggestedAmount = totalSuggestedAmount.add(application.getSuggestedAmount());
+        }
+
+        public Long getPaymentId() { return paymentId; }
+        public String getPaymentDescription() { return paymentDescription; }
+        public BigDecimal getPaymentAmount() { return paymentAmount; }
+        public BigDecimal getUnappliedAmount() { return unappliedAmount; }
+        public MatchType getMatchType() { return matchType; }
+        public List<SuggestedApplication> getSuggestedApplications() { return suggestedApplications; }
+        public BigDecimal getTotalSuggestedAmount() { return totalSuggestedAmount; }
+    }
+
+    /**
+     * One entry of a suggested settlement
+     */
+    public static class SuggestedApplication {
+        private final Long ledgerEntryId;
+        private final String description;
+        private final BigDecimal outstandingAmount;
+        private final BigDecimal suggestedAmount;
+        private final int daysOutstanding;
+
+        SuggestedApplication(Long ledgerEntryId, String description, BigDecimal outstandingAmount,
+                             BigDecimal suggestedAmount, int daysOutstanding) {
+            this.ledgerEntryId = ledgerEntryId;
+            this.description = description;
+            this.outstandingAmount = outstandingAmount;
+            this.suggestedAmount = suggestedAmount;
+            this.daysOutstanding = daysOutstanding;
+        }
+
+        public Long getLedgerEntryId() { return ledgerEntryId; }
+        public String getDescription() { return description; }
+        public BigDecimal getOutstandingAmount() { return outstandingAmount; }
+        public BigDecimal getSuggestedAmount() { return suggestedAmount; }
+        public int getDaysOutstanding() { return daysOutstanding; }
+    }
+}
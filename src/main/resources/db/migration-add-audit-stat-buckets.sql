@@ -0,0 +1,24 @@
+-- Migration: Hourly audit statistics buckets (row count per hour, action, user and outcome)
+-- Replaces COUNT/GROUP BY over audit_logs for /api/v1/audit/statistics.
+-- Maintained by the audit writer; the seed below covers existing history
+-- (POST /api/v1/admin/maintenance/audit/statistics/rebuild recomputes it)
+
+USE ledgerly;
+
+CREATE TABLE IF NOT EXISTS audit_stat_buckets (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    bucket_start DATETIME(6) NOT NULL,
+    action VARCHAR(100) NOT NULL,
+    user_id BIGINT NOT NULL DEFAULT 0,
+    success BIT(1) NOT NULL,
+    log_count BIGINT NOT NULL DEFAULT 0,
+    UNIQUE KEY uk_audit_stat_buckets_key (bucket_start, action, user_id, success)
+);
+
+DELETE FROM audit_stat_buckets;
+
+INSERT INTO audit_stat_buckets (bucket_start, action, user_id, success, log_count)
+SELECT DATE_FORMAT(created_at, '%Y-%m-%d %H:00:00') AS hour_start, action,
+       COALESCE(user_id, 0) AS bucket_user_id, success, COUNT(*)
+FROM audit_logs
+GROUP BY hour_start, action, bucket_user_id, success;
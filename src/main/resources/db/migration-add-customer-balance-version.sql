@@ -0,0 +1,19 @@
+-- Migration: Add optimistic-lock version to customers and seed maintained balances
+-- Customer.current_balance is now maintained by delta on every ledger write, so it must
+-- start from the true ledger balance.
+
+USE ledgerly;
+
+-- Add version column used by @Version on Customer
+ALTER TABLE customers ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+-- Seed current_balance from the ledger (one-off; the nightly verifier reports any later drift)
+UPDATE customers c
+LEFT JOIN (
+    SELECT customer_id,
+           SUM(CASE WHEN transaction_type IN ('CREDIT', 'OPENING_BALANCE') THEN amount ELSE -amount END) AS balance
+    FROM ledger_entries
+    WHERE is_active = TRUE
+    GROUP BY customer_id
+) le ON le.customer_id = c.id
+SET c.current_balance = COALESCE(le.balance, 0);
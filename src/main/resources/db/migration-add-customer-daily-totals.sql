@@ -0,0 +1,21 @@
+-- Migration: Per-customer daily totals for the daily transaction limit rule
+-- Maintained on every ledger write; the seed below covers existing history
+-- (POST /api/v1/admin/maintenance/daily-totals/rebuild recomputes it at any time)
+
+USE ledgerly;
+
+CREATE TABLE IF NOT EXISTS customer_daily_totals (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    customer_id BIGINT NOT NULL,
+    transaction_date DATE NOT NULL,
+    total_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    entry_count BIGINT NOT NULL DEFAULT 0,
+    UNIQUE KEY uk_customer_daily_totals_customer_date (customer_id, transaction_date)
+);
+
+INSERT INTO customer_daily_totals (customer_id, transaction_date, total_amount, entry_count)
+SELECT customer_id, transaction_date, SUM(amount), COUNT(*)
+FROM ledger_entries
+WHERE is_active = true
+GROUP BY customer_id, transaction_date
+ON DUPLICATE KEY UPDATE total_amount = VALUES(total_amount), entry_count = VALUES(entry_count);
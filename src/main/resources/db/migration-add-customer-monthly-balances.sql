@@ -0,0 +1,33 @@
+-- Migration: Monthly balance checkpoints (credits, debits and closing balance per customer per month)
+-- Maintained on every ledger write; the seed below covers existing history
+-- (POST /api/v1/admin/maintenance/monthly-balances/rebuild recomputes it at any time)
+
+USE ledgerly;
+
+CREATE TABLE IF NOT EXISTS customer_monthly_balances (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    customer_id BIGINT NOT NULL,
+    period_start DATE NOT NULL,
+    total_credit DECIMAL(15,2) NOT NULL DEFAULT 0,
+    total_debit DECIMAL(15,2) NOT NULL DEFAULT 0,
+    entry_count BIGINT NOT NULL DEFAULT 0,
+    closing_balance DECIMAL(15,2) NOT NULL DEFAULT 0,
+    UNIQUE KEY uk_customer_monthly_balances_customer_period (customer_id, period_start)
+);
+
+DELETE FROM customer_monthly_balances;
+
+INSERT INTO customer_monthly_balances
+    (customer_id, period_start, total_credit, total_debit, entry_count, closing_balance)
+SELECT customer_id, period_start, total_credit, total_debit, entry_count,
+       SUM(total_credit - total_debit) OVER (PARTITION BY customer_id ORDER BY period_start)
+FROM (
+    SELECT customer_id,
+           DATE_SUB(transaction_date, INTERVAL DAYOFMONTH(transaction_date) - 1 DAY) AS period_start,
+           SUM(CASE WHEN transaction_type IN ('CREDIT', 'OPENING_BALANCE') THEN amount ELSE 0 END) AS total_credit,
+           SUM(CASE WHEN transaction_type IN ('CREDIT', 'OPENING_BALANCE') THEN 0 ELSE amount END) AS total_debit,
+           COUNT(*) AS entry_count
+    FROM ledger_entries
+    WHERE is_active = true
+    GROUP BY customer_id, period_start
+) monthly;
@@ -0,0 +1,9 @@
+-- Migration: Indexes for keyset (seek) pagination
+-- Seek listings read (sort key, id) ranges newest first, so each needs an index ending in those columns
+
+USE ledgerly;
+
+CREATE INDEX idx_payments_customer_date ON payments(customer_id, payment_date, id);
+CREATE INDEX idx_payments_shop_date ON payments(shop_id, payment_date, id);
+CREATE INDEX idx_audit_logs_created ON audit_logs(created_at, id);
+CREATE INDEX idx_audit_logs_user_created ON audit_logs(user_id, created_at, id);
@@ -0,0 +1,37 @@
+-- Migration: Link payment ledger entries to their payment by foreign key
+-- Ledger entries posted for a payment used to be found by reference_number = 'PAY-<id>', matched
+-- case-insensitively, which scanned the table once per payment. payment_id replaces that lookup and
+-- lets the payment-to-ledger sync find unsynced payments with an indexed anti-join.
+
+USE ledgerly;
+
+ALTER TABLE ledger_entries ADD COLUMN payment_id BIGINT NULL;
+
+-- Backfill once with the old lookup's rules: reference 'PAY-<id>' compared case-insensitively, whatever
+-- the entry's type or customer. Anything the old sync treated as posted is linked, so the first sync run
+-- does not post a second credit for it.
+UPDATE ledger_entries le
+JOIN payments p ON p.id = CAST(SUBSTRING(le.reference_number, 5) AS UNSIGNED)
+SET le.payment_id = p.id
+WHERE le.payment_id IS NULL
+  AND UPPER(le.reference_number) REGEXP '^PAY-[0-9]+$'
+  AND UPPER(le.reference_number) = CONCAT('PAY-', p.id);
+
+-- Review before the first sync run: linked entries that are not a CREDIT of the payment's own customer
+SELECT le.id AS ledger_entry_id, le.reference_number, le.transaction_type, le.customer_id,
+       p.id AS payment_id, p.customer_id AS payment_customer_id
+FROM ledger_entries le
+JOIN payments p ON p.id = le.payment_id
+WHERE le.transaction_type <> 'CREDIT' OR le.customer_id <> p.customer_id;
+
+-- Review before the first sync run: active payments without an active linked entry, which the sync will post
+SELECT p.id AS payment_id, p.customer_id, p.payment_date, p.amount
+FROM payments p
+WHERE p.is_active = true
+  AND NOT EXISTS (SELECT 1 FROM ledger_entries le WHERE le.payment_id = p.id AND le.is_active = true)
+ORDER BY p.id;
+
+CREATE INDEX idx_ledger_entries_payment ON ledger_entries(payment_id);
+
+ALTER TABLE ledger_entries
+    ADD CONSTRAINT fk_ledger_entries_payment FOREIGN KEY (payment_id) REFERENCES payments(id);
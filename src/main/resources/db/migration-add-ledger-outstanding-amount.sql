@@ -0,0 +1,24 @@
+-- Migration: Persist the outstanding (unpaid) amount of each ledger entry
+-- Payment application and reversal move outstanding_amount in the same transaction, so open
+-- invoices for a customer are a range scan on (customer_id, is_settled, transaction_date).
+
+USE ledgerly;
+
+ALTER TABLE ledger_entries
+    ADD COLUMN outstanding_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    ADD COLUMN is_settled BOOLEAN NOT NULL DEFAULT TRUE;
+
+-- Seed from existing applications (the nightly repair job recomputes the same way)
+UPDATE ledger_entries le
+LEFT JOIN (
+    SELECT ledger_entry_id, SUM(applied_amount) AS applied
+    FROM payment_applications
+    WHERE is_reversed = FALSE
+    GROUP BY ledger_entry_id
+) a ON a.ledger_entry_id = le.id
+SET le.outstanding_amount = CASE WHEN le.is_active = TRUE AND le.transaction_type = 'DEBIT'
+                                 THEN GREATEST(le.amount - COALESCE(a.applied, 0), 0) ELSE 0 END,
+    le.is_settled = NOT (le.is_active = TRUE AND le.transaction_type = 'DEBIT'
+                         AND le.amount - COALESCE(a.applied, 0) > 0);
+
+CREATE INDEX idx_ledger_entries_customer_open ON ledger_entries(customer_id, is_settled, transaction_date, id);
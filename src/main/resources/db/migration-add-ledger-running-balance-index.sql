@@ -0,0 +1,6 @@
+-- Migration: Index ledger entries by customer and date for running balance maintenance
+-- Rebalancing walks a customer's entries in (transaction_date, id) order from the first affected date
+
+USE ledgerly;
+
+CREATE INDEX idx_ledger_entries_customer_date ON ledger_entries(customer_id, transaction_date, id);
@@ -0,0 +1,7 @@
+-- Migration: Index payments by (status, due_date) for the overdue check
+-- The daily check pages through each open status ordered by (due_date, id) and stops at today,
+-- so it reads only past-due PENDING/PARTIAL rows instead of every payment.
+
+USE ledgerly;
+
+CREATE INDEX idx_payments_status_due ON payments(status, due_date, id);
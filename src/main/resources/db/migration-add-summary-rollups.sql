@@ -0,0 +1,46 @@
+-- Migration: Summary rollups (count and amount per shop, customer, month and category)
+-- Replaces YEAR()/MONTH() grouping over ledger_entries, payments and payment_applications.
+-- Maintained on every write; the seed below covers existing history
+-- (POST /api/v1/admin/maintenance/rollups/rebuild recomputes it, /rollups/reconcile checks it)
+
+USE ledgerly;
+
+CREATE TABLE IF NOT EXISTS summary_rollups (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    source VARCHAR(32) NOT NULL,
+    shop_id BIGINT NOT NULL,
+    customer_id BIGINT NOT NULL,
+    period_start DATE NOT NULL,
+    category VARCHAR(32) NOT NULL,
+    item_count BIGINT NOT NULL DEFAULT 0,
+    total_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    UNIQUE KEY uk_summary_rollups_key (source, customer_id, period_start, category, shop_id),
+    INDEX idx_summary_rollups_shop (shop_id, source, period_start)
+);
+
+DELETE FROM summary_rollups;
+
+INSERT INTO summary_rollups (source, shop_id, customer_id, period_start, category, item_count, total_amount)
+SELECT 'LEDGER_ENTRY', COALESCE(shop_id, 0) AS rollup_shop_id, customer_id,
+       DATE_SUB(transaction_date, INTERVAL DAYOFMONTH(transaction_date) - 1 DAY) AS period_start,
+       transaction_type, COUNT(*), SUM(amount)
+FROM ledger_entries
+WHERE is_active = true
+GROUP BY rollup_shop_id, customer_id, period_start, transaction_type;
+
+INSERT INTO summary_rollups (source, shop_id, customer_id, period_start, category, item_count, total_amount)
+SELECT 'PAYMENT', COALESCE(shop_id, 0) AS rollup_shop_id, customer_id,
+       DATE_SUB(payment_date, INTERVAL DAYOFMONTH(payment_date) - 1 DAY) AS period_start,
+       status, COUNT(*), SUM(amount)
+FROM payments
+WHERE is_active = true
+GROUP BY rollup_shop_id, customer_id, period_start, status;
+
+INSERT INTO summary_rollups (source, shop_id, customer_id, period_start, category, item_count, total_amount)
+SELECT 'PAYMENT_APPLICATION', COALESCE(p.shop_id, 0) AS rollup_shop_id, p.customer_id,
+       DATE_SUB(DATE(pa.applied_at), INTERVAL DAYOFMONTH(pa.applied_at) - 1 DAY) AS period_start,
+       'APPLIED', COUNT(*), SUM(pa.applied_amount)
+FROM payment_applications pa
+JOIN payments p ON p.id = pa.payment_id
+WHERE pa.is_reversed = false
+GROUP BY rollup_shop_id, p.customer_id, period_start;
@@ -0,0 +1,16 @@
+-- Migration: Normalize audit action/entity_type codes and index them for search
+-- Audit search now matches codes exactly (or by prefix) instead of LOWER(...) LIKE '%...%',
+-- so stored codes must be in the canonical upper-case form the service writes
+
+USE ledgerly;
+
+UPDATE audit_logs
+SET action = UPPER(TRIM(action)), entity_type = UPPER(TRIM(entity_type))
+WHERE BINARY action <> UPPER(TRIM(action)) OR BINARY entity_type <> UPPER(TRIM(entity_type));
+
+UPDATE audit_archive_index
+SET entity_type = UPPER(TRIM(entity_type))
+WHERE BINARY entity_type <> UPPER(TRIM(entity_type));
+
+CREATE INDEX idx_audit_logs_entity_created ON audit_logs(entity_type, entity_id, created_at);
+CREATE INDEX idx_audit_logs_action_created ON audit_logs(action, created_at, id);
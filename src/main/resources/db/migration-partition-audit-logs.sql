@@ -0,0 +1,56 @@
+-- Migration: Monthly RANGE partitions on audit_logs, plus archive segment bookkeeping
+-- AuditArchiveService keeps partitions created ahead of time (splitting p_future), archives partitions
+-- past app.audit.lifecycle.retention-months to gzip segments and drops them
+-- (POST /api/v1/admin/maintenance/audit/archive runs it now).
+-- Rebuilds audit_logs once; run in a maintenance window.
+
+USE ledgerly;
+
+-- Partitioned InnoDB tables cannot have foreign keys; drop the generated user_id constraint if present
+SET @audit_fk = (SELECT CONSTRAINT_NAME FROM information_schema.TABLE_CONSTRAINTS
+                 WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'audit_logs'
+                   AND CONSTRAINT_TYPE = 'FOREIGN KEY' LIMIT 1);
+SET @drop_fk = IF(@audit_fk IS NULL, 'SELECT 1', CONCAT('ALTER TABLE audit_logs DROP FOREIGN KEY ', @audit_fk));
+PREPARE drop_fk_stmt FROM @drop_fk;
+EXECUTE drop_fk_stmt;
+DEALLOCATE PREPARE drop_fk_stmt;
+
+-- Every unique key must include the partitioning column
+ALTER TABLE audit_logs DROP PRIMARY KEY, ADD PRIMARY KEY (id, created_at);
+
+ALTER TABLE audit_logs PARTITION BY RANGE (TO_DAYS(created_at)) (
+    PARTITION p_history VALUES LESS THAN (TO_DAYS('2026-01-01')),
+    PARTITION p202601 VALUES LESS THAN (TO_DAYS('2026-02-01')),
+    PARTITION p202602 VALUES LESS THAN (TO_DAYS('2026-03-01')),
+    PARTITION p202603 VALUES LESS THAN (TO_DAYS('2026-04-01')),
+    PARTITION p202604 VALUES LESS THAN (TO_DAYS('2026-05-01')),
+    PARTITION p202605 VALUES LESS THAN (TO_DAYS('2026-06-01')),
+    PARTITION p202606 VALUES LESS THAN (TO_DAYS('2026-07-01')),
+    PARTITION p202607 VALUES LESS THAN (TO_DAYS('2026-08-01')),
+    PARTITION p202608 VALUES LESS THAN (TO_DAYS('2026-09-01')),
+    PARTITION p202609 VALUES LESS THAN (TO_DAYS('2026-10-01')),
+    PARTITION p202610 VALUES LESS THAN (TO_DAYS('2026-11-01')),
+    PARTITION p202611 VALUES LESS THAN (TO_DAYS('2026-12-01')),
+    PARTITION p202612 VALUES LESS THAN (TO_DAYS('2027-01-01')),
+    PARTITION p_future VALUES LESS THAN MAXVALUE
+);
+
+CREATE TABLE IF NOT EXISTS audit_archive_segments (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    partition_name VARCHAR(64) NOT NULL,
+    period_start DATETIME(6) NOT NULL,
+    period_end DATETIME(6) NOT NULL,
+    file_path VARCHAR(500) NOT NULL,
+    row_count BIGINT NOT NULL,
+    compressed_bytes BIGINT NOT NULL,
+    archived_at DATETIME(6) NOT NULL,
+    UNIQUE KEY uk_audit_archive_segments_partition (partition_name)
+);
+
+CREATE TABLE IF NOT EXISTS audit_archive_index (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    segment_id BIGINT NOT NULL,
+    entity_type VARCHAR(100) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    INDEX idx_audit_archive_index_entity (entity_type, entity_id, segment_id)
+);
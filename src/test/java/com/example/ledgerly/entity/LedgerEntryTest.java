@@ -0,0 +1,125 @@
+package com.example.ledgerly.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerEntryTest {
+
+    private LedgerEntry entry(TransactionType type, String amount) {
+        LedgerEntry entry = new LedgerEntry(LocalDate.now(), type, new BigDecimal(amount), "Invoice", null, null);
+        entry.refreshOutstanding(BigDecimal.ZERO);
+        return entry;
+    }
+
+    @Test
+    void testNewDebitIsFullyOutstanding() {
+        LedgerEntry debit = entry(TransactionType.DEBIT, "100.00");
+
+        assertEquals(new BigDecimal("100.00"), debit.getOutstandingAmount());
+        assertFalse(debit.isSettled());
+    }
+
+    @Test
+    void testCreditIsNeverOutstanding() {
+        LedgerEntry credit = entry(TransactionType.CREDIT, "100.00");
+
+        assertEquals(BigDecimal.ZERO, credit.getOutstandingAmount());
+        assertTrue(credit.isSettled());
+    }
+
+    @Test
+    void testApplyPayment_PartialLeavesRemainderOutstanding() {
+        LedgerEntry debit = entry(TransactionType.DEBIT, "100.00");
+
+        debit.applyPayment(new BigDecimal("40.00"));
+
+        assertEquals(new BigDecimal("60.00"), debit.getOutstandingAmount());
+        assertFalse(debit.isSettled());
+    }
+
+    @Test
+    void testApplyPayment_FullSettlesEntry() {
+        LedgerEntry debit = entry(TransactionType.DEBIT, "100.00");
+
+        debit.applyPayment(new BigDecimal("40.00"));
+        debit.applyPayment(new BigDecimal("60.00"));
+
+        assertEquals(0, BigDecimal.ZERO.compareTo(debit.getOutstandingAmount()));
+        assertTrue(debit.isSettled());
+    }
+
+    @Test
+    void testApplyPayment_AboveOutstandingIsRejected() {
+        LedgerEntry debit = entry(TransactionType.DEBIT, "100.00");
+        debit.applyPayment(new BigDecimal("70.00"));
+
+        assertThrows(IllegalArgumentException.class, () -> debit.applyPayment(new BigDecimal("30.01")));
+        assertEquals(new BigDecimal("30.00"), debit.getOutstandingAmount());
+    }
+
+    @Test
+    void testReversePayment_RestoresOutstanding() {
+        LedgerEntry debit = entry(TransactionType.DEBIT, "100.00");
+        debit.applyPayment(new BigDecimal("100.00"));
+
+        debit.reversePayment(new BigDecimal("25.00"));
+
+        assertEquals(new BigDecimal("25.00"), debit.getOutstandingAmount());
+        assertFalse(debit.isSettled());
+    }
+
+    @Test
+    void testReversePayment_CappedAtEntryAmount() {
+        LedgerEntry debit = entry(TransactionType.DEBIT, "100.00");
+        debit.applyPayment(new BigDecimal("30.00"));
+
+        // Reversing more than was applied, e.g. after the entry amount was lowered
+        debit.reversePayment(new BigDecimal("50.00"));
+
+        assertEquals(new BigDecimal("100.00"), debit.getOutstandingAmount());
+    }
+
+    @Test
+    void testReversePayment_IgnoredForInactiveEntry() {
+        LedgerEntry debit = entry(TransactionType.DEBIT, "100.00");
+        debit.applyPayment(new BigDecimal("100.00"));
+        debit.setActive(false);
+
+        debit.reversePayment(new BigDecimal("40.00"));
+
+        assertEquals(0, BigDecimal.ZERO.compareTo(debit.getOutstandingAmount()));
+        assertTrue(debit.isSettled());
+    }
+
+    @Test
+    void testRefreshOutstanding_RecomputedAfterAmountEdit() {
+        LedgerEntry debit = entry(TransactionType.DEBIT, "100.00");
+        debit.applyPayment(new BigDecimal("60.00"));
+
+        debit.setAmount(new BigDecimal("150.00"));
+        debit.refreshOutstanding(new BigDecimal("60.00"));
+        assertEquals(new BigDecimal("90.00"), debit.getOutstandingAmount());
+        assertFalse(debit.isSettled());
+
+        // Lowered below what was already applied: settled, never negative
+        debit.setAmount(new BigDecimal("50.00"));
+        debit.refreshOutstanding(new BigDecimal("60.00"));
+        assertEquals(BigDecimal.ZERO, debit.getOutstandingAmount());
+        assertTrue(debit.isSettled());
+    }
+
+    @Test
+    void testRefreshOutstanding_ZeroWhenTypeChangesToCredit() {
+        LedgerEntry debit = entry(TransactionType.DEBIT, "100.00");
+
+        debit.setTransactionType(TransactionType.CREDIT);
+        debit.refreshOutstanding(BigDecimal.ZERO);
+
+        assertEquals(BigDecimal.ZERO, debit.getOutstandingAmount());
+        assertTrue(debit.isSettled());
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.AuditArchiveSegment;
+import com.example.ledgerly.entity.AuditLog;
+import com.example.ledgerly.entity.User;
+import com.example.ledgerly.repository.AuditArchiveSegmentRepository;
+import com.example.ledgerly.repository.UserRepository;
+import com.example.ledgerly.service.AuditArchiveService.AuditPartition;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuditArchiveServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private AuditArchiveSegmentRepository segmentRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path tempDir;
+
+    private AuditArchiveService auditArchiveService;
+    private final List<AuditArchiveSegment> savedSegments = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        auditArchiveService = new AuditArchiveService(jdbcTemplate, new ObjectMapper().findAndRegisterModules(),
+                segmentRepository, userRepository, transactionManager);
+        ReflectionTestUtils.setField(auditArchiveService, "retentionMonths", 1);
+        ReflectionTestUtils.setField(auditArchiveService, "monthsAhead", 2);
+        ReflectionTestUtils.setField(auditArchiveService, "archiveDir", tempDir.toString());
+        ReflectionTestUtils.setField(auditArchiveService, "fetchSize", 100);
+        ReflectionTestUtils.setField(auditArchiveService, "deleteChunkSize", 5000);
+
+        lenient().when(segmentRepository.save(any(AuditArchiveSegment.class))).thenAnswer(invocation -> {
+            AuditArchiveSegment segment = invocation.getArgument(0);
+            segment.setId((long) savedSegments.size() + 1);
+            savedSegments.add(segment);
+            return segment;
+        });
+    }
+
+    @Test
+    void testPartitionBoundsAreReadFromToDaysValues() {
+        List<AuditPartition> partitions = AuditArchiveService.partitionsOf(List.of(
+                new String[]{"p_history", toDays(LocalDate.of(2026, 1, 1))},
+                new String[]{"p202601", toDays(LocalDate.of(2026, 2, 1))},
+                new String[]{"p_future", "MAXVALUE"}));
+
+        assertEquals(LocalDate.of(2026, 1, 1), partitions.get(0).end);
+        assertEquals(LocalDate.of(2026, 1, 1), partitions.get(1).start);
+        assertEquals(LocalDate.of(2026, 2, 1), partitions.get(1).end);
+        assertNull(partitions.get(2).end);
+
+        List<AuditPartition> expired = AuditArchiveService.expiredPartitions(partitions, LocalDate.of(2026, 1, 1));
+        assertEquals(1, expired.size());
+        assertEquals("p_history", expired.get(0).name);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPartitionedTableGetsFuturePartitionsAndDropsArchivedOnes() throws Exception {
+        when(jdbcTemplate.query(eq(AuditArchiveService.LIST_PARTITIONS_SQL), any(RowMapper.class))).thenReturn(List.of(
+                new String[]{"p_history", toDays(LocalDate.of(2026, 2, 1))},
+                new String[]{"p202602", toDays(LocalDate.of(2026, 3, 1))},
+                new String[]{"p202603", toDays(LocalDate.of(2026, 4, 1))},
+                new String[]{"p_future", "MAXVALUE"}));
+        when(segmentRepository.findByPartitionName("p_history")).thenReturn(Optional.empty());
+        streamRows(row(1L, 42L, LocalDateTime.of(2026, 1, 5, 10, 0)),
+                row(2L, 420L, LocalDateTime.of(2026, 1, 6, 10, 0)),
+                row(3L, 42L, LocalDateTime.of(2026, 1, 20, 10, 0)));
+
+        AuditArchiveService.ArchiveRunResult result = auditArchiveService.runLifecycle(LocalDate.of(2026, 3, 10));
+
+        assertTrue(result.isPartitioned());
+        assertEquals(2, result.getPartitionsCreated());
+        assertEquals(List.of("p_history"), result.getArchivedPartitions());
+        assertEquals(3, result.getRowsArchived());
+
+        ArgumentCaptor<String> ddl = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate, times(3)).execute(ddl.capture());
+        assertTrue(ddl.getAllValues().get(0).contains(
+                "PARTITION p202604 VALUES LESS THAN (TO_DAYS('2026-05-01'))"));
+        assertTrue(ddl.getAllValues().get(1).contains(
+                "PARTITION p202605 VALUES LESS THAN (TO_DAYS('2026-06-01'))"));
+        assertEquals("ALTER TABLE audit_logs DROP PARTITION `p_history`", ddl.getAllValues().get(2));
+
+        ArgumentCaptor<List<Object[]>> index = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), index.capture());
+        assertEquals(2, index.getValue().size());
+        assertTrue(Files.exists(Paths.get(savedSegments.get(0).getFilePath())));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testArchivedEntityHistoryIsReadBackFromSegments() throws Exception {
+        when(jdbcTemplate.query(eq(AuditArchiveService.LIST_PARTITIONS_SQL), any(RowMapper.class))).thenReturn(List.of(
+                new String[]{"p_history", toDays(LocalDate.of(2026, 2, 1))},
+                new String[]{"p_future", "MAXVALUE"}));
+        when(segmentRepository.findByPartitionName("p_history")).thenReturn(Optional.empty());
+        streamRows(row(1L, 42L, LocalDateTime.of(2026, 1, 5, 10, 0)),
+                row(2L, 420L, LocalDateTime.of(2026, 1, 6, 10, 0)),
+                row(3L, 42L, LocalDateTime.of(2026, 1, 20, 10, 0)));
+        auditArchiveService.runLifecycle(LocalDate.of(2026, 3, 10));
+
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("testuser");
+        when(segmentRepository.findSegmentsForEntity("PAYMENT", 42L)).thenReturn(savedSegments);
+        when(userRepository.findAllById(any())).thenReturn(List.of(user));
+
+        List<AuditLog> logs = auditArchiveService.getArchivedLogsForEntity("PAYMENT", 42L);
+
+        assertEquals(2, logs.size());
+        assertEquals(3L, logs.get(0).getId());
+        assertEquals(1L, logs.get(1).getId());
+        assertEquals(LocalDateTime.of(2026, 1, 5, 10, 0), logs.get(1).getCreatedAt());
+        assertEquals("testuser", logs.get(0).getUser().getUsername());
+    }
+
+    @Test
+    void testUnpartitionedTableArchivesWholeMonthsAndDeletesThem() {
+        when(jdbcTemplate.query(eq(AuditArchiveService.LIST_PARTITIONS_SQL), any(RowMapper.class)))
+                .thenReturn(List.of());
+        when(jdbcTemplate.queryForObject(AuditArchiveService.MIN_CREATED_AT_SQL, LocalDateTime.class))
+                .thenReturn(LocalDateTime.of(2025, 12, 20, 8, 0));
+        // December was archived by an earlier run that stopped before deleting
+        AuditArchiveSegment december = new AuditArchiveSegment("p202512", LocalDateTime.of(2025, 12, 1, 0, 0),
+                LocalDateTime.of(2026, 1, 1, 0, 0), tempDir.resolve("audit_logs-p202512.jsonl.gz").toString(), 5, 0);
+        when(segmentRepository.findByPartitionName("p202512")).thenReturn(Optional.of(december));
+        when(segmentRepository.findByPartitionName("p202601")).thenReturn(Optional.empty());
+        streamRows();
+        when(jdbcTemplate.update(anyString(), any(), any(), any())).thenReturn(0);
+
+        AuditArchiveService.ArchiveRunResult result = auditArchiveService.runLifecycle(LocalDate.of(2026, 3, 10));
+
+        assertFalse(result.isPartitioned());
+        assertEquals(List.of("p202512", "p202601"), result.getArchivedPartitions());
+        assertEquals(5, result.getRowsArchived());
+        assertEquals(1, savedSegments.size());
+        verify(jdbcTemplate, never()).execute(anyString());
+        verify(jdbcTemplate, times(2)).update(anyString(), any(), any(), any());
+    }
+
+    private void streamRows(ResultSet... rows) {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (ResultSet row : rows) {
+                handler.processRow(row);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    private ResultSet row(long id, long entityId, LocalDateTime createdAt) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(id);
+        when(rs.getString("action")).thenReturn("UPDATE_PAYMENT_STATUS");
+        when(rs.getString("entity_type")).thenReturn("PAYMENT");
+        when(rs.getLong("entity_id")).thenReturn(entityId);
+        when(rs.getBoolean("success")).thenReturn(true);
+        when(rs.getLong("user_id")).thenReturn(1L);
+        when(rs.getTimestamp("created_at")).thenReturn(Timestamp.valueOf(createdAt));
+        return rs;
+    }
+
+    private String toDays(LocalDate date) {
+        return String.valueOf(date.toEpochDay() + AuditArchiveService.TO_DAYS_EPOCH);
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.service.AuditLogWriter.AuditRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuditLogWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path tempDir;
+
+    private AuditLogWriter auditLogWriter;
+    private final List<Integer> batchSizes = new ArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile boolean holdWrites;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        auditLogWriter = new AuditLogWriter(jdbcTemplate, new ObjectMapper().findAndRegisterModules(),
+                transactionManager);
+        ReflectionTestUtils.setField(auditLogWriter, "mode", AuditLogWriter.Mode.ASYNC);
+        ReflectionTestUtils.setField(auditLogWriter, "overflow", AuditLogWriter.OverflowPolicy.BLOCK);
+        ReflectionTestUtils.setField(auditLogWriter, "queueCapacity", 1000);
+        ReflectionTestUtils.setField(auditLogWriter, "batchSize", 50);
+        ReflectionTestUtils.setField(auditLogWriter, "flushIntervalMs", 20L);
+        ReflectionTestUtils.setField(auditLogWriter, "offerTimeoutMs", 1L);
+        ReflectionTestUtils.setField(auditLogWriter, "spillFile", tempDir.resolve("spill.jsonl").toString());
+
+        lenient().when(jdbcTemplate.batchUpdate(anyString(), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class))).thenAnswer(invocation -> {
+                    if (holdWrites && Thread.currentThread().getName().equals("audit-writer")) {
+                        release.await(5, TimeUnit.SECONDS);
+                    }
+                    synchronized (batchSizes) {
+                        batchSizes.add(((Collection<?>) invocation.getArgument(1)).size());
+                    }
+                    return new int[0][];
+                });
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        auditLogWriter.stop();
+    }
+
+    @Test
+    void testQueuedRowsAreWrittenInBatches() {
+        auditLogWriter.start();
+        List<AuditRecord> records = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            records.add(record(i));
+        }
+        auditLogWriter.writeAll(records);
+        auditLogWriter.stop();
+
+        assertEquals(120, totalWritten());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 50));
+        assertTrue(batchSizes.size() < 120, "Rows should be grouped into batches");
+        assertEquals(120, auditLogWriter.getStats().getWritten());
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void testDurableModeWritesInTheCallersThread() {
+        ReflectionTestUtils.setField(auditLogWriter, "mode", AuditLogWriter.Mode.DURABLE);
+        auditLogWriter.start();
+
+        auditLogWriter.write(record(1));
+
+        assertEquals(List.of(1), batchSizes);
+        verify(transactionManager).getTransaction(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWrittenRowsAreCountedInHourlyBuckets() {
+        ReflectionTestUtils.setField(auditLogWriter, "mode", AuditLogWriter.Mode.DURABLE);
+        LocalDateTime now = LocalDateTime.of(2026, 3, 10, 14, 25);
+        AuditRecord first = record(1);
+        first.setCreatedAt(now);
+        AuditRecord second = record(2);
+        second.setCreatedAt(now.plusMinutes(20));
+        AuditRecord failed = record(3);
+        failed.setCreatedAt(now);
+        failed.setSuccess(false);
+
+        auditLogWriter.writeAll(List.of(first, second, failed));
+
+        ArgumentCaptor<List<Object[]>> buckets = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("audit_stat_buckets"), buckets.capture());
+        assertEquals(2, buckets.getValue().size());
+        Object[] succeeded = buckets.getValue().get(0);
+        assertEquals(Timestamp.valueOf(LocalDateTime.of(2026, 3, 10, 14, 0)), succeeded[0]);
+        assertEquals("UPDATE_PAYMENT", succeeded[1]);
+        assertEquals(1L, succeeded[2]);
+        assertEquals(true, succeeded[3]);
+        assertEquals(2L, succeeded[4]);
+        assertEquals(1L, buckets.getValue().get(1)[4]);
+    }
+
+    @Test
+    void testDropPolicyCountsRowsThatDoNotFit() {
+        ReflectionTestUtils.setField(auditLogWriter, "overflow", AuditLogWriter.OverflowPolicy.DROP);
+        fillQueueWhileWriterIsBusy();
+
+        auditLogWriter.write(record(99));
+
+        assertEquals(1, auditLogWriter.getStats().getDropped());
+        release.countDown();
+        auditLogWriter.stop();
+        assertEquals(2, totalWritten());
+    }
+
+    @Test
+    void testBlockPolicyWritesInTheCallerWhenStillFull() {
+        fillQueueWhileWriterIsBusy();
+
+        auditLogWriter.write(record(99));
+
+        assertEquals(1, auditLogWriter.getStats().getWrittenByCaller());
+        assertEquals(0, auditLogWriter.getStats().getDropped());
+        verify(transactionManager).getTransaction(any());
+    }
+
+    @Test
+    void testSpilledRowsAreReplayedOnceTheQueueDrains() {
+        ReflectionTestUtils.setField(auditLogWriter, "overflow", AuditLogWriter.OverflowPolicy.SPILL);
+        fillQueueWhileWriterIsBusy();
+
+        auditLogWriter.write(record(99));
+        assertEquals(1, auditLogWriter.getStats().getSpilled());
+        assertTrue(Files.exists(tempDir.resolve("spill.jsonl")));
+
+        release.countDown();
+        waitFor(() -> totalWritten() == 3);
+        waitFor(() -> !Files.exists(tempDir.resolve("spill.jsonl"))
+                && !Files.exists(tempDir.resolve("spill.jsonl.replay")));
+        assertEquals(3, auditLogWriter.getStats().getWritten());
+    }
+
+    /**
+     * Capacity 1 and batch size 1: the writer holds the first row in a blocked insert, the second fills the queue
+     */
+    private void fillQueueWhileWriterIsBusy() {
+        ReflectionTestUtils.setField(auditLogWriter, "queueCapacity", 1);
+        ReflectionTestUtils.setField(auditLogWriter, "batchSize", 1);
+        holdWrites = true;
+        auditLogWriter.start();
+
+        auditLogWriter.write(record(1));
+        waitFor(() -> auditLogWriter.getStats().getQueueDepth() == 0);
+        auditLogWriter.write(record(2));
+        assertEquals(1, auditLogWriter.getStats().getQueueDepth());
+    }
+
+    private int totalWritten() {
+        synchronized (batchSizes) {
+            return batchSizes.stream().mapToInt(Integer::intValue).sum();
+        }
+    }
+
+    private void waitFor(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the audit writer");
+            Thread.onSpinWait();
+        }
+    }
+
+    private AuditRecord record(long entityId) {
+        return new AuditRecord("UPDATE_PAYMENT", "PAYMENT", entityId, null, null, "Updated payment " + entityId,
+                true, null, 1L);
+    }
+}
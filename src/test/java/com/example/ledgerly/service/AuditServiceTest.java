@@ -0,0 +1,214 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.User;
+import com.example.ledgerly.repository.AuditLogRepository;
+import com.example.ledgerly.service.AuditLogWriter.AuditRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuditServiceTest {
+
+    @Mock
+    private AuditLogRepository auditLogRepository;
+
+    @Mock
+    private AuditLogWriter auditLogWriter;
+
+    @Mock
+    private EntitySnapshotter entitySnapshotter;
+
+    @Mock
+    private AuditArchiveService auditArchiveService;
+
+    @Mock
+    private AuditStatsService auditStatsService;
+
+    private AuditService auditService;
+
+    @BeforeEach
+    void setUp() {
+        auditService = new AuditService(auditLogRepository, new ObjectMapper().findAndRegisterModules(),
+                auditLogWriter, entitySnapshotter, auditArchiveService, auditStatsService);
+    }
+
+    @Test
+    void testExactSearchPassesTheNormalizedCode() {
+        PageRequest pageable = PageRequest.of(0, 20);
+        when(auditLogRepository.searchAuditLogs(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Page.empty(pageable));
+
+        auditService.searchAuditLogs(null, " record_payment ", "payment", null, null, null, null,
+                AuditService.MatchMode.EXACT, pageable);
+
+        // The code is matched with LIKE, so its '_' is escaped
+        verify(auditLogRepository).searchAuditLogs(null, "RECORD!_PAYMENT", "PAYMENT", null, null, null, null,
+                pageable);
+    }
+
+    @Test
+    void testPrefixAndContainsSearchBuildEscapedPatterns() {
+        PageRequest pageable = PageRequest.of(0, 20);
+        when(auditLogRepository.searchAuditLogs(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(new PageImpl<>(List.of(), pageable, 0));
+
+        auditService.searchAuditLogs(null, "create_", null, null, null, null, null,
+                AuditService.MatchMode.PREFIX, pageable);
+        auditService.searchAuditLogs(null, "50%", "", null, null, null, null,
+                AuditService.MatchMode.CONTAINS, pageable);
+
+        // '_' and '%' are literals in codes, not wildcards; a blank filter is no filter
+        verify(auditLogRepository).searchAuditLogs(null, "CREATE!_%", null, null, null, null, null, pageable);
+        verify(auditLogRepository).searchAuditLogs(null, "%50!%%", null, null, null, null, null, pageable);
+    }
+
+    @Test
+    void testKeysetSearchUsesTheSamePatternsForPageAndCount() {
+        when(auditLogRepository.searchAuditLogsPage(any(), any(), any(), any(), any(), any(), any(), any(), any(),
+                any())).thenReturn(List.of());
+
+        auditService.searchAuditLogsAfter(7L, "Payment", null, null, null, null, null,
+                AuditService.MatchMode.PREFIX, null, 20, true);
+
+        verify(auditLogRepository).searchAuditLogsPage(eq(7L), eq("PAYMENT%"), isNull(), isNull(), isNull(),
+                isNull(), isNull(), isNull(), isNull(), any());
+        verify(auditLogRepository).countAuditLogs(7L, "PAYMENT%", null, null, null, null, null);
+    }
+
+    @Test
+    void testLoggedCodesAreStoredInCanonicalForm() {
+        User user = new User();
+        user.setId(3L);
+
+        auditService.logSuccess("record_payment", " Payment", 11L, null, null, "Recorded", user);
+        auditService.logFailure("Record_Payment", "payment", 12L, "boom", "Failed", user);
+
+        ArgumentCaptor<AuditRecord> records = ArgumentCaptor.forClass(AuditRecord.class);
+        verify(auditLogWriter, times(2)).write(records.capture());
+        for (AuditRecord record : records.getAllValues()) {
+            assertEquals("RECORD_PAYMENT", record.getAction());
+            assertEquals("PAYMENT", record.getEntityType());
+            assertEquals(Long.valueOf(3L), record.getUserId());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBatchAndEntityLookupUseCanonicalCodes() {
+        Map<Long, String> descriptions = new LinkedHashMap<>();
+        descriptions.put(1L, "first");
+        descriptions.put(2L, "second");
+
+        auditService.logSuccessBatch("import_ledger_entries", "ledger_entry", descriptions, null);
+        auditService.getAuditLogsForEntity("ledger_entry", 1L);
+
+        ArgumentCaptor<List<AuditRecord>> batch = ArgumentCaptor.forClass(List.class);
+        verify(auditLogWriter).writeAll(batch.capture());
+        for (AuditRecord record : batch.getValue()) {
+            assertEquals("IMPORT_LEDGER_ENTRIES", record.getAction());
+            assertEquals("LEDGER_ENTRY", record.getEntityType());
+        }
+        verify(auditLogRepository).findByEntityTypeAndEntityIdOrderByCreatedAtDesc("LEDGER_ENTRY", 1L);
+    }
+
+    /**
+     * Search benchmark against MySQL: the old case-insensitive substring filter versus the exact and prefix
+     * filters on a generated audit table (10M rows unless -Dbenchmark.rows is given). Needs a MySQL server;
+     * the connection defaults to the application's and can be set with -Dbenchmark.jdbc-url,
+     * -Dbenchmark.jdbc-user and -Dbenchmark.jdbc-password. The table is dropped afterwards.
+     * Run with: mvn test -Dtest=AuditServiceTest -Dbenchmark=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkSearchOnGeneratedTable() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                System.getProperty("benchmark.jdbc-url", "jdbc:mysql://localhost:3306/test1"
+                        + "?createDatabaseIfNotExist=true&useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC"),
+                System.getProperty("benchmark.jdbc-user", "root"),
+                System.getProperty("benchmark.jdbc-password", "4566"));
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        long rows = Long.getLong("benchmark.rows", 10_000_000L);
+        int chunk = 1_000_000;
+
+        jdbc.execute("DROP TABLE IF EXISTS audit_logs_bench");
+        jdbc.execute("DROP TABLE IF EXISTS audit_bench_digits");
+        jdbc.execute("CREATE TABLE audit_logs_bench (id BIGINT PRIMARY KEY, action VARCHAR(100) NOT NULL, "
+                + "entity_type VARCHAR(50) NOT NULL, entity_id BIGINT, success BIT(1) NOT NULL, user_id BIGINT, "
+                + "created_at DATETIME(6) NOT NULL)");
+        jdbc.execute("CREATE TABLE audit_bench_digits (d INT PRIMARY KEY)");
+        jdbc.execute("INSERT INTO audit_bench_digits VALUES (0),(1),(2),(3),(4),(5),(6),(7),(8),(9)");
+        try {
+            long started = System.nanoTime();
+            for (long base = 0; base < rows; base += chunk) {
+                // n runs over [base, base + chunk); actions and entity types cycle through the codes in use
+                jdbc.update("INSERT INTO audit_logs_bench "
+                        + "SELECT n + 1, ELT(1 + n % 8, 'CREATE_LEDGER_ENTRY', 'UPDATE_LEDGER_ENTRY', "
+                        + "'DELETE_LEDGER_ENTRY', 'RECORD_PAYMENT', 'APPLY_PAYMENT', 'AUTO_APPLY_PAYMENT', "
+                        + "'DISPUTE_PAYMENT', 'SETTLEMENT_RUN'), "
+                        + "ELT(1 + n % 4, 'LEDGER_ENTRY', 'PAYMENT', 'PAYMENT_APPLICATION', 'SYSTEM'), "
+                        + "n % 50000, n % 20 <> 0, 1 + n % 50, "
+                        + "TIMESTAMP('2026-01-01') - INTERVAL (n DIV 10) SECOND FROM (SELECT ? + a.d + 10 * b.d "
+                        + "+ 100 * c.d + 1000 * e.d + 10000 * f.d + 100000 * g.d AS n FROM audit_bench_digits a, "
+                        + "audit_bench_digits b, audit_bench_digits c, audit_bench_digits e, audit_bench_digits f, "
+                        + "audit_bench_digits g) generated WHERE n < ?", base, rows);
+            }
+            jdbc.execute("CREATE INDEX idx_bench_created ON audit_logs_bench(created_at, id)");
+            jdbc.execute("CREATE INDEX idx_bench_entity_created ON audit_logs_bench(entity_type, entity_id, created_at)");
+            jdbc.execute("CREATE INDEX idx_bench_action_created ON audit_logs_bench(action, created_at, id)");
+            jdbc.execute("ANALYZE TABLE audit_logs_bench");
+            System.out.printf("Generated %,d audit rows in %d ms%n", rows, (System.nanoTime() - started) / 1_000_000);
+
+            String page = "SELECT id FROM audit_logs_bench WHERE %s ORDER BY created_at DESC, id DESC LIMIT 20";
+            String count = "SELECT COUNT(*) FROM audit_logs_bench WHERE %s";
+            Map<String, String> filters = new LinkedHashMap<>();
+            filters.put("substring (old)", "LOWER(action) LIKE LOWER(CONCAT('%', 'settlement_run', '%'))");
+            filters.put("exact", "action = 'SETTLEMENT_RUN'");
+            filters.put("prefix", "action LIKE 'SETTLEMENT!_%' ESCAPE '!'");
+            filters.put("contains", "action LIKE '%SETTLEMENT!_RUN%' ESCAPE '!'");
+            filters.put("entity (old)", "LOWER(entity_type) LIKE LOWER(CONCAT('%', 'payment', '%')) AND entity_id = 4242");
+            filters.put("entity exact", "entity_type = 'PAYMENT' AND entity_id = 4242");
+
+            for (Map.Entry<String, String> filter : filters.entrySet()) {
+                long pageMs = medianMillis(() -> jdbc.queryForList(String.format(page, filter.getValue()), Long.class));
+                long countMs = medianMillis(() -> jdbc.queryForObject(String.format(count, filter.getValue()), Long.class));
+                System.out.printf("%-16s first page %6d ms, count %6d ms%n", filter.getKey(), pageMs, countMs);
+            }
+        } finally {
+            jdbc.execute("DROP TABLE IF EXISTS audit_logs_bench");
+            jdbc.execute("DROP TABLE IF EXISTS audit_bench_digits");
+        }
+    }
+
+    private static long medianMillis(Runnable query) {
+        query.run();
+        List<Long> timings = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            long started = System.nanoTime();
+            query.run();
+            timings.add((System.nanoTime() - started) / 1_000_000);
+        }
+        Collections.sort(timings);
+        return timings.get(timings.size() / 2);
+    }
+}
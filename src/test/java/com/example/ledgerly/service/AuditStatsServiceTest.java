@@ -0,0 +1,118 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.User;
+import com.example.ledgerly.repository.AuditStatBucketRepository;
+import com.example.ledgerly.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuditStatsServiceTest {
+
+    @Mock
+    private AuditStatBucketRepository auditStatBucketRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AuditStatsService auditStatsService;
+
+    @BeforeEach
+    void setUp() {
+        auditStatsService = new AuditStatsService(auditStatBucketRepository, userRepository, jdbcTemplate,
+                transactionManager);
+        ReflectionTestUtils.setField(auditStatsService, "rebuildWindowDays", 7);
+    }
+
+    @Test
+    void testStatisticsAreSummedFromBucketsForTheWindow() {
+        LocalDateTime from = LocalDateTime.of(2026, 3, 1, 9, 45);
+        LocalDateTime to = LocalDateTime.of(2026, 3, 2, 9, 15);
+        LocalDateTime fromHour = LocalDateTime.of(2026, 3, 1, 9, 0);
+        LocalDateTime toHour = LocalDateTime.of(2026, 3, 2, 9, 0);
+        when(auditStatBucketRepository.sumTotals(fromHour, toHour))
+                .thenReturn(Collections.singletonList(new Object[]{12L, 10L, 2L}));
+        when(auditStatBucketRepository.sumByAction(fromHour, toHour))
+                .thenReturn(Collections.singletonList(new Object[]{"RECORD_PAYMENT", 12L, 10L, 2L}));
+        when(auditStatBucketRepository.sumByUser(fromHour, toHour))
+                .thenReturn(List.of(new Object[]{7L, 9L, 8L, 1L}, new Object[]{8L, 3L, 2L, 1L}));
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("owner");
+        when(userRepository.findAllById(any())).thenReturn(List.of(user));
+
+        AuditService.AuditStatistics stats = auditStatsService.getStatistics(from, to);
+
+        assertEquals(12, stats.getTotalLogs());
+        assertEquals(10, stats.getSuccessfulLogs());
+        assertEquals(2, stats.getFailedLogs());
+        assertEquals("RECORD_PAYMENT", stats.getActionStatistics().get(0)[0]);
+        assertEquals("owner", stats.getUserStatistics().get(0)[0]);
+        assertEquals(9L, stats.getUserStatistics().get(0)[1]);
+        // A user deleted since still shows up by id
+        assertEquals("user#8", stats.getUserStatistics().get(1)[0]);
+    }
+
+    @Test
+    void testEmptyBucketsGiveZeroTotals() {
+        when(auditStatBucketRepository.sumTotals(null, null))
+                .thenReturn(Collections.singletonList(new Object[]{0L, 0L, 0L}));
+        when(auditStatBucketRepository.sumByAction(null, null)).thenReturn(List.of());
+        when(auditStatBucketRepository.sumByUser(null, null)).thenReturn(List.of());
+
+        AuditService.AuditStatistics stats = auditStatsService.getStatistics(null, null);
+
+        assertEquals(0, stats.getTotalLogs());
+        assertEquals(0.0, stats.getSuccessRate());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void testRebuildRecomputesOneWindowPerTransactionUpToTheCurrentHour() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(LocalDateTime.class)))
+                .thenReturn(LocalDateTime.now().minusDays(10));
+        // Lenient: the DELETE of each window goes through the same update method
+        lenient().when(jdbcTemplate.update(startsWith("INSERT INTO audit_stat_buckets"), any(Timestamp.class),
+                any(Timestamp.class))).thenReturn(40);
+
+        AuditStatsService.StatsRebuildResult result = auditStatsService.rebuildBuckets();
+
+        // 10 days back to the end of the current hour: two 7-day windows
+        assertEquals(2, result.getWindows());
+        assertEquals(80, result.getBucketsWritten());
+        verify(jdbcTemplate, times(2)).update(startsWith("DELETE FROM audit_stat_buckets"),
+                any(Timestamp.class), any(Timestamp.class));
+        verify(transactionManager, times(2)).getTransaction(any());
+    }
+
+    @Test
+    void testRebuildWithNoLiveRowsKeepsExistingBuckets() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(LocalDateTime.class))).thenReturn(null);
+
+        AuditStatsService.StatsRebuildResult result = auditStatsService.rebuildBuckets();
+
+        assertEquals(0, result.getWindows());
+        verify(jdbcTemplate, never()).update(anyString(), any(), any());
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.Customer;
+import com.example.ledgerly.entity.LedgerEntry;
+import com.example.ledgerly.entity.TransactionType;
+import com.example.ledgerly.exception.BusinessRuleException;
+import com.example.ledgerly.repository.CustomerRepository;
+import com.example.ledgerly.repository.LedgerEntryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerBalanceServiceTest {
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Mock
+    private AuditService auditService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private CustomerBalanceService customerBalanceService;
+
+    private Customer testCustomer;
+
+    @BeforeEach
+    void setUp() {
+        testCustomer = new Customer();
+        testCustomer.setId(1L);
+        testCustomer.setName("Test Customer");
+        testCustomer.setCurrentBalance(new BigDecimal("100.00"));
+    }
+
+    private LedgerEntry entry(TransactionType type, String amount) {
+        LedgerEntry entry = new LedgerEntry();
+        entry.setCustomer(testCustomer);
+        entry.setTransactionType(type);
+        entry.setAmount(new BigDecimal(amount));
+        entry.setTransactionDate(LocalDate.now());
+        entry.setActive(true);
+        return entry;
+    }
+
+    @Test
+    void testApplyEntryChange_Create() {
+        BigDecimal result = customerBalanceService.applyEntryChange(testCustomer, null,
+                entry(TransactionType.DEBIT, "30.00"));
+
+        assertEquals(0, new BigDecimal("70.00").compareTo(result));
+        assertEquals(0, new BigDecimal("70.00").compareTo(testCustomer.getCurrentBalance()));
+        verify(customerRepository).saveAndFlush(testCustomer);
+    }
+
+    @Test
+    void testApplyEntryChange_UpdateAmountAndType() {
+        LedgerEntry entry = entry(TransactionType.DEBIT, "30.00");
+        LedgerEntryState before = LedgerEntryState.of(entry);
+        entry.setTransactionType(TransactionType.CREDIT);
+        entry.setAmount(new BigDecimal("50.00"));
+
+        BigDecimal result = customerBalanceService.applyEntryChange(testCustomer, before, entry);
+
+        // Undo -30, apply +50
+        assertEquals(0, new BigDecimal("180.00").compareTo(result));
+    }
+
+    @Test
+    void testApplyEntryChange_SoftDelete() {
+        LedgerEntry entry = entry(TransactionType.CREDIT, "40.00");
+        LedgerEntryState before = LedgerEntryState.of(entry);
+        entry.setActive(false);
+
+        BigDecimal result = customerBalanceService.applyEntryChange(testCustomer, before, entry);
+
+        assertEquals(0, new BigDecimal("60.00").compareTo(result));
+    }
+
+    @Test
+    void testApplyEntryChange_NoDeltaSkipsWrite() {
+        LedgerEntry entry = entry(TransactionType.DEBIT, "30.00");
+        LedgerEntryState before = LedgerEntryState.of(entry);
+        entry.setDescription("Only the description changed");
+
+        customerBalanceService.applyEntryChange(testCustomer, before, entry);
+
+        verify(customerRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void testApplyDelta_ConcurrentUpdate() {
+        when(customerRepository.saveAndFlush(testCustomer))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Customer.class, 1L));
+
+        BusinessRuleException exception = assertThrows(BusinessRuleException.class,
+                () -> customerBalanceService.applyDelta(testCustomer, new BigDecimal("10.00")));
+
+        assertEquals("CONCURRENT_BALANCE_UPDATE", exception.getRuleCode());
+    }
+
+    @Test
+    void testVerifyBalances_OneTransactionPerBatch() {
+        when(customerRepository.findBalanceSnapshotAfter(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(new Object[]{1L, new BigDecimal("100.00")}, new Object[]{2L, null}));
+        when(customerRepository.findBalanceSnapshotAfter(eq(2L), any(Pageable.class)))
+                .thenReturn(List.<Object[]>of(new Object[]{5L, new BigDecimal("10.00")}));
+        when(customerRepository.findBalanceSnapshotAfter(eq(5L), any(Pageable.class))).thenReturn(List.of());
+        when(ledgerEntryRepository.calculateCurrentBalancesForCustomers(any()))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, new BigDecimal("100.00")}))
+                .thenReturn(List.<Object[]>of(new Object[]{5L, new BigDecimal("25.00")}));
+
+        CustomerBalanceService.BalanceVerificationResult result = customerBalanceService.verifyBalances(true);
+
+        assertEquals(3, result.getCustomersChecked());
+        assertEquals(1, result.getDriftCount());
+        assertEquals(1, result.getRepairedCount());
+        assertEquals(5L, result.getDrifts().get(0).getCustomerId());
+        verify(customerRepository).overwriteCurrentBalance(5L, new BigDecimal("25.00"));
+        // Two batches plus the empty read that ends the scan
+        verify(transactionManager, times(3)).getTransaction(any());
+        verify(transactionManager, times(3)).commit(any());
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.Customer;
+import com.example.ledgerly.exception.BusinessRuleException;
+import com.example.ledgerly.repository.CustomerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CustomerLockServiceTest {
+
+    private CustomerRepository customerRepository;
+    private CustomerLockService customerLockService;
+
+    @BeforeEach
+    void setUp() {
+        customerRepository = mock(CustomerRepository.class, withSettings().stubOnly());
+        when(customerRepository.findByIdForUpdate(anyLong())).thenAnswer(invocation -> {
+            Customer customer = new Customer();
+            customer.setId(invocation.getArgument(0));
+            return Optional.of(customer);
+        });
+        customerLockService = new CustomerLockService(customerRepository, 1024, 100);
+    }
+
+    /**
+     * Run the action as if inside a transaction, firing afterCompletion at the end like the transaction manager
+     */
+    private void inTransaction(Runnable action) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            action.run();
+        } finally {
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            for (TransactionSynchronization synchronization : synchronizations) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        }
+    }
+
+    @Test
+    void testLockCustomer_RequiresTransaction() {
+        assertThrows(IllegalStateException.class, () -> customerLockService.lockCustomer(1L));
+    }
+
+    @Test
+    void testLockCustomer_HeldUntilTransactionCompletes() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            Future<?> holder = executor.submit(() -> inTransaction(() -> {
+                customerLockService.lockCustomer(1L);
+                locked.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+            BusinessRuleException exception = assertThrows(BusinessRuleException.class,
+                    () -> inTransaction(() -> customerLockService.lockCustomer(1L)));
+            assertEquals("CUSTOMER_LOCK_TIMEOUT", exception.getRuleCode());
+
+            release.countDown();
+            holder.get(5, TimeUnit.SECONDS);
+
+            inTransaction(() -> assertEquals(1L, customerLockService.lockCustomer(1L).getId()));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testLockCustomers_SkipsMissingCustomers() {
+        when(customerRepository.findByIdForUpdate(2L)).thenReturn(Optional.empty());
+
+        inTransaction(() -> {
+            List<Customer> customers = customerLockService.lockCustomers(List.of(3L, 2L, 1L));
+            assertEquals(List.of(1L, 3L), customers.stream().map(Customer::getId).toList());
+        });
+    }
+
+    /**
+     * Contention benchmark: N threads writing to one customer versus N threads writing to N customers.
+     * Each simulated write holds the customer lock for about a millisecond, standing in for the
+     * entry insert and balance update. Run with: mvn test -Dtest=CustomerLockServiceTest -Dbenchmark=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkContention() throws Exception {
+        customerLockService = new CustomerLockService(customerRepository, 1024, 60_000);
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        int writesPerThread = 200;
+
+        double sameCustomer = measureThroughput(threads, writesPerThread, thread -> 1L);
+        double distinctCustomers = measureThroughput(threads, writesPerThread, thread -> 1000L + thread);
+
+        System.out.printf("Customer lock contention, %d threads x %d writes:%n", threads, writesPerThread);
+        System.out.printf("  1 customer : %,.0f writes/s%n", sameCustomer);
+        System.out.printf("  %d customers: %,.0f writes/s%n", threads, distinctCustomers);
+
+        assertTrue(distinctCustomers > sameCustomer * 2,
+                "Writes to different customers should proceed in parallel");
+    }
+
+    private double measureThroughput(int threads, int writesPerThread,
+                                     IntFunction<Long> customerForThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Future<?>[] workers = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                Long customerId = customerForThread.apply(t);
+                workers[t] = executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < writesPerThread; i++) {
+                        inTransaction(() -> {
+                            customerLockService.lockCustomer(customerId);
+                            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                        });
+                    }
+                    return null;
+                });
+            }
+
+            long startTime = System.nanoTime();
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+            double seconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+            return threads * writesPerThread / seconds;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.Customer;
+import com.example.ledgerly.entity.DocumentAttachment;
+import com.example.ledgerly.entity.LedgerEntry;
+import com.example.ledgerly.entity.Payment;
+import com.example.ledgerly.entity.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.LazyInitializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class EntitySnapshotterTest {
+
+    private final EntitySnapshotter snapshotter = new EntitySnapshotter();
+
+    @Test
+    void testPaymentSnapshotHoldsScalarsAndAssociationIds() {
+        Payment payment = payment();
+
+        Map<String, Object> snapshot = snapshotter.snapshot(payment);
+
+        assertEquals(10L, snapshot.get("id"));
+        assertEquals(0, new BigDecimal("125.50").compareTo((BigDecimal) snapshot.get("amount")));
+        assertEquals("PENDING", snapshot.get("status"));
+        assertEquals(3L, snapshot.get("customerId"));
+        assertEquals(1L, snapshot.get("createdById"));
+        assertTrue(snapshot.containsKey("shopId"));
+        assertNull(snapshot.get("shopId"));
+        assertFalse(snapshot.containsKey("customer"));
+    }
+
+    @Test
+    void testLazyAssociationIdIsReadWithoutInitializingTheProxy() {
+        LazyInitializer initializer = mock(LazyInitializer.class);
+        when(initializer.getIdentifier()).thenReturn(7L);
+        Customer proxy = mock(Customer.class, withSettings().extraInterfaces(HibernateProxy.class));
+        when(((HibernateProxy) proxy).getHibernateLazyInitializer()).thenReturn(initializer);
+        Payment payment = payment();
+        payment.setCustomer(proxy);
+
+        Map<String, Object> snapshot = snapshotter.snapshot(payment);
+
+        assertEquals(7L, snapshot.get("customerId"));
+        verify(initializer, never()).getImplementation();
+        verify(initializer, never()).initialize();
+    }
+
+    @Test
+    void testCollectionsAreSkipped() {
+        LedgerEntry entry = new LedgerEntry();
+        entry.setId(5L);
+        entry.addAttachment(new DocumentAttachment());
+
+        Map<String, Object> snapshot = snapshotter.snapshot(entry);
+
+        assertEquals(5L, snapshot.get("id"));
+        assertFalse(snapshot.containsKey("attachments"));
+        assertFalse(snapshot.containsKey("attachmentsId"));
+    }
+
+    @Test
+    void testDiffKeepsOnlyChangedFields() {
+        Map<String, Object> before = new LinkedHashMap<>();
+        before.put("status", "PENDING");
+        before.put("amount", new BigDecimal("10.0"));
+        before.put("notes", null);
+        Map<String, Object> after = new LinkedHashMap<>(before);
+        after.put("status", "OVERDUE");
+        after.put("amount", new BigDecimal("10.00"));
+
+        EntitySnapshotter.SnapshotDiff diff = EntitySnapshotter.diff(before, after);
+
+        assertEquals(Map.of("status", "PENDING"), diff.getBefore());
+        assertEquals(Map.of("status", "OVERDUE"), diff.getAfter());
+        assertTrue(EntitySnapshotter.diff(before, before).isEmpty());
+    }
+
+    /**
+     * Snapshot cost against the previous Jackson write-then-read round trip.
+     * Run with: mvn test -Dtest=EntitySnapshotterTest -Dbenchmark=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @SuppressWarnings("unchecked")
+    void benchmarkSnapshotAgainstJsonRoundTrip() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        Payment payment = payment();
+        int iterations = 200_000;
+
+        for (int warmup = 0; warmup < 50_000; warmup++) {
+            objectMapper.readValue(objectMapper.writeValueAsString(payment), Map.class);
+            snapshotter.snapshot(payment);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            objectMapper.readValue(objectMapper.writeValueAsString(payment), Map.class);
+        }
+        long jsonNanos = (System.nanoTime() - start) / iterations;
+
+        start = System.nanoTime();
+        int fields = 0;
+        for (int i = 0; i < iterations; i++) {
+            fields += snapshotter.snapshot(payment).size();
+        }
+        long snapshotNanos = (System.nanoTime() - start) / iterations;
+
+        System.out.printf("Payment snapshot: JSON round trip %,d ns, extractor %,d ns (%d fields)%n",
+                jsonNanos, snapshotNanos, fields / iterations);
+        assertTrue(snapshotNanos < jsonNanos, "Extractor snapshot should be cheaper than the JSON round trip");
+        assertTrue(TimeUnit.NANOSECONDS.toMicros(snapshotNanos) < 50);
+    }
+
+    private Payment payment() {
+        User user = new User();
+        user.setId(1L);
+        Customer customer = new Customer();
+        customer.setId(3L);
+        Payment payment = new Payment(LocalDate.of(2026, 3, 1), new BigDecimal("125.50"), "Invoice 1001",
+                customer, user);
+        payment.setId(10L);
+        return payment;
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.Customer;
+import com.example.ledgerly.repository.CustomerRepository;
+import com.example.ledgerly.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExportServiceTest {
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private LedgerService ledgerService;
+
+    @Mock
+    private LedgerAggregateService ledgerAggregateService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ResultSet resultSet;
+
+    private ExportService exportService;
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new ExportService(customerRepository, userRepository, ledgerService,
+                ledgerAggregateService, jdbcTemplate);
+        ReflectionTestUtils.setField(exportService, "fetchSize", 500);
+        ReflectionTestUtils.setField(exportService, "flushRows", 2);
+        ReflectionTestUtils.setField(exportService, "pdfChunkRows", 500);
+
+        customer = new Customer();
+        customer.setId(5L);
+        customer.setName("Acme Traders");
+    }
+
+    @Test
+    void testHistoryRowsAreWrittenAsTheCursorReadsThem() throws Exception {
+        stubEntryRow();
+        cursorReturns(5);
+        CountingOutputStream out = new CountingOutputStream();
+
+        exportService.writeTransactionHistoryCSV(customer, out);
+
+        String csv = out.buffer.toString(StandardCharsets.UTF_8);
+        assertTrue(csv.contains("\"Complete Transaction History\",\"Acme Traders\""));
+        assertEquals(5, csv.split("\"02/03/2026\",\"Credit\",\"Main Street\",\"Goods\",\"REF-1\",\"\",\"120.50\",\"\",\"Yes\"", -1).length - 1);
+        // Flushed after rows 2 and 4, then once at the end
+        assertEquals(3, out.flushes);
+    }
+
+    @Test
+    void testCursorIsForwardOnlyWithTheConfiguredFetchSize() throws Exception {
+        cursorReturns(0);
+        exportService.writeTransactionHistoryCSV(customer, new ByteArrayOutputStream());
+
+        ArgumentCaptor<PreparedStatementCreator> creator = ArgumentCaptor.forClass(PreparedStatementCreator.class);
+        verify(jdbcTemplate).query(creator.capture(), any(RowCallbackHandler.class));
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString(), eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY)))
+                .thenReturn(statement);
+
+        creator.getValue().createPreparedStatement(connection);
+
+        verify(statement).setFetchSize(500);
+        verify(statement).setObject(1, 5L);
+    }
+
+    @Test
+    void testStatementStreamsTheDateRange() throws Exception {
+        LocalDate start = LocalDate.of(2026, 3, 1);
+        LocalDate end = LocalDate.of(2026, 3, 31);
+        when(ledgerAggregateService.getPeriodSummary(5L, start, end)).thenReturn(new LedgerAggregateService.PeriodSummary(
+                5L, start, end, BigDecimal.ZERO, new BigDecimal("120.50"), BigDecimal.ZERO, 1L));
+        cursorReturns(0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.writeCustomerStatementCSV(customer, start, end, out);
+
+        String csv = out.toString(StandardCharsets.UTF_8);
+        assertTrue(csv.contains("\"Period: 01/03/2026 to 31/03/2026\""));
+        assertTrue(csv.contains("\"Closing Balance\",\"120.50\""));
+        ArgumentCaptor<PreparedStatementCreator> creator = ArgumentCaptor.forClass(PreparedStatementCreator.class);
+        verify(jdbcTemplate).query(creator.capture(), any(RowCallbackHandler.class));
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(contains("BETWEEN ? AND ?"), anyInt(), anyInt())).thenReturn(statement);
+        creator.getValue().createPreparedStatement(connection);
+        verify(statement).setObject(2, Date.valueOf(start));
+        verify(statement).setObject(3, Date.valueOf(end));
+    }
+
+    @Test
+    void testFailedClientWriteStopsTheExportWithIOException() throws Exception {
+        stubEntryRow();
+        cursorReturns(3);
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        IOException e = assertThrows(IOException.class, () -> exportService.writeTransactionHistoryCSV(customer, broken));
+        assertEquals("Broken pipe", e.getMessage());
+    }
+
+    @Test
+    void testHistoryPdfIsRenderedFromTheCursorInChunks() throws Exception {
+        stubEntryRow();
+        stubBalanceSummary();
+        CountingOutputStream out = new CountingOutputStream();
+        long[] writtenWhileReading = {0};
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (int i = 0; i < 1200; i++) {
+                handler.processRow(resultSet);
+            }
+            writtenWhileReading[0] = out.bytes;
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        exportService.writeTransactionHistoryPDF(customer, out);
+
+        String pdf = out.buffer.toString(StandardCharsets.ISO_8859_1);
+        assertTrue(pdf.startsWith("%PDF-"));
+        assertTrue(pdf.trim().endsWith("%%EOF"));
+        // Pages of the flushed chunks reach the stream before the table is complete
+        assertTrue(writtenWhileReading[0] > 0);
+        assertTrue(writtenWhileReading[0] < out.bytes);
+        // The caller's stream stays open
+        assertFalse(out.closed);
+    }
+
+    /**
+     * Memory profile of a 500k-entry PDF history: heap retained after a full GC is sampled every 50k rows
+     * while the table streams to a discarding output, and must not grow with the number of rows. The cursor is a
+     * stub-only mock, so Mockito does not record the millions of getter calls and skew the profile.
+     * Run with: mvn test -Dtest=ExportServiceTest -Dbenchmark=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkPdfHistoryMemoryAt500kEntries() throws Exception {
+        int entries = 500_000;
+        int sampleEvery = 50_000;
+        ResultSet cursor = mock(ResultSet.class, withSettings().stubOnly());
+        stubEntryRow(cursor);
+        stubBalanceSummary();
+        long[] retained = new long[entries / sampleEvery];
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (int i = 1; i <= entries; i++) {
+                handler.processRow(cursor);
+                if (i % sampleEvery == 0) {
+                    retained[i / sampleEvery - 1] = retainedHeap();
+                }
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        CountingOutputStream out = new CountingOutputStream(false);
+
+        long started = System.nanoTime();
+        exportService.writeTransactionHistoryPDF(customer, out);
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        for (int i = 0; i < retained.length; i++) {
+            System.out.printf("%,8d rows: %6.1f MB retained%n", (i + 1) * sampleEvery, retained[i] / 1048576.0);
+        }
+        System.out.printf("%,d entries, %,d bytes of PDF in %d ms%n", entries, out.bytes, elapsedMs);
+        long growth = retained[retained.length - 1] - retained[0];
+        assertTrue(growth < 32L * 1024 * 1024,
+                "Retained heap grew by " + growth / 1048576 + " MB between 50k and 500k rows");
+    }
+
+    private static long retainedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private void stubBalanceSummary() {
+        when(ledgerService.getCustomerBalanceSummary(5L)).thenReturn(new LedgerService.CustomerBalanceSummary(
+                5L, "Acme Traders", new BigDecimal("120.50"), BigDecimal.ZERO, new BigDecimal("120.50"), 1L,
+                new BigDecimal("5000.00")));
+    }
+
+    private void stubEntryRow() throws Exception {
+        stubEntryRow(resultSet);
+    }
+
+    private static void stubEntryRow(ResultSet resultSet) throws Exception {
+        when(resultSet.getDate("transaction_date")).thenReturn(Date.valueOf(LocalDate.of(2026, 3, 2)));
+        when(resultSet.getString("transaction_type")).thenReturn("CREDIT");
+        when(resultSet.getString("shop_name")).thenReturn("Main Street");
+        when(resultSet.getString("description")).thenReturn("Goods");
+        when(resultSet.getString("reference_number")).thenReturn("REF-1");
+        when(resultSet.getString("invoice_number")).thenReturn(null);
+        when(resultSet.getBigDecimal("amount")).thenReturn(new BigDecimal("120.50"));
+        when(resultSet.getBigDecimal("balance_after_transaction")).thenReturn(null);
+        when(resultSet.getBoolean("is_reconciled")).thenReturn(true);
+    }
+
+    private void cursorReturns(int rows) {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (int i = 0; i < rows; i++) {
+                handler.processRow(resultSet);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final boolean keep;
+        private long bytes;
+        private int flushes;
+        private boolean closed;
+
+        CountingOutputStream() {
+            this(true);
+        }
+
+        CountingOutputStream(boolean keep) {
+            this.keep = keep;
+        }
+
+        @Override
+        public void write(int b) {
+            bytes++;
+            if (keep) {
+                buffer.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+            if (keep) {
+                buffer.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.dto.KeysetPage;
+import com.example.ledgerly.exception.BusinessRuleException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    @Test
+    void testDecode_RoundTripsDateAndId() {
+        LocalDate date = LocalDate.of(2024, 3, 15);
+        KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.encode(date, 42L));
+
+        assertEquals(date, KeysetCursor.dateOf(cursor));
+        assertEquals(42L, KeysetCursor.idOf(cursor));
+    }
+
+    @Test
+    void testDecode_RoundTripsDateTime() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 3, 15, 10, 30, 5, 123456000);
+        KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.encode(createdAt, 7L));
+
+        assertEquals(createdAt, KeysetCursor.dateTimeOf(cursor));
+    }
+
+    @Test
+    void testDecode_BlankIsFirstPage() {
+        assertNull(KeysetCursor.decode(null));
+        assertNull(KeysetCursor.decode(""));
+        assertNull(KeysetCursor.dateOf(null));
+        assertNull(KeysetCursor.idOf(null));
+    }
+
+    @Test
+    void testDecode_RejectsTamperedToken() {
+        BusinessRuleException e = assertThrows(BusinessRuleException.class, () -> KeysetCursor.decode("not base64!"));
+        assertEquals("INVALID_CURSOR", e.getRuleCode());
+
+        KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.encode("garbage", 1L));
+        assertThrows(BusinessRuleException.class, () -> KeysetCursor.dateOf(cursor));
+    }
+
+    @Test
+    void testKeysetPage_ExtraRowSignalsMore() {
+        KeysetPage<Long> page = KeysetPage.of(List.of(5L, 4L, 3L), 2, id -> "after-" + id);
+
+        assertEquals(List.of(5L, 4L), page.getContent());
+        assertTrue(page.isHasMore());
+        assertEquals("after-4", page.getNextCursor());
+    }
+
+    @Test
+    void testKeysetPage_LastPageHasNoCursor() {
+        KeysetPage<Long> page = KeysetPage.of(List.of(2L, 1L), 2, id -> "after-" + id);
+
+        assertFalse(page.isHasMore());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testPageSize_IsClamped() {
+        assertEquals(1, KeysetCursor.pageSize(0));
+        assertEquals(KeysetCursor.MAX_PAGE_SIZE, KeysetCursor.pageSize(10_000));
+    }
+}
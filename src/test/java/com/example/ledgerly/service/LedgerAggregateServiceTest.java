@@ -0,0 +1,346 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.CustomerMonthlyBalance;
+import com.example.ledgerly.entity.RollupSource;
+import com.example.ledgerly.entity.TransactionType;
+import com.example.ledgerly.repository.CustomerDailyTotalRepository;
+import com.example.ledgerly.repository.CustomerMonthlyBalanceRepository;
+import com.example.ledgerly.repository.CustomerRepository;
+import com.example.ledgerly.repository.LedgerEntryRepository;
+import com.example.ledgerly.repository.SummaryRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LedgerAggregateServiceTest {
+
+    private CustomerDailyTotalRepository customerDailyTotalRepository;
+    private CustomerMonthlyBalanceRepository customerMonthlyBalanceRepository;
+    private SummaryRollupRepository summaryRollupRepository;
+    private LedgerEntryRepository ledgerEntryRepository;
+    private CustomerRepository customerRepository;
+    private CustomerLockService customerLockService;
+    private JdbcTemplate jdbcTemplate;
+    private PlatformTransactionManager transactionManager;
+    private LedgerAggregateService ledgerAggregateService;
+
+    // Mid-month, so that a few days either side stay in the same month
+    private final LocalDate today = LocalDate.now().withDayOfMonth(15);
+
+    @BeforeEach
+    void setUp() {
+        customerDailyTotalRepository = mock(CustomerDailyTotalRepository.class);
+        customerMonthlyBalanceRepository = mock(CustomerMonthlyBalanceRepository.class);
+        summaryRollupRepository = mock(SummaryRollupRepository.class);
+        ledgerEntryRepository = mock(LedgerEntryRepository.class);
+        customerRepository = mock(CustomerRepository.class);
+        customerLockService = mock(CustomerLockService.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        ledgerAggregateService = new LedgerAggregateService(customerDailyTotalRepository,
+                customerMonthlyBalanceRepository, summaryRollupRepository, ledgerEntryRepository,
+                customerRepository, customerLockService, jdbcTemplate, transactionManager);
+    }
+
+    private LedgerEntryState state(LocalDate date, String amount, boolean active) {
+        return new LedgerEntryState(1L, 1L, date, TransactionType.DEBIT, new BigDecimal(amount), active);
+    }
+
+    private List<Object[]> captureUpsertRows() {
+        return captureBatch("INSERT INTO customer_daily_totals");
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> captureBatch(String sqlPrefix) {
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith(sqlPrefix), rows.capture());
+        return rows.getValue();
+    }
+
+    private List<Object[]> rowsOf(String credit, String debit, long count) {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{new BigDecimal(credit), new BigDecimal(debit), count});
+        return rows;
+    }
+
+    private CustomerMonthlyBalance checkpoint(LocalDate periodStart, String closingBalance) {
+        CustomerMonthlyBalance checkpoint = new CustomerMonthlyBalance();
+        checkpoint.setCustomerId(1L);
+        checkpoint.setPeriodStart(periodStart);
+        checkpoint.setClosingBalance(new BigDecimal(closingBalance));
+        return checkpoint;
+    }
+
+    @Test
+    void testApplyEntryChange_NewEntryAddsToItsDay() {
+        ledgerAggregateService.applyEntryChange(null, state(today, "25.00", true));
+
+        List<Object[]> rows = captureUpsertRows();
+        assertEquals(1, rows.size());
+        assertArrayEquals(new Object[]{1L, Date.valueOf(today), new BigDecimal("25.00"), 1L}, rows.get(0));
+    }
+
+    @Test
+    void testApplyEntryChange_AmountChangeWritesOnlyTheDifference() {
+        ledgerAggregateService.applyEntryChange(state(today, "25.00", true), state(today, "40.00", true));
+
+        List<Object[]> rows = captureUpsertRows();
+        assertEquals(1, rows.size());
+        assertEquals(0, new BigDecimal("15.00").compareTo((BigDecimal) rows.get(0)[2]));
+        assertEquals(0L, rows.get(0)[3]);
+    }
+
+    @Test
+    void testApplyEntryChange_DateMoveUpdatesBothDays() {
+        LocalDate earlier = today.minusDays(3);
+        ledgerAggregateService.applyEntryChange(state(today, "25.00", true), state(earlier, "25.00", true));
+
+        assertEquals(2, captureUpsertRows().size());
+    }
+
+    @Test
+    void testApplyEntryChange_DeactivationRemovesEntry() {
+        ledgerAggregateService.applyEntryChange(state(today, "25.00", true), state(today, "25.00", false));
+
+        List<Object[]> rows = captureUpsertRows();
+        assertEquals(1, rows.size());
+        assertEquals(0, new BigDecimal("-25.00").compareTo((BigDecimal) rows.get(0)[2]));
+        assertEquals(-1L, rows.get(0)[3]);
+    }
+
+    @Test
+    void testApplyEntryChange_NoChangeSkipsWrite() {
+        ledgerAggregateService.applyEntryChange(state(today, "25.00", true), state(today, "25.00", true));
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void testApplyEntryChange_SameMonthLeavesCheckpointsAlone() {
+        ledgerAggregateService.applyEntryChange(state(today, "25.00", true), state(today.minusDays(3), "25.00", true));
+
+        verify(jdbcTemplate, never()).batchUpdate(startsWith("INSERT INTO customer_monthly_balances"), anyList());
+        verify(jdbcTemplate, never()).batchUpdate(startsWith("UPDATE customer_monthly_balances"), anyList());
+    }
+
+    @Test
+    void testApplyEntryChange_MonthMoveShiftsBothMonthsInOrder() {
+        LocalDate thisMonth = today.withDayOfMonth(1);
+        LocalDate lastMonth = thisMonth.minusMonths(1);
+        ledgerAggregateService.applyEntryChange(state(today, "25.00", true), state(today.minusMonths(1), "25.00", true));
+
+        List<Object[]> ensured = captureBatch("INSERT INTO customer_monthly_balances");
+        assertEquals(2, ensured.size());
+        assertEquals(Date.valueOf(lastMonth), ensured.get(0)[1]);
+        assertEquals(Date.valueOf(thisMonth), ensured.get(1)[1]);
+
+        List<Object[]> shifted = captureBatch("UPDATE customer_monthly_balances");
+        assertEquals(2, shifted.size());
+        // A debit moved into last month lowers closing balances from last month on, and restores them from this month on
+        assertEquals(0, new BigDecimal("-25.00").compareTo((BigDecimal) shifted.get(0)[6]));
+        assertEquals(0, new BigDecimal("25.00").compareTo((BigDecimal) shifted.get(1)[6]));
+    }
+
+    @Test
+    void testGetBalanceBefore_CheckpointPlusEarlierDaysOfMonth() {
+        LocalDate monthStart = today.withDayOfMonth(1);
+        when(customerMonthlyBalanceRepository.findLatestBefore(eq(1L), eq(monthStart), any()))
+                .thenReturn(List.of(checkpoint(monthStart.minusMonths(2), "1000.00")));
+        when(ledgerEntryRepository.sumCreditsAndDebitsForCustomer(1L, monthStart, today.minusDays(1)))
+                .thenReturn(rowsOf("50.00", "200.00", 3));
+
+        assertEquals(0, new BigDecimal("850.00").compareTo(ledgerAggregateService.getBalanceBefore(1L, today)));
+    }
+
+    @Test
+    void testGetPeriodSummary_WholeMonthsReadOnlyCheckpoints() {
+        LocalDate start = today.withDayOfMonth(1).minusMonths(3);
+        LocalDate end = today.withDayOfMonth(1).minusDays(1);
+        when(customerMonthlyBalanceRepository.findLatestBefore(eq(1L), eq(start), any()))
+                .thenReturn(List.of(checkpoint(start.minusMonths(1), "100.00")));
+        when(customerMonthlyBalanceRepository.sumForPeriods(1L, start, end.withDayOfMonth(1)))
+                .thenReturn(rowsOf("300.00", "120.00", 7));
+
+        LedgerAggregateService.PeriodSummary summary = ledgerAggregateService.getPeriodSummary(1L, start, end);
+
+        assertEquals(0, new BigDecimal("100.00").compareTo(summary.getOpeningBalance()));
+        assertEquals(0, new BigDecimal("280.00").compareTo(summary.getClosingBalance()));
+        assertEquals(7, summary.getEntryCount());
+        verifyNoInteractions(ledgerEntryRepository);
+    }
+
+    @Test
+    void testGetPeriodSummary_PartialMonthsReadLedger() {
+        LocalDate start = today.minusMonths(2);
+        LocalDate firstFullMonth = start.plusMonths(1).withDayOfMonth(1);
+        LocalDate currentMonth = today.withDayOfMonth(1);
+        when(customerMonthlyBalanceRepository.findLatestBefore(eq(1L), any(), any())).thenReturn(List.of());
+        when(ledgerEntryRepository.sumCreditsAndDebitsForCustomer(eq(1L), any(), any())).thenReturn(rowsOf("0", "0", 0));
+        when(customerMonthlyBalanceRepository.sumForPeriods(1L, firstFullMonth, firstFullMonth))
+                .thenReturn(rowsOf("0", "0", 0));
+
+        ledgerAggregateService.getPeriodSummary(1L, start, today);
+
+        verify(ledgerEntryRepository).sumCreditsAndDebitsForCustomer(1L, start, firstFullMonth.minusDays(1));
+        verify(ledgerEntryRepository).sumCreditsAndDebitsForCustomer(1L, currentMonth, today);
+    }
+
+    @Test
+    void testGetDailyTotal_DefaultsToZero() {
+        when(customerDailyTotalRepository.findTotalAmount(1L, today)).thenReturn(Optional.empty());
+
+        assertEquals(BigDecimal.ZERO, ledgerAggregateService.getDailyTotal(1L, today));
+    }
+
+    @Test
+    void testApplyEntryChange_TypeChangeMovesRollupCategory() {
+        LedgerEntryState credit = new LedgerEntryState(1L, 1L, today, TransactionType.CREDIT, new BigDecimal("25.00"), true);
+        ledgerAggregateService.applyEntryChange(state(today, "25.00", true), credit);
+
+        List<Object[]> rows = captureBatch("INSERT INTO summary_rollups");
+        assertEquals(2, rows.size());
+        long net = rows.stream().mapToLong(row -> (Long) row[5]).sum();
+        assertEquals(0L, net);
+        assertTrue(rows.stream().allMatch(row -> Date.valueOf(today.withDayOfMonth(1)).equals(row[3])));
+    }
+
+    @Test
+    void testApplyRollupChange_PaymentStatusChange() {
+        RollupContribution pending = new RollupContribution(RollupSource.PAYMENT, 2L, 1L, today, "PENDING", new BigDecimal("80.00"), true);
+        RollupContribution completed = new RollupContribution(RollupSource.PAYMENT, 2L, 1L, today, "COMPLETED", new BigDecimal("80.00"), true);
+
+        ledgerAggregateService.applyRollupChange(pending, completed);
+
+        List<Object[]> rows = captureBatch("INSERT INTO summary_rollups");
+        assertEquals(2, rows.size());
+        for (Object[] row : rows) {
+            long expected = "COMPLETED".equals(row[4]) ? 1L : -1L;
+            assertEquals(expected, row[5]);
+            assertEquals(0, new BigDecimal("80.00").multiply(BigDecimal.valueOf(expected)).compareTo((BigDecimal) row[6]));
+        }
+    }
+
+    @Test
+    void testGetCustomerRollup_MonthNarrowsRange() {
+        LocalDate march = LocalDate.of(2024, 3, 1);
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{"DEBIT", 2L, new BigDecimal("40.00")});
+        rows.add(new Object[]{"CREDIT", 1L, new BigDecimal("10.00")});
+        when(summaryRollupRepository.sumByCategoryForCustomer(RollupSource.LEDGER_ENTRY, 1L, march, march)).thenReturn(rows);
+
+        List<LedgerAggregateService.RollupTotal> totals =
+                ledgerAggregateService.getCustomerRollup(RollupSource.LEDGER_ENTRY, 1L, 2024, 3);
+
+        assertEquals(2, totals.size());
+        assertEquals("CREDIT", totals.get(0).getKey());
+        assertEquals(2L, totals.get(1).getCount());
+    }
+
+    private List<Object[]> customerRows(long... ids) {
+        List<Object[]> rows = new ArrayList<>();
+        for (long id : ids) {
+            rows.add(new Object[]{id, BigDecimal.ZERO});
+        }
+        return rows;
+    }
+
+    @Test
+    void testRebuildOutstandingAmounts_OneLockedRangePerBatch() {
+        when(customerRepository.findBalanceSnapshotAfter(eq(0L), any(Pageable.class))).thenReturn(customerRows(1L, 2L, 5L));
+        when(customerRepository.findBalanceSnapshotAfter(eq(5L), any(Pageable.class))).thenReturn(customerRows(8L));
+        when(customerRepository.findBalanceSnapshotAfter(eq(8L), any(Pageable.class))).thenReturn(List.of());
+        when(ledgerEntryRepository.recomputeOutstandingForCustomerRange(1L, 5L)).thenReturn(12);
+        when(ledgerEntryRepository.recomputeOutstandingForCustomerRange(8L, 8L)).thenReturn(3);
+
+        LedgerAggregateService.RebuildResult result = ledgerAggregateService.rebuildOutstandingAmounts();
+
+        assertEquals("OUTSTANDING_AMOUNTS", result.getAggregate());
+        assertEquals(4, result.getCustomersProcessed());
+        assertEquals(15, result.getRowsWritten());
+        // Each batch locks its customers before recomputing their range, inside its own transaction
+        InOrder inOrder = inOrder(customerLockService, ledgerEntryRepository);
+        inOrder.verify(customerLockService).lockCustomers(List.of(1L, 2L, 5L));
+        inOrder.verify(ledgerEntryRepository).recomputeOutstandingForCustomerRange(1L, 5L);
+        inOrder.verify(customerLockService).lockCustomers(List.of(8L));
+        inOrder.verify(ledgerEntryRepository).recomputeOutstandingForCustomerRange(8L, 8L);
+        verify(transactionManager, times(2)).getTransaction(any());
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void testRebuildOutstandingAmounts_FailedBatchRollsBackAndStops() {
+        when(customerRepository.findBalanceSnapshotAfter(eq(0L), any(Pageable.class))).thenReturn(customerRows(1L, 2L));
+        when(ledgerEntryRepository.recomputeOutstandingForCustomerRange(1L, 2L))
+                .thenThrow(new RuntimeException("Lock wait timeout exceeded"));
+
+        assertThrows(RuntimeException.class, () -> ledgerAggregateService.rebuildOutstandingAmounts());
+
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verify(customerRepository, never()).findBalanceSnapshotAfter(eq(2L), any(Pageable.class));
+    }
+
+    private ResultSet rollupRow(String source, long customerId, long count, String amount) throws Exception {
+        ResultSet row = mock(ResultSet.class);
+        when(row.getString(1)).thenReturn(source);
+        when(row.getLong(2)).thenReturn(0L);
+        when(row.getLong(3)).thenReturn(customerId);
+        when(row.getDate(4)).thenReturn(Date.valueOf(today.withDayOfMonth(1)));
+        when(row.getString(5)).thenReturn("DEBIT");
+        when(row.getLong(6)).thenReturn(count);
+        when(row.getBigDecimal(7)).thenReturn(new BigDecimal(amount));
+        return row;
+    }
+
+    @Test
+    void testReconcileRollups_OneCustomerRangeAtATime() throws Exception {
+        when(customerRepository.findBalanceSnapshotAfter(eq(0L), any(Pageable.class))).thenReturn(customerRows(1L, 2L));
+        when(customerRepository.findBalanceSnapshotAfter(eq(2L), any(Pageable.class))).thenReturn(customerRows(3L));
+        when(customerRepository.findBalanceSnapshotAfter(eq(3L), any(Pageable.class))).thenReturn(List.of());
+        ResultSet rawFirst = rollupRow("LEDGER_ENTRY", 1L, 2L, "50.00");
+        ResultSet storedFirst = rollupRow("LEDGER_ENTRY", 1L, 2L, "50.00");
+        ResultSet rawSecond = rollupRow("LEDGER_ENTRY", 3L, 1L, "80.00");
+        ResultSet storedSecond = rollupRow("LEDGER_ENTRY", 3L, 1L, "70.00");
+        doAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            if (sql.startsWith("SELECT 'LEDGER_ENTRY'") || sql.startsWith("SELECT source")) {
+                boolean stored = sql.startsWith("SELECT source");
+                boolean firstRange = Long.valueOf(1L).equals(invocation.getArgument(2));
+                ResultSet row = firstRange ? (stored ? storedFirst : rawFirst) : (stored ? storedSecond : rawSecond);
+                ((RowCallbackHandler) invocation.getArgument(1)).processRow(row);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(), any());
+
+        LedgerAggregateService.RollupReconciliationResult result = ledgerAggregateService.reconcileRollups();
+
+        assertEquals(2, result.getRowsChecked());
+        assertEquals(1, result.getMismatchCount());
+        LedgerAggregateService.RollupMismatch mismatch = result.getMismatches().get(0);
+        assertEquals(3L, mismatch.getCustomerId());
+        assertEquals(new BigDecimal("80.00"), mismatch.getExpectedAmount());
+        assertEquals(new BigDecimal("70.00"), mismatch.getStoredAmount());
+        // Raw groupings and stored rows are both read per range, each range in its own transaction
+        verify(jdbcTemplate, times(4)).query(anyString(), any(RowCallbackHandler.class), eq(1L), eq(2L));
+        verify(jdbcTemplate, times(4)).query(anyString(), any(RowCallbackHandler.class), eq(3L), eq(3L));
+        verify(jdbcTemplate, never()).query(anyString(), any(RowCallbackHandler.class), any(), eq(Long.MAX_VALUE));
+        verify(transactionManager, times(2)).getTransaction(any());
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.dto.KeysetPage;
+import com.example.ledgerly.dto.LedgerEntryResponse;
+import com.example.ledgerly.entity.Customer;
+import com.example.ledgerly.entity.DocumentAttachment;
+import com.example.ledgerly.entity.LedgerEntry;
+import com.example.ledgerly.entity.RelationshipType;
+import com.example.ledgerly.entity.Role;
+import com.example.ledgerly.entity.Shop;
+import com.example.ledgerly.entity.TransactionType;
+import com.example.ledgerly.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ledger listings must cost a fixed number of SQL statements per page: the projection, its count (offset pages
+ * only) and one attachment batch, whatever the page size. Statements are counted by Hibernate against an
+ * in-memory database, so lazy loads of the customer, shop or users would show up in the count.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+@Import(LedgerEntryReadService.class)
+class LedgerEntryReadServiceQueryCountTest {
+
+    private static final int ENTRIES = 120;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private LedgerEntryReadService ledgerEntryReadService;
+
+    private Statistics statistics;
+    private Long customerId;
+
+    @BeforeEach
+    void setUp() {
+        User owner = entityManager.persist(new User("owner", "owner@example.com", "secret1", "Shop", "Owner", Role.OWNER));
+        User clerk = entityManager.persist(new User("clerk", "clerk@example.com", "secret1", "Shop", "Clerk", Role.STAFF));
+        Shop shop = entityManager.persist(new Shop("Main Street", "1 Main Street", owner));
+        Customer customer = new Customer("Acme Traders", "acme@example.com", "555-0100", RelationshipType.CUSTOMER, owner);
+        customer.setShop(shop);
+        customer = entityManager.persist(customer);
+        customerId = customer.getId();
+
+        for (int i = 0; i < ENTRIES; i++) {
+            LedgerEntry entry = new LedgerEntry(LocalDate.now().minusDays(i), TransactionType.DEBIT,
+                    new BigDecimal("10.00"), "Rent " + i, customer, i % 2 == 0 ? owner : clerk);
+            entry.setShop(shop);
+            entry.setUpdatedBy(clerk);
+            entry.refreshOutstanding(BigDecimal.ZERO);
+            if (i % 3 == 0) {
+                entry.getAttachments().add(new DocumentAttachment("receipt-" + i + ".pdf", "receipt.pdf",
+                        "uploads/receipt-" + i + ".pdf", "application/pdf", 1024L, clerk));
+            }
+            entityManager.persist(entry);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 20, 100})
+    void testCustomerPageUsesFixedStatementCount(int size) {
+        Page<LedgerEntryResponse> page = ledgerEntryReadService.getEntriesForCustomer(customerId,
+                PageRequest.of(0, size, Sort.by("transactionDate").descending()));
+
+        assertEquals(size, page.getContent().size());
+        assertEquals(ENTRIES, page.getTotalElements());
+        assertEquals("Acme Traders", page.getContent().get(0).getCustomerName());
+        assertEquals(1, page.getContent().get(0).getAttachments().size());
+        // Page, count, attachments
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 20, 100})
+    void testSearchPageUsesFixedStatementCount(int size) {
+        Page<LedgerEntryResponse> page = ledgerEntryReadService.searchEntries(customerId, TransactionType.DEBIT,
+                null, null, null, null, "rent", null, null, null,
+                PageRequest.of(0, size, Sort.by("transactionDate").descending()));
+
+        assertEquals(size, page.getContent().size());
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 20, 100})
+    void testKeysetPageUsesFixedStatementCount(int size) {
+        KeysetPage<LedgerEntryResponse> page = ledgerEntryReadService.getEntriesForCustomerAfter(customerId, null,
+                size, false);
+
+        assertEquals(size, page.getContent().size());
+        assertTrue(page.isHasMore());
+        // Page, attachments; no count unless asked for
+        assertEquals(2, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        ledgerEntryReadService.getEntriesForCustomerAfter(customerId, page.getNextCursor(), size, true);
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+}
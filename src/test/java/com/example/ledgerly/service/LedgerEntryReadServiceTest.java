@@ -0,0 +1,77 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.dto.LedgerEntryResponse;
+import com.example.ledgerly.entity.DocumentAttachment;
+import com.example.ledgerly.entity.TransactionType;
+import com.example.ledgerly.repository.DocumentAttachmentRepository;
+import com.example.ledgerly.repository.LedgerEntryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerEntryReadServiceTest {
+
+    @Mock
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Mock
+    private DocumentAttachmentRepository documentAttachmentRepository;
+
+    private LedgerEntryReadService ledgerEntryReadService;
+
+    @BeforeEach
+    void setUp() {
+        ledgerEntryReadService = new LedgerEntryReadService(ledgerEntryRepository, documentAttachmentRepository);
+    }
+
+    @Test
+    void testWithAttachmentsGroupsRowsByEntry() {
+        List<LedgerEntryResponse> rows = responses(3);
+        when(documentAttachmentRepository.findActiveByLedgerEntryIds(List.of(1L, 2L, 3L)))
+                .thenReturn(List.of(new Object[]{1L, attachment(10L), "testuser"},
+                        new Object[]{3L, attachment(11L), "testuser"}, new Object[]{3L, attachment(12L), "testuser"}));
+
+        ledgerEntryReadService.withAttachments(rows);
+
+        assertEquals(1, rows.get(0).getAttachments().size());
+        assertNull(rows.get(1).getAttachments());
+        assertEquals(List.of(11L, 12L), rows.get(2).getAttachments().stream().map(a -> a.getId()).toList());
+        assertEquals("/api/v1/files/download/10", rows.get(0).getAttachments().get(0).getDownloadUrl());
+        assertEquals("testuser", rows.get(0).getAttachments().get(0).getUploadedByUsername());
+    }
+
+    @Test
+    void testWithAttachmentsSkipsQueryForEmptyPage() {
+        ledgerEntryReadService.withAttachments(List.of());
+
+        verifyNoInteractions(documentAttachmentRepository);
+    }
+
+    private List<LedgerEntryResponse> responses(int count) {
+        List<LedgerEntryResponse> rows = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            rows.add(new LedgerEntryResponse(id, LocalDate.of(2024, 1, 1), TransactionType.DEBIT,
+                    new BigDecimal("10.00"), "Entry " + id, 1L, "Test Customer"));
+        }
+        return rows;
+    }
+
+    private DocumentAttachment attachment(Long id) {
+        // The uploader comes from the projected username, not the lazy association
+        DocumentAttachment attachment = new DocumentAttachment();
+        attachment.setId(id);
+        attachment.setFileName("file-" + id + ".pdf");
+        return attachment;
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.dto.LedgerImportResponse;
+import com.example.ledgerly.entity.Customer;
+import com.example.ledgerly.entity.LedgerEntry;
+import com.example.ledgerly.entity.Shop;
+import com.example.ledgerly.entity.User;
+import com.example.ledgerly.repository.CustomerRepository;
+import com.example.ledgerly.repository.LedgerEntryRepository;
+import com.example.ledgerly.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerImportServiceTest {
+
+    private static final String HEADER = "customerId,transactionDate,transactionType,amount,description\n";
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Mock
+    private LedgerRebalanceService ledgerRebalanceService;
+
+    @Mock
+    private CustomerLockService customerLockService;
+
+    @Mock
+    private LedgerAggregateService ledgerAggregateService;
+
+    @Mock
+    private AuditService auditService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private LedgerImportService ledgerImportService;
+    private Customer testCustomer;
+    private final List<List<LedgerEntry>> insertedChunks = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        // Real balance and rule services, so running balances and validation are the production code paths
+        CustomerBalanceService customerBalanceService = new CustomerBalanceService(customerRepository,
+                ledgerEntryRepository, auditService, transactionManager);
+        BusinessRuleService businessRuleService = new BusinessRuleService(customerRepository, auditService,
+                customerBalanceService, ledgerAggregateService);
+        ReflectionTestUtils.setField(businessRuleService, "maxTransactionAmount", new BigDecimal("1000000"));
+        ReflectionTestUtils.setField(businessRuleService, "minTransactionAmount", new BigDecimal("0.01"));
+        ReflectionTestUtils.setField(businessRuleService, "maxDailyTransactionLimit", new BigDecimal("100000"));
+        ReflectionTestUtils.setField(businessRuleService, "requireFutureDateValidation", true);
+
+        ledgerImportService = new LedgerImportService(userRepository, businessRuleService, customerBalanceService,
+                ledgerRebalanceService, customerLockService, ledgerAggregateService, auditService, jdbcTemplate,
+                transactionManager, new ObjectMapper().findAndRegisterModules(),
+                Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(ledgerImportService, "chunkSize", 2);
+        ReflectionTestUtils.setField(ledgerImportService, "maxReportedErrors", 500);
+
+        User testUser = new User();
+        testUser.setId(1L);
+        testUser.setUsername("testuser");
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("testuser", null, List.of()));
+        when(userRepository.findByUsernameOrEmail("testuser")).thenReturn(Optional.of(testUser));
+
+        Shop shop = new Shop();
+        shop.setId(3L);
+        testCustomer = new Customer();
+        testCustomer.setId(1L);
+        testCustomer.setShop(shop);
+        testCustomer.setCurrentBalance(BigDecimal.ZERO);
+
+        // The locked customer row carries the balance committed by earlier chunks
+        lenient().when(customerLockService.lockCustomers(any())).thenAnswer(invocation ->
+                ((Collection<Long>) invocation.getArgument(0)).contains(1L) ? List.of(testCustomer) : List.of());
+        lenient().when(ledgerAggregateService.getDailyTotals(any(), any(), any())).thenAnswer(invocation -> new HashMap<>());
+        lenient().when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class))).thenAnswer(invocation -> {
+            insertedChunks.add(new ArrayList<>((Collection<LedgerEntry>) invocation.getArgument(1)));
+            return new int[0][];
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testEachChunkIsInsertedWithOneBatchInItsOwnTransaction() {
+        LedgerImportResponse response = importCsv(
+                row("CREDIT", "10.00"), row("CREDIT", "20.00"), row("CREDIT", "30.00"),
+                row("CREDIT", "40.00"), row("CREDIT", "50.00"));
+
+        assertEquals(5, response.getTotalRows());
+        assertEquals(5, response.getImportedRows());
+        assertFalse(response.hasErrors());
+        // Chunks of 2, 2 and the remaining row
+        assertEquals(List.of(2, 2, 1), insertedChunks.stream().map(List::size).toList());
+        verify(transactionManager, times(3)).getTransaction(any());
+        verify(transactionManager, times(3)).commit(any());
+        verify(customerRepository, times(3)).saveAndFlush(testCustomer);
+        assertEquals(0, new BigDecimal("150.00").compareTo(testCustomer.getCurrentBalance()));
+    }
+
+    @Test
+    void testRunningBalanceCarriesOverBetweenChunks() {
+        LedgerImportResponse response = importCsv(
+                row("CREDIT", "100.00"), row("DEBIT", "30.00"),
+                row("DEBIT", "80.00"), row("DEBIT", "70.00"));
+
+        // The second chunk starts from the 70.00 left by the first, so the 80.00 debit is rejected
+        assertEquals(3, response.getImportedRows());
+        assertEquals(1, response.getFailedRows());
+        LedgerImportResponse.RowError error = response.getErrors().get(0);
+        assertEquals(3, error.getRowNumber());
+        assertEquals("INSUFFICIENT_BALANCE", error.getRuleCode());
+
+        assertEquals(2, insertedChunks.size());
+        assertEquals(0, new BigDecimal("70.00").compareTo(insertedChunks.get(0).get(1).getBalanceAfterTransaction()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(insertedChunks.get(1).get(0).getBalanceAfterTransaction()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(testCustomer.getCurrentBalance()));
+    }
+
+    @Test
+    void testRowErrorsAreReportedWithoutAbortingTheImport() {
+        String future = LocalDate.now().plusDays(5).toString();
+        LedgerImportResponse response = importCsv(
+                "1," + LocalDate.now() + ",CREDIT,abc,Goods",
+                "1," + LocalDate.now() + ",CREDIT,10.00,",
+                "99," + LocalDate.now() + ",CREDIT,10.00,Goods",
+                "1," + future + ",CREDIT,10.00,Goods",
+                row("CREDIT", "10.00"));
+
+        assertEquals(5, response.getTotalRows());
+        assertEquals(1, response.getImportedRows());
+        assertEquals(4, response.getFailedRows());
+        List<LedgerImportResponse.RowError> errors = response.getErrors();
+        assertEquals(List.of(1L, 2L, 3L, 4L), errors.stream().map(LedgerImportResponse.RowError::getRowNumber).toList());
+        assertEquals(List.of("INVALID_ROW", "INVALID_ROW", "CUSTOMER_NOT_FOUND", "FUTURE_DATE_NOT_ALLOWED"),
+                errors.stream().map(LedgerImportResponse.RowError::getRuleCode).toList());
+        assertEquals(99L, errors.get(2).getCustomerId());
+        // Rejected rows are reported in the response, not audited one by one
+        verify(auditService, never()).logBusinessRuleViolation(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testFailedChunkIsRolledBackAndReportedRowByRow() {
+        when(customerRepository.saveAndFlush(testCustomer))
+                .thenReturn(testCustomer)
+                .thenThrow(new RuntimeException("Deadlock found"))
+                .thenReturn(testCustomer);
+
+        LedgerImportResponse response = importCsv(
+                row("CREDIT", "10.00"), row("CREDIT", "20.00"),
+                row("CREDIT", "30.00"), row("CREDIT", "40.00"),
+                row("CREDIT", "50.00"));
+
+        assertEquals(3, response.getImportedRows());
+        assertEquals(2, response.getFailedRows());
+        assertEquals(List.of(3L, 4L), response.getErrors().stream().map(LedgerImportResponse.RowError::getRowNumber).toList());
+        assertEquals("CHUNK_FAILED", response.getErrors().get(0).getRuleCode());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void testNonObjectJsonElementIsReportedAndLaterRowsImported() {
+        LedgerImportResponse response = importJson("[" + jsonRow("10.00") + ", 42, [1, 2], " + jsonRow("20.00") + "]");
+
+        assertEquals(4, response.getTotalRows());
+        assertEquals(2, response.getImportedRows());
+        assertEquals(List.of(2L, 3L), response.getErrors().stream().map(LedgerImportResponse.RowError::getRowNumber).toList());
+        assertEquals("INVALID_ROW", response.getErrors().get(0).getRuleCode());
+        assertEquals(0, new BigDecimal("30.00").compareTo(testCustomer.getCurrentBalance()));
+    }
+
+    @Test
+    void testTruncatedJsonIsRejectedInsteadOfSilentlyDroppingRows() {
+        // Cut after a complete element, and in the middle of one
+        for (String body : List.of("[" + jsonRow("10.00"), "[" + jsonRow("10.00") + ", {\"customerId\": 1,")) {
+            IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> importJson(body));
+
+            assertTrue(exception.getMessage().startsWith("Failed to read JSON"), exception.getMessage());
+        }
+        assertTrue(insertedChunks.isEmpty());
+    }
+
+    private LedgerImportResponse importJson(String json) {
+        return ledgerImportService.importJson(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String jsonRow(String amount) {
+        return "{\"customerId\": 1, \"transactionDate\": \"" + LocalDate.now() + "\", \"transactionType\": \"CREDIT\", "
+                + "\"amount\": " + amount + ", \"description\": \"Goods\"}";
+    }
+
+    private LedgerImportResponse importCsv(String... rows) {
+        String csv = HEADER + String.join("\n", rows) + "\n";
+        return ledgerImportService.importCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String row(String type, String amount) {
+        return "1," + LocalDate.now() + "," + type + "," + amount + ",Goods";
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.TransactionType;
+import com.example.ledgerly.repository.CustomerRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerRebalanceServiceTest {
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private LedgerAggregateService ledgerAggregateService;
+
+    @Mock
+    private CustomerLockService customerLockService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private LedgerRebalanceService ledgerRebalanceService;
+
+    private final LocalDate today = LocalDate.now();
+
+    private LedgerEntryState state(LocalDate date, String amount, boolean active) {
+        return new LedgerEntryState(1L, 1L, date, TransactionType.DEBIT, new BigDecimal(amount), active);
+    }
+
+    @Test
+    void testRebalanceAfterChange_NoBalanceRelevantChange() {
+        LedgerEntryState before = state(today, "25.00", true);
+        LedgerEntryState after = state(today, "25.00", true);
+
+        assertEquals(0, ledgerRebalanceService.rebalanceAfterChange(before, after));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRebalanceAfterChange_StartsFromEarliestDate() {
+        LocalDate earlier = today.minusDays(10);
+        LedgerEntryState before = state(today, "25.00", true);
+        LedgerEntryState after = state(earlier, "25.00", true);
+
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(1L), eq(Date.valueOf(earlier))))
+                .thenReturn(List.of(new BigDecimal("100.00")));
+        when(jdbcTemplate.update(anyString(), any(), any(), any())).thenReturn(3);
+
+        assertEquals(3, ledgerRebalanceService.rebalanceAfterChange(before, after));
+        verify(jdbcTemplate).update(anyString(), eq(new BigDecimal("100.00")), eq(1L), eq(Date.valueOf(earlier)));
+    }
+
+    @Test
+    void testRebalanceIfBackdated_NoLaterEntries() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq(1L), eq(Date.valueOf(today))))
+                .thenReturn(false);
+
+        assertEquals(0, ledgerRebalanceService.rebalanceIfBackdated(1L, today));
+        verify(jdbcTemplate, never()).update(anyString(), any(), any(), any());
+    }
+
+    @Test
+    void testRebalance_AllCustomersOneLockedTransactionPerCustomer() throws Exception {
+        when(customerRepository.findBalanceSnapshotAfter(eq(0L), any(Pageable.class))).thenReturn(List.<Object[]>of(
+                new Object[]{1L, BigDecimal.ZERO}, new Object[]{2L, BigDecimal.ZERO}));
+        when(customerRepository.findBalanceSnapshotAfter(eq(2L), any(Pageable.class))).thenReturn(List.of());
+        // Customer 2 has one stale entry
+        ResultSet staleRow = mock(ResultSet.class);
+        when(staleRow.getDate("transaction_date")).thenReturn(Date.valueOf(today));
+        doAnswer(invocation -> {
+            if (Long.valueOf(2L).equals(invocation.getArgument(3))) {
+                ((RowCallbackHandler) invocation.getArgument(1)).processRow(staleRow);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(), any(), any());
+        when(jdbcTemplate.update(anyString(), any(), eq(2L), any())).thenReturn(1);
+
+        LedgerRebalanceService.RebalanceResult result = ledgerRebalanceService.rebalance(null, null, false);
+
+        assertEquals(2, result.getCustomersChecked());
+        assertEquals(1, result.getStaleEntries());
+        assertEquals(1, result.getUpdatedEntries());
+        assertEquals(1, result.getDiffs().size());
+        verify(transactionManager, times(2)).getTransaction(any());
+        verify(transactionManager, times(2)).commit(any());
+        // Each customer is locked before its history is read
+        InOrder inOrder = inOrder(customerLockService, jdbcTemplate);
+        inOrder.verify(customerLockService).lockCustomer(1L);
+        inOrder.verify(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(), eq(1L), any());
+        inOrder.verify(customerLockService).lockCustomer(2L);
+        inOrder.verify(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(), eq(2L), any());
+        inOrder.verify(jdbcTemplate).update(anyString(), any(), eq(2L), any());
+    }
+
+    @Test
+    void testRebalance_DryRunReportsWithoutUpdating() {
+        LedgerRebalanceService.RebalanceResult result = ledgerRebalanceService.rebalance(1L, null, true);
+
+        assertEquals(1, result.getCustomersChecked());
+        verify(customerLockService).lockCustomer(1L);
+        verify(jdbcTemplate, never()).update(anyString(), any(), any(), any());
+        verify(transactionManager).commit(any());
+    }
+}
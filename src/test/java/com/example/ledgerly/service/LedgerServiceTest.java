@@ -36,6 +36,9 @@ class LedgerServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private LedgerAggregateService ledgerAggregateService;
+
     @InjectMocks
     private LedgerService ledgerService;
 
@@ -94,10 +97,15 @@ class LedgerServiceTest {
     @Test
     void testGetCustomerBalanceSummarySuccess() {
         when(customerRepository.findById(anyLong())).thenReturn(Optional.of(testCustomer));
+        when(ledgerAggregateService.getLifetimeSummary(1L)).thenReturn(new LedgerAggregateService.PeriodSummary(
+                1L, null, null, BigDecimal.ZERO, new BigDecimal("500.00"), new BigDecimal("200.00"), 3));
 
         var result = ledgerService.getCustomerBalanceSummary(1L);
 
         assertNotNull(result);
+        assertEquals(new BigDecimal("300.00"), result.getCurrentBalance());
+        assertEquals(3, result.getTotalTransactions());
+        verifyNoInteractions(ledgerEntryRepository);
     }
 
     @Test
@@ -0,0 +1,122 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.PaymentStatus;
+import com.example.ledgerly.entity.User;
+import com.example.ledgerly.repository.PaymentRepository;
+import com.example.ledgerly.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OverdueDetectionServiceTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CustomerLockService customerLockService;
+
+    @Mock
+    private LedgerAggregateService ledgerAggregateService;
+
+    @Mock
+    private AuditService auditService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OverdueDetectionService overdueDetectionService;
+    private User systemUser;
+    private LocalDate today;
+
+    @BeforeEach
+    void setUp() {
+        overdueDetectionService = new OverdueDetectionService(paymentRepository, userRepository, customerLockService,
+                ledgerAggregateService, auditService, transactionManager);
+        ReflectionTestUtils.setField(overdueDetectionService, "chunkSize", 2);
+
+        systemUser = new User();
+        systemUser.setId(99L);
+        systemUser.setUsername("system");
+        when(userRepository.findByUsernameOrEmail("system")).thenReturn(Optional.of(systemUser));
+        today = LocalDate.now();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testChunksAreFlippedWithOneUpdateEach() {
+        LocalDate due = today.minusDays(5);
+        when(paymentRepository.findOverdueCandidatesAfter(eq(PaymentStatus.PENDING), eq(today), isNull(), isNull(),
+                any(Pageable.class))).thenReturn(List.of(new Object[]{1L, 10L, due}, new Object[]{2L, 11L, due}));
+        when(paymentRepository.findOverdueCandidatesAfter(eq(PaymentStatus.PENDING), eq(today), eq(due), eq(2L),
+                any(Pageable.class))).thenReturn(List.<Object[]>of(new Object[]{3L, 10L, due}));
+        when(paymentRepository.findOverdueCandidatesAfter(eq(PaymentStatus.PENDING), eq(today), eq(due), eq(3L),
+                any(Pageable.class))).thenReturn(List.of());
+        when(paymentRepository.findOverdueCandidatesAfter(eq(PaymentStatus.PARTIAL), eq(today), isNull(), isNull(),
+                any(Pageable.class))).thenReturn(List.of());
+
+        // Payment 2 was paid between the scan and the lock, so only payment 1 is still eligible
+        when(paymentRepository.findOverdueStateByIds(List.of(1L, 2L), today)).thenReturn(List.<Object[]>of(
+                new Object[]{1L, 5L, 10L, today.minusDays(30), PaymentStatus.PENDING, new BigDecimal("100.00"), due}));
+        when(paymentRepository.findOverdueStateByIds(List.of(3L), today)).thenReturn(List.<Object[]>of(
+                new Object[]{3L, 5L, 10L, today.minusDays(20), PaymentStatus.PENDING, new BigDecimal("40.00"), due}));
+        when(paymentRepository.markOverdue(anyList(), eq(today), any(LocalDateTime.class), eq(99L))).thenReturn(1);
+
+        OverdueDetectionService.OverdueRunResult result = overdueDetectionService.detectOverduePayments();
+
+        assertEquals(3, result.getScanned());
+        assertEquals(2, result.getMarked());
+        assertEquals(2, result.getChunks());
+        verify(paymentRepository).markOverdue(eq(List.of(1L)), eq(today), any(LocalDateTime.class), eq(99L));
+        verify(paymentRepository).markOverdue(eq(List.of(3L)), eq(today), any(LocalDateTime.class), eq(99L));
+        verify(customerLockService, times(2)).lockCustomers(anyCollection());
+
+        ArgumentCaptor<List<RollupContribution>> after = ArgumentCaptor.forClass(List.class);
+        verify(ledgerAggregateService, times(2)).applyRollupChanges(anyList(), after.capture());
+        assertEquals("OVERDUE", after.getAllValues().get(0).get(0).getCategory());
+
+        ArgumentCaptor<Map<Long, String>> descriptions = ArgumentCaptor.forClass(Map.class);
+        verify(auditService, times(2)).logSuccessBatch(eq("AUTO_MARK_OVERDUE"), eq("PAYMENT"),
+                descriptions.capture(), same(systemUser));
+        assertEquals("Automatically marked payment 1 as overdue (5 days)", descriptions.getAllValues().get(0).get(1L));
+        verify(auditService).logSuccess(eq("OVERDUE_CHECK_COMPLETED"), eq("SYSTEM"), isNull(), isNull(), isNull(),
+                anyString(), same(systemUser));
+
+        OverdueDetectionService.OverdueRunProgress progress = overdueDetectionService.getProgress();
+        assertFalse(progress.isRunning());
+        assertEquals(2, progress.getLastResult().getMarked());
+    }
+
+    @Test
+    void testNoCandidatesSkipsUpdates() {
+        when(paymentRepository.findOverdueCandidatesAfter(any(PaymentStatus.class), eq(today), isNull(), isNull(),
+                any(Pageable.class))).thenReturn(List.of());
+
+        OverdueDetectionService.OverdueRunResult result = overdueDetectionService.detectOverduePayments();
+
+        assertEquals(0, result.getMarked());
+        verify(paymentRepository, never()).markOverdue(anyList(), any(), any(), any());
+        verifyNoInteractions(customerLockService, ledgerAggregateService);
+    }
+}
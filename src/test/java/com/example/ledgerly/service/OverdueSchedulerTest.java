@@ -0,0 +1,125 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.Customer;
+import com.example.ledgerly.entity.Payment;
+import com.example.ledgerly.entity.PaymentStatus;
+import com.example.ledgerly.repository.PaymentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OverdueSchedulerTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 10);
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private OverdueDetectionService overdueDetectionService;
+
+    private OverdueScheduler overdueScheduler;
+
+    @BeforeEach
+    void setUp() {
+        overdueScheduler = new OverdueScheduler(paymentRepository, overdueDetectionService);
+        ReflectionTestUtils.setField(overdueScheduler, "horizonDays", 2);
+        ReflectionTestUtils.setField(overdueScheduler, "spreadMinutes", 120);
+        ReflectionTestUtils.setField(overdueScheduler, "maxPerTick", 100);
+        ReflectionTestUtils.setField(overdueScheduler, "chunkSize", 50);
+
+        lenient().when(paymentRepository.findDueBetweenAfter(eq(TODAY), eq(TODAY.plusDays(2)), isNull(), isNull(),
+                any(Pageable.class))).thenReturn(List.of(new Object[]{1L, 10L, TODAY},
+                new Object[]{2L, 11L, TODAY.plusDays(1)}));
+    }
+
+    @Test
+    void testFirstTickRescansThenFiresAfterDueDate() {
+        overdueScheduler.tick(TODAY.atTime(8, 0));
+
+        verify(overdueDetectionService).detectOverduePayments();
+        verify(overdueDetectionService, never()).markOverdue(anyCollection(), anyCollection());
+        assertEquals(2, overdueScheduler.getStatus().getTrackedPayments());
+
+        overdueScheduler.tick(TODAY.plusDays(1).atTime(3, 0));
+
+        verify(overdueDetectionService).markOverdue(Set.of(1L), Set.of(10L));
+        verify(overdueDetectionService, times(1)).detectOverduePayments();
+        // The next day's window starts where the previous one ended
+        verify(paymentRepository).findDueBetweenAfter(eq(TODAY.plusDays(2)), eq(TODAY.plusDays(3)), isNull(),
+                isNull(), any(Pageable.class));
+        assertEquals(1, overdueScheduler.getStatus().getTrackedPayments());
+    }
+
+    @Test
+    void testPaidPaymentIsNoLongerTracked() {
+        overdueScheduler.tick(TODAY.atTime(8, 0));
+
+        overdueScheduler.track(payment(1L, 10L, PaymentStatus.PAID, TODAY));
+        overdueScheduler.tick(TODAY.plusDays(1).atTime(3, 0));
+
+        verify(overdueDetectionService, never()).markOverdue(anyCollection(), anyCollection());
+        assertEquals(1, overdueScheduler.getStatus().getTrackedPayments());
+    }
+
+    @Test
+    void testRedatedPaymentIntoThePastFiresOnNextTick() {
+        overdueScheduler.tick(TODAY.atTime(8, 0));
+
+        overdueScheduler.track(payment(2L, 11L, PaymentStatus.PENDING, TODAY.minusDays(3)));
+        overdueScheduler.tick(TODAY.atTime(8, 1));
+
+        verify(overdueDetectionService).markOverdue(Set.of(2L), Set.of(11L));
+    }
+
+    @Test
+    void testFailedBatchIsRetriedLater() {
+        overdueScheduler.tick(TODAY.atTime(8, 0));
+        when(overdueDetectionService.markOverdue(anyCollection(), anyCollection()))
+                .thenThrow(new RuntimeException("lock timeout"));
+
+        LocalDateTime now = TODAY.plusDays(1).atTime(3, 0);
+        overdueScheduler.tick(now);
+
+        OverdueScheduler.SchedulerStatus status = overdueScheduler.getStatus();
+        assertEquals(2, status.getTrackedPayments());
+        assertEquals(now.plusSeconds(300), status.getNextFireAt());
+    }
+
+    @Test
+    void testFireTimesAreSpreadAfterMidnight() {
+        LocalDateTime midnight = TODAY.plusDays(1).atStartOfDay();
+        for (long id = 1; id <= 50; id++) {
+            LocalDateTime fireAt = overdueScheduler.fireTime(id, TODAY);
+            assertFalse(fireAt.isBefore(midnight));
+            assertTrue(fireAt.isBefore(midnight.plusMinutes(120)));
+            assertEquals(fireAt, overdueScheduler.fireTime(id, TODAY));
+        }
+        assertNotEquals(overdueScheduler.fireTime(1L, TODAY), overdueScheduler.fireTime(2L, TODAY));
+    }
+
+    private Payment payment(Long id, Long customerId, PaymentStatus status, LocalDate dueDate) {
+        Customer customer = new Customer();
+        customer.setId(customerId);
+        Payment payment = new Payment();
+        payment.setId(id);
+        payment.setCustomer(customer);
+        payment.setStatus(status);
+        payment.setDueDate(dueDate);
+        return payment;
+    }
+}
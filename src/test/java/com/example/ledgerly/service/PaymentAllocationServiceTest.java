@@ -0,0 +1,138 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.Payment;
+import com.example.ledgerly.service.PaymentAllocationService.Allocation;
+import com.example.ledgerly.service.PaymentAllocationService.OpenEntry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentAllocationServiceTest {
+
+    @Test
+    void testFifoStopsReadingOnceThePaymentIsSpent() {
+        CountingCursor cursor = new CountingCursor(entry(1L, "100.00"), entry(2L, "80.00"),
+                entry(3L, "50.00"), entry(4L, "40.00"));
+        Payment payment = payment(9L, "150.00", "0.00");
+
+        List<Allocation> allocations = PaymentAllocationService.allocate(AllocationStrategy.FIFO, cursor,
+                List.of(payment), null);
+
+        assertEquals(2, allocations.size());
+        assertAllocation(allocations.get(0), payment, 1L, "100.00");
+        assertAllocation(allocations.get(1), payment, 2L, "50.00");
+        assertEquals(2, cursor.read);
+    }
+
+    @Test
+    void testFifoSpendsSeveralPaymentsInOnePass() {
+        Payment first = payment(1L, "100.00", "40.00");
+        Payment second = payment(2L, "100.00", "0.00");
+        CountingCursor cursor = new CountingCursor(entry(10L, "30.00"), entry(11L, "70.00"), entry(12L, "500.00"));
+
+        List<Allocation> allocations = PaymentAllocationService.allocate(AllocationStrategy.FIFO, cursor,
+                List.of(first, second), null);
+
+        assertEquals(4, allocations.size());
+        assertAllocation(allocations.get(0), first, 10L, "30.00");
+        assertAllocation(allocations.get(1), first, 11L, "30.00");
+        assertAllocation(allocations.get(2), second, 11L, "40.00");
+        assertAllocation(allocations.get(3), second, 12L, "60.00");
+    }
+
+    @Test
+    void testFifoLeavesRemainderWhenEntriesRunOut() {
+        Payment payment = payment(1L, "500.00", "0.00");
+
+        List<Allocation> allocations = PaymentAllocationService.allocate(AllocationStrategy.FIFO,
+                new CountingCursor(entry(10L, "120.00")), List.of(payment), null);
+
+        assertEquals(1, allocations.size());
+        assertAllocation(allocations.get(0), payment, 10L, "120.00");
+    }
+
+    @Test
+    void testProportionalAppliesSameFractionToEveryEntry() {
+        Payment payment = payment(1L, "100.00", "0.00");
+        CountingCursor cursor = new CountingCursor(entry(10L, "100.00"), entry(11L, "300.00"));
+
+        List<Allocation> allocations = PaymentAllocationService.allocate(AllocationStrategy.PROPORTIONAL, cursor,
+                List.of(payment), new BigDecimal("400.00"));
+
+        assertEquals(2, allocations.size());
+        assertAllocation(allocations.get(0), payment, 10L, "25.00");
+        assertAllocation(allocations.get(1), payment, 11L, "75.00");
+    }
+
+    @Test
+    void testProportionalSettlesEverythingWhenFundsCoverBalance() {
+        Payment payment = payment(1L, "500.00", "0.00");
+
+        List<Allocation> allocations = PaymentAllocationService.allocate(AllocationStrategy.PROPORTIONAL,
+                new CountingCursor(entry(10L, "100.00"), entry(11L, "300.00")), List.of(payment),
+                new BigDecimal("400.00"));
+
+        assertAllocation(allocations.get(0), payment, 10L, "100.00");
+        assertAllocation(allocations.get(1), payment, 11L, "300.00");
+    }
+
+    @Test
+    void testProportionalRoundsSharesDown() {
+        Payment payment = payment(1L, "100.00", "0.00");
+
+        List<Allocation> allocations = PaymentAllocationService.allocate(AllocationStrategy.PROPORTIONAL,
+                new CountingCursor(entry(10L, "100.00"), entry(11L, "100.00"), entry(12L, "100.00")),
+                List.of(payment), new BigDecimal("300.00"));
+
+        BigDecimal total = allocations.stream().map(Allocation::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(3, allocations.size());
+        assertEquals(new BigDecimal("33.33"), allocations.get(0).getAmount());
+        assertTrue(total.compareTo(payment.getUnappliedAmount()) <= 0);
+    }
+
+    private void assertAllocation(Allocation allocation, Payment payment, long ledgerEntryId, String amount) {
+        assertSame(payment, allocation.getPayment());
+        assertEquals(ledgerEntryId, allocation.getLedgerEntryId());
+        assertEquals(new BigDecimal(amount), allocation.getAmount());
+    }
+
+    private OpenEntry entry(long id, String outstanding) {
+        return new OpenEntry(id, new BigDecimal(outstanding));
+    }
+
+    private Payment payment(Long id, String amount, String applied) {
+        Payment payment = new Payment();
+        payment.setId(id);
+        payment.setAmount(new BigDecimal(amount));
+        payment.setAppliedAmount(new BigDecimal(applied));
+        return payment;
+    }
+
+    /**
+     * Open-entry cursor that records how many rows the allocation pulled
+     */
+    private static final class CountingCursor implements Iterator<OpenEntry> {
+        private final Iterator<OpenEntry> rows;
+        private int read;
+
+        CountingCursor(OpenEntry... entries) {
+            this.rows = new ArrayList<>(List.of(entries)).iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return rows.hasNext();
+        }
+
+        @Override
+        public OpenEntry next() {
+            read++;
+            return rows.next();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.Customer;
+import com.example.ledgerly.entity.Payment;
+import com.example.ledgerly.entity.Shop;
+import com.example.ledgerly.entity.User;
+import com.example.ledgerly.repository.PaymentRepository;
+import com.example.ledgerly.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentLedgerSyncServiceTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CustomerBalanceService customerBalanceService;
+
+    @Mock
+    private LedgerRebalanceService ledgerRebalanceService;
+
+    @Mock
+    private CustomerLockService customerLockService;
+
+    @Mock
+    private LedgerAggregateService ledgerAggregateService;
+
+    @Mock
+    private AuditService auditService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PaymentLedgerSyncService paymentLedgerSyncService;
+    private Customer testCustomer;
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        paymentLedgerSyncService = new PaymentLedgerSyncService(paymentRepository, userRepository,
+                customerBalanceService, ledgerRebalanceService, customerLockService, ledgerAggregateService,
+                auditService, jdbcTemplate, transactionManager);
+        ReflectionTestUtils.setField(paymentLedgerSyncService, "chunkSize", 2);
+
+        testUser = new User();
+        testUser.setId(1L);
+        testUser.setUsername("testuser");
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("testuser", null, List.of()));
+        when(userRepository.findByUsernameOrEmail("testuser")).thenReturn(Optional.of(testUser));
+
+        Shop shop = new Shop();
+        shop.setId(3L);
+        testCustomer = new Customer();
+        testCustomer.setId(1L);
+        testCustomer.setShop(shop);
+        testCustomer.setCurrentBalance(new BigDecimal("-500.00"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSyncInsertsEachChunkWithOneBatch() {
+        when(paymentRepository.findPaymentsWithoutLedgerEntryAfter(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(payment(4L, "100.00", 10), payment(7L, "50.00", 5)));
+        when(paymentRepository.findPaymentsWithoutLedgerEntryAfter(eq(7L), any(Pageable.class)))
+                .thenReturn(List.of(payment(9L, "25.00", 1)));
+        when(paymentRepository.findPaymentsWithoutLedgerEntryAfter(eq(9L), any(Pageable.class))).thenReturn(List.of());
+        when(customerLockService.lockCustomers(anyCollection())).thenReturn(List.of(testCustomer));
+        when(customerBalanceService.getCurrentBalance(testCustomer)).thenReturn(new BigDecimal("-500.00"));
+
+        PaymentLedgerSyncService.SyncResult result = paymentLedgerSyncService.syncPaymentsWithoutLedgerEntries();
+
+        assertEquals(3, result.getCreatedEntries());
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), any(Collection.class), anyInt(), any());
+        verify(customerBalanceService).applyDelta(testCustomer, new BigDecimal("150.00"));
+        verify(customerBalanceService).applyDelta(testCustomer, new BigDecimal("25.00"));
+        verify(ledgerRebalanceService).rebalanceIfBackdated(1L, LocalDate.now().minusDays(10));
+        verify(auditService, times(1)).logSuccess(eq("SYNC_PAYMENT_LEDGER_ENTRIES"), anyString(), isNull(),
+                isNull(), isNull(), anyString(), same(testUser));
+        verifyNoMoreInteractions(auditService);
+    }
+
+    @Test
+    void testSyncWithNothingToDo() {
+        when(paymentRepository.findPaymentsWithoutLedgerEntryAfter(eq(0L), any(Pageable.class))).thenReturn(List.of());
+
+        PaymentLedgerSyncService.SyncResult result = paymentLedgerSyncService.syncPaymentsWithoutLedgerEntries();
+
+        assertEquals(0, result.getCreatedEntries());
+        verifyNoInteractions(jdbcTemplate, customerLockService, customerBalanceService);
+    }
+
+    private Payment payment(Long id, String amount, int daysAgo) {
+        Payment payment = new Payment();
+        payment.setId(id);
+        payment.setCustomer(testCustomer);
+        payment.setAmount(new BigDecimal(amount));
+        payment.setPaymentDate(LocalDate.now().minusDays(daysAgo));
+        payment.setDescription("Payment " + id);
+        return payment;
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.dto.PaymentResponse;
+import com.example.ledgerly.entity.Customer;
+import com.example.ledgerly.entity.LedgerEntry;
+import com.example.ledgerly.entity.Payment;
+import com.example.ledgerly.entity.PaymentApplication;
+import com.example.ledgerly.entity.RelationshipType;
+import com.example.ledgerly.entity.Role;
+import com.example.ledgerly.entity.Shop;
+import com.example.ledgerly.entity.TransactionType;
+import com.example.ledgerly.entity.User;
+import com.example.ledgerly.repository.PaymentRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Payment listings must cost a fixed number of SQL statements per page whatever its size: the page, its
+ * count, one batch of customer and user names and one batch of applications. Statements are counted by
+ * Hibernate against an in-memory database, so any lazy load while building responses shows up in the count.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+@Import(PaymentReadService.class)
+class PaymentReadServiceTest {
+
+    private static final int PAYMENTS = 120;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentReadService paymentReadService;
+
+    private Statistics statistics;
+    private Long customerId;
+    private final List<Long> paymentIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            users.add(entityManager.persist(new User("user" + i, "user" + i + "@example.com", "secret1",
+                    "User", String.valueOf(i), Role.STAFF)));
+        }
+        Shop shop = entityManager.persist(new Shop("Main Street", "1 Main Street", users.get(0)));
+        Customer customer = new Customer("Acme Traders", "acme@example.com", "555-0100", RelationshipType.CUSTOMER,
+                users.get(0));
+        customer.setShop(shop);
+        customer = entityManager.persist(customer);
+        customerId = customer.getId();
+
+        for (int i = 0; i < PAYMENTS; i++) {
+            Payment payment = new Payment(LocalDate.now().minusDays(i), new BigDecimal("100.00"), "Payment " + i,
+                    customer, users.get(i % 5));
+            payment.setShop(shop);
+            payment.setUpdatedBy(users.get((i + 1) % 5));
+            payment.setStatusUpdatedBy(users.get((i + 2) % 5));
+            if (i % 4 == 0) {
+                payment.setDisputedBy(users.get((i + 3) % 5));
+            }
+            payment = entityManager.persist(payment);
+            paymentIds.add(payment.getId());
+
+            if (i % 2 == 0) {
+                LedgerEntry entry = new LedgerEntry(LocalDate.now().minusDays(i), TransactionType.DEBIT,
+                        new BigDecimal("50.00"), "Invoice " + i, customer, users.get(0));
+                entry.setShop(shop);
+                entry.refreshOutstanding(BigDecimal.ZERO);
+                entityManager.persist(entry);
+                entityManager.persist(new PaymentApplication(payment, entry, new BigDecimal("50.00"),
+                        users.get((i + 4) % 5)));
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 20, 100})
+    void testPageUsesFixedStatementCount(int size) {
+        Page<PaymentResponse> page = paymentReadService.toResponses(
+                paymentRepository.findByCustomerIdAndIsActiveTrueOrderByPaymentDateDesc(customerId,
+                        PageRequest.of(0, size)));
+
+        assertEquals(size, page.getContent().size());
+        assertEquals(PAYMENTS, page.getTotalElements());
+        // Page, count, names, applications
+        assertEquals(4, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testResponsesCarryNamesAndApplicationsOfEachPayment() {
+        List<Payment> payments = paymentRepository.findAllById(paymentIds.subList(0, 3));
+        payments.sort((a, b) -> a.getId().compareTo(b.getId()));
+
+        List<PaymentResponse> responses = paymentReadService.toResponses(payments);
+
+        PaymentResponse first = responses.get(0);
+        assertEquals(customerId, first.getCustomerId());
+        assertEquals("Acme Traders", first.getCustomerName());
+        assertEquals("user0", first.getCreatedByUsername());
+        assertEquals("user1", first.getUpdatedByUsername());
+        assertEquals("user2", first.getStatusUpdatedByUsername());
+        assertEquals("user3", first.getDisputedByUsername());
+        assertEquals(1, first.getApplications().size());
+        assertEquals("Invoice 0", first.getApplications().get(0).getLedgerEntryDescription());
+        assertEquals("user4", first.getApplications().get(0).getAppliedByUsername());
+        assertEquals(first.getId(), first.getApplications().get(0).getPaymentId());
+
+        assertNull(responses.get(1).getDisputedByUsername());
+        assertTrue(responses.get(1).getApplications().isEmpty());
+        assertEquals("Invoice 2", responses.get(2).getApplications().get(0).getLedgerEntryDescription());
+        // Payments, names, applications
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testEmptyListSkipsQueries() {
+        assertTrue(paymentReadService.toResponses(List.<Payment>of()).isEmpty());
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+}
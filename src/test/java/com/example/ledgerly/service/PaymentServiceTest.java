@@ -0,0 +1,183 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.dto.OutstandingBalanceResponse;
+import com.example.ledgerly.dto.PaymentApplicationRequest;
+import com.example.ledgerly.entity.Customer;
+import com.example.ledgerly.entity.LedgerEntry;
+import com.example.ledgerly.entity.Payment;
+import com.example.ledgerly.entity.TransactionType;
+import com.example.ledgerly.entity.User;
+import com.example.ledgerly.exception.BusinessRuleException;
+import com.example.ledgerly.repository.CustomerRepository;
+import com.example.ledgerly.repository.LedgerEntryRepository;
+import com.example.ledgerly.repository.PaymentApplicationRepository;
+import com.example.ledgerly.repository.PaymentRepository;
+import com.example.ledgerly.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentServiceTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PaymentApplicationRepository paymentApplicationRepository;
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CustomerLockService customerLockService;
+
+    @InjectMocks
+    private PaymentService paymentService;
+
+    private Customer testCustomer;
+
+    @BeforeEach
+    void setUp() {
+        testCustomer = new Customer();
+        testCustomer.setId(1L);
+        testCustomer.setName("Test Customer");
+        testCustomer.setCurrentBalance(new BigDecimal("-250.00"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testGetOutstandingBalanceUsesAggregateQueries() {
+        LocalDate oldest = LocalDate.now().minusDays(30);
+        LocalDate newer = LocalDate.now().minusDays(10);
+        when(customerRepository.findById(1L)).thenReturn(Optional.of(testCustomer));
+        when(ledgerEntryRepository.findOutstandingEntriesForCustomer(1L, PageRequest.of(0, 2))).thenReturn(List.of(
+                new Object[]{5L, oldest, "Invoice 5", new BigDecimal("200.00"), new BigDecimal("150.00")},
+                new Object[]{7L, newer, "Invoice 7", new BigDecimal("100.00"), new BigDecimal("100.00")}));
+        when(ledgerEntryRepository.summarizeOutstandingForCustomer(1L)).thenReturn(List.<Object[]>of(
+                new Object[]{3L, new BigDecimal("300.00"), java.sql.Date.valueOf(oldest), new BigDecimal("45")}));
+        Payment unapplied = new Payment();
+        unapplied.setId(9L);
+        unapplied.setAmount(new BigDecimal("80.00"));
+        unapplied.setAppliedAmount(BigDecimal.ZERO);
+        when(paymentRepository.findUnappliedPaymentsByCustomer(1L)).thenReturn(List.of(unapplied));
+
+        OutstandingBalanceResponse response = paymentService.getOutstandingBalance(1L, 0, 2);
+
+        assertEquals(new BigDecimal("300.00"), response.getTotalOutstandingBalance());
+        assertEquals(3, response.getTotalOutstandingEntries());
+        assertEquals(15, response.getAverageDaysOutstanding());
+        assertEquals(oldest, response.getOldestOutstandingDate());
+        assertEquals(new BigDecimal("220.00"), response.getNetOutstandingBalance());
+        assertEquals(2, response.getOutstandingEntries().size());
+        assertEquals(5L, response.getOutstandingEntries().get(0).getLedgerEntryId());
+        assertEquals(new BigDecimal("150.00"), response.getOutstandingEntries().get(0).getOutstandingAmount());
+        assertEquals(30, response.getOutstandingEntries().get(0).getDaysOutstanding());
+        assertEquals(1, response.getTotalUnappliedPaymentCount());
+        verifyNoInteractions(paymentApplicationRepository);
+    }
+
+    @Test
+    void testGetOutstandingBalanceWithNothingOutstanding() {
+        when(customerRepository.findById(1L)).thenReturn(Optional.of(testCustomer));
+        when(ledgerEntryRepository.findOutstandingEntriesForCustomer(1L, PageRequest.of(0, 100))).thenReturn(List.of());
+        when(ledgerEntryRepository.summarizeOutstandingForCustomer(1L)).thenReturn(List.<Object[]>of(
+                new Object[]{0L, BigDecimal.ZERO, null, BigDecimal.ZERO}));
+        when(paymentRepository.findUnappliedPaymentsByCustomer(1L)).thenReturn(List.of());
+
+        OutstandingBalanceResponse response = paymentService.getOutstandingBalance(1L);
+
+        assertFalse(response.hasOutstandingBalance());
+        assertEquals(0, response.getAverageDaysOutstanding());
+        assertNull(response.getOldestOutstandingDate());
+        assertTrue(response.getOutstandingEntries().isEmpty());
+    }
+
+    @Test
+    void testGetOutstandingBalanceClampsPageAndSize() {
+        when(customerRepository.findById(1L)).thenReturn(Optional.of(testCustomer));
+        when(ledgerEntryRepository.findOutstandingEntriesForCustomer(1L, PageRequest.of(0, 1))).thenReturn(List.of());
+        when(ledgerEntryRepository.summarizeOutstandingForCustomer(1L)).thenReturn(List.<Object[]>of(
+                new Object[]{0L, BigDecimal.ZERO, null, BigDecimal.ZERO}));
+        when(paymentRepository.findUnappliedPaymentsByCustomer(1L)).thenReturn(List.of());
+
+        // A zero or negative size would make PageRequest.of throw
+        OutstandingBalanceResponse response = paymentService.getOutstandingBalance(1L, -1, 0);
+
+        assertTrue(response.getOutstandingEntries().isEmpty());
+        assertEquals(0, response.getPage());
+        assertEquals(1, response.getSize());
+    }
+
+    @Test
+    void testGetOutstandingBalanceEchoesClampedSize() {
+        when(customerRepository.findById(1L)).thenReturn(Optional.of(testCustomer));
+        when(ledgerEntryRepository.findOutstandingEntriesForCustomer(1L, PageRequest.of(2, KeysetCursor.MAX_PAGE_SIZE))).thenReturn(List.of());
+        when(ledgerEntryRepository.summarizeOutstandingForCustomer(1L)).thenReturn(List.<Object[]>of(
+                new Object[]{0L, BigDecimal.ZERO, null, BigDecimal.ZERO}));
+        when(paymentRepository.findUnappliedPaymentsByCustomer(1L)).thenReturn(List.of());
+
+        OutstandingBalanceResponse response = paymentService.getOutstandingBalance(1L, 2, 1000);
+
+        // Clients page on the size actually used, not the one asked for
+        assertEquals(2, response.getPage());
+        assertEquals(KeysetCursor.MAX_PAGE_SIZE, response.getSize());
+    }
+
+    @Test
+    void testApplyPaymentRejectsApplicationAboveOutstanding() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("testuser", null, List.of()));
+        when(userRepository.findByUsernameOrEmail("testuser")).thenReturn(Optional.of(new User()));
+        when(paymentRepository.findCustomerIdById(9L)).thenReturn(Optional.of(1L));
+        Payment payment = new Payment(LocalDate.now(), new BigDecimal("500.00"), "Transfer", testCustomer, null);
+        payment.setId(9L);
+        when(paymentRepository.findById(9L)).thenReturn(Optional.of(payment));
+
+        // 200.00 invoice already settled down to 60.00; the payment itself could cover the 100.00 asked for
+        LedgerEntry entry = new LedgerEntry(LocalDate.now(), TransactionType.DEBIT, new BigDecimal("200.00"),
+                "Invoice 5", testCustomer, null);
+        entry.setId(5L);
+        entry.refreshOutstanding(new BigDecimal("140.00"));
+        when(ledgerEntryRepository.findById(5L)).thenReturn(Optional.of(entry));
+
+        PaymentApplicationRequest request = new PaymentApplicationRequest(9L,
+                List.of(new PaymentApplicationRequest.ApplicationDetail(5L, new BigDecimal("100.00"))));
+
+        BusinessRuleException exception = assertThrows(BusinessRuleException.class,
+                () -> paymentService.applyPaymentToEntries(request));
+
+        assertEquals("APPLICATION_EXCEEDS_OUTSTANDING", exception.getRuleCode());
+        assertEquals(new BigDecimal("60.00"), entry.getOutstandingAmount());
+        assertEquals(0, BigDecimal.ZERO.compareTo(payment.getAppliedAmount()));
+        verify(customerLockService).lockCustomer(1L);
+        verify(paymentApplicationRepository, never()).save(any());
+        verify(paymentRepository, never()).save(any());
+    }
+}
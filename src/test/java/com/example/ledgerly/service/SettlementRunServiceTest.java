@@ -0,0 +1,118 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.entity.Payment;
+import com.example.ledgerly.entity.User;
+import com.example.ledgerly.exception.BusinessRuleException;
+import com.example.ledgerly.repository.PaymentRepository;
+import com.example.ledgerly.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SettlementRunServiceTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CustomerLockService customerLockService;
+
+    @Mock
+    private PaymentAllocationService paymentAllocationService;
+
+    @Mock
+    private AuditService auditService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SettlementRunService settlementRunService;
+    private User systemUser;
+
+    @BeforeEach
+    void setUp() {
+        settlementRunService = new SettlementRunService(paymentRepository, userRepository, customerLockService,
+                paymentAllocationService, auditService, transactionManager);
+        ReflectionTestUtils.setField(settlementRunService, "threads", 2);
+        ReflectionTestUtils.setField(settlementRunService, "partitionSize", 2);
+
+        systemUser = new User();
+        systemUser.setId(99L);
+        systemUser.setUsername("system");
+        lenient().when(userRepository.findByUsernameOrEmail("system")).thenReturn(Optional.of(systemUser));
+    }
+
+    @Test
+    void testRunSettlesEachCustomerAndWritesOneSummaryRow() {
+        when(paymentRepository.findSettlementCandidateIdsAfter(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(1L, 2L, 3L));
+        when(paymentRepository.findSettlementCandidateIdsAfter(eq(3L), any(Pageable.class))).thenReturn(List.of());
+        when(paymentRepository.findApplicablePaymentsByCustomer(anyLong())).thenReturn(List.of());
+
+        Payment payment = new Payment();
+        payment.setId(10L);
+        PaymentAllocationService.AllocationResult settled = new PaymentAllocationService.AllocationResult(1L,
+                List.of(payment), List.of(new PaymentAllocationService.Allocation(payment, 5L, new BigDecimal("40.00"))));
+        when(paymentAllocationService.allocate(eq(1L), anyList(), eq(AllocationStrategy.FIFO), same(systemUser), eq(false)))
+                .thenReturn(settled);
+        when(paymentAllocationService.allocate(eq(2L), anyList(), eq(AllocationStrategy.FIFO), same(systemUser), eq(false)))
+                .thenThrow(new RuntimeException("boom"));
+        when(paymentAllocationService.allocate(eq(3L), anyList(), eq(AllocationStrategy.FIFO), same(systemUser), eq(false)))
+                .thenReturn(new PaymentAllocationService.AllocationResult(3L, List.of(), List.of()));
+
+        SettlementRunService.SettlementRunResult result = settlementRunService.runSettlement(AllocationStrategy.FIFO);
+
+        assertEquals(3, result.getCustomersProcessed());
+        assertEquals(1, result.getCustomersSettled());
+        assertEquals(1, result.getPaymentsUpdated());
+        assertEquals(1, result.getApplicationCount());
+        assertEquals(new BigDecimal("40.00"), result.getTotalApplied());
+        assertEquals(1, result.getFailureCount());
+        assertEquals(2L, result.getFailures().get(0).getCustomerId());
+        verify(customerLockService, times(3)).lockCustomer(anyLong());
+        verify(auditService, times(1)).logFailure(eq("SETTLEMENT_RUN"), eq("SYSTEM"), isNull(),
+                contains("boom"), anyString(), same(systemUser));
+        verifyNoMoreInteractions(auditService);
+    }
+
+    @Test
+    void testRunWithNoCandidatesLogsSuccessSummary() {
+        when(paymentRepository.findSettlementCandidateIdsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of());
+
+        SettlementRunService.SettlementRunResult result = settlementRunService.runSettlement(AllocationStrategy.DUE_DATE);
+
+        assertEquals(0, result.getCustomersProcessed());
+        verifyNoInteractions(paymentAllocationService);
+        verify(auditService).logSuccess(eq("SETTLEMENT_RUN"), eq("SYSTEM"), isNull(), isNull(), isNull(),
+                contains("DUE_DATE"), same(systemUser));
+    }
+
+    @Test
+    void testConcurrentRunIsRejected() {
+        ((AtomicBoolean) ReflectionTestUtils.getField(settlementRunService, "running")).set(true);
+
+        BusinessRuleException exception = assertThrows(BusinessRuleException.class,
+                () -> settlementRunService.runSettlement(AllocationStrategy.FIFO));
+
+        assertEquals("SETTLEMENT_RUN_IN_PROGRESS", exception.getRuleCode());
+        verifyNoInteractions(paymentRepository);
+    }
+}
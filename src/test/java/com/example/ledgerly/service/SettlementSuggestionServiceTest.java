@@ -0,0 +1,119 @@
+package com.example.ledgerly.service;
+
+import com.example.ledgerly.service.SettlementSuggestionService.Match;
+import com.example.ledgerly.service.SettlementSuggestionService.MatchType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SettlementSuggestionServiceTest {
+
+    @Test
+    void testExactMatchWinsOverOlderEntries() {
+        List<Match> matches = SettlementSuggestionService.match(new long[]{10_000, 25_000, 7_500},
+                new long[]{7_500}, 100);
+
+        assertEquals(1, matches.size());
+        assertMatch(matches.get(0), 0, 2, 7_500, MatchType.EXACT);
+    }
+
+    @Test
+    void testNearMatchWithinTolerance() {
+        // Payment is 0.35 short of the invoice, e.g. a bank fee
+        List<Match> matches = SettlementSuggestionService.match(new long[]{10_000, 49_935 + 35},
+                new long[]{49_935}, 100);
+
+        assertEquals(1, matches.size());
+        assertMatch(matches.get(0), 0, 1, 49_935, MatchType.NEAR_EXACT);
+    }
+
+    @Test
+    void testNearMatchOutsideToleranceFallsBackToFifo() {
+        List<Match> matches = SettlementSuggestionService.match(new long[]{10_000, 50_000},
+                new long[]{49_000}, 100);
+
+        assertMatch(matches.get(0), 0, 0, 10_000, MatchType.FIFO);
+        assertMatch(matches.get(1), 0, 1, 39_000, MatchType.FIFO);
+    }
+
+    @Test
+    void testPairAndTripleCombinations() {
+        long[] entries = {5_000, 12_000, 3_000, 8_000, 1_000, 40_000};
+
+        List<Match> pair = SettlementSuggestionService.match(entries, new long[]{20_000}, 0);
+        assertEquals(2, pair.size());
+        assertMatch(pair.get(0), 0, 1, 12_000, MatchType.COMBINATION);
+        assertMatch(pair.get(1), 0, 3, 8_000, MatchType.COMBINATION);
+
+        List<Match> triple = SettlementSuggestionService.match(entries, new long[]{16_000}, 0);
+        assertEquals(3, triple.size());
+        assertMatch(triple.get(0), 0, 0, 5_000, MatchType.COMBINATION);
+        assertMatch(triple.get(1), 0, 2, 3_000, MatchType.COMBINATION);
+        assertMatch(triple.get(2), 0, 3, 8_000, MatchType.COMBINATION);
+    }
+
+    @Test
+    void testMatchedEntriesAreNotReusedByFifo() {
+        List<Match> matches = SettlementSuggestionService.match(new long[]{3_000, 6_000, 2_000},
+                new long[]{99_000, 6_000}, 0);
+
+        // The exact match for the second payment is taken first; FIFO spends the first payment on the rest
+        assertMatch(matches.get(0), 0, 0, 3_000, MatchType.FIFO);
+        assertMatch(matches.get(1), 0, 2, 2_000, MatchType.FIFO);
+        assertMatch(matches.get(2), 1, 1, 6_000, MatchType.EXACT);
+    }
+
+    @Test
+    void testDuplicateAmountsMatchOldestFirst() {
+        List<Match> matches = SettlementSuggestionService.match(new long[]{4_200, 4_200, 4_200},
+                new long[]{4_200, 4_200}, 0);
+
+        assertMatch(matches.get(0), 0, 0, 4_200, MatchType.EXACT);
+        assertMatch(matches.get(1), 1, 1, 4_200, MatchType.EXACT);
+    }
+
+    /**
+     * Matching cost for a customer with 10k open entries and 500 unapplied payments, a third of which have no
+     * exact, near or combination match. Run with: mvn test -Dtest=SettlementSuggestionServiceTest -Dbenchmark=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkTenThousandOpenEntries() {
+        Random random = new Random(42);
+        long[] entries = new long[10_000];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = 1_000 + random.nextInt(500_000);
+        }
+        long[] payments = new long[500];
+        for (int i = 0; i < payments.length; i++) {
+            payments[i] = i % 3 == 0 ? 10_000_000 + random.nextInt(1_000_000) : entries[random.nextInt(entries.length)];
+        }
+
+        for (int warmup = 0; warmup < 5; warmup++) {
+            SettlementSuggestionService.match(entries, payments, 100);
+        }
+        int runs = 20;
+        long start = System.nanoTime();
+        List<Match> matches = null;
+        for (int run = 0; run < runs; run++) {
+            matches = SettlementSuggestionService.match(entries, payments, 100);
+        }
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / runs;
+
+        System.out.printf("Settlement suggestions, %,d entries x %,d payments: %,d us per run, %,d matches%n",
+                entries.length, payments.length, micros, matches.size());
+        assertTrue(micros < 1_000_000, "Matching 10k open entries should take well under a second");
+    }
+
+    private void assertMatch(Match match, int payment, int entry, long cents, MatchType type) {
+        assertEquals(payment, match.payment);
+        assertEquals(entry, match.entry);
+        assertEquals(cents, match.cents);
+        assertEquals(type, match.type);
+    }
+}